@@ -8,11 +8,15 @@ import com.uade.tpo.deportes.enums.Role;
 import com.uade.tpo.deportes.repository.DeporteRepository;
 import com.uade.tpo.deportes.repository.UbicacionRepository;
 import com.uade.tpo.deportes.repository.UsuarioRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.Arrays;
 import java.util.List;
@@ -32,9 +36,16 @@ public class DataInitializer implements CommandLineRunner {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
     @Override
     public void run(String... args) throws Exception {
         // NO crear deportes básicos automáticamente - solo el admin los creará
+        normalizarZonasExistentes();
         inicializarUsuarioAdmin();
         inicializarZonasYUbicaciones();
         inicializarUsuariosDePrueba();
@@ -60,6 +71,16 @@ public class DataInitializer implements CommandLineRunner {
         }
     }
 
+    private void normalizarZonasExistentes() {
+        // Ubicaciones guardadas antes de la columna zona_normalizada (las nuevas la completan al persistirse)
+        Integer actualizadas = new TransactionTemplate(transactionManager).execute(status ->
+                entityManager.createQuery("UPDATE Ubicacion u SET u.zonaNormalizada = LOWER(TRIM(u.zona)) " +
+                        "WHERE u.zona IS NOT NULL AND u.zonaNormalizada IS NULL").executeUpdate());
+        if (actualizadas != null && actualizadas > 0) {
+            System.out.println("🗺️ Zonas normalizadas en ubicaciones existentes: " + actualizadas);
+        }
+    }
+
     private void inicializarZonasYUbicaciones() {
         // Solo inicializar si no hay ubicaciones existentes
         if (ubicacionRepository.count() > 0) {
@@ -1,10 +1,41 @@
 package com.uade.tpo.deportes.config;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
 
+/**
+ * Habilita las tareas programadas con un pool propio en lugar del hilo
+ * único por defecto de Spring. Los hilos del pool solo disparan: el trabajo
+ * de cada tarea corre en su propio ejecutor (EjecutorTareasProgramadas),
+ * así una tarea lenta no atrasa a las demás.
+ *
+ * El pool es un bean: lo inicializa el contexto y lo apaga al cerrarse,
+ * así sus hilos no quedan vivos después del cierre (tests, redeploys).
+ */
 @Configuration
 @EnableScheduling
-public class SchedulingConfig {
-    // Esta clase habilita las tareas programadas
+public class SchedulingConfig implements SchedulingConfigurer {
+
+    @Value("${unomas.scheduler.pool-size:4}")
+    private int tamañoPool;
+
+    @Bean
+    public ThreadPoolTaskScheduler planificadorTareas() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(tamañoPool);
+        scheduler.setThreadNamePrefix("tareas-programadas-");
+        scheduler.setErrorHandler(e -> System.err.println("❌ Error en tarea programada: " + e.getMessage()));
+        scheduler.setWaitForTasksToCompleteOnShutdown(false);
+        return scheduler;
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar registrar) {
+        registrar.setTaskScheduler(planificadorTareas());
+    }
 }
@@ -4,7 +4,14 @@ import com.uade.tpo.deportes.dto.MessageResponse;
 import com.uade.tpo.deportes.patterns.adapter.NotificadorEmail;
 import com.uade.tpo.deportes.patterns.adapter.NotificadorPush;
 import com.uade.tpo.deportes.patterns.adapter.AdapterFirebasePush;
+import com.uade.tpo.deportes.patterns.adapter.AdapterJavaMailEmail;
+import com.uade.tpo.deportes.patterns.decorator.NotificadorEmailResiliente;
+import com.uade.tpo.deportes.patterns.decorator.NotificadorPushResiliente;
 import com.uade.tpo.deportes.patterns.observer.NotificadorObserver;
+import com.uade.tpo.deportes.service.notificacion.CoalescedorEventos;
+import com.uade.tpo.deportes.service.notificacion.ColaReintentosNotificaciones;
+import com.uade.tpo.deportes.service.notificacion.DeduplicadorEventos;
+import com.uade.tpo.deportes.service.notificacion.DespachadorNotificaciones;
 import com.uade.tpo.deportes.entity.Partido;
 import com.uade.tpo.deportes.entity.Deporte;
 import com.uade.tpo.deportes.entity.Usuario;
@@ -12,6 +19,7 @@ import com.uade.tpo.deportes.entity.Ubicacion;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
@@ -31,21 +39,64 @@ public class NotificacionController {
     
     @Autowired
     private AdapterFirebasePush adapterFirebasePush;
+
+    @Autowired
+    private AdapterJavaMailEmail adapterJavaMailEmail;
     
     @Autowired
     private NotificadorObserver notificadorObserver;
 
+    @Autowired
+    private DespachadorNotificaciones despachadorNotificaciones;
+
+    @Autowired
+    private DeduplicadorEventos deduplicadorEventos;
+
+    @Autowired
+    private CoalescedorEventos coalescedorEventos;
+
+    @Autowired
+    private NotificadorEmailResiliente notificadorEmailResiliente;
+
+    @Autowired
+    private NotificadorPushResiliente notificadorPushResiliente;
+
+    @Autowired
+    private ColaReintentosNotificaciones colaReintentos;
+
     @GetMapping("/status")
     public ResponseEntity<Map<String, Object>> getFirebaseStatus() {
         Map<String, Object> status = new HashMap<>();
         
         status.put("firebaseConfigured", adapterFirebasePush.isFirebaseConfigured());
         status.put("configurationStatus", adapterFirebasePush.getConfigurationStatus());
+        status.put("despachador", despachadorNotificaciones.obtenerEstadisticas());
+        status.put("emailLotes", adapterJavaMailEmail.obtenerEstadisticasLotes());
+        status.put("eventosRegistrados", deduplicadorEventos.getRegistrados());
+        status.put("duplicadosEvitados", deduplicadorEventos.getDuplicadosEvitados());
+        status.put("resumenesPendientes", coalescedorEventos.getPartidosPendientes());
+        Map<String, Object> circuitos = new HashMap<>();
+        circuitos.put("email", notificadorEmailResiliente.obtenerEstadoCircuito());
+        circuitos.put("push", notificadorPushResiliente.obtenerEstadoCircuito());
+        status.put("circuitos", circuitos);
+        status.put("reintentos", colaReintentos.obtenerEstadisticas());
         status.put("timestamp", System.currentTimeMillis());
         
         return ResponseEntity.ok(status);
     }
 
+    /**
+     * Vuelve a poner en reintento las notificaciones que agotaron sus intentos (solo ADMIN)
+     */
+    @PostMapping("/reintentos/reenviar-cartas-muertas")
+    public ResponseEntity<MessageResponse> reenviarCartasMuertas(@AuthenticationPrincipal Usuario usuario) {
+        if (!usuario.getRole().name().equals("ADMIN")) {
+            return ResponseEntity.status(403).build();
+        }
+        int reactivadas = colaReintentos.reenviarCartasMuertas();
+        return ResponseEntity.ok(MessageResponse.success(reactivadas + " notificaciones vuelven a reintentarse"));
+    }
+
     @PostMapping("/configurar")
     public ResponseEntity<MessageResponse> configurarNotificaciones() {
         // Endpoint para configurar preferencias de notificaciones
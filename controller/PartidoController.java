@@ -9,6 +9,8 @@ import com.uade.tpo.deportes.patterns.strategy.EmparejamientoPorHistorialStrateg
 import com.uade.tpo.deportes.patterns.strategy.EmparejamientoPorNivelStrategy;
 import com.uade.tpo.deportes.patterns.strategy.EmparejamientoPorCercaniaStrategy;
 import com.uade.tpo.deportes.repository.PartidoRepository;
+import com.uade.tpo.deportes.service.historial.PerfilHistorialService;
+import com.uade.tpo.deportes.service.partido.IndicePartidosAbiertos;
 import com.uade.tpo.deportes.service.partido.PartidoService;
 import com.uade.tpo.deportes.service.usuario.UsuarioService;
 import lombok.RequiredArgsConstructor;
@@ -40,6 +42,12 @@ public class PartidoController {
     @Autowired
     private PartidoRepository partidoRepository;
 
+    @Autowired
+    private IndicePartidosAbiertos indicePartidosAbiertos;
+
+    @Autowired
+    private PerfilHistorialService perfilHistorialService;
+
     @Autowired
     private ConfirmacionService confirmacionService;
     @Autowired
@@ -109,6 +117,20 @@ public class PartidoController {
         return ResponseEntity.ok(partidos);
     }
 
+    @GetMapping("/mis-partidos/cursor")
+    public ResponseEntity<PartidoCursorResponse> obtenerMisPartidosPorCursor(
+            @AuthenticationPrincipal Usuario usuario,
+            @RequestParam(defaultValue = "TODOS") String filtro,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size) {
+        return ResponseEntity.ok(partidoService.obtenerPartidosDelUsuarioPorCursor(usuario.getEmail(), filtro, cursor, size));
+    }
+
+    @GetMapping("/mis-partidos/resumen")
+    public ResponseEntity<List<PartidoResumenResponse>> obtenerResumenMisPartidos(@AuthenticationPrincipal Usuario usuario) {
+        return ResponseEntity.ok(partidoService.obtenerResumenPartidosDelUsuario(usuario.getEmail()));
+    }
+
     @PostMapping("/buscar")
     public ResponseEntity<Page<PartidoResponse>> buscarPartidos(
             @AuthenticationPrincipal Usuario usuario,
@@ -121,6 +143,37 @@ public class PartidoController {
         return ResponseEntity.ok(partidos);
     }
 
+    @PostMapping("/buscar/resumen")
+    public ResponseEntity<Page<PartidoResumenResponse>> buscarPartidosResumen(
+            @AuthenticationPrincipal Usuario usuario,
+            @RequestBody CriteriosBusqueda criterios,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size) {
+        
+        Pageable pageable = PageRequest.of(page, size);
+        return ResponseEntity.ok(partidoService.buscarPartidosResumen(usuario.getEmail(), criterios, pageable));
+    }
+
+    @PostMapping("/buscar/cercanos")
+    public ResponseEntity<Page<PartidoResponse>> buscarPartidosCercanos(
+            @AuthenticationPrincipal Usuario usuario,
+            @RequestBody CriteriosBusqueda criterios,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size) {
+        
+        Pageable pageable = PageRequest.of(page, size);
+        return ResponseEntity.ok(partidoService.buscarPartidosCercanos(usuario.getEmail(), criterios, pageable));
+    }
+
+    @PostMapping("/buscar/cursor")
+    public ResponseEntity<PartidoCursorResponse> buscarPartidosPorCursor(
+            @AuthenticationPrincipal Usuario usuario,
+            @RequestBody CriteriosBusqueda criterios,
+            @RequestParam(defaultValue = "10") int size) {
+        PartidoCursorResponse partidos = partidoService.buscarPartidosPorCursor(usuario.getEmail(), criterios, size);
+        return ResponseEntity.ok(partidos);
+    }
+
     @PostMapping("/{id}/unirse")
     public ResponseEntity<MessageResponse> unirseAPartido(
             @AuthenticationPrincipal Usuario usuario,
@@ -155,6 +208,14 @@ public class PartidoController {
         return ResponseEntity.ok(partidos);
     }
 
+    @GetMapping("/todos/resumen")
+    public ResponseEntity<List<PartidoResumenResponse>> obtenerResumenTodosLosPartidos(@AuthenticationPrincipal Usuario usuario) {
+        if (!usuario.getRole().name().equals("ADMIN")) {
+            return ResponseEntity.status(403).build();
+        }
+        return ResponseEntity.ok(partidoService.buscarTodosResumenParaAdmin());
+    }
+
     @GetMapping("/{id}/comentarios")
     public ResponseEntity<Page<ComentarioResponse>> obtenerComentariosPartido(
             @PathVariable Long id,
@@ -171,6 +232,23 @@ public class PartidoController {
         return partidoService.buscarTodosParaAdmin();
     }
 
+    @GetMapping("/admin/indice/consistencia")
+    public ResponseEntity<Map<String, Object>> verificarIndicePartidos(@AuthenticationPrincipal Usuario usuario) {
+        if (!usuario.getRole().name().equals("ADMIN")) {
+            return ResponseEntity.status(403).build();
+        }
+        return ResponseEntity.ok(indicePartidosAbiertos.verificarConsistencia());
+    }
+
+    @PostMapping("/admin/indice/reconstruir")
+    public ResponseEntity<MessageResponse> reconstruirIndicePartidos(@AuthenticationPrincipal Usuario usuario) {
+        if (!usuario.getRole().name().equals("ADMIN")) {
+            return ResponseEntity.status(403).build();
+        }
+        int cantidad = indicePartidosAbiertos.reconstruir();
+        return ResponseEntity.ok(MessageResponse.success("Índice de partidos reconstruido: " + cantidad + " partidos abiertos"));
+    }
+
     @PostMapping("/{partidoId}/test-historial")
     public ResponseEntity<Map<String, Object>> testEstrategiaHistorial(
             @PathVariable Long partidoId,
@@ -224,13 +302,13 @@ public class PartidoController {
             // Crear instancia directa de la estrategia
             EmparejamientoPorHistorialStrategy estrategia = new EmparejamientoPorHistorialStrategy();
             
-            // Inyectar el repositorio manualmente (esto es solo para testing)
+            // Inyectar el servicio de perfiles manualmente (esto es solo para testing)
             try {
-                java.lang.reflect.Field repoField = EmparejamientoPorHistorialStrategy.class.getDeclaredField("partidoRepository");
-                repoField.setAccessible(true);
-                repoField.set(estrategia, partidoRepository);
+                java.lang.reflect.Field perfilField = EmparejamientoPorHistorialStrategy.class.getDeclaredField("perfilHistorialService");
+                perfilField.setAccessible(true);
+                perfilField.set(estrategia, perfilHistorialService);
             } catch (Exception e) {
-                System.err.println("No se pudo inyectar el repositorio: " + e.getMessage());
+                System.err.println("No se pudo inyectar el servicio de perfiles: " + e.getMessage());
             }
             
             // Calcular compatibilidad directamente
@@ -14,4 +14,9 @@ public class CriteriosBusqueda {
     private String zona;
     private String estado;
     private Boolean incluirTodos;
+    private String cursor; // solo para búsqueda paginada por cursor
+    // Búsqueda por cercanía ("partidos cerca de mí")
+    private Double latitud;
+    private Double longitud;
+    private Double radioKm;
 }
\ No newline at end of file
@@ -0,0 +1,19 @@
+package com.uade.tpo.deportes.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class PartidoCursorResponse {
+    private List<PartidoResponse> partidos;
+    private String siguienteCursor; // null si no hay más páginas
+    private boolean hayMas;
+    private int tamañoPagina;
+}
@@ -31,4 +31,5 @@ public class PartidoResponse {
     private Double compatibilidad;
     private NivelJuego nivelMinimo;
     private NivelJuego nivelMaximo;
+    private Double distanciaKm; // Solo en búsqueda por cercanía
 }
\ No newline at end of file
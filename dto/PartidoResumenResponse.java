@@ -0,0 +1,37 @@
+package com.uade.tpo.deportes.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Vista compacta de un partido para las listas.
+ * No incluye jugadores ni organizador completos: el detalle se pide a GET /partidos/{id}.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class PartidoResumenResponse {
+    private Long id;
+    private Long deporteId;
+    private String deporte;
+    private String zona;
+    private LocalDateTime horario;
+    private Integer cantidadJugadoresActual;
+    private Integer cantidadJugadoresRequeridos;
+    private String estado;
+    private Long organizadorId;
+    private Double compatibilidad; // Solo en búsquedas
+
+    // Constructor usado por las proyecciones JPQL (SELECT new ...)
+    public PartidoResumenResponse(Long id, Long deporteId, String deporte, String zona, LocalDateTime horario,
+                                  Integer cantidadJugadoresActual, Integer cantidadJugadoresRequeridos,
+                                  String estado, Long organizadorId) {
+        this(id, deporteId, deporte, zona, horario, cantidadJugadoresActual,
+                cantidadJugadoresRequeridos, estado, organizadorId, null);
+    }
+}
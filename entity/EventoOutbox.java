@@ -0,0 +1,87 @@
+package com.uade.tpo.deportes.entity;
+
+import com.uade.tpo.deportes.enums.EventoPartido;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 📤 Evento de partido pendiente de despachar.
+ * Se escribe en la misma transacción que el cambio del partido; el
+ * RelayOutbox lo lee recién cuando la transacción ya hizo commit.
+ */
+@Entity
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "eventos_outbox", indexes = {
+        @Index(name = "idx_outbox_estado_id", columnList = "estado, id"),
+        @Index(name = "idx_outbox_estado_proximo", columnList = "estado, proximo_intento"),
+        @Index(name = "idx_outbox_lote", columnList = "lote")
+})
+public class EventoOutbox {
+
+    public static final String PENDIENTE = "PENDIENTE";
+    public static final String EN_PROCESO = "EN_PROCESO";
+    public static final String PROCESADO = "PROCESADO";
+    // JUGADOR_UNIDO ya sumado a un resumen en memoria: se confirma cuando el resumen sale
+    public static final String AGRUPADO = "AGRUPADO";
+    public static final String FALLIDO = "FALLIDO";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "partido_id", nullable = false)
+    private Long partidoId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 40)
+    private EventoPartido evento;
+
+    // partidoId:EVENTO (+ id del jugador para JUGADOR_UNIDO, + minutos antes para RECORDATORIO_PARTIDO)
+    @Column(name = "clave_idempotencia", nullable = false, unique = true, length = 120)
+    private String claveIdempotencia;
+
+    // Solo RECORDATORIO_PARTIDO: cuántos minutos antes del horario se avisa
+    @Column(name = "minutos_antes")
+    private Integer minutosAntes;
+
+    @Builder.Default
+    @Column(nullable = false, length = 20)
+    private String estado = PENDIENTE;
+
+    @Builder.Default
+    @Column(nullable = false)
+    private int intentos = 0;
+
+    // Identifica qué pasada del relay reclamó el evento
+    @Column(length = 36)
+    private String lote;
+
+    @Column
+    private LocalDateTime tomadoEn;
+
+    // Después de un fallo no se vuelve a reclamar hasta este momento (backoff exponencial)
+    @Column(name = "proximo_intento")
+    private LocalDateTime proximoIntento;
+
+    @Column
+    private LocalDateTime procesadoEn;
+
+    @Column(length = 500)
+    private String ultimoError;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime creadoEn;
+
+    @PrePersist
+    protected void onCreate() {
+        creadoEn = LocalDateTime.now();
+    }
+}
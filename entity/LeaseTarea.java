@@ -0,0 +1,51 @@
+package com.uade.tpo.deportes.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+/**
+ * 🔐 Lease de una tarea programada.
+ * Una fila por tarea: el nodo que figura como propietario la corre hasta
+ * que vence el lease. Si no lo renueva a tiempo, lo toma otro nodo.
+ *
+ * Las filas solo se crean con save (siempre un persist): si otro nodo ya
+ * creó la de la misma tarea, el INSERT choca con la clave primaria en vez
+ * de pisarle el propietario. Después se modifican solo con UPDATE.
+ */
+@Entity
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "leases_tareas")
+public class LeaseTarea implements Persistable<String> {
+
+    @Id
+    @Column(length = 100)
+    private String nombre;
+
+    @Column(length = 200)
+    private String propietario;
+
+    @Column(name = "vence_en", nullable = false)
+    private LocalDateTime venceEn;
+
+    @Column(name = "renovado_en")
+    private LocalDateTime renovadoEn;
+
+    @Override
+    public String getId() {
+        return nombre;
+    }
+
+    @Override
+    public boolean isNew() {
+        return true;
+    }
+}
@@ -0,0 +1,79 @@
+package com.uade.tpo.deportes.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 💀 Notificación cuya entrega falló.
+ * Mientras espera su reintento queda REINTENTANDO; si agota los reintentos
+ * pasa a MUERTA (dead-letter). Guarda la operación, los destinos y el
+ * mensaje, así la entrega se puede retomar después de una caída del nodo
+ * o reenviar a mano; la cola de reintentos en memoria no lo haría.
+ */
+@Entity
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "notificaciones_fallidas", indexes = {
+        @Index(name = "idx_notificaciones_fallidas_fecha", columnList = "creadoEn"),
+        @Index(name = "idx_notificaciones_fallidas_estado", columnList = "estado, proximo_intento")
+})
+public class NotificacionFallida {
+
+    public static final String REINTENTANDO = "REINTENTANDO";
+    public static final String MUERTA = "MUERTA";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // email, push...
+    @Column(nullable = false, length = 40)
+    private String proveedor;
+
+    // Qué se intentaba entregar y a quién ("Email a ana@...", "Push al tópico deporte_3")
+    @Column(nullable = false, length = 500)
+    private String descripcion;
+
+    @Builder.Default
+    @Column(nullable = false, length = 20)
+    private String estado = REINTENTANDO;
+
+    // Reenvio.Operacion
+    @Column(length = 30)
+    private String operacion;
+
+    // Emails, tokens o tópico, uno por línea (a lo sumo 500)
+    @Column(length = 100000)
+    private String destinos;
+
+    @Column(length = 4000)
+    private String mensaje;
+
+    @Column(nullable = false)
+    private int intentos;
+
+    @Column(name = "proximo_intento")
+    private LocalDateTime proximoIntento;
+
+    @Column(length = 500)
+    private String error;
+
+    // Instancia que la tiene en su cola (o que la descartó)
+    @Column(length = 100)
+    private String nodo;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime creadoEn;
+
+    @PrePersist
+    protected void onCreate() {
+        creadoEn = LocalDateTime.now();
+    }
+}
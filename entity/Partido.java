@@ -27,7 +27,37 @@ import java.util.List;
 @AllArgsConstructor
 @Builder
 @Entity
-@Table(name = "partidos")
+@Table(name = "partidos", indexes = {
+        @Index(name = "idx_partidos_estado_horario", columnList = "estadoActual, horario"),
+        @Index(name = "idx_partidos_estado_horario_fin", columnList = "estadoActual, horario_fin")
+})
+// Planes de carga por vista: cada uno trae en una consulta lo que la vista mapea
+@NamedEntityGraph(name = "Partido.lista",
+    attributeNodes = {
+        @NamedAttributeNode("deporte"),
+        @NamedAttributeNode("ubicacion"),
+        @NamedAttributeNode("organizador"),
+        @NamedAttributeNode(value = "participantes", subgraph = "jugador")
+    },
+    subgraphs = @NamedSubgraph(name = "jugador", attributeNodes = @NamedAttributeNode("deporteFavorito")))
+@NamedEntityGraph(name = "Partido.detalle",
+    attributeNodes = {
+        @NamedAttributeNode("deporte"),
+        @NamedAttributeNode("ubicacion"),
+        @NamedAttributeNode(value = "organizador", subgraph = "jugador"),
+        @NamedAttributeNode(value = "participantes", subgraph = "jugador")
+    },
+    subgraphs = @NamedSubgraph(name = "jugador", attributeNodes = {
+        @NamedAttributeNode("deporteFavorito"),
+        @NamedAttributeNode("ubicacion")
+    }))
+@NamedEntityGraph(name = "Partido.busqueda",
+    attributeNodes = {
+        @NamedAttributeNode("deporte"),
+        @NamedAttributeNode("ubicacion"),
+        @NamedAttributeNode("organizador"),
+        @NamedAttributeNode("participantes")
+    })
 public class Partido implements ObservablePartido {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -50,6 +80,10 @@ public class Partido implements ObservablePartido {
     @Column(nullable = false)
     private LocalDateTime horario;
 
+    // horario + duracion: permite filtrar los partidos vencidos en la base (transiciones masivas)
+    @Column(name = "horario_fin")
+    private LocalDateTime horarioFin;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "organizador_id", nullable = false)
     private Usuario organizador;
@@ -84,6 +118,14 @@ public class Partido implements ObservablePartido {
     @Builder.Default
     private List<ObserverPartido> observers = new ArrayList<>();
 
+    @PrePersist
+    @PreUpdate
+    public void calcularHorarioFin() {
+        if (horario != null && duracion != null) {
+            horarioFin = horario.plusMinutes(duracion);
+        }
+    }
+
     // Métodos de negocio
     public void agregarJugador(Usuario usuario) {
         if (puedeUnirse(usuario)) {
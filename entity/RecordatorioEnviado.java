@@ -0,0 +1,43 @@
+package com.uade.tpo.deportes.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * ⏰ Marca persistente de un recordatorio ya emitido.
+ * Una fila por partido y offset (24 h, 1 h, 15 min...): la clave única
+ * impide que dos pasadas o dos nodos registren el mismo recordatorio.
+ */
+@Entity
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "recordatorios_enviados", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_recordatorio_partido_offset", columnNames = {"partido_id", "minutos_antes"})
+})
+public class RecordatorioEnviado {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "partido_id", nullable = false)
+    private Long partidoId;
+
+    @Column(name = "minutos_antes", nullable = false)
+    private Integer minutosAntes;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime enviadoEn;
+
+    @PrePersist
+    protected void onCreate() {
+        enviadoEn = LocalDateTime.now();
+    }
+}
@@ -11,7 +11,9 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 @Builder
 @Entity
-@Table(name = "ubicaciones")
+@Table(name = "ubicaciones", indexes = {
+        @Index(name = "idx_ubicaciones_zona_normalizada", columnList = "zona_normalizada")
+})
 public class Ubicacion {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -29,6 +31,23 @@ public class Ubicacion {
 
     private String zona; // Ya permite null
 
+    // Zona en minúsculas y sin espacios de borde: las búsquedas por zona comparan contra esta columna
+    @Column(name = "zona_normalizada")
+    private String zonaNormalizada;
+
+    @PrePersist
+    @PreUpdate
+    public void calcularZonaNormalizada() {
+        zonaNormalizada = normalizarZona(zona);
+    }
+
+    /**
+     * Única normalización de zona: la usan la columna zona_normalizada y el índice en memoria
+     */
+    public static String normalizarZona(String zona) {
+        return zona == null ? null : zona.trim().toLowerCase();
+    }
+
     public Double calcularDistancia(Ubicacion otra) {
         // ✅ MEJORADO: Verificar null antes de calcular
         if (this.latitud == null || this.longitud == null || 
@@ -36,14 +55,21 @@ public class Ubicacion {
             return null; // No se puede calcular distancia sin coordenadas
         }
         
-        // Fórmula de Haversine simplificada para calcular distancia
+        return distanciaKm(this.latitud, this.longitud, otra.latitud, otra.longitud);
+    }
+
+    /**
+     * Distancia en km entre dos coordenadas (fórmula de Haversine).
+     * Única implementación: la usan el índice, la búsqueda por cercanía y las estrategias.
+     */
+    public static double distanciaKm(double lat1, double lon1, double lat2, double lon2) {
         final int R = 6371; // Radio de la Tierra en km
         
-        double latDistance = Math.toRadians(otra.latitud - this.latitud);
-        double lonDistance = Math.toRadians(otra.longitud - this.longitud);
+        double latDistance = Math.toRadians(lat2 - lat1);
+        double lonDistance = Math.toRadians(lon2 - lon1);
         
         double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
-                + Math.cos(Math.toRadians(this.latitud)) * Math.cos(Math.toRadians(otra.latitud))
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
                 * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
                 
         double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
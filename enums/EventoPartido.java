@@ -7,7 +7,8 @@ public enum EventoPartido {
     PARTIDO_CONFIRMADO("Partido confirmado"),
     PARTIDO_INICIADO("Partido iniciado"),
     PARTIDO_FINALIZADO("Partido finalizado"),
-    PARTIDO_CANCELADO("Partido cancelado");
+    PARTIDO_CANCELADO("Partido cancelado"),
+    RECORDATORIO_PARTIDO("Recordatorio de partido");
     
     private final String descripcion;
     
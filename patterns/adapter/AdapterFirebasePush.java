@@ -1,22 +1,37 @@
 package com.uade.tpo.deportes.patterns.adapter;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import com.google.firebase.FirebaseApp;
 import com.google.firebase.FirebaseOptions;
-import com.google.firebase.messaging.FirebaseMessaging;
-import com.google.firebase.messaging.Message;
-import com.google.firebase.messaging.Notification;
 import com.google.auth.oauth2.GoogleCredentials;
+import com.uade.tpo.deportes.patterns.adapter.ClienteFcm.ResultadoToken;
+import com.uade.tpo.deportes.service.pushtoken.PushTokenService;
 import jakarta.annotation.PostConstruct;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Adapter para Firebase Push Notifications
+ *
+ * Los envíos a varios tokens se agrupan en multicast de hasta 500 tokens
+ * (ClienteFcm). Los tokens que FCM informa como no registrados se
+ * desactivan juntos al final del envío.
  */
 @Component
 public class AdapterFirebasePush implements NotificadorPush {
+
+    private static final String TITULO_POR_DEFECTO = "UnoMas";
+
+    @Autowired
+    private ClienteFcm clienteFcm;
+
+    @Autowired
+    private PushTokenService pushTokenService;
     
     @Value("${unomas.notifications.push.enabled:false}")
     private boolean pushEnabled;
@@ -36,6 +51,13 @@ public class AdapterFirebasePush implements NotificadorPush {
         System.out.println("   Push enabled: " + pushEnabled);
         System.out.println("   Service account path: " + serviceAccountPath);
         System.out.println("   Project ID: " + projectId);
+
+        if (clienteFcm.esSimulado()) {
+            firebaseEnabled = true;
+            firebaseInitialized = true;
+            System.out.println("🧪 Usando cliente FCM simulado (sin conexión a Firebase)");
+            return;
+        }
         
         if (!pushEnabled) {
             System.out.println("🔔 Notificaciones push deshabilitadas en configuración");
@@ -89,49 +111,32 @@ public class AdapterFirebasePush implements NotificadorPush {
 
     @Override
     public void enviarNotificacionPush(String token, String mensaje) {
-        System.out.println("🔔 Intentando enviar push notification...");
-        System.out.println("   Token: " + (token != null ? token.substring(0, Math.min(20, token.length())) + "..." : "null"));
-        System.out.println("   Mensaje: " + mensaje);
-        System.out.println("   Firebase enabled: " + firebaseEnabled);
-        System.out.println("   Firebase initialized: " + firebaseInitialized);
-        
-        if (!firebaseEnabled || !firebaseInitialized) {
-            System.out.println("🔔 PUSH (simulado) enviado a " + token + ": " + mensaje);
-            return;
-        }
-        
         if (token == null || token.trim().isEmpty()) {
             System.err.println("❌ Token FCM vacío o nulo");
             return;
         }
-        
-        try {
-            Message message = Message.builder()
-                    .setToken(token)
-                    .setNotification(Notification.builder()
-                        .setTitle("UnoMas")
-                        .setBody(mensaje)
-                        .build())
-                    .build();
-            
-            System.out.println("📤 Enviando mensaje a Firebase...");
-            String response = FirebaseMessaging.getInstance().send(message);
-            System.out.println("✅ PUSH REAL enviado exitosamente");
-            System.out.println("   Response: " + response);
-            System.out.println("   Token: " + token.substring(0, Math.min(20, token.length())) + "...");
-        } catch (com.google.firebase.messaging.FirebaseMessagingException e) {
-            System.err.println("❌ Error de Firebase Messaging: " + e.getMessage());
-            System.err.println("   Error code: " + e.getErrorCode());
-            System.err.println("   Token: " + token.substring(0, Math.min(20, token.length())) + "...");
-            
-            // Si el token es inválido, desactivarlo
-            if (e.getErrorCode().equals("invalid-argument") || 
-                e.getErrorCode().equals("registration-token-not-registered")) {
-                System.err.println("⚠️ Token inválido detectado, debería ser desactivado");
-            }
-        } catch (Exception e) {
-            System.err.println("❌ Error inesperado enviando push a " + token + ": " + e.getMessage());
-            e.printStackTrace();
+        enviarNotificacionPushMultiple(List.of(token), mensaje);
+    }
+
+    @Override
+    public void enviarNotificacionPushMultiple(List<String> tokens, String mensaje) {
+        enviarPorLotes(tokens, TITULO_POR_DEFECTO, mensaje, null);
+    }
+
+    /**
+     * Igual que enviarNotificacionPushMultiple, pero devuelve los tokens de los lotes
+     * que fallaron cuando otros salieron. Si no salió ningún lote lanza.
+     */
+    public ResultadoMulticast enviarMultiple(List<String> tokens, String mensaje) {
+        return enviarPorLotes(tokens, TITULO_POR_DEFECTO, mensaje, null);
+    }
+
+    @Override
+    public void enviarNotificacionATopico(String destino, String mensaje) {
+        if (destino.contains(" in topics")) {
+            enviarNotificacionACondicion(destino, TITULO_POR_DEFECTO, mensaje);
+        } else {
+            enviarNotificacionATopic(destino, TITULO_POR_DEFECTO, mensaje);
         }
     }
 
@@ -147,94 +152,79 @@ public class AdapterFirebasePush implements NotificadorPush {
             }
             return;
         }
-
-        try {
-            Message.Builder messageBuilder = Message.builder()
-                    .setToken(token)
-                    .setNotification(Notification.builder()
-                        .setTitle(titulo)
-                        .setBody(mensaje)
-                        .build());
-            
-            if (data != null && !data.isEmpty()) {
-                messageBuilder.putAllData(data);
-            }
-            
-            String response = FirebaseMessaging.getInstance().send(messageBuilder.build());
-            System.out.println("✅ PUSH personalizado REAL enviado: " + titulo + " - " + response);
-        } catch (Exception e) {
-            System.err.println("❌ Error enviando push personalizado: " + e.getMessage());
-        }
+        enviarPorLotes(List.of(token), titulo, mensaje, data);
     }
 
     /**
      * Envío masivo a múltiples tokens
      */
     public void enviarNotificacionMasiva(java.util.List<String> tokens, String titulo, String mensaje) {
+        enviarPorLotes(tokens, titulo, mensaje, null);
+    }
+
+    /**
+     * Suscribir usuarios a tópicos
+     */
+    public void suscribirATopico(java.util.List<String> tokens, String topico) {
         if (!firebaseEnabled || !firebaseInitialized) {
-            System.out.println("🔔 PUSH masivo (simulado) a " + tokens.size() + " dispositivos: " + titulo);
-            tokens.forEach(token -> 
-                System.out.println("   → " + token + ": " + mensaje)
-            );
+            System.out.println("🔔 Suscripción (simulada) de " + tokens.size() + " usuarios al tópico: " + topico);
             return;
         }
 
         try {
-            // Firebase permite hasta 500 tokens por batch
-            int batchSize = 500;
+            // Firebase permite hasta 1000 tokens por suscripción
+            int batchSize = 1000;
             for (int i = 0; i < tokens.size(); i += batchSize) {
                 int end = Math.min(i + batchSize, tokens.size());
-                java.util.List<String> batch = tokens.subList(i, end);
-                
-                Message message = Message.builder()
-                        .setNotification(Notification.builder()
-                            .setTitle(titulo)
-                            .setBody(mensaje)
-                            .build())
-                        .build();
-                
-                // Enviar a cada token del batch
-                for (String token : batch) {
-                    try {
-                        Message tokenMessage = Message.builder()
-                                .setToken(token)
-                                .setNotification(Notification.builder()
-                                    .setTitle(titulo)
-                                    .setBody(mensaje)
-                                    .build())
-                                .build();
-                        FirebaseMessaging.getInstance().send(tokenMessage);
-                    } catch (Exception e) {
-                        System.err.println("❌ Error enviando push a token " + token + ": " + e.getMessage());
-                    }
-                }
+                clienteFcm.suscribirATopico(tokens.subList(i, end), topico);
             }
-            System.out.println("✅ PUSH masivo REAL enviado a " + tokens.size() + " dispositivos");
-        } catch (Exception e) {
-            System.err.println("❌ Error enviando push masivo: " + e.getMessage());
+            System.out.println("✅ " + tokens.size() + " usuarios suscritos al tópico: " + topico);
+        } catch (RuntimeException e) {
+            // Se propaga: el decorator resiliente la difiere a la cola de reintentos
+            System.err.println("❌ Error suscribiendo usuarios al tópico: " + e.getMessage());
+            throw e;
         }
     }
 
     /**
-     * Suscribir usuarios a tópicos
+     * Desuscribir dispositivos de un tópico (cambio de deporte favorito o de zona)
      */
-    public void suscribirATopico(java.util.List<String> tokens, String topico) {
+    public void desuscribirDeTopico(java.util.List<String> tokens, String topico) {
         if (!firebaseEnabled || !firebaseInitialized) {
-            System.out.println("🔔 Suscripción (simulada) de " + tokens.size() + " usuarios al tópico: " + topico);
+            System.out.println("🔔 Baja (simulada) de " + tokens.size() + " dispositivos del tópico: " + topico);
             return;
         }
 
         try {
-            // Firebase permite hasta 1000 tokens por suscripción
             int batchSize = 1000;
             for (int i = 0; i < tokens.size(); i += batchSize) {
                 int end = Math.min(i + batchSize, tokens.size());
-                java.util.List<String> batch = tokens.subList(i, end);
-                FirebaseMessaging.getInstance().subscribeToTopic(batch, topico);
+                clienteFcm.desuscribirDeTopico(tokens.subList(i, end), topico);
             }
-            System.out.println("✅ " + tokens.size() + " usuarios suscritos al tópico: " + topico);
-        } catch (Exception e) {
-            System.err.println("❌ Error suscribiendo usuarios al tópico: " + e.getMessage());
+            System.out.println("✅ " + tokens.size() + " dispositivos desuscritos del tópico: " + topico);
+        } catch (RuntimeException e) {
+            // Se propaga: el decorator resiliente la difiere a la cola de reintentos
+            System.err.println("❌ Error desuscribiendo del tópico: " + e.getMessage());
+            throw e;
+        }
+    }
+
+    /**
+     * Enviar a una condición de tópicos
+     */
+    public void enviarNotificacionACondicion(String condicion, String titulo, String mensaje) {
+        if (!firebaseEnabled || !firebaseInitialized) {
+            System.out.println("🔔 PUSH a condición (simulado) " + condicion + ": " + titulo);
+            return;
+        }
+
+        try {
+            String response = clienteFcm.enviarACondicion(condicion, titulo, mensaje);
+            System.out.println("✅ PUSH a condición REAL enviado: " + condicion + " - " + response);
+        } catch (RuntimeException e) {
+            // Se propaga: el decorator resiliente decide si reintentar
+            System.err.println("❌ Error enviando push a condición: " + e.getMessage());
+            throw e;
         }
     }
 
@@ -248,17 +238,11 @@ public class AdapterFirebasePush implements NotificadorPush {
         }
 
         try {
-            Message message = Message.builder()
-                    .setTopic(topico)
-                    .setNotification(Notification.builder()
-                        .setTitle(titulo)
-                        .setBody(mensaje)
-                        .build())
-                    .build();
-            String response = FirebaseMessaging.getInstance().send(message);
+            String response = clienteFcm.enviarATopico(topico, titulo, mensaje);
             System.out.println("✅ PUSH a tópico REAL enviado: " + topico + " - " + response);
-        } catch (Exception e) {
+        } catch (RuntimeException e) {
             System.err.println("❌ Error enviando push a tópico: " + e.getMessage());
+            throw e;
         }
     }
 
@@ -266,7 +250,7 @@ public class AdapterFirebasePush implements NotificadorPush {
      * Verificar si Firebase está configurado correctamente
      */
     public boolean isFirebaseConfigured() {
-        return firebaseEnabled && firebaseInitialized;
+        return firebaseEnabled && firebaseInitialized && clienteFcm.estaDisponible();
     }
 
     /**
@@ -276,6 +260,9 @@ public class AdapterFirebasePush implements NotificadorPush {
         if (!pushEnabled) {
             return "Notificaciones push deshabilitadas en configuración";
         }
+        if (clienteFcm.esSimulado()) {
+            return "Cliente FCM simulado - Sin conexión a Firebase";
+        }
         if (!firebaseEnabled || !firebaseInitialized) {
             return "Firebase no configurado correctamente - Funcionando en modo simulado";
         }
@@ -289,4 +276,88 @@ public class AdapterFirebasePush implements NotificadorPush {
         this.firebaseEnabled = enabled;
         System.out.println("🔥 Firebase " + (enabled ? "habilitado" : "deshabilitado"));
     }
+
+    // ===== MÉTODOS AUXILIARES =====
+
+    /**
+     * Envía en multicast de hasta 500 tokens y desactiva de una sola vez
+     * los tokens que FCM informó como no registrados. Devuelve los tokens
+     * de los lotes que fallaron enteros mientras otros salían.
+     */
+    private ResultadoMulticast enviarPorLotes(List<String> tokens, String titulo, String mensaje, Map<String, String> datos) {
+        if (tokens == null || tokens.isEmpty()) {
+            return ResultadoMulticast.COMPLETO;
+        }
+        if (!isFirebaseConfigured()) {
+            System.out.println("🔔 PUSH (simulado) a " + tokens.size() + " dispositivos: " + mensaje);
+            return ResultadoMulticast.COMPLETO;
+        }
+
+        long inicio = System.nanoTime();
+        int exitosos = 0;
+        int fallidos = 0;
+        List<String> noRegistrados = new ArrayList<>();
+        List<String> lotesFallidos = new ArrayList<>();
+        RuntimeException errorProveedor = null;
+
+        for (int i = 0; i < tokens.size(); i += ClienteFcm.MAX_TOKENS_POR_MULTICAST) {
+            List<String> lote = tokens.subList(i, Math.min(i + ClienteFcm.MAX_TOKENS_POR_MULTICAST, tokens.size()));
+            try {
+                for (ResultadoToken resultado : clienteFcm.enviarMulticast(lote, titulo, mensaje, datos)) {
+                    if (resultado.isExitoso()) {
+                        exitosos++;
+                    } else {
+                        fallidos++;
+                        if (resultado.isTokenNoRegistrado()) {
+                            noRegistrados.add(resultado.getToken());
+                        }
+                    }
+                }
+            } catch (RuntimeException e) {
+                fallidos += lote.size();
+                lotesFallidos.addAll(lote);
+                errorProveedor = e;
+                System.err.println("❌ Error enviando lote push de " + lote.size() + " tokens: " + e.getMessage());
+            }
+        }
+
+        if (!noRegistrados.isEmpty()) {
+            pushTokenService.desactivarTokens(noRegistrados);
+        }
+
+        long duracionMs = (System.nanoTime() - inicio) / 1_000_000;
+        System.out.println("✅ PUSH enviado: " + exitosos + " ok, " + fallidos + " fallidos, " +
+                noRegistrados.size() + " tokens desactivados - " + tokens.size() + " tokens en " + duracionMs + " ms");
+
+        // Si no salió nada, falló el proveedor: se propaga para el circuit breaker.
+        // Con éxito parcial no se propaga, para no reenviar a los que ya lo recibieron:
+        // se devuelven los tokens de los lotes caídos para reintentarlos solos.
+        if (errorProveedor != null && exitosos == 0) {
+            throw errorProveedor;
+        }
+        return lotesFallidos.isEmpty() ? ResultadoMulticast.COMPLETO : new ResultadoMulticast(lotesFallidos, errorProveedor);
+    }
+
+    /**
+     * Resultado de un envío que salió: los tokens de los lotes que fallaron y el último error
+     */
+    public static final class ResultadoMulticast {
+        static final ResultadoMulticast COMPLETO = new ResultadoMulticast(List.of(), null);
+
+        private final List<String> tokensFallidos;
+        private final RuntimeException error;
+
+        public ResultadoMulticast(List<String> tokensFallidos, RuntimeException error) {
+            this.tokensFallidos = tokensFallidos;
+            this.error = error;
+        }
+
+        public List<String> getTokensFallidos() {
+            return tokensFallidos;
+        }
+
+        public RuntimeException getError() {
+            return error;
+        }
+    }
 }
\ No newline at end of file
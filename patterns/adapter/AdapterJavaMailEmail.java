@@ -2,6 +2,7 @@ package com.uade.tpo.deportes.patterns.adapter;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
@@ -11,11 +12,72 @@ import jakarta.annotation.PostConstruct;
 import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeMessage;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * Implementación REAL de JavaMail - Reemplaza la versión simulada
+ *
+ * enviarNotificacionLote manda todos los MimeMessage del lote en una sola
+ * llamada a JavaMailSender (una conexión SMTP autenticada por lote) y arma
+ * el cuerpo una vez por mensaje distinto, no una vez por destinatario.
+ * enviarLote además devuelve qué emails rechazó el servidor, para
+ * reintentarlos uno por uno sin reenviar el resto del lote.
  */
 @Component
 public class AdapterJavaMailEmail implements NotificadorEmail {
+
+    private static final String ASUNTO_POR_DEFECTO = "Notificación UnoMas";
+
+    // Partes fijas de las plantillas: se arman una sola vez
+    private static final String SEPARADOR_TEXTO = "=".repeat(50);
+    private static final String ENCABEZADO_TEXTO =
+            "🏃‍♂️ UnoMas - Sistema de Gestión Deportiva\n" + SEPARADOR_TEXTO + "\n\n";
+    private static final String PIE_TEXTO = "\n\n" + SEPARADOR_TEXTO + "\n" +
+            "📱 Descarga la app: http://localhost:5173\n" +
+            "🌐 Dashboard: http://localhost:5173/dashboard\n" +
+            "📧 Este correo fue enviado automáticamente por UnoMas\n" +
+            "⚠️ No responder a esta dirección\n";
+
+    private static final String ENCABEZADO_HTML =
+            "<!DOCTYPE html>" +
+            "<html><head><meta charset='UTF-8'>" +
+            "<style>" +
+            "body { font-family: 'Segoe UI', Arial, sans-serif; margin: 0; padding: 20px; background-color: #f8fafc; }" +
+            ".container { max-width: 600px; margin: 0 auto; background: white; border-radius: 12px; overflow: hidden; box-shadow: 0 4px 6px rgba(0,0,0,0.1); }" +
+            ".header { background: linear-gradient(135deg, #3b82f6 0%, #1d4ed8 100%); color: white; padding: 30px 20px; text-align: center; }" +
+            ".header h1 { margin: 0; font-size: 28px; font-weight: bold; }" +
+            ".content { padding: 30px 20px; }" +
+            ".content h2 { color: #1f2937; margin-top: 0; }" +
+            ".info-box { background: #f3f4f6; padding: 20px; border-radius: 8px; margin: 20px 0; }" +
+            ".button { background: #3b82f6; color: white; padding: 12px 24px; text-decoration: none; border-radius: 6px; display: inline-block; margin: 20px 0; }" +
+            ".footer { background: #f9fafb; padding: 20px; text-align: center; font-size: 14px; color: #6b7280; border-top: 1px solid #e5e7eb; }" +
+            "</style></head><body>" +
+            "<div class='container'>" +
+            "<div class='header'>" +
+            "<h1>🏃‍♂️ UnoMas</h1>" +
+            "<p style='margin: 10px 0 0 0; opacity: 0.9;'>Sistema de Gestión Deportiva</p>" +
+            "</div>" +
+            "<div class='content'>";
+
+    private static final String PIE_HTML =
+            "<a href='http://localhost:5173/dashboard' class='button'>🎯 Ver en UnoMas</a>" +
+            "</div>" +
+            "<div class='footer'>" +
+            "Este correo fue enviado automáticamente por UnoMas<br>" +
+            "📱 <a href='http://localhost:5173'>Abrir aplicación</a> | " +
+            "⚙️ <a href='http://localhost:5173/perfil'>Configurar notificaciones</a>" +
+            "</div>" +
+            "</div></body></html>";
+
+    private final AtomicLong lotesEnviados = new AtomicLong();
+    private final AtomicLong emailsEnLotes = new AtomicLong();
+    private final AtomicLong emailsFallidosEnLotes = new AtomicLong();
+    private final AtomicLong msEnLotes = new AtomicLong();
     
     @Autowired
     private JavaMailSender mailSender;
@@ -78,12 +140,11 @@ public class AdapterJavaMailEmail implements NotificadorEmail {
             enviarEmailTexto(destinatario, "Notificación UnoMas", mensaje);
             System.out.println("✅ Email REAL enviado exitosamente a: " + destinatario);
             
-        } catch (Exception e) {
+        } catch (RuntimeException e) {
             System.err.println("❌ Error enviando email REAL a " + destinatario + ": " + e.getMessage());
             System.err.println("   Error type: " + e.getClass().getSimpleName());
-            e.printStackTrace();
-            // En caso de error, mostrar pero no fallar la aplicación
-            System.out.println("📧 Fallback: EMAIL (simulado) para " + destinatario + ": " + mensaje);
+            // Se propaga: el decorator resiliente decide si reintentar
+            throw e;
         }
     }
 
@@ -121,18 +182,133 @@ public class AdapterJavaMailEmail implements NotificadorEmail {
 
     // ✅ NUEVO: Crear contenido de email más atractivo
     private String crearContenidoEmailCompleto(String mensajePrincipal) {
-        StringBuilder contenido = new StringBuilder();
-        contenido.append("🏃‍♂️ UnoMas - Sistema de Gestión Deportiva\n");
-        contenido.append("=" .repeat(50)).append("\n\n");
-        contenido.append(mensajePrincipal);
-        contenido.append("\n\n");
-        contenido.append("=" .repeat(50)).append("\n");
-        contenido.append("📱 Descarga la app: http://localhost:5173\n");
-        contenido.append("🌐 Dashboard: http://localhost:5173/dashboard\n");
-        contenido.append("📧 Este correo fue enviado automáticamente por UnoMas\n");
-        contenido.append("⚠️ No responder a esta dirección\n");
-        
-        return contenido.toString();
+        return ENCABEZADO_TEXTO + mensajePrincipal + PIE_TEXTO;
+    }
+
+    /**
+     * Envío por lote: una conexión SMTP para todo el lote y el cuerpo
+     * renderizado una vez por mensaje distinto.
+     */
+    @Override
+    public int enviarNotificacionLote(List<EmailSaliente> emails) {
+        return enviarLote(emails).getEnviados();
+    }
+
+    /**
+     * Igual que enviarNotificacionLote, pero informa los emails que el servidor
+     * rechazó cuando el resto del lote salió. Si falla el lote entero lanza.
+     */
+    public ResultadoLote enviarLote(List<EmailSaliente> emails) {
+        if (emails.isEmpty()) {
+            return new ResultadoLote(0, Map.of());
+        }
+        if (!emailEnabled || mailSender == null) {
+            System.out.println("📧 Email deshabilitado - Lote de " + emails.size() + " emails no enviado");
+            return new ResultadoLote(emails.size(), Map.of());
+        }
+
+        long inicio = System.nanoTime();
+
+        // ⚡ PASO 1: Renderizar cada mensaje distinto una sola vez
+        Map<String, String> contenidos = new HashMap<>();
+        List<MimeMessage> mensajes = new ArrayList<>(emails.size());
+        Map<MimeMessage, EmailSaliente> origenes = new LinkedHashMap<>();
+        Map<EmailSaliente, Exception> rechazados = new LinkedHashMap<>();
+        int fallidos = 0;
+        for (EmailSaliente email : emails) {
+            String contenido = contenidos.computeIfAbsent(email.getMensaje(), this::crearContenidoEmailCompleto);
+            try {
+                MimeMessage mimeMessage = mailSender.createMimeMessage();
+                MimeMessageHelper helper = new MimeMessageHelper(mimeMessage, false, "UTF-8");
+                helper.setFrom(fromEmail);
+                helper.setTo(email.getDestinatario());
+                helper.setSubject(ASUNTO_POR_DEFECTO);
+                helper.setText(contenido, false);
+                mensajes.add(mimeMessage);
+                origenes.put(mimeMessage, email);
+            } catch (MessagingException e) {
+                fallidos++;
+                System.err.println("❌ Email inválido para " + email.getDestinatario() + ": " + e.getMessage());
+            }
+        }
+
+        // ⚡ PASO 2: Enviar todo el lote por la misma conexión
+        RuntimeException errorProveedor = null;
+        try {
+            mailSender.send(mensajes.toArray(new MimeMessage[0]));
+        } catch (MailSendException e) {
+            // JavaMailSender sigue con el resto del lote y reporta los que fallaron
+            Map<Object, Exception> fallidosEnvio = e.getFailedMessages();
+            fallidos += fallidosEnvio.isEmpty() ? mensajes.size() : fallidosEnvio.size();
+            fallidosEnvio.forEach((mensaje, error) -> {
+                EmailSaliente email = origenes.get(mensaje);
+                System.err.println("❌ Error enviando email a " +
+                        (email != null ? email.getDestinatario() : "?") + ": " + error.getMessage());
+                if (email != null) {
+                    rechazados.put(email, error);
+                }
+            });
+            // Sin detalle por mensaje o con todo el lote caído es el servidor, no las direcciones
+            if (fallidosEnvio.isEmpty() || fallidosEnvio.size() == mensajes.size()) {
+                errorProveedor = e;
+            }
+        } catch (RuntimeException e) {
+            fallidos += mensajes.size();
+            errorProveedor = e;
+            System.err.println("❌ Error enviando lote de " + mensajes.size() + " emails: " + e.getMessage());
+        }
+
+        // ⚡ PASO 3: Throughput del lote
+        long duracionMs = Math.max(1, (System.nanoTime() - inicio) / 1_000_000);
+        int enviados = emails.size() - fallidos;
+        lotesEnviados.incrementAndGet();
+        emailsEnLotes.addAndGet(enviados);
+        emailsFallidosEnLotes.addAndGet(fallidos);
+        msEnLotes.addAndGet(duracionMs);
+        System.out.println("📧 Lote de " + emails.size() + " emails (" + contenidos.size() + " plantillas): " +
+                enviados + " enviados, " + fallidos + " fallidos en " + duracionMs + " ms (" +
+                String.format("%.1f", enviados * 1000.0 / duracionMs) + " emails/s)");
+        if (errorProveedor != null) {
+            throw errorProveedor;
+        }
+        return new ResultadoLote(enviados, rechazados);
+    }
+
+    /**
+     * Resultado de un lote que salió: cuántos se enviaron y cuáles rechazó el servidor
+     */
+    public static final class ResultadoLote {
+        private final int enviados;
+        private final Map<EmailSaliente, Exception> rechazados;
+
+        public ResultadoLote(int enviados, Map<EmailSaliente, Exception> rechazados) {
+            this.enviados = enviados;
+            this.rechazados = rechazados;
+        }
+
+        public int getEnviados() {
+            return enviados;
+        }
+
+        public Map<EmailSaliente, Exception> getRechazados() {
+            return rechazados;
+        }
+    }
+
+    /**
+     * Totales de los envíos por lote
+     */
+    public Map<String, Object> obtenerEstadisticasLotes() {
+        Map<String, Object> estadisticas = new LinkedHashMap<>();
+        long lotes = lotesEnviados.get();
+        long emails = emailsEnLotes.get();
+        long ms = msEnLotes.get();
+        estadisticas.put("lotes", lotes);
+        estadisticas.put("emailsEnviados", emails);
+        estadisticas.put("emailsFallidos", emailsFallidosEnLotes.get());
+        estadisticas.put("promedioPorLote", lotes > 0 ? emails / lotes : 0);
+        estadisticas.put("emailsPorSegundo", ms > 0 ? Math.round(emails * 1000.0 / ms) : 0);
+        return estadisticas;
     }
 
     // ✅ NUEVO: Método para envío de emails HTML (avanzado)
@@ -166,33 +342,8 @@ public class AdapterJavaMailEmail implements NotificadorEmail {
 
     // ✅ GENERAR contenido HTML para emails
     private String generarContenidoHTML(String tipoNotificacion, Object data) {
-        StringBuilder html = new StringBuilder();
-        
-        // HTML básico pero atractivo
-        html.append("<!DOCTYPE html>");
-        html.append("<html><head><meta charset='UTF-8'>");
-        html.append("<style>");
-        html.append("body { font-family: 'Segoe UI', Arial, sans-serif; margin: 0; padding: 20px; background-color: #f8fafc; }");
-        html.append(".container { max-width: 600px; margin: 0 auto; background: white; border-radius: 12px; overflow: hidden; box-shadow: 0 4px 6px rgba(0,0,0,0.1); }");
-        html.append(".header { background: linear-gradient(135deg, #3b82f6 0%, #1d4ed8 100%); color: white; padding: 30px 20px; text-align: center; }");
-        html.append(".header h1 { margin: 0; font-size: 28px; font-weight: bold; }");
-        html.append(".content { padding: 30px 20px; }");
-        html.append(".content h2 { color: #1f2937; margin-top: 0; }");
-        html.append(".info-box { background: #f3f4f6; padding: 20px; border-radius: 8px; margin: 20px 0; }");
-        html.append(".button { background: #3b82f6; color: white; padding: 12px 24px; text-decoration: none; border-radius: 6px; display: inline-block; margin: 20px 0; }");
-        html.append(".footer { background: #f9fafb; padding: 20px; text-align: center; font-size: 14px; color: #6b7280; border-top: 1px solid #e5e7eb; }");
-        html.append("</style></head><body>");
-        
-        html.append("<div class='container'>");
-        
-        // Header
-        html.append("<div class='header'>");
-        html.append("<h1>🏃‍♂️ UnoMas</h1>");
-        html.append("<p style='margin: 10px 0 0 0; opacity: 0.9;'>Sistema de Gestión Deportiva</p>");
-        html.append("</div>");
-        
-        // Content
-        html.append("<div class='content'>");
+        StringBuilder html = new StringBuilder(ENCABEZADO_HTML.length() + PIE_HTML.length() + 512);
+        html.append(ENCABEZADO_HTML);
         
         switch (tipoNotificacion) {
             case "PARTIDO_NUEVO":
@@ -232,19 +383,7 @@ public class AdapterJavaMailEmail implements NotificadorEmail {
             html.append("</div>");
         }
         
-        // Call to action
-        html.append("<a href='http://localhost:5173/dashboard' class='button'>🎯 Ver en UnoMas</a>");
-        
-        html.append("</div>");
-        
-        // Footer
-        html.append("<div class='footer'>");
-        html.append("Este correo fue enviado automáticamente por UnoMas<br>");
-        html.append("📱 <a href='http://localhost:5173'>Abrir aplicación</a> | ");
-        html.append("⚙️ <a href='http://localhost:5173/perfil'>Configurar notificaciones</a>");
-        html.append("</div>");
-        
-        html.append("</div></body></html>");
+        html.append(PIE_HTML);
         
         return html.toString();
     }
@@ -0,0 +1,62 @@
+package com.uade.tpo.deportes.patterns.adapter;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cliente de Firebase Cloud Messaging.
+ * Separa al AdapterFirebasePush del SDK para poder usar un cliente simulado
+ * (ClienteFcmSimulado) y medir el envío por lotes sin conexión.
+ */
+public interface ClienteFcm {
+
+    // Límite de FCM para sendEachForMulticast
+    int MAX_TOKENS_POR_MULTICAST = 500;
+
+    /**
+     * Envía el mismo mensaje a hasta 500 tokens en una sola llamada.
+     * Devuelve un resultado por token, en el mismo orden que la lista.
+     */
+    List<ResultadoToken> enviarMulticast(List<String> tokens, String titulo, String mensaje, Map<String, String> datos);
+
+    String enviarATopico(String topico, String titulo, String mensaje);
+
+    // Condición FCM, por ejemplo "'deporte_1' in topics && 'zona_palermo' in topics"
+    String enviarACondicion(String condicion, String titulo, String mensaje);
+
+    void suscribirATopico(List<String> tokens, String topico);
+
+    void desuscribirDeTopico(List<String> tokens, String topico);
+
+    boolean estaDisponible();
+
+    default boolean esSimulado() {
+        return false;
+    }
+
+    /**
+     * Resultado del envío a un token
+     */
+    class ResultadoToken {
+        private final String token;
+        private final boolean exitoso;
+        private final String codigoError;
+        private final boolean tokenNoRegistrado;
+
+        public ResultadoToken(String token, boolean exitoso, String codigoError, boolean tokenNoRegistrado) {
+            this.token = token;
+            this.exitoso = exitoso;
+            this.codigoError = codigoError;
+            this.tokenNoRegistrado = tokenNoRegistrado;
+        }
+
+        public static ResultadoToken exito(String token) {
+            return new ResultadoToken(token, true, null, false);
+        }
+
+        public String getToken() { return token; }
+        public boolean isExitoso() { return exitoso; }
+        public String getCodigoError() { return codigoError; }
+        public boolean isTokenNoRegistrado() { return tokenNoRegistrado; }
+    }
+}
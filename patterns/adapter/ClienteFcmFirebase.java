@@ -0,0 +1,119 @@
+package com.uade.tpo.deportes.patterns.adapter;
+
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.messaging.BatchResponse;
+import com.google.firebase.messaging.FirebaseMessaging;
+import com.google.firebase.messaging.FirebaseMessagingException;
+import com.google.firebase.messaging.Message;
+import com.google.firebase.messaging.MessagingErrorCode;
+import com.google.firebase.messaging.MulticastMessage;
+import com.google.firebase.messaging.Notification;
+import com.google.firebase.messaging.SendResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cliente FCM real sobre el SDK de Firebase Admin.
+ * La inicialización de FirebaseApp la hace AdapterFirebasePush.
+ */
+@Component
+@ConditionalOnProperty(name = "unomas.notifications.push.cliente", havingValue = "firebase", matchIfMissing = true)
+public class ClienteFcmFirebase implements ClienteFcm {
+
+    @Override
+    public List<ResultadoToken> enviarMulticast(List<String> tokens, String titulo, String mensaje, Map<String, String> datos) {
+        MulticastMessage.Builder builder = MulticastMessage.builder()
+                .addAllTokens(tokens)
+                .setNotification(Notification.builder()
+                        .setTitle(titulo)
+                        .setBody(mensaje)
+                        .build());
+        if (datos != null && !datos.isEmpty()) {
+            builder.putAllData(datos);
+        }
+
+        try {
+            BatchResponse respuesta = FirebaseMessaging.getInstance().sendEachForMulticast(builder.build());
+            List<SendResponse> respuestas = respuesta.getResponses();
+            List<ResultadoToken> resultados = new ArrayList<>(tokens.size());
+            for (int i = 0; i < respuestas.size(); i++) {
+                resultados.add(convertir(tokens.get(i), respuestas.get(i)));
+            }
+            return resultados;
+        } catch (FirebaseMessagingException e) {
+            throw new IllegalStateException("Error de Firebase en envío multicast: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public String enviarATopico(String topico, String titulo, String mensaje) {
+        Message message = Message.builder()
+                .setTopic(topico)
+                .setNotification(Notification.builder()
+                        .setTitle(titulo)
+                        .setBody(mensaje)
+                        .build())
+                .build();
+        try {
+            return FirebaseMessaging.getInstance().send(message);
+        } catch (FirebaseMessagingException e) {
+            throw new IllegalStateException("Error de Firebase enviando a tópico " + topico + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public String enviarACondicion(String condicion, String titulo, String mensaje) {
+        Message message = Message.builder()
+                .setCondition(condicion)
+                .setNotification(Notification.builder()
+                        .setTitle(titulo)
+                        .setBody(mensaje)
+                        .build())
+                .build();
+        try {
+            return FirebaseMessaging.getInstance().send(message);
+        } catch (FirebaseMessagingException e) {
+            throw new IllegalStateException("Error de Firebase enviando a condición " + condicion + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void suscribirATopico(List<String> tokens, String topico) {
+        try {
+            FirebaseMessaging.getInstance().subscribeToTopic(tokens, topico);
+        } catch (FirebaseMessagingException e) {
+            throw new IllegalStateException("Error de Firebase suscribiendo al tópico " + topico + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void desuscribirDeTopico(List<String> tokens, String topico) {
+        try {
+            FirebaseMessaging.getInstance().unsubscribeFromTopic(tokens, topico);
+        } catch (FirebaseMessagingException e) {
+            throw new IllegalStateException("Error de Firebase desuscribiendo del tópico " + topico + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public boolean estaDisponible() {
+        return !FirebaseApp.getApps().isEmpty();
+    }
+
+    // ===== MÉTODOS AUXILIARES =====
+
+    private ResultadoToken convertir(String token, SendResponse respuesta) {
+        if (respuesta.isSuccessful()) {
+            return ResultadoToken.exito(token);
+        }
+        FirebaseMessagingException error = respuesta.getException();
+        MessagingErrorCode codigo = error != null ? error.getMessagingErrorCode() : null;
+        // UNREGISTERED: la app se desinstaló o el token venció; INVALID_ARGUMENT en multicast es un token mal formado
+        boolean noRegistrado = codigo == MessagingErrorCode.UNREGISTERED || codigo == MessagingErrorCode.INVALID_ARGUMENT;
+        return new ResultadoToken(token, false, codigo != null ? codigo.name() : "UNKNOWN", noRegistrado);
+    }
+}
@@ -0,0 +1,123 @@
+package com.uade.tpo.deportes.patterns.adapter;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 🧪 Cliente FCM simulado para medir el envío por lotes sin Firebase.
+ * Cada llamada paga una latencia fija de ida y vuelta más una latencia
+ * por token, y cada token puede fallar o venir como no registrado.
+ * Los tokens que contienen "no-registrado" siempre fallan como UNREGISTERED.
+ *
+ * Se activa con unomas.notifications.push.cliente=simulado
+ */
+@Component
+@ConditionalOnProperty(name = "unomas.notifications.push.cliente", havingValue = "simulado")
+public class ClienteFcmSimulado implements ClienteFcm {
+
+    @Value("${unomas.notifications.push.simulado.latencia-solicitud-ms:40}")
+    private long latenciaSolicitudMs;
+
+    @Value("${unomas.notifications.push.simulado.latencia-por-token-micros:200}")
+    private long latenciaPorTokenMicros;
+
+    @Value("${unomas.notifications.push.simulado.tasa-fallo:0.01}")
+    private double tasaFallo;
+
+    @Value("${unomas.notifications.push.simulado.tasa-no-registrado:0.02}")
+    private double tasaNoRegistrado;
+
+    private final AtomicLong solicitudes = new AtomicLong();
+    private final AtomicLong tokensEnviados = new AtomicLong();
+    private final AtomicLong tokensFallidos = new AtomicLong();
+    private final AtomicLong tokensNoRegistrados = new AtomicLong();
+
+    @Override
+    public List<ResultadoToken> enviarMulticast(List<String> tokens, String titulo, String mensaje, Map<String, String> datos) {
+        if (tokens.size() > MAX_TOKENS_POR_MULTICAST) {
+            throw new IllegalArgumentException("FCM acepta hasta " + MAX_TOKENS_POR_MULTICAST + " tokens por multicast");
+        }
+        esperar(latenciaSolicitudMs * 1000 + latenciaPorTokenMicros * tokens.size());
+        solicitudes.incrementAndGet();
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<ResultadoToken> resultados = new ArrayList<>(tokens.size());
+        for (String token : tokens) {
+            double sorteo = random.nextDouble();
+            if (token.contains("no-registrado") || sorteo < tasaNoRegistrado) {
+                tokensNoRegistrados.incrementAndGet();
+                resultados.add(new ResultadoToken(token, false, "UNREGISTERED", true));
+            } else if (sorteo < tasaNoRegistrado + tasaFallo) {
+                tokensFallidos.incrementAndGet();
+                resultados.add(new ResultadoToken(token, false, "UNAVAILABLE", false));
+            } else {
+                tokensEnviados.incrementAndGet();
+                resultados.add(ResultadoToken.exito(token));
+            }
+        }
+        return resultados;
+    }
+
+    @Override
+    public String enviarATopico(String topico, String titulo, String mensaje) {
+        esperar(latenciaSolicitudMs * 1000);
+        solicitudes.incrementAndGet();
+        return "simulado/topico/" + topico + "/" + System.nanoTime();
+    }
+
+    @Override
+    public String enviarACondicion(String condicion, String titulo, String mensaje) {
+        esperar(latenciaSolicitudMs * 1000);
+        solicitudes.incrementAndGet();
+        return "simulado/condicion/" + System.nanoTime();
+    }
+
+    @Override
+    public void suscribirATopico(List<String> tokens, String topico) {
+        esperar(latenciaSolicitudMs * 1000 + latenciaPorTokenMicros * tokens.size());
+        solicitudes.incrementAndGet();
+    }
+
+    @Override
+    public void desuscribirDeTopico(List<String> tokens, String topico) {
+        esperar(latenciaSolicitudMs * 1000 + latenciaPorTokenMicros * tokens.size());
+        solicitudes.incrementAndGet();
+    }
+
+    @Override
+    public boolean estaDisponible() {
+        return true;
+    }
+
+    @Override
+    public boolean esSimulado() {
+        return true;
+    }
+
+    public Map<String, Object> obtenerEstadisticas() {
+        Map<String, Object> estadisticas = new LinkedHashMap<>();
+        estadisticas.put("solicitudes", solicitudes.get());
+        estadisticas.put("tokensEnviados", tokensEnviados.get());
+        estadisticas.put("tokensFallidos", tokensFallidos.get());
+        estadisticas.put("tokensNoRegistrados", tokensNoRegistrados.get());
+        return estadisticas;
+    }
+
+    // ===== MÉTODOS AUXILIARES =====
+
+    private void esperar(long micros) {
+        try {
+            Thread.sleep(micros / 1000, (int) (micros % 1000) * 1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
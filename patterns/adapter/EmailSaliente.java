@@ -0,0 +1,23 @@
+package com.uade.tpo.deportes.patterns.adapter;
+
+/**
+ * Email a enviar dentro de un lote: destinatario y mensaje principal
+ */
+public final class EmailSaliente {
+
+    private final String destinatario;
+    private final String mensaje;
+
+    public EmailSaliente(String destinatario, String mensaje) {
+        this.destinatario = destinatario;
+        this.mensaje = mensaje;
+    }
+
+    public String getDestinatario() {
+        return destinatario;
+    }
+
+    public String getMensaje() {
+        return mensaje;
+    }
+}
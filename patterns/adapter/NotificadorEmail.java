@@ -1,6 +1,20 @@
 package com.uade.tpo.deportes.patterns.adapter;
 
+import java.util.List;
+
 public interface NotificadorEmail {
     void enviarNotificacion(String destinatario, String mensaje);
     String testearConfiguracion();
+
+    /**
+     * Envía varios emails juntos. Devuelve cuántos se enviaron bien.
+     */
+    default int enviarNotificacionLote(List<EmailSaliente> emails) {
+        int enviados = 0;
+        for (EmailSaliente email : emails) {
+            enviarNotificacion(email.getDestinatario(), email.getMensaje());
+            enviados++;
+        }
+        return enviados;
+    }
 }
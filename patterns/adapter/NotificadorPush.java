@@ -1,5 +1,16 @@
 package com.uade.tpo.deportes.patterns.adapter;
 
+import java.util.List;
+
 public interface NotificadorPush {
     void enviarNotificacionPush(String token, String mensaje);
+
+    // destino: nombre de tópico o condición FCM ("'a' in topics && 'b' in topics")
+    void enviarNotificacionATopico(String destino, String mensaje);
+
+    default void enviarNotificacionPushMultiple(List<String> tokens, String mensaje) {
+        for (String token : tokens) {
+            enviarNotificacionPush(token, mensaje);
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,122 @@
+package com.uade.tpo.deportes.patterns.decorator;
+
+import com.uade.tpo.deportes.patterns.adapter.AdapterJavaMailEmail;
+import com.uade.tpo.deportes.patterns.adapter.EmailSaliente;
+import com.uade.tpo.deportes.patterns.adapter.NotificadorEmail;
+import com.uade.tpo.deportes.service.notificacion.ColaReintentosNotificaciones;
+import com.uade.tpo.deportes.service.notificacion.ProveedorProtegido;
+import com.uade.tpo.deportes.service.notificacion.Reenvio;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Decorator del adapter de email: circuit breaker, timeout y reintentos diferidos.
+ * Es el NotificadorEmail que se inyecta por defecto (@Primary).
+ *
+ * Si el lote sale pero el servidor rechaza algunos emails, solo esos vuelven
+ * a la cola de reintentos, cada uno por separado. Lo diferido se reintenta
+ * desde un Reenvio (destinatarios y mensaje), que la cola guarda en la base.
+ */
+@Component
+@Primary
+public class NotificadorEmailResiliente implements NotificadorEmail {
+
+    @Autowired
+    private AdapterJavaMailEmail adapterJavaMailEmail;
+
+    @Autowired
+    private ColaReintentosNotificaciones colaReintentos;
+
+    @Value("${unomas.notificaciones.email.circuito.umbral-fallos:5}")
+    private int umbralFallos;
+
+    @Value("${unomas.notificaciones.email.circuito.abierto-segundos:60}")
+    private long abiertoSegundos;
+
+    @Value("${unomas.notificaciones.email.timeout-ms:15000}")
+    private long timeoutMs;
+
+    // Un lote grande tarda más que un email suelto: cada email del lote suma este tiempo al timeout
+    @Value("${unomas.notificaciones.email.timeout-por-email-ms:1000}")
+    private long timeoutPorEmailMs;
+
+    @Value("${unomas.notificaciones.email.workers:4}")
+    private int hilos;
+
+    private ProveedorProtegido proveedor;
+
+    @PostConstruct
+    public void iniciar() {
+        proveedor = new ProveedorProtegido("email", umbralFallos, abiertoSegundos * 1000, timeoutMs, hilos, colaReintentos);
+        colaReintentos.registrarReenviador("email", reenvio -> () -> {
+            enviarYDiferirRechazados(reenvio.getDestinos().stream()
+                    .map(destinatario -> new EmailSaliente(destinatario, reenvio.getMensaje()))
+                    .collect(Collectors.toList()));
+            return null;
+        });
+    }
+
+    @PreDestroy
+    public void detener() {
+        proveedor.detener();
+    }
+
+    @Override
+    public void enviarNotificacion(String destinatario, String mensaje) {
+        proveedor.ejecutar("Email a " + destinatario, () -> {
+            adapterJavaMailEmail.enviarNotificacion(destinatario, mensaje);
+            return null;
+        }, null, Reenvio.email(List.of(destinatario), mensaje));
+    }
+
+    @Override
+    public int enviarNotificacionLote(List<EmailSaliente> emails) {
+        try {
+            return enviarYDiferirRechazados(emails);
+        } catch (Exception e) {
+            // ⚡ Falló el lote entero: se difiere por mensaje, y cada grupo se reintenta como un lote
+            Map<String, List<String>> porMensaje = new LinkedHashMap<>();
+            emails.forEach(email -> porMensaje.computeIfAbsent(email.getMensaje(), m -> new ArrayList<>())
+                    .add(email.getDestinatario()));
+            porMensaje.forEach((mensaje, destinatarios) -> proveedor.diferir(
+                    "Lote de " + destinatarios.size() + " emails", Reenvio.email(destinatarios, mensaje), e));
+            return 0;
+        }
+    }
+    @Override
+    public String testearConfiguracion() {
+        return adapterJavaMailEmail.testearConfiguracion();
+    }
+
+    public Map<String, Object> obtenerEstadoCircuito() {
+        return proveedor.estadisticas();
+    }
+
+    // ===== MÉTODOS AUXILIARES =====
+
+    /**
+     * Manda el lote por el circuito; si sale pero el servidor rechaza algunos,
+     * esos se difieren de a uno sin reenviar los que salieron. Si falla el lote
+     * entero lanza.
+     */
+    private int enviarYDiferirRechazados(List<EmailSaliente> emails) throws Exception {
+        // ⚡ El presupuesto crece con el lote: un lote sano de 50 no se corta a mitad de camino
+        // (cortarlo haría reenviar los que ya salieron)
+        long timeoutLoteMs = timeoutMs + timeoutPorEmailMs * Math.max(0, emails.size() - 1);
+        AdapterJavaMailEmail.ResultadoLote resultado = proveedor.intentar(() -> adapterJavaMailEmail.enviarLote(emails), timeoutLoteMs);
+        resultado.getRechazados().forEach((email, error) ->
+                proveedor.diferir("Email a " + email.getDestinatario(),
+                        Reenvio.email(List.of(email.getDestinatario()), email.getMensaje()), error));
+        return resultado.getEnviados();
+    }
+}
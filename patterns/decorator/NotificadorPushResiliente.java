@@ -0,0 +1,139 @@
+package com.uade.tpo.deportes.patterns.decorator;
+
+import com.uade.tpo.deportes.patterns.adapter.AdapterFirebasePush;
+import com.uade.tpo.deportes.patterns.adapter.NotificadorPush;
+import com.uade.tpo.deportes.service.notificacion.ColaReintentosNotificaciones;
+import com.uade.tpo.deportes.service.notificacion.ProveedorProtegido;
+import com.uade.tpo.deportes.service.notificacion.Reenvio;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decorator del adapter de push: circuit breaker, timeout y reintentos diferidos.
+ * Es el NotificadorPush que se inyecta por defecto (@Primary). Lo diferido se
+ * reintenta desde un Reenvio (tokens o tópico y mensaje), que la cola guarda en la base.
+ */
+@Component
+@Primary
+public class NotificadorPushResiliente implements NotificadorPush {
+
+    @Autowired
+    private AdapterFirebasePush adapterFirebasePush;
+
+    @Autowired
+    private ColaReintentosNotificaciones colaReintentos;
+
+    @Value("${unomas.notificaciones.push.circuito.umbral-fallos:5}")
+    private int umbralFallos;
+
+    @Value("${unomas.notificaciones.push.circuito.abierto-segundos:30}")
+    private long abiertoSegundos;
+
+    @Value("${unomas.notificaciones.push.timeout-ms:5000}")
+    private long timeoutMs;
+
+    @Value("${unomas.notificaciones.push.workers:8}")
+    private int hilos;
+
+    private ProveedorProtegido proveedor;
+
+    @PostConstruct
+    public void iniciar() {
+        proveedor = new ProveedorProtegido("push", umbralFallos, abiertoSegundos * 1000, timeoutMs, hilos, colaReintentos);
+        colaReintentos.registrarReenviador("push", reenvio -> () -> proveedor.intentar(() -> {
+            reenviar(reenvio);
+            return null;
+        }));
+    }
+
+    @PreDestroy
+    public void detener() {
+        proveedor.detener();
+    }
+
+    @Override
+    public void enviarNotificacionPush(String token, String mensaje) {
+        enviarNotificacionPushMultiple(List.of(token), mensaje);
+    }
+
+    @Override
+    public void enviarNotificacionPushMultiple(List<String> tokens, String mensaje) {
+        proveedor.ejecutar("Push a " + tokens.size() + " dispositivos", () -> {
+            enviarYDiferirLotesFallidos(tokens, mensaje);
+            return null;
+        }, null, Reenvio.push(tokens, mensaje));
+    }
+
+    @Override
+    public void enviarNotificacionATopico(String destino, String mensaje) {
+        proveedor.ejecutar("Push al tópico " + destino, () -> {
+            adapterFirebasePush.enviarNotificacionATopico(destino, mensaje);
+            return null;
+        }, null, Reenvio.topico(destino, mensaje));
+    }
+
+    /**
+     * Alta y baja de tópicos por el mismo circuito: si FCM falla se reintentan
+     * en lugar de perderse (las dos operaciones son idempotentes)
+     */
+    public void suscribirATopico(List<String> tokens, String topico) {
+        proveedor.ejecutar("Suscripción de " + tokens.size() + " dispositivos al tópico " + topico, () -> {
+            adapterFirebasePush.suscribirATopico(tokens, topico);
+            return null;
+        }, null, Reenvio.suscripcion(tokens, topico, true));
+    }
+
+    public void desuscribirDeTopico(List<String> tokens, String topico) {
+        proveedor.ejecutar("Baja de " + tokens.size() + " dispositivos del tópico " + topico, () -> {
+            adapterFirebasePush.desuscribirDeTopico(tokens, topico);
+            return null;
+        }, null, Reenvio.suscripcion(tokens, topico, false));
+    }
+
+    public Map<String, Object> obtenerEstadoCircuito() {
+        return proveedor.estadisticas();
+    }
+
+    // ===== MÉTODOS AUXILIARES =====
+
+    /**
+     * Los lotes de 500 que fallaron mientras otros salían se reintentan solos,
+     * sin reenviar a los que ya lo recibieron (y así en cada reintento).
+     * Si no sale ningún lote lanza, y reintenta el que llamó.
+     */
+    private void enviarYDiferirLotesFallidos(List<String> tokens, String mensaje) {
+        AdapterFirebasePush.ResultadoMulticast resultado = adapterFirebasePush.enviarMultiple(tokens, mensaje);
+        List<String> pendientes = resultado.getTokensFallidos();
+        if (pendientes.isEmpty()) {
+            return;
+        }
+        proveedor.diferir("Push a " + pendientes.size() + " dispositivos (lotes fallidos)",
+                Reenvio.push(pendientes, mensaje), resultado.getError());
+    }
+
+    private void reenviar(Reenvio reenvio) {
+        switch (reenvio.getOperacion()) {
+            case PUSH:
+                enviarYDiferirLotesFallidos(reenvio.getDestinos(), reenvio.getMensaje());
+                break;
+            case TOPICO:
+                adapterFirebasePush.enviarNotificacionATopico(reenvio.getDestinos().get(0), reenvio.getMensaje());
+                break;
+            case SUSCRIBIR_TOPICO:
+                adapterFirebasePush.suscribirATopico(reenvio.getDestinos(), reenvio.getMensaje());
+                break;
+            case DESUSCRIBIR_TOPICO:
+                adapterFirebasePush.desuscribirDeTopico(reenvio.getDestinos(), reenvio.getMensaje());
+                break;
+            default:
+                throw new IllegalArgumentException("Reenvío de push no soportado: " + reenvio.getOperacion());
+        }
+    }
+}
@@ -3,9 +3,11 @@ package com.uade.tpo.deportes.patterns.observer;
 import com.uade.tpo.deportes.entity.Partido;
 import com.uade.tpo.deportes.entity.Usuario;
 import com.uade.tpo.deportes.enums.EventoPartido;
-import com.uade.tpo.deportes.patterns.adapter.NotificadorEmail;
-import com.uade.tpo.deportes.patterns.adapter.NotificadorPush;
-import com.uade.tpo.deportes.repository.UsuarioRepository;
+import com.uade.tpo.deportes.service.notificacion.DespachadorNotificaciones;
+import com.uade.tpo.deportes.service.notificacion.SuscripcionTopicosService;
+import com.uade.tpo.deportes.service.notificacion.TrabajoNotificacion;
+import com.uade.tpo.deportes.service.preferencias.PreferenciaNotificacion;
+import com.uade.tpo.deportes.service.preferencias.PreferenciasNotificacionService;
 import com.uade.tpo.deportes.service.pushtoken.PushTokenService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -13,6 +15,7 @@ import org.springframework.stereotype.Component;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -23,17 +26,14 @@ import java.util.stream.Collectors;
 public class NotificadorCompletoObserver implements ObserverPartido {
 
     @Autowired
-    private NotificadorEmail notificadorEmail;
-    
-    @Autowired
-    private NotificadorPush notificadorPush;
-    
-    @Autowired
-    private UsuarioRepository usuarioRepository;
-    
+    private DespachadorNotificaciones despachadorNotificaciones;
+
     @Autowired
     private PushTokenService pushTokenService;
 
+    @Autowired
+    private PreferenciasNotificacionService preferenciasNotificacionService;
+
     @Override
     public void actualizar(Partido partido, EventoPartido evento) {
         try {
@@ -72,22 +72,14 @@ public class NotificadorCompletoObserver implements ObserverPartido {
         System.out.println("🆕 Procesando notificaciones para partido creado: " + partido.getId());
         
         try {
-            // Obtener usuarios con este deporte como favorito (excepto el organizador)
-            List<Usuario> usuariosInteresados = usuarioRepository
-                .findByDeporteFavoritoAndActivoTrue(partido.getDeporte().getTipo())
-                .stream()
-                .filter(usuario -> !usuario.getId().equals(partido.getOrganizador().getId()))
-                .filter(Usuario::isActivo)
-                .collect(Collectors.toList());
-
             String mensaje = construirMensajePartidoCreado(partido);
-            String asunto = "🆕 Nuevo partido de " + partido.getDeporte().getNombre();
 
-            // Enviar notificaciones
-            enviarNotificacionesAUsuarios(usuariosInteresados, asunto, mensaje);
+            // Un solo push al tópico del deporte: los interesados están suscriptos
+            String topico = SuscripcionTopicosService.topicoDeporte(partido.getDeporte().getId());
+            despachadorNotificaciones.encolar(
+                TrabajoNotificacion.topico(topico, mensaje, partido.getId(), EventoPartido.PARTIDO_CREADO));
 
-            System.out.println("✅ Notificaciones enviadas a " + usuariosInteresados.size() + 
-                              " usuarios interesados en " + partido.getDeporte().getNombre());
+            System.out.println("✅ Notificación de creación encolada para el tópico " + topico);
         } catch (Exception e) {
             System.err.println("❌ Error en manejarPartidoCreado: " + e.getMessage());
         }
@@ -103,7 +95,7 @@ public class NotificadorCompletoObserver implements ObserverPartido {
 
             // Notificar a todos los jugadores y organizador
             List<Usuario> participantes = obtenerTodosLosParticipantes(partido);
-            enviarNotificacionesAUsuarios(participantes, asunto, mensaje);
+            enviarNotificacionesAUsuarios(participantes, asunto, mensaje, partido.getId(), EventoPartido.PARTIDO_ARMADO);
 
             System.out.println("✅ Notificaciones de partido armado enviadas a " + participantes.size() + " participantes");
         } catch (Exception e) {
@@ -120,7 +112,7 @@ public class NotificadorCompletoObserver implements ObserverPartido {
             String asunto = "🎯 Partido confirmado - " + partido.getDeporte().getNombre();
 
             List<Usuario> participantes = obtenerTodosLosParticipantes(partido);
-            enviarNotificacionesAUsuarios(participantes, asunto, mensaje);
+            enviarNotificacionesAUsuarios(participantes, asunto, mensaje, partido.getId(), EventoPartido.PARTIDO_CONFIRMADO);
 
             System.out.println("✅ Notificaciones de confirmación enviadas a " + participantes.size() + " participantes");
         } catch (Exception e) {
@@ -137,7 +129,7 @@ public class NotificadorCompletoObserver implements ObserverPartido {
             String asunto = "🏃‍♂️ ¡Tu partido ha comenzado!";
 
             List<Usuario> participantes = obtenerTodosLosParticipantes(partido);
-            enviarNotificacionesAUsuarios(participantes, asunto, mensaje);
+            enviarNotificacionesAUsuarios(participantes, asunto, mensaje, partido.getId(), EventoPartido.PARTIDO_INICIADO);
 
             System.out.println("✅ Notificaciones de inicio enviadas a " + participantes.size() + " participantes");
         } catch (Exception e) {
@@ -154,7 +146,7 @@ public class NotificadorCompletoObserver implements ObserverPartido {
             String asunto = "🏆 Partido finalizado - ¡Gracias por participar!";
 
             List<Usuario> participantes = obtenerTodosLosParticipantes(partido);
-            enviarNotificacionesAUsuarios(participantes, asunto, mensaje);
+            enviarNotificacionesAUsuarios(participantes, asunto, mensaje, partido.getId(), EventoPartido.PARTIDO_FINALIZADO);
 
             System.out.println("✅ Notificaciones de finalización enviadas a " + participantes.size() + " participantes");
         } catch (Exception e) {
@@ -171,7 +163,7 @@ public class NotificadorCompletoObserver implements ObserverPartido {
             String asunto = "❌ Partido cancelado - " + partido.getDeporte().getNombre();
 
             List<Usuario> participantes = obtenerTodosLosParticipantes(partido);
-            enviarNotificacionesAUsuarios(participantes, asunto, mensaje);
+            enviarNotificacionesAUsuarios(participantes, asunto, mensaje, partido.getId(), EventoPartido.PARTIDO_CANCELADO);
 
             System.out.println("✅ Notificaciones de cancelación enviadas a " + participantes.size() + " participantes");
         } catch (Exception e) {
@@ -181,29 +173,31 @@ public class NotificadorCompletoObserver implements ObserverPartido {
 
     // ===== MÉTODOS AUXILIARES =====
 
-    private void enviarNotificacionesAUsuarios(List<Usuario> usuarios, String asunto, String mensaje) {
+    private void enviarNotificacionesAUsuarios(List<Usuario> usuarios, String asunto, String mensaje,
+                                               Long partidoId, EventoPartido evento) {
         if (usuarios.isEmpty()) {
             System.out.println("ℹ️ No hay usuarios para notificar");
             return;
         }
 
+        // Preferencias y tokens de todos los usuarios en bloque (o desde cache)
+        Map<Long, PreferenciaNotificacion> preferencias = preferenciasNotificacionService.obtenerPreferencias(
+            usuarios.stream().map(Usuario::getId).collect(Collectors.toSet()));
+        Map<Long, List<String>> tokensPorUsuario = pushTokenService.obtenerTokensUsuarios(
+            usuarios.stream().map(Usuario::getId)
+                .filter(id -> preferencias.get(id).aceptaPush())
+                .collect(Collectors.toSet()));
+
+        // Solo se encola: los workers del despachador hacen el envío
         for (Usuario usuario : usuarios) {
-            try {
-                // Enviar email
-                notificadorEmail.enviarNotificacion(usuario.getEmail(), mensaje);
-                
-                // Enviar push notification
-                List<String> tokens = pushTokenService.obtenerTokensUsuario(usuario.getId());
-                if (!tokens.isEmpty()) {
-                    for (String token : tokens) {
-                        notificadorPush.enviarNotificacionPush(token, mensaje);
-                    }
-                } else {
-                    System.out.println("⚠️ Usuario " + usuario.getNombreUsuario() + " no tiene tokens push registrados");
-                }
-                
-            } catch (Exception e) {
-                System.err.println("❌ Error enviando notificación a " + usuario.getEmail() + ": " + e.getMessage());
+            if (preferencias.get(usuario.getId()).aceptaEmail()) {
+                despachadorNotificaciones.encolar(
+                    TrabajoNotificacion.email(usuario.getId(), usuario.getEmail(), mensaje, partidoId, evento));
+            }
+            List<String> tokens = tokensPorUsuario.getOrDefault(usuario.getId(), List.of());
+            if (!tokens.isEmpty()) {
+                despachadorNotificaciones.encolar(
+                    TrabajoNotificacion.push(usuario.getId(), tokens, mensaje, partidoId, evento));
             }
         }
     }
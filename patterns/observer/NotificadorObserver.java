@@ -3,20 +3,28 @@ package com.uade.tpo.deportes.patterns.observer;
 import com.uade.tpo.deportes.entity.Partido;
 import com.uade.tpo.deportes.entity.Usuario;
 import com.uade.tpo.deportes.enums.EventoPartido;
-import com.uade.tpo.deportes.patterns.adapter.NotificadorEmail;
-import com.uade.tpo.deportes.patterns.adapter.NotificadorPush;
-import com.uade.tpo.deportes.service.pushtoken.PushTokenService;
 import com.uade.tpo.deportes.repository.UsuarioRepository;
+import com.uade.tpo.deportes.service.notificacion.CoalescedorEventos;
+import com.uade.tpo.deportes.service.notificacion.DeduplicadorEventos;
+import com.uade.tpo.deportes.service.notificacion.DespachadorNotificaciones;
+import com.uade.tpo.deportes.service.notificacion.NotificacionRechazadaException;
+import com.uade.tpo.deportes.service.notificacion.SuscripcionTopicosService;
+import com.uade.tpo.deportes.service.notificacion.TrabajoNotificacion;
+import com.uade.tpo.deportes.service.preferencias.PreferenciaNotificacion;
+import com.uade.tpo.deportes.service.preferencias.PreferenciasNotificacionService;
+import com.uade.tpo.deportes.service.pushtoken.PushTokenService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
-import java.time.LocalDateTime;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Observer general para notificar a los participantes y organizador
@@ -25,44 +33,93 @@ import java.util.concurrent.ConcurrentHashMap;
  * PATRONES:
  * - Observer: para recibir eventos de cambio de estado.
  * - Adapter: para unificar notificación por email y push.
+ *
+ * El observer solo decide destinatarios y mensaje; el envío real lo hacen
+ * los workers del DespachadorNotificaciones. Lo invoca el RelayOutbox; si un
+ * evento se vuelve a entregar dentro de la ventana, el DeduplicadorEventos
+ * lo descarta. Antes de encolar se aplican las Preferencias de cada
+ * destinatario (canales deshabilitados y radio de búsqueda).
+ *
+ * Los recordatorios llegan por notificarRecordatorio: no pasan por el
+ * deduplicador porque la marca persistente ya garantiza uno por offset.
+ *
+ * Los trabajos de un evento se encolan todos juntos o ninguno: si una cola
+ * no tiene lugar (llena o detenida) se lanza NotificacionRechazadaException
+ * sin haber encolado nada, y el relay deja el evento PENDIENTE y lo
+ * reintenta con backoff sin que nadie lo reciba dos veces.
  */
 @Component
 public class NotificadorObserver implements ObserverPartido {
 
     @Autowired
-    private NotificadorEmail notificadorEmail;
-    
+    private DespachadorNotificaciones despachadorNotificaciones;
+
     @Autowired
-    private NotificadorPush notificadorPush;
-    
+    private UsuarioRepository usuarioRepository;
+
     @Autowired
     private PushTokenService pushTokenService;
 
     @Autowired
-    private UsuarioRepository usuarioRepository;
+    private DeduplicadorEventos deduplicadorEventos;
 
-    // Cache para evitar notificaciones duplicadas
-    // Key: partidoId + evento
-    private final ConcurrentHashMap<String, LocalDateTime> notificacionesEnviadas = new ConcurrentHashMap<>();
-    private final long CACHE_EXPIRY_MINUTES = 30;
-    private final long DEDUPLICATION_WINDOW_MINUTES = 2;
+    @Autowired
+    private CoalescedorEventos coalescedorEventos;
+
+    @Autowired
+    private PreferenciasNotificacionService preferenciasNotificacionService;
+
+    // true: el push de creación solo llega a quienes además están en la zona del partido
+    @Value("${unomas.notificaciones.creacion.filtrar-por-zona:false}")
+    private boolean creacionFiltrarPorZona;
+
+    // true: además del push al tópico, se manda un email a cada interesado (O(usuarios))
+    @Value("${unomas.notificaciones.creacion.email-individual:false}")
+    private boolean creacionEmailIndividual;
 
     @Override
     public void actualizar(Partido partido, EventoPartido evento) {
-        // Crear clave única para este evento
-        String cacheKey = partido.getId() + "_" + evento.name();
-        LocalDateTime ahora = LocalDateTime.now();
-        // Verificar si ya notificamos este evento recientemente
-        LocalDateTime ultimaNotificacion = notificacionesEnviadas.get(cacheKey);
-        if (ultimaNotificacion != null &&
-            ultimaNotificacion.plusMinutes(DEDUPLICATION_WINDOW_MINUTES).isAfter(ahora)) {
+        if (evento == EventoPartido.JUGADOR_UNIDO) {
+            notificarUnion(partido, null);
+            return;
+        }
+        if (!deduplicadorEventos.registrarSiEsNuevo(partido.getId(), evento)) {
             System.out.println("⚠️ Notificación duplicada evitada para partido " + partido.getId() + " evento " + evento);
             return;
         }
-        // Marcar como notificado ANTES de procesar para evitar concurrencia
-        notificacionesEnviadas.put(cacheKey, ahora);
-        limpiarCacheExpirado();
 
+        try {
+            despacharEvento(partido, evento);
+        } catch (RuntimeException e) {
+            // El relay va a reintentar el evento: no puede encontrarlo registrado como ya enviado
+            deduplicadorEventos.olvidar(partido.getId(), evento);
+            throw e;
+        }
+    }
+
+    /**
+     * Suma la unión al resumen del partido (JUGADOR_UNIDO se repite una vez por
+     * jugador: no se deduplica). Si el partido ya dejó de buscar jugadores la
+     * unión llega tarde: el aviso de estado (armado, cancelado...) ya la
+     * reemplaza y se descarta. Devuelve true si quedó en un resumen pendiente;
+     * con eventoOutboxId el coalescedor confirma el evento cuando el resumen sale.
+     */
+    public boolean notificarUnion(Partido partido, Long eventoOutboxId) {
+        if (!"NECESITAMOS_JUGADORES".equals(partido.getEstadoActual())) {
+            System.out.println("⏭️ Unión tardía descartada: el partido " + partido.getId() + " ya está " +
+                partido.getEstadoActual());
+            return false;
+        }
+        Set<Long> idsNotificados = new HashSet<>();
+        List<Usuario> destinatarios = participantesYOrganizador(partido).stream()
+            .filter(u -> idsNotificados.add(u.getId()))
+            .collect(Collectors.toList());
+        coalescedorEventos.agregarUnion(partido, destinatarios, eventoOutboxId);
+        System.out.println("📦 Unión acumulada para el resumen del partido " + partido.getId());
+        return eventoOutboxId != null;
+    }
+
+    private void despacharEvento(Partido partido, EventoPartido evento) {
         System.out.println("🔔 === NOTIFICADOR OBSERVER UNIFICADO ===");
         System.out.println("   Evento recibido: " + evento);
         System.out.println("   Partido ID: " + partido.getId());
@@ -72,13 +129,9 @@ public class NotificadorObserver implements ObserverPartido {
         List<Usuario> usuariosANotificar = new ArrayList<>();
 
         if (evento == EventoPartido.PARTIDO_CREADO) {
-            // Notificar a todos los usuarios cuyo deporte favorito coincide (excepto admin)
-            usuariosANotificar = usuarioRepository.findByDeporteFavoritoAndActivoTrue(partido.getDeporte())
-                .stream()
-                .filter(u -> !"ADMIN".equalsIgnoreCase(u.getRole().name()))
-                .collect(Collectors.toList());
+            notificarCreacion(partido, construirMensaje(partido, evento));
+            return;
         } else if (
-            evento == EventoPartido.JUGADOR_UNIDO ||
             evento == EventoPartido.PARTIDO_ARMADO ||
             evento == EventoPartido.PARTIDO_CONFIRMADO ||
             evento == EventoPartido.PARTIDO_INICIADO ||
@@ -86,40 +139,159 @@ public class NotificadorObserver implements ObserverPartido {
             evento == EventoPartido.PARTIDO_CANCELADO
         ) {
             // Notificar solo a participantes y organizador (excepto admin)
-            usuariosANotificar.addAll(partido.getParticipantes());
-            if (partido.getOrganizador() != null) {
-                usuariosANotificar.add(partido.getOrganizador());
-            }
-            usuariosANotificar = usuariosANotificar.stream()
-                .filter(u -> u != null)
-                .filter(u -> !"ADMIN".equalsIgnoreCase(u.getRole().name()))
-                .collect(Collectors.toList());
+            usuariosANotificar = participantesYOrganizador(partido);
         } else {
             System.out.println("⚠️ Evento ignorado: " + evento);
             return;
         }
 
         String mensaje = construirMensaje(partido, evento);
-        usuariosANotificar.stream()
+        Long partidoId = partido.getId();
+        List<Usuario> destinatarios = usuariosANotificar.stream()
             .filter(u -> idsNotificados.add(u.getId())) // evitar duplicados
-            .forEach(usuario -> {
-                try {
-                    notificadorEmail.enviarNotificacion(usuario.getEmail(), mensaje);
-                    var tokensPush = pushTokenService.obtenerTokensUsuario(usuario.getId());
-                    if (!tokensPush.isEmpty()) {
-                        tokensPush.forEach(token -> {
-                            try {
-                                notificadorPush.enviarNotificacionPush(token, mensaje);
-                                System.out.println("✅ Push notification enviada a usuario " + usuario.getId() + " con token: " + token.substring(0, Math.min(20, token.length())) + "...");
-                            } catch (Exception e) {
-                                System.err.println("❌ Error enviando push a usuario " + usuario.getId() + ": " + e.getMessage());
-                            }
-                        });
-                    }
-                } catch (Exception e) {
-                    System.err.println("❌ Error enviando notificación a " + usuario.getEmail() + ": " + e.getMessage());
-                }
-            });
+            .collect(Collectors.toList());
+
+        // Los cambios de estado salen ya y reemplazan el resumen de uniones pendiente
+        coalescedorEventos.descartar(partidoId);
+
+        encolarSegunPreferencias(destinatarios, mensaje, partidoId, evento);
+    }
+
+    /**
+     * Recordatorio de un partido confirmado a participantes y organizador.
+     * Si el partido ya no está confirmado o ya empezó, no se envía.
+     */
+    public void notificarRecordatorio(Partido partido, Integer minutosAntes) {
+        if (!"CONFIRMADO".equals(partido.getEstadoActual()) ||
+            !partido.getHorario().isAfter(LocalDateTime.now())) {
+            System.out.println("⏭️ Recordatorio descartado: el partido " + partido.getId() + " está " +
+                partido.getEstadoActual());
+            return;
+        }
+        Set<Long> idsNotificados = new HashSet<>();
+        List<Usuario> destinatarios = participantesYOrganizador(partido).stream()
+            .filter(u -> idsNotificados.add(u.getId()))
+            .collect(Collectors.toList());
+        String mensaje = construirMensajeRecordatorio(partido);
+        System.out.println("⏰ Recordatorio de " + minutosAntes + " min para partido " + partido.getId());
+        encolarSegunPreferencias(destinatarios, mensaje, partido.getId(), EventoPartido.RECORDATORIO_PARTIDO);
+    }
+
+    /**
+     * Creación: un solo push al tópico del deporte (los interesados están
+     * suscriptos por SuscripcionTopicosService) en lugar de uno por usuario.
+     * FCM no permite excluir tokens de un envío a tópico: si el deporte
+     * favorito del organizador es el del partido, sus dispositivos también
+     * reciben el aviso de la creación.
+     */
+    private void notificarCreacion(Partido partido, String mensaje) {
+        String destino = SuscripcionTopicosService.topicoDeporte(partido.getDeporte().getId());
+        String zona = partido.getUbicacion() != null ? partido.getUbicacion().getZona() : null;
+        if (creacionFiltrarPorZona && zona != null && !zona.isBlank()) {
+            destino = "'" + destino + "' in topics && '" + SuscripcionTopicosService.topicoZona(zona) + "' in topics";
+        }
+        List<TrabajoNotificacion> trabajos = new ArrayList<>();
+        trabajos.add(TrabajoNotificacion.topico(destino, mensaje, partido.getId(), EventoPartido.PARTIDO_CREADO));
+
+        if (!creacionEmailIndividual) {
+            encolarTodos(trabajos);
+            System.out.println("📡 Creación del partido " + partido.getId() + " encolada para el tópico " + destino);
+            return;
+        }
+        // Email no tiene tópicos: sigue siendo uno por usuario interesado (excepto admin),
+        // solo a quienes aceptan email y tienen el partido dentro de su radio de búsqueda
+        List<Usuario> candidatos = usuarioRepository.findByDeporteFavoritoAndActivoTrue(partido.getDeporte())
+            .stream()
+            .filter(u -> !"ADMIN".equalsIgnoreCase(u.getRole().name()))
+            .collect(Collectors.toList());
+        Map<Long, PreferenciaNotificacion> preferencias = preferenciasNotificacionService.obtenerPreferencias(
+            candidatos.stream().map(Usuario::getId).collect(Collectors.toSet()));
+        List<Usuario> interesados = candidatos.stream()
+            .filter(u -> preferencias.get(u.getId()).aceptaEmail())
+            .filter(u -> preferencias.get(u.getId()).estaEnRadio(partido.getUbicacion()))
+            .collect(Collectors.toList());
+        System.out.println("📧 Creación por email: " + interesados.size() + " de " + candidatos.size() +
+            " interesados según preferencias");
+        for (Usuario usuario : interesados) {
+            trabajos.add(TrabajoNotificacion.email(
+                usuario.getId(), usuario.getEmail(), mensaje, partido.getId(), EventoPartido.PARTIDO_CREADO));
+        }
+        encolarTodos(trabajos);
+        System.out.println("📡 Creación del partido " + partido.getId() + " encolada para el tópico " + destino);
+    }
+
+    // Preferencias, tokens y encolado por los canales que cada destinatario acepta
+    private void encolarSegunPreferencias(List<Usuario> destinatarios, String mensaje, Long partidoId,
+                                          EventoPartido evento) {
+        Set<Long> ids = destinatarios.stream().map(Usuario::getId).collect(Collectors.toSet());
+
+        // ⚡ PASO 1: Preferencias de todos los destinatarios en una consulta (o desde cache)
+        Map<Long, PreferenciaNotificacion> preferencias =
+            preferenciasNotificacionService.obtenerPreferencias(ids);
+
+        // ⚡ PASO 2: Tokens solo de quienes aceptan push
+        Set<Long> idsPush = destinatarios.stream()
+            .map(Usuario::getId)
+            .filter(id -> preferencias.get(id).aceptaPush())
+            .collect(Collectors.toSet());
+        Map<Long, List<String>> tokensPorUsuario = pushTokenService.obtenerTokensUsuarios(idsPush);
+
+        // ⚡ PASO 3: Armar los trabajos por los canales habilitados y encolarlos todos juntos
+        int omitidos = 0;
+        List<TrabajoNotificacion> trabajos = new ArrayList<>();
+        for (Usuario usuario : destinatarios) {
+            PreferenciaNotificacion preferencia = preferencias.get(usuario.getId());
+            if (preferencia.aceptaEmail()) {
+                trabajos.add(TrabajoNotificacion.email(usuario.getId(), usuario.getEmail(), mensaje, partidoId, evento));
+            } else {
+                omitidos++;
+            }
+            List<String> tokens = tokensPorUsuario.getOrDefault(usuario.getId(), List.of());
+            if (!tokens.isEmpty()) {
+                trabajos.add(TrabajoNotificacion.push(usuario.getId(), tokens, mensaje, partidoId, evento));
+            } else if (!preferencia.aceptaPush()) {
+                omitidos++;
+            }
+        }
+        encolarTodos(trabajos);
+        System.out.println("📬 " + ids.size() + " destinatarios encolados para " + evento +
+            " (" + omitidos + " envíos omitidos por preferencias)");
+    }
+
+    // Todo el evento o nada: si no hay lugar no quedó nada encolado y el relay puede reintentarlo entero
+    private void encolarTodos(List<TrabajoNotificacion> trabajos) {
+        if (!despachadorNotificaciones.encolarTodos(trabajos)) {
+            TrabajoNotificacion primero = trabajos.get(0);
+            throw new NotificacionRechazadaException("Colas sin lugar para los " + trabajos.size() + " envíos de " +
+                primero.getEvento() + " del partido " + primero.getPartidoId());
+        }
+    }
+
+    private List<Usuario> participantesYOrganizador(Partido partido) {
+        List<Usuario> usuarios = new ArrayList<>(partido.getParticipantes());
+        if (partido.getOrganizador() != null) {
+            usuarios.add(partido.getOrganizador());
+        }
+        return usuarios.stream()
+            .filter(u -> u != null)
+            .filter(u -> !"ADMIN".equalsIgnoreCase(u.getRole().name()))
+            .collect(Collectors.toList());
+    }
+
+    // Dice el tiempo que falta de verdad: el de 24 h de un partido confirmado tarde sale antes de las 24 h
+    private String construirMensajeRecordatorio(Partido partido) {
+        String deporte = partido.getDeporte().getNombre();
+        String ubicacion = partido.getUbicacion().getDireccion();
+        long minutos = Math.max(1, Duration.between(LocalDateTime.now(), partido.getHorario()).toMinutes());
+        String cuanto;
+        if (minutos < 60) {
+            cuanto = minutos + " minutos";
+        } else {
+            long horas = Math.round(minutos / 60.0);
+            cuanto = horas == 1 ? "1 hora" : horas + " horas";
+        }
+        return String.format("⏰ Recordatorio: tu partido de %s empieza en %s (%s) en %s.",
+            deporte, cuanto, partido.getHorario().toString(), ubicacion);
     }
 
     private String construirMensaje(Partido partido, EventoPartido evento) {
@@ -140,15 +312,10 @@ public class NotificadorObserver implements ObserverPartido {
                 return String.format("El partido de %s ha finalizado. ¡Gracias por participar!", deporte);
             case PARTIDO_CANCELADO:
                 return String.format("El partido de %s en %s ha sido cancelado.", deporte, ubicacion);
+            case RECORDATORIO_PARTIDO:
+                return construirMensajeRecordatorio(partido);
             default:
                 return String.format("Actualización en el partido de %s.", deporte);
         }
     }
-
-    private void limpiarCacheExpirado() {
-        LocalDateTime limite = LocalDateTime.now().minusMinutes(CACHE_EXPIRY_MINUTES);
-        notificacionesEnviadas.entrySet().removeIf(entry ->
-            entry.getValue().isBefore(limite)
-        );
-    }
 }
\ No newline at end of file
@@ -0,0 +1,154 @@
+package com.uade.tpo.deportes.patterns.observer;
+
+import com.uade.tpo.deportes.entity.EventoOutbox;
+import com.uade.tpo.deportes.entity.Partido;
+import com.uade.tpo.deportes.enums.EventoPartido;
+import com.uade.tpo.deportes.repository.EventoOutboxRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 📤 Observer que no notifica: deja el evento en la tabla outbox dentro de
+ * la transacción del cambio. Si la transacción hace rollback, el evento
+ * desaparece con ella; si hace commit, el RelayOutbox lo despacha.
+ *
+ * Dos transacciones pueden registrar el mismo evento a la vez (el usuario
+ * cancela mientras el barrido cancela por abandono). La fila se inserta en
+ * un savepoint: la que pierde contra la clave única deshace solo esa fila
+ * y su transacción sigue, porque el evento ya quedó registrado por la otra.
+ */
+@Component
+public class OutboxObserver implements ObserverPartido {
+
+    private static final String INSERTAR_EVENTO = "INSERT INTO eventos_outbox " +
+            "(partido_id, evento, clave_idempotencia, estado, intentos, creado_en) VALUES (?, ?, ?, ?, 0, ?)";
+
+    @Autowired
+    private EventoOutboxRepository eventoOutboxRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public void actualizar(Partido partido, EventoPartido evento) {
+        if (partido.getId() == null) {
+            System.err.println("⚠️ Evento " + evento + " ignorado: el partido todavía no fue guardado");
+            return;
+        }
+
+        String clave = claveIdempotencia(partido, evento);
+        // El mismo cambio suele notificarse más de una vez (cambiarEstado + notificación explícita)
+        if (eventoOutboxRepository.existsByClaveIdempotencia(clave)) {
+            return;
+        }
+
+        if (insertarSiNoExiste(partido.getId(), evento, clave)) {
+            System.out.println("📤 Evento " + evento + " registrado en outbox para partido " + partido.getId());
+        }
+    }
+
+    /**
+     * Registra el mismo evento para varios partidos (transiciones masivas):
+     * una consulta para las claves ya existentes y un saveAll con el resto
+     */
+    @Transactional
+    public int registrarEnBloque(Collection<Long> partidoIds, EventoPartido evento) {
+        return registrarEnBloque(partidoIds, evento, null);
+    }
+
+    /**
+     * Registra los recordatorios de un offset para varios partidos; la clave
+     * incluye el offset, así cada uno sale una sola vez
+     */
+    @Transactional
+    public int registrarRecordatorios(Collection<Long> partidoIds, int minutosAntes) {
+        return registrarEnBloque(partidoIds, EventoPartido.RECORDATORIO_PARTIDO, minutosAntes);
+    }
+
+    // ===== MÉTODOS AUXILIARES =====
+
+    /**
+     * INSERT en un savepoint, por JDBC para que la fila que choca no quede en la
+     * sesión de Hibernate. Devuelve false si otra transacción ya tenía la clave.
+     */
+    private boolean insertarSiNoExiste(Long partidoId, EventoPartido evento, String clave) {
+        return entityManager.unwrap(Session.class).doReturningWork(conexion -> {
+            Savepoint savepoint = conexion.setSavepoint();
+            try (PreparedStatement insert = conexion.prepareStatement(INSERTAR_EVENTO)) {
+                insert.setLong(1, partidoId);
+                insert.setString(2, evento.name());
+                insert.setString(3, clave);
+                insert.setString(4, EventoOutbox.PENDIENTE);
+                insert.setTimestamp(5, Timestamp.valueOf(LocalDateTime.now()));
+                insert.executeUpdate();
+                conexion.releaseSavepoint(savepoint);
+                return true;
+            } catch (SQLException e) {
+                // Clase 23: violación de integridad (la clave única); cualquier otro error se propaga
+                conexion.rollback(savepoint);
+                if (e.getSQLState() != null && e.getSQLState().startsWith("23")) {
+                    System.out.println("📤 Evento " + clave + " ya registrado por otra transacción");
+                    return false;
+                }
+                throw e;
+            }
+        });
+    }
+
+    private int registrarEnBloque(Collection<Long> partidoIds, EventoPartido evento, Integer minutosAntes) {
+        if (partidoIds.isEmpty()) {
+            return 0;
+        }
+        Map<String, Long> porClave = new LinkedHashMap<>();
+        for (Long partidoId : partidoIds) {
+            String clave = claveIdempotencia(partidoId, evento);
+            porClave.put(minutosAntes != null ? clave + ":" + minutosAntes : clave, partidoId);
+        }
+        eventoOutboxRepository.findClavesExistentes(porClave.keySet()).forEach(porClave::remove);
+
+        List<EventoOutbox> eventos = new ArrayList<>(porClave.size());
+        porClave.forEach((clave, partidoId) -> eventos.add(EventoOutbox.builder()
+                .partidoId(partidoId)
+                .evento(evento)
+                .minutosAntes(minutosAntes)
+                .claveIdempotencia(clave)
+                .build()));
+        eventoOutboxRepository.saveAll(eventos);
+        System.out.println("📤 " + eventos.size() + " eventos " + evento + " registrados en outbox");
+        return eventos.size();
+    }
+
+    /**
+     * Un partido pasa por cada estado una sola vez; las uniones se distinguen
+     * por el jugador que se unió (el último agregado a participantes). Con la
+     * cantidad de participantes dos uniones concurrentes leían el mismo tamaño
+     * y chocaban en la clave única; con el id de usuario no pueden chocar.
+     */
+    static String claveIdempotencia(Partido partido, EventoPartido evento) {
+        String clave = claveIdempotencia(partido.getId(), evento);
+        if (evento == EventoPartido.JUGADOR_UNIDO && !partido.getParticipantes().isEmpty()) {
+            clave += ":" + partido.getParticipantes().get(partido.getParticipantes().size() - 1).getId();
+        }
+        return clave;
+    }
+
+    private static String claveIdempotencia(Long partidoId, EventoPartido evento) {
+        return partidoId + ":" + evento.name();
+    }
+}
@@ -9,6 +9,7 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * 🗺️ ESTRATEGIA POR CERCANÍA - ALGORITMO GEOGRÁFICO REAL
@@ -23,9 +24,13 @@ import java.util.Map;
 @Component
 public class EmparejamientoPorCercaniaStrategy implements EstrategiaEmparejamiento {
     
-    private Double radioMaximo = 15.0; // km
+    private volatile Double radioMaximo = 15.0; // km (singleton compartido entre hilos)
     private static final Map<String, List<String>> ZONAS_ADYACENTES = initZonasAdyacentes();
     private static final Map<String, Double[]> COORDENADAS_ZONAS = initCoordenadasZonas();
+    // Zonas con buena conectividad de transporte público
+    private static final Set<String> ZONAS_CONECTADAS = Set.of(
+        "centro", "puerto madero", "palermo", "belgrano", "recoleta"
+    );
 
     @Override
     public boolean puedeUnirse(Usuario usuario, Partido partido) {
@@ -51,10 +56,13 @@ public class EmparejamientoPorCercaniaStrategy implements EstrategiaEmparejamien
             return 0.0;
         }
 
+        String zonaUsuario = obtenerZonaPreferidaUsuario(usuario);
+        Double[] coordUsuario = obtenerCoordenadasUsuario(usuario);
+
         // 🗺️ CÁLCULO GEOGRÁFICO SOFISTICADO
-        double compatibilidadZona = calcularCompatibilidadPorZona(usuario, partido);
-        double compatibilidadDistancia = calcularCompatibilidadPorDistancia(usuario, partido);
-        double bonusTransporte = calcularBonusTransporte(usuario, partido);
+        double compatibilidadZona = calcularCompatibilidadPorZona(zonaUsuario, partido);
+        double compatibilidadDistancia = calcularCompatibilidadPorDistancia(coordUsuario, partido);
+        double bonusTransporte = calcularBonusTransporte(zonaUsuario, partido);
         
         // Tomar el mejor de zona o distancia + bonus transporte
         double compatibilidadBase = Math.max(compatibilidadZona, compatibilidadDistancia);
@@ -68,9 +76,29 @@ public class EmparejamientoPorCercaniaStrategy implements EstrategiaEmparejamien
         return compatibilidadFinal;
     }
 
-    // 🏘️ COMPATIBILIDAD POR ZONA
-    private double calcularCompatibilidadPorZona(Usuario usuario, Partido partido) {
+    @Override
+    public double[] calcularCompatibilidades(Usuario usuario, List<Partido> partidos) {
+        double[] resultado = new double[partidos.size()];
+
+        // ⚡ Zona y coordenadas del usuario: una sola vez por búsqueda
         String zonaUsuario = obtenerZonaPreferidaUsuario(usuario);
+        Double[] coordUsuario = obtenerCoordenadasUsuario(usuario);
+
+        for (int i = 0; i < resultado.length; i++) {
+            Partido partido = partidos.get(i);
+            if (!puedeUnirse(usuario, partido)) {
+                continue;
+            }
+            double compatibilidadBase = Math.max(
+                    calcularCompatibilidadPorZona(zonaUsuario, partido),
+                    calcularCompatibilidadPorDistancia(coordUsuario, partido));
+            resultado[i] = Math.min(1.0, compatibilidadBase + calcularBonusTransporte(zonaUsuario, partido));
+        }
+        return resultado;
+    }
+
+    // 🏘️ COMPATIBILIDAD POR ZONA
+    private double calcularCompatibilidadPorZona(String zonaUsuario, Partido partido) {
         String zonaPartido = partido.getUbicacion().getZona();
         
         if (zonaUsuario == null || zonaPartido == null) {
@@ -97,11 +125,10 @@ public class EmparejamientoPorCercaniaStrategy implements EstrategiaEmparejamien
     }
 
     // 📏 COMPATIBILIDAD POR DISTANCIA REAL
-    private double calcularCompatibilidadPorDistancia(Usuario usuario, Partido partido) {
-        Double[] coordUsuario = obtenerCoordenadasUsuario(usuario);
+    private double calcularCompatibilidadPorDistancia(Double[] coordUsuario, Partido partido) {
         Double[] coordPartido = obtenerCoordenadasPartido(partido);
         if (coordUsuario != null && coordPartido != null) {
-            double distancia = calcularDistanciaHaversine(
+            double distancia = Ubicacion.distanciaKm(
                 coordUsuario[0], coordUsuario[1], 
                 coordPartido[0], coordPartido[1]
             );
@@ -116,19 +143,13 @@ public class EmparejamientoPorCercaniaStrategy implements EstrategiaEmparejamien
     }
 
     // 🚌 BONUS POR DISPONIBILIDAD DE TRANSPORTE
-    private double calcularBonusTransporte(Usuario usuario, Partido partido) {
-        String zonaUsuario = obtenerZonaPreferidaUsuario(usuario);
+    private double calcularBonusTransporte(String zonaUsuario, Partido partido) {
         String zonaPartido = partido.getUbicacion().getZona();
         
         if (zonaUsuario == null || zonaPartido == null) return 0.0;
         
-        // Zonas con buena conectividad de transporte público
-        List<String> zonasConectadas = Arrays.asList(
-            "centro", "puerto madero", "palermo", "belgrano", "recoleta"
-        );
-        
-        boolean usuarioEnZonaConectada = zonasConectadas.contains(zonaUsuario.toLowerCase());
-        boolean partidoEnZonaConectada = zonasConectadas.contains(zonaPartido.toLowerCase());
+        boolean usuarioEnZonaConectada = ZONAS_CONECTADAS.contains(zonaUsuario.toLowerCase());
+        boolean partidoEnZonaConectada = ZONAS_CONECTADAS.contains(zonaPartido.toLowerCase());
         
         if (usuarioEnZonaConectada && partidoEnZonaConectada) {
             return 0.15; // 15% bonus por buena conectividad
@@ -149,21 +170,6 @@ public class EmparejamientoPorCercaniaStrategy implements EstrategiaEmparejamien
 
     // 🧮 MÉTODOS AUXILIARES MATEMÁTICOS
 
-    private double calcularDistanciaHaversine(double lat1, double lon1, double lat2, double lon2) {
-        final int R = 6371; // Radio de la Tierra en km
-        
-        double latDistance = Math.toRadians(lat2 - lat1);
-        double lonDistance = Math.toRadians(lon2 - lon1);
-        
-        double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
-                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
-                * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
-                
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-        
-        return R * c;
-    }
-
     private Double[] obtenerCoordenadasPartido(Partido partido) {
         Ubicacion ubicacion = partido.getUbicacion();
         
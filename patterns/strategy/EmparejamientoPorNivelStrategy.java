@@ -4,6 +4,8 @@ import com.uade.tpo.deportes.entity.Partido;
 import com.uade.tpo.deportes.entity.Usuario;
 import com.uade.tpo.deportes.enums.NivelJuego;
 import org.springframework.stereotype.Component;
+
+import java.util.List;
 /**
  *
  * 
@@ -17,11 +19,15 @@ import org.springframework.stereotype.Component;
 @Component
 public class EmparejamientoPorNivelStrategy implements EstrategiaEmparejamiento {
     
-    private NivelJuego nivelMinimo = NivelJuego.PRINCIPIANTE;
-    private NivelJuego nivelMaximo = NivelJuego.AVANZADO;
+    // Singleton compartido entre hilos: el rango se reemplaza entero, nunca se modifica
+    private volatile RangoNivel rango = new RangoNivel(NivelJuego.PRINCIPIANTE, NivelJuego.AVANZADO);
 
     @Override
     public boolean puedeUnirse(Usuario usuario, Partido partido) {
+        return puedeUnirse(usuario, partido, rango);
+    }
+
+    private boolean puedeUnirse(Usuario usuario, Partido partido, RangoNivel rango) {
         // 1. Verificaciones básicas
         if (partido.getParticipantes().size() >= partido.getCantidadJugadoresRequeridos()) {
             return false;
@@ -39,7 +45,7 @@ public class EmparejamientoPorNivelStrategy implements EstrategiaEmparejamiento
         // (ya no se impide si usuario es el organizador)
 
         // 2. Verificar rango permitido
-        if (!estaEnRango(usuario.getNivelJuego())) {
+        if (!rango.contiene(usuario.getNivelJuego())) {
             return false;
         }
 
@@ -61,15 +67,46 @@ public class EmparejamientoPorNivelStrategy implements EstrategiaEmparejamiento
         double bonusOrganizador = calcularBonusOrganizador(usuario, partido);
         
         // Promedio ponderado
-        double compatibilidadFinal = (compatibilidadBase * 0.4) + 
-                                   (compatibilidadGrupal * 0.5) + 
-                                   (bonusOrganizador * 0.1);
+        double compatibilidadFinal = combinar(compatibilidadBase, compatibilidadGrupal, bonusOrganizador);
         
         System.out.println("🎯 Compatibilidad " + usuario.getNombreUsuario() + " → " +
                          String.format("%.1f%% (Base: %.1f%%, Grupal: %.1f%%, Bonus: %.1f%%)",
                          compatibilidadFinal * 100, compatibilidadBase * 100, 
                          compatibilidadGrupal * 100, bonusOrganizador * 100));
         
+        return compatibilidadFinal;
+    }
+
+    @Override
+    public double[] calcularCompatibilidades(Usuario usuario, List<Partido> partidos) {
+        double[] resultado = new double[partidos.size()];
+        NivelJuego nivelUsuario = usuario.getNivelJuego();
+        RangoNivel rangoActual = rango;
+
+        // Sin nivel o fuera de rango: ningún partido es compatible
+        if (nivelUsuario == null || !rangoActual.contiene(nivelUsuario)) {
+            return resultado;
+        }
+
+        // ⚡ La base depende solo del usuario: se calcula una vez
+        double compatibilidadBase = calcularCompatibilidadBase(nivelUsuario);
+
+        for (int i = 0; i < resultado.length; i++) {
+            Partido partido = partidos.get(i);
+            if (!puedeUnirse(usuario, partido, rangoActual)) {
+                continue;
+            }
+            resultado[i] = combinar(compatibilidadBase,
+                    calcularCompatibilidadConGrupo(usuario, partido),
+                    calcularBonusOrganizador(usuario, partido));
+        }
+        return resultado;
+    }
+
+    private double combinar(double compatibilidadBase, double compatibilidadGrupal, double bonusOrganizador) {
+        double compatibilidadFinal = (compatibilidadBase * 0.4) + 
+                                   (compatibilidadGrupal * 0.5) + 
+                                   (bonusOrganizador * 0.1);
         return Math.min(1.0, compatibilidadFinal);
     }
 
@@ -169,25 +206,42 @@ public class EmparejamientoPorNivelStrategy implements EstrategiaEmparejamiento
         return true;
     }
 
-    private boolean estaEnRango(NivelJuego nivel) {
-        int nivelValue = nivel.ordinal();
-        int minValue = nivelMinimo.ordinal();
-        int maxValue = nivelMaximo.ordinal();
-        
-        return nivelValue >= minValue && nivelValue <= maxValue;
+    // Configuración
+    public NivelJuego getNivelMinimo() {
+        return rango.minimo;
     }
 
-    // Configuración
-    public void setNivelMinimo(NivelJuego nivelMinimo) {
-        this.nivelMinimo = nivelMinimo;
+    public NivelJuego getNivelMaximo() {
+        return rango.maximo;
+    }
+
+    public synchronized void setNivelMinimo(NivelJuego nivelMinimo) {
+        this.rango = new RangoNivel(nivelMinimo, rango.maximo);
         System.out.println("🎯 Estrategia POR_NIVEL configurada - Mínimo: " + nivelMinimo);
     }
 
-    public void setNivelMaximo(NivelJuego nivelMaximo) {
-        this.nivelMaximo = nivelMaximo;
+    public synchronized void setNivelMaximo(NivelJuego nivelMaximo) {
+        this.rango = new RangoNivel(rango.minimo, nivelMaximo);
         System.out.println("🎯 Estrategia POR_NIVEL configurada - Máximo: " + nivelMaximo);
     }
 
+    /**
+     * Rango de niveles permitido (inmutable)
+     */
+    private static final class RangoNivel {
+        private final NivelJuego minimo;
+        private final NivelJuego maximo;
+
+        private RangoNivel(NivelJuego minimo, NivelJuego maximo) {
+            this.minimo = minimo;
+            this.maximo = maximo;
+        }
+
+        private boolean contiene(NivelJuego nivel) {
+            return nivel.ordinal() >= minimo.ordinal() && nivel.ordinal() <= maximo.ordinal();
+        }
+    }
+
     @Override
     public String getNombre() {
         return "POR_NIVEL";
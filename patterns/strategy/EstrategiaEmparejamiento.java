@@ -3,8 +3,32 @@ package com.uade.tpo.deportes.patterns.strategy;
 import com.uade.tpo.deportes.entity.Partido;
 import com.uade.tpo.deportes.entity.Usuario;
 
+import java.util.List;
+
 public interface EstrategiaEmparejamiento {
     boolean puedeUnirse(Usuario usuario, Partido partido);
     Double calcularCompatibilidad(Usuario usuario, Partido partido);
     String getNombre();
+
+    /**
+     * Compatibilidad de un usuario con varios partidos, en el mismo orden de la lista.
+     * Las estrategias lo sobrescriben para preparar los datos del usuario una sola vez.
+     */
+    default double[] calcularCompatibilidades(Usuario usuario, List<Partido> partidos) {
+        double[] resultado = new double[partidos.size()];
+        for (int i = 0; i < resultado.length; i++) {
+            Double compatibilidad = calcularCompatibilidad(usuario, partidos.get(i));
+            resultado[i] = compatibilidad != null ? compatibilidad : 0.0;
+        }
+        return resultado;
+    }
+
+    /**
+     * Carga en el hilo que llama todo lo que la estrategia necesita del usuario y
+     * devuelve con qué puntuarlo, sin más I/O. Se usa antes de repartir la
+     * puntuación entre hilos. Por defecto la estrategia misma: no carga nada.
+     */
+    default EstrategiaEmparejamiento prepararPara(Usuario usuario) {
+        return this;
+    }
 }
\ No newline at end of file
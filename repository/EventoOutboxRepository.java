@@ -0,0 +1,82 @@
+package com.uade.tpo.deportes.repository;
+
+import com.uade.tpo.deportes.entity.EventoOutbox;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface EventoOutboxRepository extends JpaRepository<EventoOutbox, Long> {
+
+    boolean existsByClaveIdempotencia(String claveIdempotencia);
+
+    @Query("SELECT e.claveIdempotencia FROM EventoOutbox e WHERE e.claveIdempotencia IN :claves")
+    List<String> findClavesExistentes(@Param("claves") Collection<String> claves);
+
+    // Próximo lote de pendientes en orden de escritura, sin los que están esperando su backoff;
+    // el fetch size evita traer todo el resultado de una vez
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "100"))
+    @Query("SELECT e.id FROM EventoOutbox e WHERE e.estado = 'PENDIENTE' AND " +
+           "(e.proximoIntento IS NULL OR e.proximoIntento <= :ahora) ORDER BY e.id")
+    List<Long> findIdsPendientes(@Param("ahora") LocalDateTime ahora, Pageable pageable);
+
+    // Solo reclama los que siguen PENDIENTE: si otra instancia los tomó antes, no se pisan
+    @Modifying
+    @Query("UPDATE EventoOutbox e SET e.estado = 'EN_PROCESO', e.lote = :lote, e.tomadoEn = :ahora, " +
+           "e.intentos = e.intentos + 1 WHERE e.id IN :ids AND e.estado = 'PENDIENTE'")
+    int reclamar(@Param("ids") Collection<Long> ids, @Param("lote") String lote, @Param("ahora") LocalDateTime ahora);
+
+    @Query("SELECT e FROM EventoOutbox e WHERE e.lote = :lote AND e.estado = 'EN_PROCESO' ORDER BY e.id")
+    List<EventoOutbox> findByLoteEnProceso(@Param("lote") String lote);
+
+    @Modifying
+    @Query("UPDATE EventoOutbox e SET e.estado = 'PROCESADO', e.procesadoEn = :ahora, e.ultimoError = null " +
+           "WHERE e.id IN :ids AND e.estado = 'EN_PROCESO'")
+    int marcarProcesados(@Param("ids") Collection<Long> ids, @Param("ahora") LocalDateTime ahora);
+
+    @Modifying
+    @Query("UPDATE EventoOutbox e SET e.estado = :estado, e.ultimoError = :error, e.proximoIntento = :proximoIntento " +
+           "WHERE e.id = :id AND e.estado = 'EN_PROCESO'")
+    int marcarError(@Param("id") Long id, @Param("estado") String estado, @Param("error") String error,
+                    @Param("proximoIntento") LocalDateTime proximoIntento);
+
+    @Modifying
+    @Query("UPDATE EventoOutbox e SET e.estado = 'AGRUPADO', e.tomadoEn = :ahora WHERE e.id IN :ids AND e.estado = 'EN_PROCESO'")
+    int marcarAgrupados(@Param("ids") Collection<Long> ids, @Param("ahora") LocalDateTime ahora);
+
+    // El resumen salió (o lo reemplazó un cambio de estado). Acepta EN_PROCESO: el resumen puede cerrarse antes que el lote
+    @Modifying
+    @Query("UPDATE EventoOutbox e SET e.estado = 'PROCESADO', e.procesadoEn = :ahora, e.ultimoError = null " +
+           "WHERE e.id IN :ids AND e.estado IN ('EN_PROCESO', 'AGRUPADO')")
+    int confirmarAgrupados(@Param("ids") Collection<Long> ids, @Param("ahora") LocalDateTime ahora);
+
+    // El resumen no se pudo encolar: las uniones vuelven a la outbox para armar otro
+    @Modifying
+    @Query("UPDATE EventoOutbox e SET e.estado = 'PENDIENTE', e.proximoIntento = :proximoIntento " +
+           "WHERE e.id IN :ids AND e.estado IN ('EN_PROCESO', 'AGRUPADO')")
+    int devolverAgrupados(@Param("ids") Collection<Long> ids, @Param("proximoIntento") LocalDateTime proximoIntento);
+
+    // Uniones cuyo resumen se perdió con la instancia que lo tenía en memoria
+    @Modifying
+    @Query("UPDATE EventoOutbox e SET e.estado = 'PENDIENTE' WHERE e.estado = 'AGRUPADO' AND e.tomadoEn < :limite")
+    int liberarAgrupadosVencidos(@Param("limite") LocalDateTime limite);
+
+    // Eventos reclamados por una instancia que murió antes de terminar
+    @Modifying
+    @Query("UPDATE EventoOutbox e SET e.estado = 'PENDIENTE' WHERE e.estado = 'EN_PROCESO' AND e.tomadoEn < :limite")
+    int liberarTrabados(@Param("limite") LocalDateTime limite);
+
+    @Modifying
+    @Query("DELETE FROM EventoOutbox e WHERE e.estado = 'PROCESADO' AND e.procesadoEn < :limite")
+    int eliminarProcesadosAntesDe(@Param("limite") LocalDateTime limite);
+}
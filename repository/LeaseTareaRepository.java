@@ -0,0 +1,29 @@
+package com.uade.tpo.deportes.repository;
+
+import com.uade.tpo.deportes.entity.LeaseTarea;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface LeaseTareaRepository extends JpaRepository<LeaseTarea, String> {
+
+    // Toma el lease si es propio (renovación) o si ya venció (failover); si lo tiene otro nodo no cambia nada
+    @Modifying
+    @Query("UPDATE LeaseTarea l SET l.propietario = :nodo, l.venceEn = :vence, l.renovadoEn = :ahora " +
+           "WHERE l.nombre = :nombre AND (l.propietario = :nodo OR l.venceEn < :ahora)")
+    int adquirir(@Param("nombre") String nombre, @Param("nodo") String nodo,
+                 @Param("ahora") LocalDateTime ahora, @Param("vence") LocalDateTime vence);
+
+    // Al apagar: vence ya para que otro nodo lo tome sin esperar
+    @Modifying
+    @Query("UPDATE LeaseTarea l SET l.venceEn = :ahora WHERE l.propietario = :nodo AND l.venceEn > :ahora")
+    int liberarTodos(@Param("nodo") String nodo, @Param("ahora") LocalDateTime ahora);
+
+    List<LeaseTarea> findAllByOrderByNombreAsc();
+}
@@ -0,0 +1,60 @@
+package com.uade.tpo.deportes.repository;
+
+import com.uade.tpo.deportes.entity.NotificacionFallida;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface NotificacionFallidaRepository extends JpaRepository<NotificacionFallida, Long> {
+
+    @Query("SELECT n FROM NotificacionFallida n WHERE n.estado = 'MUERTA' ORDER BY n.id DESC")
+    List<NotificacionFallida> findUltimas(Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM NotificacionFallida n WHERE n.estado = 'MUERTA' AND n.creadoEn < :limite")
+    int eliminarAnterioresA(@Param("limite") LocalDateTime limite);
+
+    @Modifying
+    @Query("UPDATE NotificacionFallida n SET n.intentos = :intentos, n.error = :error, n.proximoIntento = :proximoIntento " +
+           "WHERE n.id = :id AND n.estado = 'REINTENTANDO'")
+    int registrarIntento(@Param("id") Long id, @Param("intentos") int intentos, @Param("error") String error,
+                         @Param("proximoIntento") LocalDateTime proximoIntento);
+
+    @Modifying
+    @Query("UPDATE NotificacionFallida n SET n.estado = 'MUERTA', n.intentos = :intentos, n.error = :error, " +
+           "n.proximoIntento = null WHERE n.id = :id")
+    int marcarMuerta(@Param("id") Long id, @Param("intentos") int intentos, @Param("error") String error);
+
+    // Reintentos que su nodo debía haber hecho antes del límite y no hizo (el nodo se cayó)
+    @Query("SELECT n.id FROM NotificacionFallida n WHERE n.estado = 'REINTENTANDO' AND n.proximoIntento < :limite ORDER BY n.id")
+    List<Long> findIdsHuerfanas(@Param("limite") LocalDateTime limite, Pageable pageable);
+
+    // Solo toma las que siguen huérfanas: si otro nodo las tomó antes, no se pisan
+    @Modifying
+    @Query("UPDATE NotificacionFallida n SET n.nodo = :nodo, n.proximoIntento = :ahora " +
+           "WHERE n.id IN :ids AND n.estado = 'REINTENTANDO' AND n.proximoIntento < :limite")
+    int reclamar(@Param("ids") Collection<Long> ids, @Param("nodo") String nodo,
+                 @Param("limite") LocalDateTime limite, @Param("ahora") LocalDateTime ahora);
+
+    @Query("SELECT n FROM NotificacionFallida n WHERE n.id IN :ids AND n.nodo = :nodo AND n.estado = 'REINTENTANDO' ORDER BY n.id")
+    List<NotificacionFallida> findReclamadas(@Param("ids") Collection<Long> ids, @Param("nodo") String nodo);
+
+    // Al apagar: los reintentos del nodo quedan huérfanos ya, para que otro los tome sin esperar
+    @Modifying
+    @Query("UPDATE NotificacionFallida n SET n.proximoIntento = :vencido WHERE n.nodo = :nodo AND n.estado = 'REINTENTANDO'")
+    int liberar(@Param("nodo") String nodo, @Param("vencido") LocalDateTime vencido);
+
+    // Reenvío manual de las cartas muertas: vuelven a reintentarse desde cero
+    @Modifying
+    @Query("UPDATE NotificacionFallida n SET n.estado = 'REINTENTANDO', n.intentos = 0, n.proximoIntento = :vencido " +
+           "WHERE n.estado = 'MUERTA' AND n.operacion IS NOT NULL")
+    int reactivarMuertas(@Param("vencido") LocalDateTime vencido);
+}
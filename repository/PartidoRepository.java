@@ -1,16 +1,23 @@
 package com.uade.tpo.deportes.repository;
 
+import com.uade.tpo.deportes.dto.PartidoResumenResponse;
 import com.uade.tpo.deportes.entity.Partido;
 import com.uade.tpo.deportes.entity.Usuario;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface PartidoRepository extends JpaRepository<Partido, Long> {
@@ -21,6 +28,64 @@ public interface PartidoRepository extends JpaRepository<Partido, Long> {
     @Query("SELECT p FROM Partido p WHERE :usuario MEMBER OF p.participantes")
     List<Partido> findPartidosConJugador(@Param("usuario") Usuario usuario);
     
+    // Planes de carga por vista (ver @NamedEntityGraph en Partido)
+    @EntityGraph("Partido.detalle")
+    Optional<Partido> findConDetalleById(Long id);
+
+    @EntityGraph("Partido.lista")
+    @Query("SELECT p FROM Partido p WHERE p.organizador = :usuario OR :usuario MEMBER OF p.participantes")
+    List<Partido> findListaDelUsuario(@Param("usuario") Usuario usuario);
+
+    @EntityGraph("Partido.lista")
+    @Query("SELECT p FROM Partido p")
+    List<Partido> findAllConDetalle();
+
+    @EntityGraph("Partido.busqueda")
+    List<Partido> findParaBusquedaByIdIn(Collection<Long> ids);
+
+    @EntityGraph("Partido.lista")
+    List<Partido> findListaByIdIn(Collection<Long> ids);
+
+    // Mis partidos (organizados + jugados) por cursor. MEMBER OF es un subquery,
+    // así que cada partido aparece una sola vez aunque el usuario organice y juegue.
+    @Query("SELECT p.id FROM Partido p WHERE " +
+           "(p.organizador = :usuario OR :usuario MEMBER OF p.participantes) AND " +
+           "(p.horario > :cursorHorario OR (p.horario = :cursorHorario AND p.id > :cursorId)) " +
+           "ORDER BY p.horario ASC, p.id ASC")
+    List<Long> findIdsDelUsuarioPosteriores(
+        @Param("usuario") Usuario usuario,
+        @Param("cursorHorario") LocalDateTime cursorHorario,
+        @Param("cursorId") Long cursorId,
+        Pageable limite
+    );
+
+    @Query("SELECT p.id FROM Partido p WHERE " +
+           "(p.organizador = :usuario OR :usuario MEMBER OF p.participantes) AND " +
+           "(p.horario < :cursorHorario OR (p.horario = :cursorHorario AND p.id < :cursorId)) " +
+           "ORDER BY p.horario DESC, p.id DESC")
+    List<Long> findIdsDelUsuarioAnteriores(
+        @Param("usuario") Usuario usuario,
+        @Param("cursorHorario") LocalDateTime cursorHorario,
+        @Param("cursorId") Long cursorId,
+        Pageable limite
+    );
+
+    // Proyecciones de resumen para las listas (sin hidratar entidades)
+    @Query("SELECT new com.uade.tpo.deportes.dto.PartidoResumenResponse(" +
+           "p.id, d.id, d.nombre, u.zona, p.horario, SIZE(p.participantes), " +
+           "p.cantidadJugadoresRequeridos, p.estadoActual, p.organizador.id) " +
+           "FROM Partido p JOIN p.deporte d JOIN p.ubicacion u " +
+           "WHERE p.organizador = :usuario OR :usuario MEMBER OF p.participantes " +
+           "ORDER BY p.horario DESC")
+    List<PartidoResumenResponse> findResumenDelUsuario(@Param("usuario") Usuario usuario);
+
+    @Query("SELECT new com.uade.tpo.deportes.dto.PartidoResumenResponse(" +
+           "p.id, d.id, d.nombre, u.zona, p.horario, SIZE(p.participantes), " +
+           "p.cantidadJugadoresRequeridos, p.estadoActual, p.organizador.id) " +
+           "FROM Partido p JOIN p.deporte d JOIN p.ubicacion u " +
+           "ORDER BY p.horario DESC")
+    List<PartidoResumenResponse> findResumenTodos();
+    
     // Búsquedas por estado
     List<Partido> findByEstadoActual(String estado);
     
@@ -38,10 +103,12 @@ public interface PartidoRepository extends JpaRepository<Partido, Long> {
         @Param("fin") LocalDateTime fin
     );
     
+    @EntityGraph("Partido.busqueda")
     @Query("SELECT p FROM Partido p WHERE p.horario >= :fecha")
     List<Partido> findPartidosFuturos(@Param("fecha") LocalDateTime fecha);
     
     // Búsquedas complejas para la funcionalidad principal
+    @EntityGraph("Partido.busqueda")
     @Query("SELECT p FROM Partido p WHERE " +
            "p.estadoActual = 'NECESITAMOS_JUGADORES' AND " +
            "p.horario > :ahora AND " +
@@ -52,6 +119,7 @@ public interface PartidoRepository extends JpaRepository<Partido, Long> {
         @Param("ahora") LocalDateTime ahora
     );
     
+    @EntityGraph("Partido.busqueda")
     @Query("SELECT p FROM Partido p WHERE " +
            "p.estadoActual = 'NECESITAMOS_JUGADORES' AND " +
            "p.horario > :ahora AND " +
@@ -64,10 +132,11 @@ public interface PartidoRepository extends JpaRepository<Partido, Long> {
         @Param("ahora") LocalDateTime ahora
     );
     
-    // Búsquedas por zona geográfica
+    // Búsquedas por zona geográfica (:zona llega normalizada y se compara contra ubicaciones.zona_normalizada)
+    @EntityGraph("Partido.busqueda")
     @Query("SELECT p FROM Partido p WHERE " +
            "p.estadoActual = 'NECESITAMOS_JUGADORES' AND " +
-           "p.ubicacion.zona = :zona AND " +
+           "p.ubicacion.zonaNormalizada = :zona AND " +
            "p.horario > :ahora AND " +
            ":usuario NOT MEMBER OF p.participantes")
     List<Partido> findPartidosDisponiblesPorZona(
@@ -114,7 +183,135 @@ public interface PartidoRepository extends JpaRepository<Partido, Long> {
         @Param("estado") String estado
     );
 
-    @Query("SELECT p FROM Partido p WHERE p.ubicacion.zona = :zona AND p.horario > :ahora")
+    // Partidos futuros que todavía no empezaron (carga del índice en memoria, con todo lo que puntúa la búsqueda)
+    @Query("SELECT DISTINCT p FROM Partido p " +
+           "JOIN FETCH p.deporte " +
+           "JOIN FETCH p.organizador " +
+           "JOIN FETCH p.ubicacion " +
+           "LEFT JOIN FETCH p.participantes " +
+           "WHERE p.horario > :ahora AND " +
+           "p.estadoActual NOT IN ('EN_JUEGO', 'FINALIZADO', 'CANCELADO')")
+    List<Partido> findPartidosAbiertos(@Param("ahora") LocalDateTime ahora);
+
+    // id, estado y cantidad de participantes de los partidos abiertos (chequeo de consistencia)
+    @Query("SELECT p.id, p.estadoActual, SIZE(p.participantes) FROM Partido p " +
+           "WHERE p.horario > :ahora AND " +
+           "p.estadoActual NOT IN ('EN_JUEGO', 'FINALIZADO', 'CANCELADO')")
+    List<Object[]> findResumenPartidosAbiertos(@Param("ahora") LocalDateTime ahora);
+
+    // id, estado, horario y duración de los partidos con transiciones pendientes (rueda temporizadora)
+    @Query("SELECT p.id, p.estadoActual, p.horario, p.duracion FROM Partido p " +
+           "WHERE p.estadoActual NOT IN ('FINALIZADO', 'CANCELADO')")
+    List<Object[]> findPlanTransiciones();
+
+    // ===== TRANSICIONES MASIVAS =====
+    // Se bloquean las filas que cumplen la condición, se actualizan con un UPDATE
+    // condicional y los ids bloqueados guían la emisión de eventos.
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p.id FROM Partido p WHERE p.estadoActual = 'CONFIRMADO' AND " +
+           "p.horario <= :ahora AND p.horario > :limite")
+    List<Long> bloquearParaIniciar(@Param("ahora") LocalDateTime ahora, @Param("limite") LocalDateTime limite);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p.id FROM Partido p WHERE p.estadoActual = 'EN_JUEGO' AND p.horarioFin <= :ahora")
+    List<Long> bloquearParaFinalizar(@Param("ahora") LocalDateTime ahora);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p.id FROM Partido p WHERE p.estadoActual = 'NECESITAMOS_JUGADORES' AND " +
+           "p.horario <= :corte AND p.horario > :limite")
+    List<Long> bloquearAbandonados(@Param("corte") LocalDateTime corte, @Param("limite") LocalDateTime limite);
+
+    // Solo cambia los que siguen en el estado esperado
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Partido p SET p.estadoActual = :nuevo WHERE p.id IN :ids AND p.estadoActual = :actual")
+    int cambiarEstadoMasivo(@Param("ids") Collection<Long> ids, @Param("actual") String actual,
+                            @Param("nuevo") String nuevo);
+
+    // Filas anteriores a la columna horario_fin (se completan una vez al arrancar)
+    @Query("SELECT p FROM Partido p WHERE p.horarioFin IS NULL")
+    List<Partido> findSinHorarioFin(Pageable pageable);
+
+    // Datos para consolidar historiales de varios partidos finalizados sin cargar las entidades
+    @Query("SELECT p.id, p.deporte.nombre, p.createdAt, p.organizador.id FROM Partido p WHERE p.id IN :ids")
+    List<Object[]> findDatosHistorial(@Param("ids") Collection<Long> ids);
+
+    // Perfil de historial: partidos jugados (una fila por participante) y organizados, en proyección
+    @Query("SELECT p.id, d.nombre, p.createdAt, p.organizador.id, u.id FROM Partido p " +
+           "JOIN p.deporte d JOIN p.participantes j JOIN p.participantes u WHERE j.id = :usuarioId")
+    List<Object[]> findHistorialJugado(@Param("usuarioId") Long usuarioId);
+
+    @Query("SELECT p.id, d.nombre, p.createdAt FROM Partido p JOIN p.deporte d WHERE p.organizador.id = :usuarioId")
+    List<Object[]> findHistorialOrganizado(@Param("usuarioId") Long usuarioId);
+
+    @Query("SELECT p.id, u.id FROM Partido p JOIN p.participantes u WHERE p.id IN :ids")
+    List<Object[]> findParticipantesPorPartido(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT p.id, p.estadoActual, p.horario, p.duracion FROM Partido p WHERE p.id IN :ids")
+    List<Object[]> findPlanTransicionesByIdIn(@Param("ids") Collection<Long> ids);
+
+    // ===== RECORDATORIOS =====
+
+    // Confirmados que empiezan en (desde, hasta] y todavía no tienen el recordatorio de ese offset.
+    // Usa idx_partidos_estado_horario para el rango y la clave única de recordatorios_enviados para el NOT EXISTS
+    @Query("SELECT p.id FROM Partido p WHERE p.estadoActual = 'CONFIRMADO' AND " +
+           "p.horario > :desde AND p.horario <= :hasta AND NOT EXISTS (" +
+           "SELECT r.id FROM RecordatorioEnviado r WHERE r.partidoId = p.id AND r.minutosAntes = :minutosAntes) " +
+           "ORDER BY p.horario ASC")
+    List<Long> findSinRecordatorio(@Param("desde") LocalDateTime desde, @Param("hasta") LocalDateTime hasta,
+                                   @Param("minutosAntes") int minutosAntes, Pageable limite);
+
+    // Búsqueda paginada por cursor (keyset): filtros, cupo y orden resueltos en la base
+    // Devuelve solo ids: un fetch de colección con límite se paginaría en memoria
+    @Query("SELECT p.id FROM Partido p WHERE " +
+           "(:estado IS NULL OR p.estadoActual = :estado) AND " +
+           "p.horario > :ahora AND " +
+           "SIZE(p.participantes) < p.cantidadJugadoresRequeridos AND " +
+           "(:deporteId IS NULL OR p.deporte.id = :deporteId) AND " +
+           "(:zona IS NULL OR p.ubicacion.zonaNormalizada = :zona) AND " +
+           "(:incluirTodos = true OR :usuario NOT MEMBER OF p.participantes) AND " +
+           "(p.horario > :cursorHorario OR (p.horario = :cursorHorario AND p.id > :cursorId)) " +
+           "ORDER BY p.horario ASC, p.id ASC")
+    List<Long> buscarDisponiblesPorCursor(
+        @Param("usuario") Usuario usuario,
+        @Param("estado") String estado,
+        @Param("deporteId") Long deporteId,
+        @Param("zona") String zona,
+        @Param("incluirTodos") boolean incluirTodos,
+        @Param("ahora") LocalDateTime ahora,
+        @Param("cursorHorario") LocalDateTime cursorHorario,
+        @Param("cursorId") Long cursorId,
+        Pageable limite
+    );
+
+    // Fallback de la búsqueda por cercanía: caja del radio sobre las coordenadas de la ubicación
+    // Sin estado, solo partidos abiertos (los mismos que guarda IndicePartidosAbiertos)
+    @EntityGraph("Partido.busqueda")
+    @Query("SELECT p FROM Partido p WHERE " +
+           "(:estado IS NULL OR p.estadoActual = :estado) AND " +
+           "p.estadoActual NOT IN ('EN_JUEGO', 'FINALIZADO', 'CANCELADO') AND " +
+           "p.horario > :ahora AND " +
+           "SIZE(p.participantes) < p.cantidadJugadoresRequeridos AND " +
+           "(:deporteId IS NULL OR p.deporte.id = :deporteId) AND " +
+           "(:incluirTodos = true OR :usuario NOT MEMBER OF p.participantes) AND " +
+           "p.ubicacion.latitud BETWEEN :latMin AND :latMax AND " +
+           "p.ubicacion.longitud BETWEEN :lonMin AND :lonMax")
+    List<Partido> findCandidatosEnCaja(
+        @Param("usuario") Usuario usuario,
+        @Param("estado") String estado,
+        @Param("deporteId") Long deporteId,
+        @Param("incluirTodos") boolean incluirTodos,
+        @Param("ahora") LocalDateTime ahora,
+        @Param("latMin") Double latMin,
+        @Param("latMax") Double latMax,
+        @Param("lonMin") Double lonMin,
+        @Param("lonMax") Double lonMax
+    );
+
+    // Partidos abiertos de la zona, participe o no el usuario (mismo criterio que IndicePartidosAbiertos)
+    @EntityGraph("Partido.busqueda")
+    @Query("SELECT p FROM Partido p WHERE p.ubicacion.zonaNormalizada = :zona AND p.horario > :ahora AND " +
+           "p.estadoActual NOT IN ('EN_JUEGO', 'FINALIZADO', 'CANCELADO')")
     List<Partido> findTodosPorZona(
         @Param("zona") String zona,
         @Param("ahora") LocalDateTime ahora
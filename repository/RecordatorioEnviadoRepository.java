@@ -0,0 +1,19 @@
+package com.uade.tpo.deportes.repository;
+
+import com.uade.tpo.deportes.entity.RecordatorioEnviado;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface RecordatorioEnviadoRepository extends JpaRepository<RecordatorioEnviado, Long> {
+
+    // Las marcas solo importan hasta que el partido empieza
+    @Modifying
+    @Query("DELETE FROM RecordatorioEnviado r WHERE r.enviadoEn < :limite")
+    int eliminarAnterioresA(@Param("limite") LocalDateTime limite);
+}
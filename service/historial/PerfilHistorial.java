@@ -0,0 +1,133 @@
+package com.uade.tpo.deportes.service.historial;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 📊 PERFIL DE HISTORIAL DE UN USUARIO
+ *
+ * Resumen compacto de lo que EmparejamientoPorHistorialStrategy necesita saber
+ * del historial: partidos jugados por deporte, deportes jugados u organizados,
+ * jugadores conocidos y fechas de actividad. Se arma una vez y después se
+ * actualiza de forma incremental.
+ */
+public class PerfilHistorial {
+
+    private final Long usuarioId;
+    private final Set<Long> partidosJugados = new HashSet<>();
+    private final Set<Long> partidosOrganizados = new HashSet<>();
+    private final Map<String, Integer> partidosJugadosPorDeporte = new HashMap<>();
+    private final Set<String> deportesJugados = new HashSet<>();
+    private final Set<Long> jugadoresConocidos = new HashSet<>();
+    private final List<LocalDateTime> actividad = new ArrayList<>();
+
+    public PerfilHistorial(Long usuarioId) {
+        this.usuarioId = usuarioId;
+    }
+
+    public Long getUsuarioId() {
+        return usuarioId;
+    }
+
+    // ===== ACTUALIZACIÓN INCREMENTAL =====
+
+    public synchronized void agregarPartidoJugado(Long partidoId, String deporte, LocalDateTime creadoEn,
+                                                  Collection<Long> otrosJugadores) {
+        if (!partidosJugados.add(partidoId)) {
+            agregarConocidos(otrosJugadores);
+            return;
+        }
+        String clave = deporte.toUpperCase();
+        partidosJugadosPorDeporte.merge(clave, 1, Integer::sum);
+        deportesJugados.add(clave);
+        if (creadoEn != null) {
+            actividad.add(creadoEn);
+        }
+        agregarConocidos(otrosJugadores);
+    }
+
+    public synchronized void agregarPartidoOrganizado(Long partidoId, String deporte, LocalDateTime creadoEn) {
+        if (!partidosOrganizados.add(partidoId)) {
+            return;
+        }
+        deportesJugados.add(deporte.toUpperCase());
+        if (creadoEn != null) {
+            actividad.add(creadoEn);
+        }
+    }
+
+    public synchronized void agregarConocidos(Collection<Long> jugadores) {
+        for (Long id : jugadores) {
+            if (id != null && !id.equals(usuarioId)) {
+                jugadoresConocidos.add(id);
+            }
+        }
+    }
+
+    // ===== CONSULTAS (sin I/O) =====
+
+    /**
+     * Posición del deporte en el ranking de deportes jugados (0 = el más jugado),
+     * o -1 si nunca lo jugó. Los empates comparten posición.
+     */
+    public synchronized int posicionEnRanking(String deporte) {
+        Integer cantidad = partidosJugadosPorDeporte.get(deporte.toUpperCase());
+        if (cantidad == null || cantidad <= 0) {
+            return -1;
+        }
+        int posicion = 0;
+        for (int otra : partidosJugadosPorDeporte.values()) {
+            if (otra > cantidad) {
+                posicion++;
+            }
+        }
+        return posicion;
+    }
+
+    public synchronized int getTotalPartidos() {
+        return partidosJugados.size() + partidosOrganizados.size();
+    }
+
+    public synchronized boolean jugoDeporte(String deporte) {
+        return deportesJugados.contains(deporte.toUpperCase());
+    }
+
+    public synchronized boolean conoceA(Long usuarioId) {
+        return jugadoresConocidos.contains(usuarioId);
+    }
+
+    public synchronized int contarActividadDesde(LocalDateTime desde) {
+        int cantidad = 0;
+        for (LocalDateTime fecha : actividad) {
+            if (fecha.isAfter(desde)) {
+                cantidad++;
+            }
+        }
+        return cantidad;
+    }
+
+    public synchronized int contarPartidosOtrosDeportes(String deporte) {
+        String clave = deporte.toUpperCase();
+        int cantidad = 0;
+        for (Map.Entry<String, Integer> entry : partidosJugadosPorDeporte.entrySet()) {
+            if (!entry.getKey().equals(clave)) {
+                cantidad += entry.getValue();
+            }
+        }
+        return cantidad;
+    }
+
+    public synchronized Set<String> getDeportesJugados() {
+        return new HashSet<>(deportesJugados);
+    }
+
+    public synchronized int getCantidadJugadoresConocidos() {
+        return jugadoresConocidos.size();
+    }
+}
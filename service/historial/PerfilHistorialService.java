@@ -0,0 +1,253 @@
+package com.uade.tpo.deportes.service.historial;
+
+import com.uade.tpo.deportes.entity.Partido;
+import com.uade.tpo.deportes.entity.Usuario;
+import com.uade.tpo.deportes.repository.PartidoRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Collectors;
+
+/**
+ * Cache de perfiles de historial por usuario (LRU con vencimiento).
+ * El perfil se arma con dos consultas de proyección la primera vez que se
+ * necesita y luego se mantiene al día cuando se crea un partido, se une un
+ * jugador o un partido finaliza.
+ *
+ * Cada actualización incrementa la versión del usuario (por franjas). Un
+ * perfil armado mientras llegaba una actualización no se guarda: se usa
+ * una vez y la próxima lectura lo vuelve a armar, así no queda viejo.
+ */
+@Service
+public class PerfilHistorialService {
+
+    @Autowired
+    private PartidoRepository partidoRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private static final int FRANJAS_VERSION = 1024;
+
+    @Value("${unomas.historial.cache.max-perfiles:10000}")
+    private int maxPerfiles;
+
+    @Value("${unomas.historial.cache.ttl-minutos:30}")
+    private long ttlMinutos;
+
+    // LRU por orden de acceso; todo acceso pasa por synchronized (perfiles)
+    private final Map<Long, PerfilEnCache> perfiles = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, PerfilEnCache> eldest) {
+            return size() > maxPerfiles;
+        }
+    };
+
+    // Versión por franja de usuarioId: cambia con cada actualización incremental
+    private final AtomicLongArray versiones = new AtomicLongArray(FRANJAS_VERSION);
+
+    /**
+     * Perfil del usuario; solo consulta la base si no estaba en cache o venció
+     */
+    public PerfilHistorial obtenerPerfil(Usuario usuario) {
+        Long usuarioId = usuario.getId();
+        long version;
+        synchronized (perfiles) {
+            PerfilEnCache enCache = perfiles.get(usuarioId);
+            if (enCache != null && enCache.venceEn > System.currentTimeMillis()) {
+                return enCache.perfil;
+            }
+            version = versiones.get(franja(usuarioId));
+        }
+
+        TransactionTemplate lectura = new TransactionTemplate(transactionManager);
+        lectura.setReadOnly(true);
+        PerfilHistorial nuevo = lectura.execute(status -> construirPerfil(usuarioId));
+
+        synchronized (perfiles) {
+            // Si mientras se armaba llegó una actualización, el perfil puede no incluirla
+            if (versiones.get(franja(usuarioId)) == version) {
+                perfiles.put(usuarioId, new PerfilEnCache(nuevo, System.currentTimeMillis() + ttlMinutos * 60_000));
+            }
+        }
+        return nuevo;
+    }
+
+    public void registrarCreacion(Partido partido) {
+        Long organizadorId = partido.getOrganizador().getId();
+        Long partidoId = partido.getId();
+        String deporte = partido.getDeporte().getNombre();
+        LocalDateTime creadoEn = partido.getCreatedAt() != null ? partido.getCreatedAt() : LocalDateTime.now();
+
+        despuesDelCommit(() -> {
+            PerfilHistorial perfil = perfilParaActualizar(organizadorId);
+            if (perfil != null) {
+                perfil.agregarPartidoOrganizado(partidoId, deporte, creadoEn);
+            }
+        });
+    }
+
+    public void registrarUnion(Usuario jugador, Partido partido) {
+        Long jugadorId = jugador.getId();
+        Long partidoId = partido.getId();
+        String deporte = partido.getDeporte().getNombre();
+        LocalDateTime creadoEn = partido.getCreatedAt();
+        List<Long> participantes = idsParticipantes(partido);
+        List<Long> conocidos = new ArrayList<>(participantes);
+        conocidos.add(partido.getOrganizador().getId());
+
+        despuesDelCommit(() -> {
+            PerfilHistorial perfilJugador = perfilParaActualizar(jugadorId);
+            if (perfilJugador != null) {
+                perfilJugador.agregarPartidoJugado(partidoId, deporte, creadoEn, conocidos);
+            }
+            // El resto de los participantes ahora también conoce al nuevo jugador
+            for (Long participanteId : participantes) {
+                PerfilHistorial perfil = participanteId.equals(jugadorId) ? null : perfilParaActualizar(participanteId);
+                if (perfil != null) {
+                    perfil.agregarConocidos(List.of(jugadorId));
+                }
+            }
+        });
+    }
+
+    /**
+     * Al finalizar, se consolida el plantel definitivo en los perfiles de los participantes
+     */
+    public void registrarFinalizacion(Partido partido) {
+        Long partidoId = partido.getId();
+        String deporte = partido.getDeporte().getNombre();
+        LocalDateTime creadoEn = partido.getCreatedAt();
+        List<Long> participantes = idsParticipantes(partido);
+        List<Long> conocidos = new ArrayList<>(participantes);
+        conocidos.add(partido.getOrganizador().getId());
+
+        despuesDelCommit(() -> {
+            for (Long participanteId : participantes) {
+                PerfilHistorial perfil = perfilParaActualizar(participanteId);
+                if (perfil != null) {
+                    perfil.agregarPartidoJugado(partidoId, deporte, creadoEn, conocidos);
+                }
+            }
+        });
+    }
+
+    /**
+     * Igual que registrarFinalizacion pero para varios partidos finalizados con un
+     * UPDATE masivo: los datos salen de dos consultas, sin cargar las entidades
+     */
+    public void registrarFinalizaciones(Collection<Long> partidoIds) {
+        if (partidoIds.isEmpty()) {
+            return;
+        }
+        Map<Long, List<Long>> participantesPorPartido = new HashMap<>();
+        for (Object[] fila : partidoRepository.findParticipantesPorPartido(partidoIds)) {
+            participantesPorPartido.computeIfAbsent((Long) fila[0], id -> new ArrayList<>()).add((Long) fila[1]);
+        }
+        List<Object[]> datos = partidoRepository.findDatosHistorial(partidoIds);
+
+        despuesDelCommit(() -> {
+            for (Object[] fila : datos) {
+                Long partidoId = (Long) fila[0];
+                List<Long> participantes = participantesPorPartido.getOrDefault(partidoId, List.of());
+                List<Long> conocidos = new ArrayList<>(participantes);
+                conocidos.add((Long) fila[3]);
+                for (Long participanteId : participantes) {
+                    PerfilHistorial perfil = perfilParaActualizar(participanteId);
+                    if (perfil != null) {
+                        perfil.agregarPartidoJugado(partidoId, (String) fila[1], (LocalDateTime) fila[2], conocidos);
+                    }
+                }
+            }
+        });
+    }
+
+    // ===== MÉTODOS AUXILIARES =====
+
+    // Dos consultas de proyección en total, sin cargar entidades ni asociaciones LAZY
+    private PerfilHistorial construirPerfil(Long usuarioId) {
+        PerfilHistorial perfil = new PerfilHistorial(usuarioId);
+
+        // ⚡ PASO 1: Partidos jugados, una fila por (partido, participante)
+        Map<Long, Object[]> jugados = new LinkedHashMap<>();
+        Map<Long, List<Long>> conocidosPorPartido = new HashMap<>();
+        for (Object[] fila : partidoRepository.findHistorialJugado(usuarioId)) {
+            Long partidoId = (Long) fila[0];
+            jugados.putIfAbsent(partidoId, fila);
+            conocidosPorPartido.computeIfAbsent(partidoId, id -> new ArrayList<>()).add((Long) fila[4]);
+        }
+        jugados.forEach((partidoId, fila) -> {
+            List<Long> conocidos = conocidosPorPartido.get(partidoId);
+            conocidos.add((Long) fila[3]);
+            perfil.agregarPartidoJugado(partidoId, (String) fila[1], (LocalDateTime) fila[2], conocidos);
+        });
+
+        // ⚡ PASO 2: Partidos organizados
+        for (Object[] fila : partidoRepository.findHistorialOrganizado(usuarioId)) {
+            perfil.agregarPartidoOrganizado((Long) fila[0], (String) fila[1], (LocalDateTime) fila[2]);
+        }
+
+        System.out.println("📊 Perfil de historial armado para usuario " + usuarioId +
+                ": " + perfil.getTotalPartidos() + " partidos, " +
+                perfil.getCantidadJugadoresConocidos() + " jugadores conocidos");
+        return perfil;
+    }
+
+    private List<Long> idsParticipantes(Partido partido) {
+        return partido.getParticipantes().stream()
+                .map(Usuario::getId)
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    /**
+     * Marca la versión del usuario y devuelve su perfil en cache (o null).
+     * Ambas cosas bajo el mismo lock que el guardado de obtenerPerfil.
+     */
+    private PerfilHistorial perfilParaActualizar(Long usuarioId) {
+        synchronized (perfiles) {
+            versiones.incrementAndGet(franja(usuarioId));
+            PerfilEnCache enCache = perfiles.get(usuarioId);
+            return enCache != null ? enCache.perfil : null;
+        }
+    }
+
+    private static int franja(Long usuarioId) {
+        return (int) Math.floorMod(usuarioId, (long) FRANJAS_VERSION);
+    }
+
+    private static final class PerfilEnCache {
+        private final PerfilHistorial perfil;
+        private final long venceEn;
+
+        private PerfilEnCache(PerfilHistorial perfil, long venceEn) {
+            this.perfil = perfil;
+            this.venceEn = venceEn;
+        }
+    }
+
+    private void despuesDelCommit(Runnable accion) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    accion.run();
+                }
+            });
+        } else {
+            accion.run();
+        }
+    }
+}
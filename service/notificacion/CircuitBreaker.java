@@ -0,0 +1,110 @@
+package com.uade.tpo.deportes.service.notificacion;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * ⚡ CIRCUIT BREAKER POR PROVEEDOR
+ *
+ * CERRADO: las llamadas pasan; tras umbralFallos fallos seguidos se abre.
+ * ABIERTO: las llamadas se rechazan sin tocar al proveedor durante tiempoAbiertoMs.
+ * SEMI_ABIERTO: pasa una sola llamada de prueba; si anda se cierra, si falla se vuelve a abrir.
+ */
+public class CircuitBreaker {
+
+    public enum Estado { CERRADO, ABIERTO, SEMI_ABIERTO }
+
+    private final String nombre;
+    private final int umbralFallos;
+    private final long tiempoAbiertoMs;
+
+    private Estado estado = Estado.CERRADO;
+    private int fallosConsecutivos;
+    private long abiertoHasta;
+    private boolean sondaEnCurso;
+
+    private long exitos;
+    private long fallos;
+    private long rechazadas;
+    private long aperturas;
+
+    public CircuitBreaker(String nombre, int umbralFallos, long tiempoAbiertoMs) {
+        this.nombre = nombre;
+        this.umbralFallos = Math.max(1, umbralFallos);
+        this.tiempoAbiertoMs = tiempoAbiertoMs;
+    }
+
+    /**
+     * true si la llamada puede ir al proveedor. En SEMI_ABIERTO deja pasar solo la sonda.
+     */
+    public synchronized boolean permitirLlamada() {
+        if (estado == Estado.ABIERTO && System.currentTimeMillis() >= abiertoHasta) {
+            estado = Estado.SEMI_ABIERTO;
+            sondaEnCurso = false;
+            System.out.println("🟡 Circuito " + nombre + " SEMI_ABIERTO: probando el proveedor");
+        }
+        switch (estado) {
+            case CERRADO:
+                return true;
+            case SEMI_ABIERTO:
+                if (!sondaEnCurso) {
+                    sondaEnCurso = true;
+                    return true;
+                }
+                rechazadas++;
+                return false;
+            default:
+                rechazadas++;
+                return false;
+        }
+    }
+
+    public synchronized void registrarExito() {
+        exitos++;
+        fallosConsecutivos = 0;
+        if (estado == Estado.SEMI_ABIERTO) {
+            estado = Estado.CERRADO;
+            sondaEnCurso = false;
+            System.out.println("🟢 Circuito " + nombre + " CERRADO: el proveedor respondió");
+        }
+    }
+
+    public synchronized void registrarFallo() {
+        fallos++;
+        fallosConsecutivos++;
+        if (estado == Estado.SEMI_ABIERTO || (estado == Estado.CERRADO && fallosConsecutivos >= umbralFallos)) {
+            abrir();
+        }
+    }
+
+    public synchronized Estado getEstado() {
+        return estado;
+    }
+
+    public synchronized Map<String, Object> estadisticas() {
+        Map<String, Object> datos = new LinkedHashMap<>();
+        datos.put("estado", estado.name());
+        datos.put("fallosConsecutivos", fallosConsecutivos);
+        datos.put("umbralFallos", umbralFallos);
+        datos.put("aperturas", aperturas);
+        datos.put("exitos", exitos);
+        datos.put("fallos", fallos);
+        datos.put("rechazadas", rechazadas);
+        if (estado == Estado.ABIERTO) {
+            datos.put("abiertoHasta", Instant.ofEpochMilli(abiertoHasta).toString());
+        }
+        return datos;
+    }
+
+    // ===== MÉTODOS AUXILIARES =====
+
+    private void abrir() {
+        estado = Estado.ABIERTO;
+        abiertoHasta = System.currentTimeMillis() + tiempoAbiertoMs;
+        sondaEnCurso = false;
+        aperturas++;
+        System.err.println("🔴 Circuito " + nombre + " ABIERTO por " + tiempoAbiertoMs / 1000 + " s tras " +
+                fallosConsecutivos + " fallos seguidos");
+    }
+}
@@ -0,0 +1,253 @@
+package com.uade.tpo.deportes.service.notificacion;
+
+import com.uade.tpo.deportes.entity.Partido;
+import com.uade.tpo.deportes.entity.Usuario;
+import com.uade.tpo.deportes.enums.EventoPartido;
+import com.uade.tpo.deportes.repository.EventoOutboxRepository;
+import com.uade.tpo.deportes.service.preferencias.PreferenciaNotificacion;
+import com.uade.tpo.deportes.service.preferencias.PreferenciasNotificacionService;
+import com.uade.tpo.deportes.service.pushtoken.PushTokenService;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 📦 COALESCEDOR DE UNIONES
+ *
+ * Las uniones (JUGADOR_UNIDO) de un partido se acumulan por destinatario
+ * durante una ventana y al cerrarla cada uno recibe un único resumen, por
+ * ejemplo "Se unieron 3 jugadores (19/22)", en lugar de un email y un push
+ * por cada jugador.
+ *
+ * Los eventos que cambian el estado del partido no pasan por acá: cuando
+ * llegan, el resumen pendiente se descarta porque el nuevo mensaje ya lo
+ * reemplaza.
+ *
+ * El resumen vive en memoria, pero sus uniones siguen en la outbox como
+ * AGRUPADO: se confirman recién cuando el resumen se encola (o se descarta).
+ * Si no se puede encolar vuelven a PENDIENTE; si la instancia muere, el
+ * relay las libera al vencer la ventana.
+ */
+@Service
+public class CoalescedorEventos {
+
+    @Autowired
+    private DespachadorNotificaciones despachadorNotificaciones;
+
+    @Autowired
+    private PushTokenService pushTokenService;
+
+    @Autowired
+    private PreferenciasNotificacionService preferenciasNotificacionService;
+
+    @Autowired
+    private EventoOutboxRepository eventoOutboxRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${unomas.notificaciones.coalescencia.ventana-segundos:60}")
+    private long ventanaSegundos;
+
+    private final ConcurrentHashMap<Long, ResumenPendiente> pendientes = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService temporizador = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread hilo = new Thread(r, "coalescedor-eventos");
+        hilo.setDaemon(true);
+        return hilo;
+    });
+
+    /**
+     * Suma una unión al resumen del partido para cada destinatario.
+     * La primera unión de la ventana programa el envío del resumen.
+     * eventoOutboxId (puede ser null) se confirma en la outbox cuando el resumen sale.
+     */
+    public void agregarUnion(Partido partido, List<Usuario> destinatarios, Long eventoOutboxId) {
+        Long partidoId = partido.getId();
+        String deporte = partido.getDeporte().getNombre();
+        String ubicacion = partido.getUbicacion() != null ? partido.getUbicacion().getDireccion() : "";
+        int actuales = partido.getParticipantes().size();
+        int requeridos = partido.getCantidadJugadoresRequeridos();
+
+        boolean[] nuevo = {false};
+        pendientes.compute(partidoId, (id, resumen) -> {
+            if (resumen == null) {
+                resumen = new ResumenPendiente(partidoId);
+                nuevo[0] = true;
+            }
+            resumen.actualizar(deporte, ubicacion, actuales, requeridos, destinatarios);
+            if (eventoOutboxId != null) {
+                resumen.eventosOutbox.add(eventoOutboxId);
+            }
+            return resumen;
+        });
+
+        if (nuevo[0]) {
+            temporizador.schedule(() -> enviarResumen(partidoId), ventanaSegundos, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Descarta el resumen pendiente (llegó un evento de estado que lo reemplaza)
+     */
+    public void descartar(Long partidoId) {
+        ResumenPendiente resumen = pendientes.remove(partidoId);
+        if (resumen != null) {
+            confirmar(resumen.eventosOutbox);
+            System.out.println("📦 Resumen de uniones descartado para partido " + partidoId + " (cambio de estado)");
+        }
+    }
+
+    public int getPartidosPendientes() {
+        return pendientes.size();
+    }
+
+    @PreDestroy
+    public void detener() {
+        temporizador.shutdownNow();
+        new ArrayList<>(pendientes.keySet()).forEach(this::enviarResumen);
+    }
+
+    // ===== MÉTODOS AUXILIARES =====
+
+    private void enviarResumen(Long partidoId) {
+        ResumenPendiente resumen = pendientes.remove(partidoId);
+        if (resumen == null) {
+            return;
+        }
+        try {
+            // Las preferencias se leen al cerrar la ventana: valen las vigentes al momento del envío
+            Map<Long, PreferenciaNotificacion> preferencias =
+                    preferenciasNotificacionService.obtenerPreferencias(resumen.destinatarios.keySet());
+            Set<Long> idsPush = new HashSet<>();
+            preferencias.forEach((usuarioId, preferencia) -> {
+                if (preferencia.aceptaPush()) {
+                    idsPush.add(usuarioId);
+                }
+            });
+            Map<Long, List<String>> tokensPorUsuario = pushTokenService.obtenerTokensUsuarios(idsPush);
+            List<TrabajoNotificacion> trabajos = new ArrayList<>();
+            resumen.destinatarios.forEach((usuarioId, destinatario) -> {
+                String mensaje = resumen.construirMensaje(destinatario.uniones);
+                if (preferencias.get(usuarioId).aceptaEmail()) {
+                    trabajos.add(TrabajoNotificacion.email(
+                            usuarioId, destinatario.email, mensaje, partidoId, EventoPartido.JUGADOR_UNIDO));
+                }
+                List<String> tokens = tokensPorUsuario.getOrDefault(usuarioId, List.of());
+                if (!tokens.isEmpty()) {
+                    trabajos.add(TrabajoNotificacion.push(
+                            usuarioId, tokens, mensaje, partidoId, EventoPartido.JUGADOR_UNIDO));
+                }
+            });
+            // Todo el resumen o nada: si se devuelven las uniones, nadie lo recibió a medias
+            if (!despachadorNotificaciones.encolarTodos(trabajos)) {
+                throw new NotificacionRechazadaException("Colas sin lugar para el resumen del partido " + partidoId);
+            }
+            confirmar(resumen.eventosOutbox);
+            System.out.println("📦 Resumen de " + resumen.totalUniones + " uniones enviado a " +
+                    resumen.destinatarios.size() + " destinatarios del partido " + partidoId);
+        } catch (Exception e) {
+            System.err.println("❌ Error enviando resumen de uniones del partido " + partidoId + ": " + e.getMessage());
+            devolver(resumen.eventosOutbox);
+        }
+    }
+
+    private void confirmar(List<Long> eventosOutbox) {
+        if (eventosOutbox.isEmpty()) {
+            return;
+        }
+        try {
+            escritura().executeWithoutResult(status ->
+                    eventoOutboxRepository.confirmarAgrupados(eventosOutbox, LocalDateTime.now()));
+        } catch (Exception e) {
+            // Vencida la ventana el relay las libera y se repite el resumen (al menos una vez)
+            System.err.println("❌ No se pudieron confirmar " + eventosOutbox.size() + " uniones en la outbox: " + e.getMessage());
+        }
+    }
+
+    // Vuelven a la outbox después de una ventana: el relay las reentrega y se arma un resumen nuevo
+    private void devolver(List<Long> eventosOutbox) {
+        if (eventosOutbox.isEmpty()) {
+            return;
+        }
+        try {
+            Integer devueltas = escritura().execute(status ->
+                    eventoOutboxRepository.devolverAgrupados(eventosOutbox, LocalDateTime.now().plusSeconds(ventanaSegundos)));
+            System.out.println("♻️ " + devueltas + " uniones devueltas a la outbox para reintento");
+        } catch (Exception e) {
+            System.err.println("❌ No se pudieron devolver " + eventosOutbox.size() + " uniones a la outbox: " + e.getMessage());
+        }
+    }
+
+    // Transacción propia: descartar se llama desde la transacción de solo lectura del relay
+    private TransactionTemplate escritura() {
+        TransactionTemplate escritura = new TransactionTemplate(transactionManager);
+        escritura.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return escritura;
+    }
+
+    /**
+     * Uniones acumuladas de un partido. Solo datos planos: se envía desde otro hilo.
+     * Se modifica dentro de ConcurrentHashMap.compute y se lee después de sacarlo del mapa.
+     */
+    private static final class ResumenPendiente {
+        private final Long partidoId;
+        private final Map<Long, Destinatario> destinatarios = new LinkedHashMap<>();
+        private final List<Long> eventosOutbox = new ArrayList<>();
+        private String deporte;
+        private String ubicacion;
+        private int actuales;
+        private int requeridos;
+        private int totalUniones;
+
+        private ResumenPendiente(Long partidoId) {
+            this.partidoId = partidoId;
+        }
+
+        private void actualizar(String deporte, String ubicacion, int actuales, int requeridos, List<Usuario> usuarios) {
+            this.deporte = deporte;
+            this.ubicacion = ubicacion;
+            this.actuales = actuales;
+            this.requeridos = requeridos;
+            this.totalUniones++;
+            // Cada destinatario cuenta solo las uniones que ocurrieron mientras estaba en el partido
+            for (Usuario usuario : usuarios) {
+                destinatarios.computeIfAbsent(usuario.getId(), id -> new Destinatario(usuario.getEmail())).uniones++;
+            }
+        }
+
+        private String construirMensaje(int uniones) {
+            if (uniones == 1) {
+                return String.format("Se unió un nuevo jugador al partido de %s en %s (%d/%d).",
+                        deporte, ubicacion, actuales, requeridos);
+            }
+            return String.format("Se unieron %d jugadores al partido de %s en %s (%d/%d).",
+                    uniones, deporte, ubicacion, actuales, requeridos);
+        }
+    }
+
+    private static final class Destinatario {
+        private final String email;
+        private int uniones;
+
+        private Destinatario(String email) {
+            this.email = email;
+        }
+    }
+}
@@ -0,0 +1,415 @@
+package com.uade.tpo.deportes.service.notificacion;
+
+import com.uade.tpo.deportes.entity.NotificacionFallida;
+import com.uade.tpo.deportes.repository.NotificacionFallidaRepository;
+import com.uade.tpo.deportes.service.scheduler.EjecutorTareasProgramadas;
+import com.uade.tpo.deportes.service.scheduler.LeasesTareasService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 🔁 REINTENTOS DIFERIDOS DE NOTIFICACIONES
+ *
+ * Las entregas que fallaron (o que no se intentaron porque el circuito del
+ * proveedor estaba abierto) esperan en una DelayQueue y se reintentan con
+ * backoff exponencial con jitter. Después de max-intentos pasan al
+ * dead-letter; las últimas se ven en /status.
+ *
+ * Cada entrega diferida se guarda además en notificaciones_fallidas con lo
+ * necesario para reenviarla (Reenvio): el evento de la outbox ya quedó
+ * PROCESADO, así que la base es la única copia que sobrevive a una caída.
+ * El notificador de cada proveedor registra cómo convertir un Reenvio en
+ * una llamada. Si un nodo se cae (o se apaga con reintentos pendientes),
+ * sus filas quedan vencidas y el dueño del lease "reintentos-huerfanos" las
+ * retoma en su cola. Las cartas muertas se pueden reenviar a mano.
+ */
+@Service
+public class ColaReintentosNotificaciones {
+
+    @Value("${unomas.notificaciones.reintentos.capacidad:10000}")
+    private int capacidad;
+
+    @Value("${unomas.notificaciones.reintentos.max-intentos:6}")
+    private int maxIntentos;
+
+    @Value("${unomas.notificaciones.reintentos.backoff-inicial-ms:5000}")
+    private long backoffInicialMs;
+
+    @Value("${unomas.notificaciones.reintentos.backoff-maximo-ms:300000}")
+    private long backoffMaximoMs;
+
+    // Cuántas de las últimas cartas muertas se muestran en /status
+    @Value("${unomas.notificaciones.reintentos.cartas-muertas-en-estado:50}")
+    private int cartasMuertasEnEstado;
+
+    @Value("${unomas.notificaciones.reintentos.retencion-cartas-muertas-dias:30}")
+    private long retencionCartasMuertasDias;
+
+    // Un reintento que su nodo debía hacer hace más que esto se da por perdido con el nodo y lo retoma otro
+    @Value("${unomas.notificaciones.reintentos.margen-huerfanas-minutos:10}")
+    private long margenHuerfanasMinutos;
+
+    @Autowired
+    private NotificacionFallidaRepository notificacionFallidaRepository;
+
+    @Autowired
+    private LeasesTareasService leasesTareasService;
+
+    @Autowired
+    private EjecutorTareasProgramadas ejecutorTareas;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Una fila por cada tantos destinos (tokens de un multicast)
+    private static final int MAX_DESTINOS_POR_FILA = 500;
+    private static final int TAMANO_LOTE_HUERFANAS = 200;
+
+    private final DelayQueue<Reintento> cola = new DelayQueue<>();
+    private final Map<String, Function<Reenvio, AccionReintentable>> reenviadores = new ConcurrentHashMap<>();
+    private final AtomicLong programados = new AtomicLong();
+    private final AtomicLong recuperados = new AtomicLong();
+    private final AtomicLong totalCartasMuertas = new AtomicLong();
+    private Thread worker;
+    private volatile boolean activo;
+
+    /**
+     * Acción que se vuelve a intentar; lanza si sigue fallando
+     */
+    @FunctionalInterface
+    public interface AccionReintentable {
+        Object ejecutar() throws Exception;
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        activo = true;
+        worker = new Thread(this::procesar, "reintentos-notificaciones");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Cómo reenvía un proveedor lo que se guardó en la base (lo registra su notificador al iniciar)
+     */
+    public void registrarReenviador(String proveedor, Function<Reenvio, AccionReintentable> reenviador) {
+        reenviadores.put(proveedor, reenviador);
+    }
+
+    public void programar(String proveedor, String descripcion, Reenvio reenvio, Exception error) {
+        for (Reenvio parte : reenvio.partir(MAX_DESTINOS_POR_FILA)) {
+            if (cola.size() >= capacidad) {
+                enviarACartasMuertas(new Reintento(null, proveedor, descripcion, parte, 0, 0), "Cola de reintentos llena - " + mensaje(error));
+                continue;
+            }
+            long momentoMs = System.currentTimeMillis() + backoff(1);
+            Long id = guardarPendiente(proveedor, descripcion, parte, momentoMs, mensaje(error));
+            programados.incrementAndGet();
+            cola.put(new Reintento(id, proveedor, descripcion, parte, 1, momentoMs));
+        }
+        System.err.println("🔁 " + descripcion + " diferido (" + proveedor + "): " + mensaje(error));
+    }
+
+    /**
+     * Vuelve a poner en reintento las cartas muertas; las retoma la próxima pasada de huérfanas
+     */
+    public int reenviarCartasMuertas() {
+        Integer reactivadas = new TransactionTemplate(transactionManager).execute(status ->
+                notificacionFallidaRepository.reactivarMuertas(vencido()));
+        System.out.println("🔁 " + reactivadas + " cartas muertas vuelven a reintentarse");
+        return reactivadas != null ? reactivadas : 0;
+    }
+
+    public Map<String, Object> obtenerEstadisticas() {
+        Map<String, Object> datos = new LinkedHashMap<>();
+        datos.put("pendientes", cola.size());
+        datos.put("programados", programados.get());
+        datos.put("recuperados", recuperados.get());
+        datos.put("cartasMuertas", totalCartasMuertas.get());
+        try {
+            List<Map<String, Object>> ultimas = new ArrayList<>();
+            for (NotificacionFallida fallida : notificacionFallidaRepository.findUltimas(PageRequest.of(0, cartasMuertasEnEstado))) {
+                Map<String, Object> carta = new LinkedHashMap<>();
+                carta.put("proveedor", fallida.getProveedor());
+                carta.put("descripcion", fallida.getDescripcion());
+                carta.put("intentos", fallida.getIntentos());
+                carta.put("error", fallida.getError());
+                carta.put("nodo", fallida.getNodo());
+                carta.put("fecha", fallida.getCreadoEn().toString());
+                ultimas.add(carta);
+            }
+            datos.put("ultimasCartasMuertas", ultimas);
+        } catch (Exception e) {
+            datos.put("ultimasCartasMuertas", "no disponible: " + mensaje(e));
+        }
+        return datos;
+    }
+
+    // Limpieza diaria de cartas muertas viejas (un solo nodo del cluster)
+    @Scheduled(cron = "${unomas.notificaciones.reintentos.limpieza-cron:0 50 4 * * *}")
+    public void limpiarCartasMuertas() {
+        ejecutorTareas.ejecutarEnUnSoloNodo("limpieza-cartas-muertas", EjecutorTareasProgramadas.PoliticaSolapamiento.OMITIR, () -> {
+            Integer eliminadas = new TransactionTemplate(transactionManager).execute(status ->
+                    notificacionFallidaRepository.eliminarAnterioresA(LocalDateTime.now().minusDays(retencionCartasMuertasDias)));
+            System.out.println("🧹 Cartas muertas: " + eliminadas + " eliminadas");
+        });
+    }
+
+    // Retoma los reintentos de nodos caídos (un solo nodo del cluster)
+    @Scheduled(fixedDelayString = "${unomas.notificaciones.reintentos.huerfanas-ms:60000}",
+               initialDelayString = "${unomas.notificaciones.reintentos.huerfanas-ms:60000}")
+    public void retomarHuerfanas() {
+        ejecutorTareas.ejecutarEnUnSoloNodo("reintentos-huerfanos", EjecutorTareasProgramadas.PoliticaSolapamiento.OMITIR,
+                this::retomar);
+    }
+
+    @PreDestroy
+    public void detener() {
+        activo = false;
+        if (worker != null) {
+            worker.interrupt();
+        }
+        List<Reintento> pendientes = new ArrayList<>();
+        cola.drainTo(pendientes);
+        if (pendientes.isEmpty()) {
+            return;
+        }
+        System.err.println("⚠️ Quedaron " + pendientes.size() + " notificaciones en la cola de reintentos al apagar");
+        // ⚡ Las que están en la base quedan vencidas para que otro nodo las retome sin esperar el margen
+        try {
+            Integer liberadas = new TransactionTemplate(transactionManager).execute(status ->
+                    notificacionFallidaRepository.liberar(leasesTareasService.getNodoId(), vencido()));
+            System.out.println("🔓 " + liberadas + " reintentos liberados para otro nodo");
+        } catch (Exception e) {
+            System.err.println("❌ Error liberando reintentos: " + mensaje(e));
+        }
+        // ⚡ Las que no se pudieron guardar se perderían con la memoria: carta muerta
+        pendientes.stream()
+                .filter(reintento -> reintento.id == null)
+                .forEach(reintento -> enviarACartasMuertas(reintento, "Reintento pendiente al apagar la instancia"));
+    }
+
+    // ===== MÉTODOS AUXILIARES =====
+
+    private void procesar() {
+        while (activo) {
+            Reintento reintento;
+            try {
+                reintento = cola.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                accionPara(reintento).ejecutar();
+                recuperados.incrementAndGet();
+                borrar(reintento);
+                System.out.println("✅ " + reintento.descripcion + " entregado en el intento " + (reintento.intento + 1));
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                int siguiente = reintento.intento + 1;
+                if (siguiente > maxIntentos) {
+                    enviarACartasMuertas(reintento, mensaje(e));
+                } else {
+                    long momentoMs = System.currentTimeMillis() + backoff(siguiente);
+                    registrarIntento(reintento, siguiente, momentoMs, mensaje(e));
+                    cola.put(new Reintento(reintento.id, reintento.proveedor, reintento.descripcion, reintento.reenvio,
+                            siguiente, momentoMs));
+                }
+            }
+        }
+    }
+
+    // backoffInicial * 2^(intento-1), acotado, con ±20% de jitter para no reintentar todos juntos
+    private long backoff(int intento) {
+        long base = backoffInicialMs << Math.min(intento - 1, 20);
+        long acotado = Math.min(backoffMaximoMs, base);
+        double jitter = 0.8 + ThreadLocalRandom.current().nextDouble() * 0.4;
+        return (long) (acotado * jitter);
+    }
+
+    private AccionReintentable accionPara(Reintento reintento) {
+        Function<Reenvio, AccionReintentable> reenviador = reenviadores.get(reintento.proveedor);
+        if (reenviador == null) {
+            throw new IllegalStateException("No hay notificador registrado para " + reintento.proveedor);
+        }
+        return reenviador.apply(reintento.reenvio);
+    }
+
+    private void retomar() {
+        LocalDateTime ahora = LocalDateTime.now();
+        LocalDateTime limite = ahora.minusMinutes(margenHuerfanasMinutos);
+        String nodo = leasesTareasService.getNodoId();
+        TransactionTemplate transaccion = new TransactionTemplate(transactionManager);
+        int retomadas = 0;
+        while (cola.size() < capacidad) {
+            int tamanoLote = Math.min(TAMANO_LOTE_HUERFANAS, capacidad - cola.size());
+            // ⚡ PASO 1: Reclamar un lote con un UPDATE condicional (si otro nodo lo tomó, no se pisa)
+            List<NotificacionFallida> reclamadas = transaccion.execute(status -> {
+                List<Long> ids = notificacionFallidaRepository.findIdsHuerfanas(limite, PageRequest.of(0, tamanoLote));
+                if (ids.isEmpty()) {
+                    return List.<NotificacionFallida>of();
+                }
+                notificacionFallidaRepository.reclamar(ids, nodo, limite, ahora);
+                return notificacionFallidaRepository.findReclamadas(ids, nodo);
+            });
+            if (reclamadas == null || reclamadas.isEmpty()) {
+                break;
+            }
+            // ⚡ PASO 2: A la cola propia, para reintentar ya
+            for (NotificacionFallida fallida : reclamadas) {
+                cola.put(new Reintento(fallida.getId(), fallida.getProveedor(), fallida.getDescripcion(),
+                        reenvioDe(fallida), Math.max(1, fallida.getIntentos()), System.currentTimeMillis()));
+            }
+            retomadas += reclamadas.size();
+            if (reclamadas.size() < tamanoLote) {
+                break;
+            }
+        }
+        if (retomadas > 0) {
+            System.out.println("🔁 " + retomadas + " reintentos huérfanos retomados por el nodo " + nodo);
+        }
+    }
+
+    private Long guardarPendiente(String proveedor, String descripcion, Reenvio reenvio, long momentoMs, String error) {
+        try {
+            return notificacionFallidaRepository.save(fila(proveedor, descripcion, reenvio)
+                    .estado(NotificacionFallida.REINTENTANDO)
+                    .intentos(1)
+                    .proximoIntento(fecha(momentoMs))
+                    .error(recortar(error))
+                    .build()).getId();
+        } catch (Exception e) {
+            // Sin base el reintento queda solo en memoria, como antes
+            System.err.println("❌ No se pudo guardar el reintento de " + descripcion + ": " + mensaje(e));
+            return null;
+        }
+    }
+
+    private void registrarIntento(Reintento reintento, int intento, long momentoMs, String error) {
+        if (reintento.id == null) {
+            return;
+        }
+        enBase("el intento de " + reintento.descripcion, () ->
+                notificacionFallidaRepository.registrarIntento(reintento.id, intento, recortar(error), fecha(momentoMs)));
+    }
+
+    private void borrar(Reintento reintento) {
+        if (reintento.id != null) {
+            enBase("el reintento entregado de " + reintento.descripcion, () ->
+                    notificacionFallidaRepository.deleteById(reintento.id));
+        }
+    }
+
+    private void enviarACartasMuertas(Reintento reintento, String error) {
+        totalCartasMuertas.incrementAndGet();
+        System.err.println("💀 " + reintento.descripcion + " descartado tras " + reintento.intento + " intentos: " + error);
+        if (reintento.id != null) {
+            enBase("la carta muerta de " + reintento.descripcion, () ->
+                    notificacionFallidaRepository.marcarMuerta(reintento.id, reintento.intento, recortar(error)));
+            return;
+        }
+        try {
+            notificacionFallidaRepository.save(fila(reintento.proveedor, reintento.descripcion, reintento.reenvio)
+                    .estado(NotificacionFallida.MUERTA)
+                    .intentos(reintento.intento)
+                    .error(recortar(error))
+                    .build());
+        } catch (Exception e) {
+            // Sin base queda solo el log de arriba
+            System.err.println("❌ No se pudo guardar la carta muerta de " + reintento.descripcion + ": " + mensaje(e));
+        }
+    }
+
+    private NotificacionFallida.NotificacionFallidaBuilder fila(String proveedor, String descripcion, Reenvio reenvio) {
+        return NotificacionFallida.builder()
+                .proveedor(proveedor)
+                .descripcion(recortar(descripcion))
+                .operacion(reenvio.getOperacion().name())
+                .destinos(String.join("\n", reenvio.getDestinos()))
+                .mensaje(reenvio.getMensaje())
+                .nodo(leasesTareasService.getNodoId());
+    }
+
+    private static Reenvio reenvioDe(NotificacionFallida fallida) {
+        return new Reenvio(Reenvio.Operacion.valueOf(fallida.getOperacion()),
+                Arrays.asList(fallida.getDestinos().split("\n")), fallida.getMensaje());
+    }
+
+    private void enBase(String que, Runnable escritura) {
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> escritura.run());
+        } catch (Exception e) {
+            System.err.println("❌ No se pudo guardar " + que + ": " + mensaje(e));
+        }
+    }
+
+    // Tan viejo que la próxima pasada de huérfanas lo toma
+    private LocalDateTime vencido() {
+        return LocalDateTime.now().minusMinutes(margenHuerfanasMinutos + 1);
+    }
+
+    private static LocalDateTime fecha(long momentoMs) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(momentoMs), ZoneId.systemDefault());
+    }
+
+    private static String recortar(String texto) {
+        return texto != null && texto.length() > 500 ? texto.substring(0, 500) : texto;
+    }
+
+    private static String mensaje(Exception e) {
+        return e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+    }
+
+    private static final class Reintento implements Delayed {
+        // Fila en notificaciones_fallidas (null si no se pudo guardar)
+        private final Long id;
+        private final String proveedor;
+        private final String descripcion;
+        private final Reenvio reenvio;
+        private final int intento;
+        private final long momentoMs;
+
+        private Reintento(Long id, String proveedor, String descripcion, Reenvio reenvio, int intento, long momentoMs) {
+            this.id = id;
+            this.proveedor = proveedor;
+            this.descripcion = descripcion;
+            this.reenvio = reenvio;
+            this.intento = intento;
+            this.momentoMs = momentoMs;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(momentoMs - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed otro) {
+            return Long.compare(momentoMs, ((Reintento) otro).momentoMs);
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.uade.tpo.deportes.service.notificacion;
+
+import com.uade.tpo.deportes.enums.EventoPartido;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 🧹 DEDUPLICADOR DE EVENTOS CON VENCIMIENTO
+ *
+ * Recuerda los pares (partidoId, evento) vistos en la última ventana.
+ * La ventana se divide en generaciones de tiempo fijo guardadas en un anillo;
+ * cada generación es un set de longs (clave empaquetada, sin Strings ni
+ * LocalDateTime). Al entrar en una generación nueva se vacía el casillero
+ * más viejo del anillo, así el vencimiento cuesta O(1) amortizado y no hace
+ * falta recorrer todo el cache en cada evento.
+ *
+ * Una clave se recuerda entre ventana y ventana + una generación.
+ */
+@Component
+public class DeduplicadorEventos {
+
+    private static final int GENERACIONES = 4;
+
+    @Value("${unomas.notificaciones.deduplicacion.ventana-segundos:120}")
+    private long ventanaSegundos;
+
+    private long duracionGeneracionMs;
+    private final SetLong[] generaciones = new SetLong[GENERACIONES];
+    private final long[] epocas = new long[GENERACIONES];
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final AtomicLong registrados = new AtomicLong();
+    private final AtomicLong duplicados = new AtomicLong();
+
+    @PostConstruct
+    public void iniciar() {
+        duracionGeneracionMs = Math.max(1, ventanaSegundos * 1000 / (GENERACIONES - 1));
+        for (int i = 0; i < GENERACIONES; i++) {
+            generaciones[i] = new SetLong();
+            epocas[i] = Long.MIN_VALUE;
+        }
+    }
+
+    /**
+     * Registra el evento y devuelve true si es la primera vez dentro de la
+     * ventana; false si es un duplicado. Chequeo e inserción son atómicos.
+     */
+    public boolean registrarSiEsNuevo(long partidoId, EventoPartido evento) {
+        return registrarSiEsNuevo(partidoId, evento, System.currentTimeMillis());
+    }
+
+    boolean registrarSiEsNuevo(long partidoId, EventoPartido evento, long ahoraMs) {
+        long clave = empaquetar(partidoId, evento);
+        long epoca = ahoraMs / duracionGeneracionMs;
+
+        lock.lock();
+        try {
+            for (int i = 0; i < GENERACIONES; i++) {
+                if (epocas[i] > epoca - GENERACIONES && epocas[i] <= epoca && generaciones[i].contiene(clave)) {
+                    duplicados.incrementAndGet();
+                    return false;
+                }
+            }
+
+            int casillero = (int) Math.floorMod(epoca, (long) GENERACIONES);
+            if (epocas[casillero] != epoca) {
+                // El casillero tenía la generación más vieja: vence entera de una vez
+                generaciones[casillero].vaciar();
+                epocas[casillero] = epoca;
+            }
+            generaciones[casillero].agregar(clave);
+            registrados.incrementAndGet();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Olvida un evento registrado: si su despacho falló, el reintento no
+     * tiene que tomarse como duplicado.
+     */
+    public void olvidar(long partidoId, EventoPartido evento) {
+        long clave = empaquetar(partidoId, evento);
+        lock.lock();
+        try {
+            for (SetLong generacion : generaciones) {
+                generacion.quitar(clave);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getRegistrados() {
+        return registrados.get();
+    }
+
+    public long getDuplicadosEvitados() {
+        return duplicados.get();
+    }
+
+    // ===== MÉTODOS AUXILIARES =====
+
+    // 8 bits bajos para el evento, el resto para el id del partido (siempre > 0, la clave nunca es 0)
+    static long empaquetar(long partidoId, EventoPartido evento) {
+        return (partidoId << 8) | (evento.ordinal() + 1);
+    }
+
+    /**
+     * Set de longs con direccionamiento abierto (sondeo lineal). 0 marca casillero vacío.
+     * No es thread-safe: lo protege el lock del deduplicador.
+     */
+    private static final class SetLong {
+        private static final int CAPACIDAD_INICIAL = 64;
+
+        private long[] claves = new long[CAPACIDAD_INICIAL];
+        private int tamaño;
+
+        boolean contiene(long clave) {
+            int mascara = claves.length - 1;
+            for (int i = indice(clave, mascara); ; i = (i + 1) & mascara) {
+                long actual = claves[i];
+                if (actual == 0) {
+                    return false;
+                }
+                if (actual == clave) {
+                    return true;
+                }
+            }
+        }
+
+        void agregar(long clave) {
+            if ((tamaño + 1) * 2 > claves.length) {
+                agrandar();
+            }
+            int mascara = claves.length - 1;
+            for (int i = indice(clave, mascara); ; i = (i + 1) & mascara) {
+                if (claves[i] == 0) {
+                    claves[i] = clave;
+                    tamaño++;
+                    return;
+                }
+                if (claves[i] == clave) {
+                    return;
+                }
+            }
+        }
+
+        // Borrado con corrimiento hacia atrás: no deja lápidas que alarguen las búsquedas
+        void quitar(long clave) {
+            int mascara = claves.length - 1;
+            int hueco = indice(clave, mascara);
+            while (claves[hueco] != clave) {
+                if (claves[hueco] == 0) {
+                    return;
+                }
+                hueco = (hueco + 1) & mascara;
+            }
+            for (int j = (hueco + 1) & mascara; claves[j] != 0; j = (j + 1) & mascara) {
+                // Se corre al hueco si su casillero ideal no queda entre el hueco y j
+                if (((j - indice(claves[j], mascara)) & mascara) >= ((j - hueco) & mascara)) {
+                    claves[hueco] = claves[j];
+                    hueco = j;
+                }
+            }
+            claves[hueco] = 0;
+            tamaño--;
+        }
+
+        void vaciar() {
+            if (tamaño == 0) {
+                return;
+            }
+            // Si un pico la agrandó mucho, se vuelve a un tamaño razonable
+            if (claves.length > CAPACIDAD_INICIAL && tamaño * 8 < claves.length) {
+                claves = new long[Math.max(CAPACIDAD_INICIAL, Integer.highestOneBit(tamaño * 4))];
+            } else {
+                Arrays.fill(claves, 0L);
+            }
+            tamaño = 0;
+        }
+
+        private void agrandar() {
+            long[] anteriores = claves;
+            claves = new long[anteriores.length * 2];
+            tamaño = 0;
+            for (long clave : anteriores) {
+                if (clave != 0) {
+                    agregar(clave);
+                }
+            }
+        }
+
+        private static int indice(long clave, int mascara) {
+            long mezcla = clave * 0x9E3779B97F4A7C15L;
+            return (int) (mezcla ^ (mezcla >>> 32)) & mascara;
+        }
+    }
+}
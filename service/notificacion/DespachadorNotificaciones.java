@@ -0,0 +1,310 @@
+package com.uade.tpo.deportes.service.notificacion;
+
+import com.uade.tpo.deportes.patterns.adapter.EmailSaliente;
+import com.uade.tpo.deportes.patterns.adapter.NotificadorEmail;
+import com.uade.tpo.deportes.patterns.adapter.NotificadorPush;
+import com.uade.tpo.deportes.service.notificacion.TrabajoNotificacion.Canal;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 📬 DESPACHADOR DE NOTIFICACIONES
+ *
+ * Cada canal (EMAIL, PUSH) tiene su cola acotada y su propio grupo de workers.
+ * Los observers solo encolan: el hilo del request nunca espera al SMTP ni a FCM.
+ * Si una cola está llena, se espera como máximo timeout-encolado-ms y después
+ * el trabajo se rechaza (backpressure) y se cuenta.
+ *
+ * Los trabajos de un mismo evento se encolan con encolarTodos: primero se
+ * reserva lugar para todos en cada canal y recién después se encolan, así
+ * el evento entra entero o no entra (y al reintentarlo nadie lo recibe dos
+ * veces).
+ */
+@Service
+public class DespachadorNotificaciones {
+
+    @Autowired
+    private NotificadorEmail notificadorEmail;
+
+    @Autowired
+    private NotificadorPush notificadorPush;
+
+    @Value("${unomas.notificaciones.email.capacidad-cola:1000}")
+    private int capacidadEmail;
+
+    @Value("${unomas.notificaciones.email.workers:4}")
+    private int workersEmail;
+
+    // Emails que un worker saca juntos de la cola y manda por una misma conexión SMTP
+    @Value("${unomas.notificaciones.email.tamano-lote:50}")
+    private int tamañoLoteEmail;
+
+    @Value("${unomas.notificaciones.push.capacidad-cola:2000}")
+    private int capacidadPush;
+
+    @Value("${unomas.notificaciones.push.workers:8}")
+    private int workersPush;
+
+    @Value("${unomas.notificaciones.timeout-encolado-ms:50}")
+    private long timeoutEncoladoMs;
+
+    @Value("${unomas.notificaciones.drenado-timeout-segundos:30}")
+    private long drenadoTimeoutSegundos;
+
+    private final Map<Canal, ColaCanal> colas = new EnumMap<>(Canal.class);
+    private volatile boolean activo = false;
+
+    @PostConstruct
+    public void iniciar() {
+        colas.put(Canal.EMAIL, new ColaCanal(Canal.EMAIL, capacidadEmail, workersEmail));
+        colas.put(Canal.PUSH, new ColaCanal(Canal.PUSH, capacidadPush, workersPush));
+        activo = true;
+        colas.values().forEach(ColaCanal::arrancarWorkers);
+        System.out.println("📬 Despachador de notificaciones iniciado - EMAIL: " + workersEmail +
+                " workers / cola " + capacidadEmail + ", PUSH: " + workersPush + " workers / cola " + capacidadPush);
+    }
+
+    /**
+     * Encola un trabajo. Devuelve false si la cola siguió llena durante el timeout.
+     */
+    public boolean encolar(TrabajoNotificacion trabajo) {
+        return encolarTodos(List.of(trabajo));
+    }
+
+    /**
+     * Encola todos los trabajos o ninguno. Devuelve false si algún canal no
+     * tuvo lugar para todos los suyos durante el timeout.
+     */
+    public boolean encolarTodos(List<TrabajoNotificacion> trabajos) {
+        if (trabajos.isEmpty()) {
+            return true;
+        }
+        Map<Canal, List<TrabajoNotificacion>> porCanal = new EnumMap<>(Canal.class);
+        trabajos.forEach(trabajo -> porCanal.computeIfAbsent(trabajo.getCanal(), c -> new ArrayList<>()).add(trabajo));
+        TrabajoNotificacion primero = trabajos.get(0);
+        if (!activo) {
+            porCanal.forEach((canal, lista) -> colas.get(canal).rechazados.addAndGet(lista.size()));
+            System.err.println("⚠️ Despachador detenido, " + trabajos.size() + " notificaciones descartadas (partido " +
+                    primero.getPartidoId() + ")");
+            return false;
+        }
+
+        // ⚡ PASO 1: Reservar lugar en cada canal; si uno no alcanza se devuelve lo reservado
+        Map<ColaCanal, Integer> reservados = new LinkedHashMap<>();
+        List<TrabajoNotificacion> excedentes = new ArrayList<>();
+        for (Map.Entry<Canal, List<TrabajoNotificacion>> entrada : porCanal.entrySet()) {
+            ColaCanal cola = colas.get(entrada.getKey());
+            List<TrabajoNotificacion> lista = entrada.getValue();
+            // Lo que no entra ni con la cola vacía se encola después, esperando a los workers
+            int aReservar = Math.min(lista.size(), cola.capacidad);
+            if (!cola.reservar(aReservar, timeoutEncoladoMs)) {
+                reservados.forEach((reservada, cantidad) -> reservada.lugares.release(cantidad));
+                porCanal.forEach((canal, rechazados) -> colas.get(canal).rechazados.addAndGet(rechazados.size()));
+                System.err.println("⚠️ Cola " + entrada.getKey() + " sin lugar para " + lista.size() +
+                        " notificaciones, rechazadas las " + trabajos.size() + " del evento " + primero.getEvento() +
+                        " (partido " + primero.getPartidoId() + ")");
+                return false;
+            }
+            reservados.put(cola, aReservar);
+            excedentes.addAll(lista.subList(aReservar, lista.size()));
+        }
+
+        // ⚡ PASO 2: Con el lugar reservado el offer no puede fallar
+        porCanal.forEach((canal, lista) -> {
+            ColaCanal cola = colas.get(canal);
+            int cantidad = reservados.get(cola);
+            lista.subList(0, cantidad).forEach(cola.cola::offer);
+            cola.encolados.addAndGet(cantidad);
+        });
+
+        // ⚡ PASO 3: Un evento más grande que la cola entera (p. ej. el email de creación a todos los
+        // interesados) no se puede reservar de una vez: el resto entra a medida que los workers liberan lugar
+        for (TrabajoNotificacion trabajo : excedentes) {
+            ColaCanal cola = colas.get(trabajo.getCanal());
+            if (!cola.reservar(1, TimeUnit.SECONDS.toMillis(drenadoTimeoutSegundos))) {
+                cola.rechazados.incrementAndGet();
+                System.err.println("⚠️ Cola " + trabajo.getCanal() + " trabada, evento " + trabajo.getEvento() +
+                        " del partido " + trabajo.getPartidoId() + " encolado en parte");
+                return false;
+            }
+            cola.cola.offer(trabajo);
+            cola.encolados.incrementAndGet();
+        }
+        return true;
+    }
+
+    /**
+     * Profundidad de cola y contadores por canal
+     */
+    public Map<String, Object> obtenerEstadisticas() {
+        Map<String, Object> estadisticas = new LinkedHashMap<>();
+        estadisticas.put("activo", activo);
+        colas.forEach((canal, cola) -> estadisticas.put(canal.name().toLowerCase(), cola.estadisticas()));
+        return estadisticas;
+    }
+
+    /**
+     * Deja de aceptar trabajos y espera a que los workers vacíen las colas
+     */
+    @PreDestroy
+    public void detener() {
+        activo = false;
+        System.out.println("📬 Drenando colas de notificaciones...");
+        long limite = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(drenadoTimeoutSegundos);
+        for (ColaCanal cola : colas.values()) {
+            for (Thread worker : cola.workers) {
+                try {
+                    worker.join(Math.max(1, limite - System.currentTimeMillis()));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        colas.forEach((canal, cola) -> {
+            if (!cola.cola.isEmpty()) {
+                System.err.println("⚠️ Quedaron " + cola.cola.size() + " notificaciones " + canal + " sin enviar al apagar");
+            }
+            cola.workers.forEach(Thread::interrupt);
+        });
+    }
+
+    // ===== MÉTODOS AUXILIARES =====
+
+    /**
+     * Entrega un lote de emails. Devuelve cuántos se enviaron bien.
+     */
+    private int entregarLoteEmail(List<TrabajoNotificacion> lote) {
+        List<EmailSaliente> emails = new ArrayList<>(lote.size());
+        for (TrabajoNotificacion trabajo : lote) {
+            emails.add(new EmailSaliente(trabajo.getDestinatario(), trabajo.getMensaje()));
+        }
+        return notificadorEmail.enviarNotificacionLote(emails);
+    }
+
+    private void entregar(TrabajoNotificacion trabajo) {
+        switch (trabajo.getCanal()) {
+            case EMAIL:
+                notificadorEmail.enviarNotificacion(trabajo.getDestinatario(), trabajo.getMensaje());
+                break;
+            case PUSH:
+                if (trabajo.esATopico()) {
+                    notificadorPush.enviarNotificacionATopico(trabajo.getDestinatario(), trabajo.getMensaje());
+                } else if (!trabajo.getTokens().isEmpty()) {
+                    notificadorPush.enviarNotificacionPushMultiple(trabajo.getTokens(), trabajo.getMensaje());
+                }
+                break;
+        }
+    }
+
+    /**
+     * Cola acotada de un canal con sus workers y contadores
+     */
+    private final class ColaCanal {
+        private final Canal canal;
+        private final BlockingQueue<TrabajoNotificacion> cola;
+        private final int capacidad;
+        // Lugares libres de la cola: se toman al encolar y se devuelven cuando un worker saca trabajos
+        private final Semaphore lugares;
+        private final int cantidadWorkers;
+        private final List<Thread> workers = new ArrayList<>();
+        private final AtomicLong encolados = new AtomicLong();
+        private final AtomicLong enviados = new AtomicLong();
+        private final AtomicLong fallidos = new AtomicLong();
+        private final AtomicLong rechazados = new AtomicLong();
+
+        private ColaCanal(Canal canal, int capacidad, int cantidadWorkers) {
+            this.canal = canal;
+            this.cola = new ArrayBlockingQueue<>(capacidad);
+            this.capacidad = capacidad;
+            this.lugares = new Semaphore(capacidad);
+            this.cantidadWorkers = Math.max(1, cantidadWorkers);
+        }
+
+        private void arrancarWorkers() {
+            for (int i = 1; i <= cantidadWorkers; i++) {
+                Thread worker = new Thread(this::procesar, "notificaciones-" + canal.name().toLowerCase() + "-" + i);
+                worker.setDaemon(false);
+                workers.add(worker);
+                worker.start();
+            }
+        }
+
+        private void procesar() {
+            while (activo || !cola.isEmpty()) {
+                TrabajoNotificacion trabajo;
+                try {
+                    trabajo = cola.poll(200, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                if (trabajo == null) {
+                    continue;
+                }
+                lugares.release();
+                if (canal == Canal.EMAIL && tamañoLoteEmail > 1) {
+                    procesarLoteEmail(trabajo);
+                    continue;
+                }
+                try {
+                    entregar(trabajo);
+                    enviados.incrementAndGet();
+                } catch (Exception e) {
+                    fallidos.incrementAndGet();
+                    System.err.println("❌ Error enviando " + canal + " a usuario " + trabajo.getUsuarioId() + ": " + e.getMessage());
+                }
+            }
+        }
+
+        // Junta lo que ya está en la cola (sin esperar) hasta completar el lote
+        private void procesarLoteEmail(TrabajoNotificacion primero) {
+            List<TrabajoNotificacion> lote = new ArrayList<>(tamañoLoteEmail);
+            lote.add(primero);
+            lugares.release(cola.drainTo(lote, tamañoLoteEmail - 1));
+            try {
+                int enviadosLote = entregarLoteEmail(lote);
+                enviados.addAndGet(enviadosLote);
+                fallidos.addAndGet(lote.size() - enviadosLote);
+            } catch (Exception e) {
+                fallidos.addAndGet(lote.size());
+                System.err.println("❌ Error enviando lote de " + lote.size() + " emails: " + e.getMessage());
+            }
+        }
+
+        private boolean reservar(int cantidad, long timeoutMs) {
+            try {
+                return lugares.tryAcquire(cantidad, timeoutMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        private Map<String, Object> estadisticas() {
+            Map<String, Object> datos = new LinkedHashMap<>();
+            datos.put("profundidad", cola.size());
+            datos.put("capacidad", cola.size() + cola.remainingCapacity());
+            datos.put("workers", cantidadWorkers);
+            datos.put("encolados", encolados.get());
+            datos.put("enviados", enviados.get());
+            datos.put("fallidos", fallidos.get());
+            datos.put("rechazados", rechazados.get());
+            return datos;
+        }
+    }
+}
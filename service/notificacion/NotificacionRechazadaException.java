@@ -0,0 +1,12 @@
+package com.uade.tpo.deportes.service.notificacion;
+
+/**
+ * La cola de un canal está llena (o el despachador detenido) y no aceptó el
+ * trabajo. Es transitorio: quien entrega el evento tiene que reintentarlo
+ * más tarde en lugar de darlo por despachado.
+ */
+public class NotificacionRechazadaException extends RuntimeException {
+    public NotificacionRechazadaException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,123 @@
+package com.uade.tpo.deportes.service.notificacion;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Llamadas a un proveedor externo (SMTP, FCM) con circuit breaker y
+ * presupuesto de tiempo. La llamada corre en un pool chico y acotado del
+ * proveedor: si no responde dentro del timeout se cancela y cuenta como
+ * fallo, y el worker de notificaciones queda libre.
+ *
+ * Si la llamada falla o el circuito está abierto, se difiere a la cola de
+ * reintentos con backoff exponencial. Lo que se difiere es un Reenvio (qué
+ * mandar y a quién), no la llamada: así el reintento sobrevive en la base.
+ */
+public class ProveedorProtegido {
+
+    private final String nombre;
+    private final CircuitBreaker circuitBreaker;
+    private final long timeoutMs;
+    private final ThreadPoolExecutor ejecutor;
+    private final ColaReintentosNotificaciones reintentos;
+
+    public ProveedorProtegido(String nombre, int umbralFallos, long tiempoAbiertoMs, long timeoutMs,
+                              int hilos, ColaReintentosNotificaciones reintentos) {
+        this.nombre = nombre;
+        this.circuitBreaker = new CircuitBreaker(nombre, umbralFallos, tiempoAbiertoMs);
+        this.timeoutMs = timeoutMs;
+        this.reintentos = reintentos;
+        AtomicInteger contador = new AtomicInteger();
+        this.ejecutor = new ThreadPoolExecutor(hilos, hilos, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(hilos * 4), r -> {
+                    Thread hilo = new Thread(r, "proveedor-" + nombre + "-" + contador.incrementAndGet());
+                    hilo.setDaemon(true);
+                    return hilo;
+                });
+    }
+
+    /**
+     * Ejecuta la llamada; si falla o el circuito está abierto difiere el reenvío y devuelve siDiferida.
+     */
+    public <T> T ejecutar(String descripcion, Callable<T> llamada, T siDiferida, Reenvio reenvio) {
+        try {
+            return intentar(llamada);
+        } catch (Exception e) {
+            reintentos.programar(nombre, descripcion, reenvio, e);
+            return siDiferida;
+        }
+    }
+
+    /**
+     * Manda directo a la cola de reintentos una entrega que ya falló (por
+     * ejemplo, un email que el servidor rechazó dentro de un lote que sí salió)
+     */
+    public void diferir(String descripcion, Reenvio reenvio, Exception error) {
+        reintentos.programar(nombre, descripcion, reenvio, error);
+    }
+
+    /**
+     * Un intento protegido, sin diferir: lanza si el circuito está abierto,
+     * si se pasa del timeout o si el proveedor falla.
+     */
+    public <T> T intentar(Callable<T> llamada) throws Exception {
+        return intentar(llamada, timeoutMs);
+    }
+
+    /**
+     * Igual, con un presupuesto de tiempo propio de la llamada (por ejemplo,
+     * proporcional al tamaño de un lote)
+     */
+    public <T> T intentar(Callable<T> llamada, long timeoutLlamadaMs) throws Exception {
+        if (!circuitBreaker.permitirLlamada()) {
+            throw new IllegalStateException("Circuito " + nombre + " abierto");
+        }
+
+        Future<T> futuro;
+        try {
+            futuro = ejecutor.submit(llamada);
+        } catch (RejectedExecutionException e) {
+            // El proveedor tiene todos sus hilos ocupados: ya está lento
+            circuitBreaker.registrarFallo();
+            throw new IllegalStateException("Proveedor " + nombre + " saturado", e);
+        }
+
+        try {
+            T resultado = futuro.get(timeoutLlamadaMs, TimeUnit.MILLISECONDS);
+            circuitBreaker.registrarExito();
+            return resultado;
+        } catch (TimeoutException e) {
+            futuro.cancel(true);
+            circuitBreaker.registrarFallo();
+            throw new IllegalStateException("Proveedor " + nombre + " no respondió en " + timeoutLlamadaMs + " ms", e);
+        } catch (ExecutionException e) {
+            circuitBreaker.registrarFallo();
+            Throwable causa = e.getCause();
+            throw causa instanceof Exception ? (Exception) causa : new IllegalStateException(causa);
+        } catch (InterruptedException e) {
+            futuro.cancel(true);
+            circuitBreaker.registrarFallo(); // libera la sonda si estaba SEMI_ABIERTO
+            Thread.currentThread().interrupt();
+            throw e;
+        }
+    }
+
+    public Map<String, Object> estadisticas() {
+        Map<String, Object> datos = circuitBreaker.estadisticas();
+        datos.put("timeoutMs", timeoutMs);
+        datos.put("llamadasEnCurso", ejecutor.getActiveCount());
+        return datos;
+    }
+
+    public void detener() {
+        ejecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,69 @@
+package com.uade.tpo.deportes.service.notificacion;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 🔁 Lo necesario para volver a intentar una entrega sin la llamada original:
+ * la operación, los destinos y el mensaje. Es lo que se guarda en la base
+ * mientras la entrega espera su reintento; cada notificador resiliente lo
+ * vuelve a convertir en una llamada a su proveedor.
+ */
+public final class Reenvio {
+
+    public enum Operacion { EMAIL, PUSH, TOPICO, SUSCRIBIR_TOPICO, DESUSCRIBIR_TOPICO }
+
+    private final Operacion operacion;
+    // Emails, tokens o el tópico (o condición) de destino
+    private final List<String> destinos;
+    // En altas y bajas de tópico, el tópico
+    private final String mensaje;
+
+    public Reenvio(Operacion operacion, List<String> destinos, String mensaje) {
+        this.operacion = operacion;
+        this.destinos = List.copyOf(destinos);
+        this.mensaje = mensaje;
+    }
+
+    public static Reenvio email(List<String> destinatarios, String mensaje) {
+        return new Reenvio(Operacion.EMAIL, destinatarios, mensaje);
+    }
+
+    public static Reenvio push(List<String> tokens, String mensaje) {
+        return new Reenvio(Operacion.PUSH, tokens, mensaje);
+    }
+
+    public static Reenvio topico(String destino, String mensaje) {
+        return new Reenvio(Operacion.TOPICO, List.of(destino), mensaje);
+    }
+
+    public static Reenvio suscripcion(List<String> tokens, String topico, boolean alta) {
+        return new Reenvio(alta ? Operacion.SUSCRIBIR_TOPICO : Operacion.DESUSCRIBIR_TOPICO, tokens, topico);
+    }
+
+    /**
+     * Parte los destinos en reenvíos de a lo sumo maximo (una fila por parte en la base)
+     */
+    public List<Reenvio> partir(int maximo) {
+        if (destinos.size() <= maximo) {
+            return List.of(this);
+        }
+        List<Reenvio> partes = new ArrayList<>();
+        for (int i = 0; i < destinos.size(); i += maximo) {
+            partes.add(new Reenvio(operacion, destinos.subList(i, Math.min(i + maximo, destinos.size())), mensaje));
+        }
+        return partes;
+    }
+
+    public Operacion getOperacion() {
+        return operacion;
+    }
+
+    public List<String> getDestinos() {
+        return destinos;
+    }
+
+    public String getMensaje() {
+        return mensaje;
+    }
+}
@@ -0,0 +1,292 @@
+package com.uade.tpo.deportes.service.notificacion;
+
+import com.uade.tpo.deportes.enums.Role;
+import com.uade.tpo.deportes.patterns.decorator.NotificadorPushResiliente;
+import com.uade.tpo.deportes.service.pushtoken.PushTokenService;
+import com.uade.tpo.deportes.service.scheduler.EjecutorTareasProgramadas;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 📡 SUSCRIPCIONES A TÓPICOS FCM
+ *
+ * Cada dispositivo queda suscripto al tópico de su deporte favorito
+ * (deporte_<id>) y al de su zona (zona_<slug>), así la creación de un
+ * partido se notifica con un solo envío al tópico.
+ *
+ * Las suscripciones se actualizan después del commit y en un único hilo
+ * propio: el request no espera a FCM y las altas/bajas de un mismo
+ * usuario se aplican en orden. Pasan por el circuito de push: si FCM
+ * falla, la operación va a la cola de reintentos.
+ *
+ * Al iniciar y después periódicamente (un solo nodo, con lease) se
+ * reconcilian todos los tokens activos con los tópicos de su usuario: cubre
+ * los tokens registrados antes de que existieran los tópicos y cualquier
+ * alta o baja que se haya perdido. Altas y bajas son idempotentes.
+ * Un usuario desactivado, con push deshabilitado o administrador queda fuera
+ * de todos los tópicos (el admin tampoco recibía la creación antes).
+ *
+ * FCM no permite listar los tópicos de un token: las bajas se hacen contra
+ * los tópicos conocidos (un deporte_ por deporte y un zona_ por cada zona de
+ * usuario actual). Una suscripción a la zona que ya no tiene ningún usuario
+ * no se limpia en la reconciliación.
+ */
+@Service
+public class SuscripcionTopicosService {
+
+    @Autowired
+    private NotificadorPushResiliente notificadorPush;
+
+    @Autowired
+    private PushTokenService pushTokenService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EjecutorTareasProgramadas ejecutorTareas;
+
+    @Value("${unomas.topicos.reconciliar-al-iniciar:true}")
+    private boolean reconciliarAlIniciar;
+
+    @Value("${unomas.topicos.tamano-lote-reconciliacion:1000}")
+    private int tamañoLoteReconciliacion;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final ExecutorService ejecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread hilo = new Thread(r, "suscripciones-topicos");
+        hilo.setDaemon(true);
+        return hilo;
+    });
+
+    public static String topicoDeporte(Long deporteId) {
+        return "deporte_" + deporteId;
+    }
+
+    public static String topicoZona(String zona) {
+        // FCM solo acepta [a-zA-Z0-9-_.~%] en el nombre del tópico
+        String sinAcentos = Normalizer.normalize(zona.trim().toLowerCase(), Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "");
+        return "zona_" + sinAcentos.replaceAll("[^a-z0-9]+", "_");
+    }
+
+    /**
+     * Tópicos que corresponden a un perfil (deporte favorito y zona, si los tiene)
+     */
+    public static Set<String> topicosDe(Long deporteId, String zona) {
+        Set<String> topicos = new LinkedHashSet<>();
+        if (deporteId != null) {
+            topicos.add(topicoDeporte(deporteId));
+        }
+        if (zona != null && !zona.isBlank()) {
+            topicos.add(topicoZona(zona));
+        }
+        return topicos;
+    }
+
+    /**
+     * Tópicos en los que debería estar hoy el usuario (vacío si deshabilitó push)
+     */
+    public Set<String> topicosActuales(Long usuarioId) {
+        return leerTopicos(usuarioId);
+    }
+
+    /**
+     * Reacomoda los tokens del usuario cuando cambian sus tópicos
+     * (registro, actualización de perfil o de preferencias). Se aplica después del commit.
+     */
+    public void sincronizarUsuario(Long usuarioId, Set<String> topicosAnteriores) {
+        Set<String> anteriores = new HashSet<>(topicosAnteriores);
+        despuesDelCommit(() -> {
+            Set<String> actuales = leerTopicos(usuarioId);
+            List<String> tokens = pushTokenService.obtenerTokensUsuario(usuarioId);
+            if (tokens.isEmpty()) {
+                return;
+            }
+
+            for (String topico : anteriores) {
+                if (!actuales.contains(topico)) {
+                    notificadorPush.desuscribirDeTopico(tokens, topico);
+                }
+            }
+            for (String topico : actuales) {
+                if (!anteriores.contains(topico)) {
+                    notificadorPush.suscribirATopico(tokens, topico);
+                }
+            }
+        });
+    }
+
+    /**
+     * Suscribe un token recién registrado a los tópicos actuales del usuario
+     */
+    public void suscribirToken(Long usuarioId, String token) {
+        despuesDelCommit(() -> {
+            for (String topico : leerTopicos(usuarioId)) {
+                notificadorPush.suscribirATopico(List.of(token), topico);
+            }
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconciliarAlIniciar() {
+        if (reconciliarAlIniciar) {
+            programarReconciliacion();
+        }
+    }
+
+    // Red de seguridad para altas perdidas (un solo nodo del cluster)
+    @Scheduled(cron = "${unomas.topicos.reconciliacion-cron:0 15 5 * * *}")
+    public void programarReconciliacion() {
+        ejecutorTareas.ejecutarEnUnSoloNodo("reconciliacion-topicos", EjecutorTareasProgramadas.PoliticaSolapamiento.OMITIR,
+                this::reconciliarTodos);
+    }
+
+    /**
+     * Deja todos los tokens activos exactamente en los tópicos conocidos que les
+     * corresponden (altas y bajas), recorriendo push_tokens por id en lotes.
+     * Devuelve cuántos tokens revisó.
+     */
+    public int reconciliarTodos() {
+        long inicio = System.currentTimeMillis();
+        TransactionTemplate lectura = new TransactionTemplate(transactionManager);
+        lectura.setReadOnly(true);
+        Set<String> conocidos = lectura.execute(status -> leerTopicosConocidos());
+        long ultimoId = 0;
+        int revisados = 0;
+        int suscripciones = 0;
+        int bajas = 0;
+        while (true) {
+            long desde = ultimoId;
+            // ⚡ PASO 1: Lote de tokens con los datos que definen sus tópicos
+            List<Object[]> filas = lectura.execute(status -> entityManager.createQuery(
+                    "SELECT t.id, t.token, df.id, ub.zona, p.notificacionesPush, u.activo, u.role FROM PushToken t " +
+                    "JOIN t.usuario u LEFT JOIN u.deporteFavorito df LEFT JOIN u.ubicacion ub " +
+                    "LEFT JOIN Preferencias p ON p.usuario = u " +
+                    "WHERE t.activo = true AND t.id > :desde ORDER BY t.id", Object[].class)
+                    .setParameter("desde", desde)
+                    .setMaxResults(tamañoLoteReconciliacion)
+                    .getResultList());
+            if (filas == null || filas.isEmpty()) {
+                break;
+            }
+
+            // ⚡ PASO 2: Agrupar por tópico, altas y bajas, para una llamada por tópico
+            Map<String, List<String>> altasPorTopico = new LinkedHashMap<>();
+            Map<String, List<String>> bajasPorTopico = new LinkedHashMap<>();
+            for (Object[] fila : filas) {
+                String token = (String) fila[1];
+                Set<String> deseados = fueraDeTopicos(fila[4], fila[5], fila[6])
+                        ? Set.of()
+                        : topicosDe((Long) fila[2], (String) fila[3]);
+                for (String topico : deseados) {
+                    altasPorTopico.computeIfAbsent(topico, t -> new ArrayList<>()).add(token);
+                }
+                for (String topico : conocidos) {
+                    if (!deseados.contains(topico)) {
+                        bajasPorTopico.computeIfAbsent(topico, t -> new ArrayList<>()).add(token);
+                    }
+                }
+            }
+
+            // ⚡ PASO 3: Aplicar (los fallos quedan en la cola de reintentos)
+            bajasPorTopico.forEach(notificadorPush::desuscribirDeTopico);
+            altasPorTopico.forEach(notificadorPush::suscribirATopico);
+            suscripciones += altasPorTopico.size();
+            bajas += bajasPorTopico.size();
+            revisados += filas.size();
+            ultimoId = (Long) filas.get(filas.size() - 1)[0];
+            if (filas.size() < tamañoLoteReconciliacion) {
+                break;
+            }
+        }
+        System.out.println("📡 Tópicos reconciliados: " + revisados + " tokens, " + suscripciones +
+                " suscripciones y " + bajas + " bajas en " + (System.currentTimeMillis() - inicio) + " ms");
+        return revisados;
+    }
+
+    @PreDestroy
+    public void detener() {
+        ejecutor.shutdown();
+    }
+
+    // ===== MÉTODOS AUXILIARES =====
+
+    private Set<String> leerTopicos(Long usuarioId) {
+        TransactionTemplate lectura = new TransactionTemplate(transactionManager);
+        lectura.setReadOnly(true);
+        return lectura.execute(status -> {
+            List<Object[]> filas = entityManager.createQuery(
+                    "SELECT df.id, ub.zona, p.notificacionesPush, u.activo, u.role FROM Usuario u " +
+                    "LEFT JOIN u.deporteFavorito df LEFT JOIN u.ubicacion ub " +
+                    "LEFT JOIN Preferencias p ON p.usuario = u WHERE u.id = :id", Object[].class)
+                    .setParameter("id", usuarioId)
+                    .getResultList();
+            if (filas.isEmpty() || fueraDeTopicos(filas.get(0)[2], filas.get(0)[3], filas.get(0)[4])) {
+                return Set.<String>of();
+            }
+            return topicosDe((Long) filas.get(0)[0], (String) filas.get(0)[1]);
+        });
+    }
+
+    // Usuario desactivado, push deshabilitado en Preferencias o admin: fuera de todos los tópicos
+    private static boolean fueraDeTopicos(Object notificacionesPush, Object activo, Object role) {
+        return Boolean.FALSE.equals(notificacionesPush) || Boolean.FALSE.equals(activo) || role == Role.ADMIN;
+    }
+
+    // Todos los tópicos en los que puede haber quedado un token: cada deporte y cada zona de usuario
+    private Set<String> leerTopicosConocidos() {
+        Set<String> conocidos = new LinkedHashSet<>();
+        entityManager.createQuery("SELECT d.id FROM Deporte d", Long.class).getResultList()
+                .forEach(deporteId -> conocidos.add(topicoDeporte(deporteId)));
+        entityManager.createQuery("SELECT DISTINCT ub.zona FROM Usuario u JOIN u.ubicacion ub " +
+                        "WHERE ub.zona IS NOT NULL", String.class).getResultList().stream()
+                .filter(zona -> !zona.isBlank())
+                .forEach(zona -> conocidos.add(topicoZona(zona)));
+        return conocidos;
+    }
+
+    private void despuesDelCommit(Runnable accion) {
+        Runnable tarea = () -> {
+            try {
+                accion.run();
+            } catch (Exception e) {
+                System.err.println("❌ Error sincronizando tópicos: " + e.getMessage());
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    ejecutor.execute(tarea);
+                }
+            });
+        } else {
+            ejecutor.execute(tarea);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.uade.tpo.deportes.service.notificacion;
+
+import com.uade.tpo.deportes.enums.EventoPartido;
+
+import java.util.List;
+
+/**
+ * Unidad de entrega para un destinatario y un canal.
+ * Solo lleva datos planos (ids y textos): los workers no tocan entidades JPA.
+ */
+public final class TrabajoNotificacion {
+
+    public enum Canal { EMAIL, PUSH }
+
+    private final Canal canal;
+    private final Long usuarioId;
+    private final String destinatario; // email para EMAIL, tópico/condición para PUSH a tópico, null para PUSH a tokens
+    private final List<String> tokens;  // tokens activos para PUSH, resueltos en bloque al encolar
+    private final String mensaje;
+    private final Long partidoId;
+    private final EventoPartido evento;
+
+    private TrabajoNotificacion(Canal canal, Long usuarioId, String destinatario, List<String> tokens,
+                                String mensaje, Long partidoId, EventoPartido evento) {
+        this.canal = canal;
+        this.usuarioId = usuarioId;
+        this.destinatario = destinatario;
+        this.tokens = tokens;
+        this.mensaje = mensaje;
+        this.partidoId = partidoId;
+        this.evento = evento;
+    }
+
+    public static TrabajoNotificacion email(Long usuarioId, String email, String mensaje,
+                                            Long partidoId, EventoPartido evento) {
+        return new TrabajoNotificacion(Canal.EMAIL, usuarioId, email, List.of(), mensaje, partidoId, evento);
+    }
+
+    public static TrabajoNotificacion push(Long usuarioId, List<String> tokens, String mensaje,
+                                           Long partidoId, EventoPartido evento) {
+        return new TrabajoNotificacion(Canal.PUSH, usuarioId, null, List.copyOf(tokens), mensaje, partidoId, evento);
+    }
+
+    // Un solo envío a un tópico (o condición de tópicos) en lugar de uno por usuario
+    public static TrabajoNotificacion topico(String destino, String mensaje, Long partidoId, EventoPartido evento) {
+        return new TrabajoNotificacion(Canal.PUSH, null, destino, List.of(), mensaje, partidoId, evento);
+    }
+
+    public boolean esATopico() {
+        return canal == Canal.PUSH && destinatario != null;
+    }
+
+    public Canal getCanal() {
+        return canal;
+    }
+
+    public Long getUsuarioId() {
+        return usuarioId;
+    }
+
+    public String getDestinatario() {
+        return destinatario;
+    }
+
+    public List<String> getTokens() {
+        return tokens;
+    }
+
+    public String getMensaje() {
+        return mensaje;
+    }
+
+    public Long getPartidoId() {
+        return partidoId;
+    }
+
+    public EventoPartido getEvento() {
+        return evento;
+    }
+}
@@ -0,0 +1,254 @@
+package com.uade.tpo.deportes.service.outbox;
+
+import com.uade.tpo.deportes.entity.EventoOutbox;
+import com.uade.tpo.deportes.entity.Partido;
+import com.uade.tpo.deportes.enums.EventoPartido;
+import com.uade.tpo.deportes.patterns.observer.NotificadorObserver;
+import com.uade.tpo.deportes.repository.EventoOutboxRepository;
+import com.uade.tpo.deportes.repository.PartidoRepository;
+import com.uade.tpo.deportes.service.notificacion.NotificacionRechazadaException;
+import com.uade.tpo.deportes.service.scheduler.EjecutorTareasProgramadas;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * 📨 RELAY DEL OUTBOX
+ *
+ * Lee los eventos que ya hicieron commit en lotes acotados, los reclama con
+ * un UPDATE condicional (varias instancias pueden correr a la vez) y los
+ * despacha cargando el partido en una transacción propia.
+ *
+ * Entrega al menos una vez: si la instancia muere entre el despacho y la
+ * marca de PROCESADO, el evento se libera y se vuelve a despachar. Las
+ * claves de idempotencia ya despachadas por esta instancia se recuerdan
+ * para no repetirlo localmente.
+ *
+ * Un evento que falla vuelve a PENDIENTE con backoff exponencial
+ * (proximoIntento); al agotar los intentos queda FALLIDO. Si las colas de
+ * notificación lo rechazan por estar llenas, no se da por despachado: vuelve
+ * a PENDIENTE con backoff y nunca pasa a FALLIDO por eso.
+ *
+ * Las uniones (JUGADOR_UNIDO) que entran a un resumen del CoalescedorEventos
+ * quedan AGRUPADO y las confirma el coalescedor cuando el resumen sale. Si
+ * la instancia muere con el resumen en memoria, vencida la ventana vuelven
+ * a PENDIENTE y se arma el resumen de nuevo.
+ */
+@Service
+public class RelayOutbox {
+
+    @Autowired
+    private EventoOutboxRepository eventoOutboxRepository;
+
+    @Autowired
+    private PartidoRepository partidoRepository;
+
+    @Autowired
+    private NotificadorObserver notificadorObserver;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EjecutorTareasProgramadas ejecutorTareas;
+
+    @Value("${unomas.outbox.tamano-lote:100}")
+    private int tamañoLote;
+
+    @Value("${unomas.outbox.max-lotes-por-pasada:10}")
+    private int maxLotesPorPasada;
+
+    @Value("${unomas.outbox.max-intentos:5}")
+    private int maxIntentos;
+
+    @Value("${unomas.outbox.reclamo-expira-minutos:5}")
+    private long reclamoExpiraMinutos;
+
+    @Value("${unomas.outbox.retencion-dias:7}")
+    private long retencionDias;
+
+    @Value("${unomas.notificaciones.coalescencia.ventana-segundos:60}")
+    private long ventanaCoalescenciaSegundos;
+
+    @Value("${unomas.outbox.backoff-base-segundos:5}")
+    private long backoffBaseSegundos;
+
+    @Value("${unomas.outbox.backoff-max-segundos:600}")
+    private long backoffMaxSegundos;
+
+    private static final int MAX_CLAVES_RECORDADAS = 10000;
+
+    private final Set<String> clavesDespachadas = Collections.newSetFromMap(
+            Collections.synchronizedMap(new LinkedHashMap<String, Boolean>(256, 0.75f, false) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                    return size() > MAX_CLAVES_RECORDADAS;
+                }
+            }));
+
+    @Scheduled(fixedDelayString = "${unomas.outbox.intervalo-ms:1000}")
+    public void procesarPendientes() {
+        ejecutorTareas.ejecutar("relay-outbox", EjecutorTareasProgramadas.PoliticaSolapamiento.OMITIR,
+                this::procesarPasada);
+    }
+
+    // Limpieza diaria de eventos ya despachados (un solo nodo del cluster)
+    @Scheduled(cron = "${unomas.outbox.limpieza-cron:0 30 4 * * *}")
+    public void limpiarProcesados() {
+        ejecutorTareas.ejecutarEnUnSoloNodo("limpieza-outbox", EjecutorTareasProgramadas.PoliticaSolapamiento.OMITIR, () -> {
+            TransactionTemplate escritura = new TransactionTemplate(transactionManager);
+            Integer eliminados = escritura.execute(status ->
+                    eventoOutboxRepository.eliminarProcesadosAntesDe(LocalDateTime.now().minusDays(retencionDias)));
+            System.out.println("🧹 Outbox: " + eliminados + " eventos procesados eliminados");
+        });
+    }
+
+    // ===== MÉTODOS AUXILIARES =====
+
+    private void procesarPasada() {
+        try {
+            TransactionTemplate escritura = new TransactionTemplate(transactionManager);
+            Integer liberados = escritura.execute(status ->
+                    eventoOutboxRepository.liberarTrabados(LocalDateTime.now().minusMinutes(reclamoExpiraMinutos)));
+            if (liberados != null && liberados > 0) {
+                System.out.println("♻️ " + liberados + " eventos del outbox liberados para reintento");
+            }
+            Integer huerfanos = escritura.execute(status -> eventoOutboxRepository.liberarAgrupadosVencidos(
+                    LocalDateTime.now().minusSeconds(ventanaCoalescenciaSegundos).minusMinutes(reclamoExpiraMinutos)));
+            if (huerfanos != null && huerfanos > 0) {
+                System.out.println("♻️ " + huerfanos + " uniones sin resumen liberadas para reintento");
+            }
+
+            for (int numeroLote = 1; numeroLote <= maxLotesPorPasada; numeroLote++) {
+                if (procesarLote(escritura, numeroLote) < tamañoLote) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("❌ Error procesando outbox: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reclama y despacha un lote. Devuelve cuántos pendientes se leyeron,
+     * para saber si quedan más.
+     */
+    private int procesarLote(TransactionTemplate escritura, int numeroLote) {
+        String lote = UUID.randomUUID().toString();
+
+        // ⚡ PASO 1: Reclamar el lote (transacción corta)
+        List<Long> ids = new ArrayList<>();
+        List<EventoOutbox> reclamados = escritura.execute(status -> {
+            ids.addAll(eventoOutboxRepository.findIdsPendientes(LocalDateTime.now(), PageRequest.of(0, tamañoLote)));
+            if (ids.isEmpty()) {
+                return List.<EventoOutbox>of();
+            }
+            eventoOutboxRepository.reclamar(ids, lote, LocalDateTime.now());
+            return eventoOutboxRepository.findByLoteEnProceso(lote);
+        });
+        if (reclamados == null || reclamados.isEmpty()) {
+            return ids.size();
+        }
+
+        // ⚡ PASO 2: Despachar cada evento con el partido recién cargado
+        TransactionTemplate lectura = new TransactionTemplate(transactionManager);
+        lectura.setReadOnly(true);
+        List<Long> procesados = new ArrayList<>();
+        List<Long> agrupados = new ArrayList<>();
+        for (EventoOutbox evento : reclamados) {
+            try {
+                if (Boolean.TRUE.equals(lectura.execute(status -> despachar(evento)))) {
+                    agrupados.add(evento.getId());
+                } else {
+                    procesados.add(evento.getId());
+                }
+            } catch (Exception e) {
+                registrarFallo(escritura, evento, e);
+            }
+        }
+
+        // ⚡ PASO 3: Marcar como procesados (las uniones agrupadas las confirma el coalescedor)
+        if (!procesados.isEmpty() || !agrupados.isEmpty()) {
+            escritura.executeWithoutResult(status -> {
+                if (!procesados.isEmpty()) {
+                    eventoOutboxRepository.marcarProcesados(procesados, LocalDateTime.now());
+                }
+                if (!agrupados.isEmpty()) {
+                    eventoOutboxRepository.marcarAgrupados(agrupados, LocalDateTime.now());
+                }
+            });
+            System.out.println("📨 Outbox: " + procesados.size() + " eventos despachados y " + agrupados.size() +
+                    " uniones agrupadas (lote " + numeroLote + ")");
+        }
+        return ids.size();
+    }
+
+    /**
+     * Despacha el evento. Devuelve true si quedó en un resumen pendiente
+     * (se confirma después), false si ya está despachado o descartado.
+     */
+    private boolean despachar(EventoOutbox evento) {
+        if (clavesDespachadas.contains(evento.getClaveIdempotencia())) {
+            return false;
+        }
+
+        Partido partido = partidoRepository.findConDetalleById(evento.getPartidoId()).orElse(null);
+        if (partido == null) {
+            System.out.println("⚠️ Partido " + evento.getPartidoId() + " ya no existe, evento " +
+                    evento.getEvento() + " descartado");
+            return false;
+        }
+
+        // Una unión puede volver a la outbox si su resumen no salió: no se recuerda localmente
+        if (evento.getEvento() == EventoPartido.JUGADOR_UNIDO) {
+            return notificadorObserver.notificarUnion(partido, evento.getId());
+        }
+        if (evento.getEvento() == EventoPartido.RECORDATORIO_PARTIDO) {
+            notificadorObserver.notificarRecordatorio(partido, evento.getMinutosAntes());
+        } else {
+            notificadorObserver.actualizar(partido, evento.getEvento());
+        }
+        clavesDespachadas.add(evento.getClaveIdempotencia());
+        return false;
+    }
+
+    private void registrarFallo(TransactionTemplate escritura, EventoOutbox evento, Exception e) {
+        // Cola llena: el evento no se pierde por presión; se reintenta con backoff sin límite de intentos
+        boolean rechazado = e instanceof NotificacionRechazadaException;
+        String estado = !rechazado && evento.getIntentos() >= maxIntentos ? EventoOutbox.FALLIDO : EventoOutbox.PENDIENTE;
+        LocalDateTime proximoIntento = EventoOutbox.PENDIENTE.equals(estado)
+                ? LocalDateTime.now().plusSeconds(backoffSegundos(evento.getIntentos())) : null;
+        String error = e.getMessage() != null && e.getMessage().length() > 500
+                ? e.getMessage().substring(0, 500) : e.getMessage();
+        System.err.println((rechazado ? "⏳ Evento " + evento.getClaveIdempotencia() + " rechazado por las colas"
+                        : "❌ Error despachando evento " + evento.getClaveIdempotencia()) +
+                " (intento " + evento.getIntentos() + "): " + e.getMessage() +
+                (proximoIntento != null ? " - reintento a las " + proximoIntento : " - queda FALLIDO"));
+        try {
+            escritura.executeWithoutResult(status ->
+                    eventoOutboxRepository.marcarError(evento.getId(), estado, error, proximoIntento));
+        } catch (Exception ex) {
+            // Queda EN_PROCESO y se libera cuando vence el reclamo
+            System.err.println("❌ No se pudo registrar el fallo del evento " + evento.getId() + ": " + ex.getMessage());
+        }
+    }
+
+    // base, 2 × base, 4 × base... hasta el máximo
+    private long backoffSegundos(int intentos) {
+        int exponente = Math.min(Math.max(intentos - 1, 0), 20);
+        return Math.min(backoffMaxSegundos, backoffBaseSegundos << exponente);
+    }
+}
@@ -0,0 +1,60 @@
+package com.uade.tpo.deportes.service.partido;
+
+import com.uade.tpo.deportes.entity.Partido;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Cursor opaco para paginación keyset sobre (horario, id).
+ * El cliente solo lo reenvía tal cual; nunca debería armarlo a mano.
+ */
+public final class CursorPartido {
+
+    private static final String SEPARADOR = "|";
+
+    private final LocalDateTime horario;
+    private final Long id;
+
+    public CursorPartido(LocalDateTime horario, Long id) {
+        this.horario = horario;
+        this.id = id;
+    }
+
+    public LocalDateTime getHorario() {
+        return horario;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String codificar() {
+        String valor = horario.toString() + SEPARADOR + id;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Devuelve null si no hay cursor (primera página)
+     */
+    public static CursorPartido decodificar(String cursor) {
+        if (cursor == null || cursor.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            String valor = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+            int separador = valor.lastIndexOf(SEPARADOR);
+            return new CursorPartido(
+                    LocalDateTime.parse(valor.substring(0, separador)),
+                    Long.parseLong(valor.substring(separador + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Cursor de búsqueda inválido");
+        }
+    }
+
+    public static CursorPartido de(Partido partido) {
+        return new CursorPartido(partido.getHorario(), partido.getId());
+    }
+}
@@ -0,0 +1,87 @@
+package com.uade.tpo.deportes.service.partido;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 🌐 GRILLA GEOGRÁFICA
+ *
+ * Índice espacial simple: divide el mapa en celdas de TAMAÑO_CELDA grados
+ * (~5 km de lado en Buenos Aires) y guarda en cada celda los ids de los
+ * partidos que caen dentro. Una búsqueda por radio solo revisa las celdas
+ * que cubre la caja del círculo.
+ */
+public class GrillaGeografica {
+
+    static final double TAMAÑO_CELDA = 0.05; // grados
+    private static final double KM_POR_GRADO_LATITUD = 111.32;
+
+    private final ConcurrentHashMap<Long, Set<Long>> celdas = new ConcurrentHashMap<>();
+
+    public void agregar(Long id, double latitud, double longitud) {
+        celdas.computeIfAbsent(clave(latitud, longitud), k -> ConcurrentHashMap.newKeySet()).add(id);
+    }
+
+    public void quitar(Long id, double latitud, double longitud) {
+        long clave = clave(latitud, longitud);
+        Set<Long> celda = celdas.get(clave);
+        if (celda != null) {
+            celda.remove(id);
+            if (celda.isEmpty()) {
+                celdas.remove(clave, celda);
+            }
+        }
+    }
+
+    public void limpiar() {
+        celdas.clear();
+    }
+
+    /**
+     * Ids de las celdas que tocan la caja del círculo. Puede incluir puntos
+     * fuera del radio: el llamador filtra con la distancia real.
+     */
+    public List<Long> candidatosEnRadio(double latitud, double longitud, double radioKm) {
+        double[] caja = cajaDelRadio(latitud, longitud, radioKm);
+        int filaMin = indice(caja[0]);
+        int filaMax = indice(caja[1]);
+        int columnaMin = indice(caja[2]);
+        int columnaMax = indice(caja[3]);
+
+        List<Long> ids = new ArrayList<>();
+        for (int fila = filaMin; fila <= filaMax; fila++) {
+            for (int columna = columnaMin; columna <= columnaMax; columna++) {
+                Set<Long> celda = celdas.getOrDefault(empaquetar(fila, columna), Collections.emptySet());
+                ids.addAll(celda);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Caja que contiene el círculo: {latMin, latMax, lonMin, lonMax}
+     */
+    public static double[] cajaDelRadio(double latitud, double longitud, double radioKm) {
+        double deltaLat = radioKm / KM_POR_GRADO_LATITUD;
+        double cosLat = Math.max(0.01, Math.cos(Math.toRadians(latitud)));
+        double deltaLon = radioKm / (KM_POR_GRADO_LATITUD * cosLat);
+        return new double[]{latitud - deltaLat, latitud + deltaLat, longitud - deltaLon, longitud + deltaLon};
+    }
+
+    // ===== MÉTODOS AUXILIARES =====
+
+    private static int indice(double grados) {
+        return (int) Math.floor(grados / TAMAÑO_CELDA);
+    }
+
+    private static long clave(double latitud, double longitud) {
+        return empaquetar(indice(latitud), indice(longitud));
+    }
+
+    private static long empaquetar(int fila, int columna) {
+        return ((long) fila << 32) | (columna & 0xffffffffL);
+    }
+}
@@ -0,0 +1,438 @@
+package com.uade.tpo.deportes.service.partido;
+
+import com.uade.tpo.deportes.entity.Deporte;
+import com.uade.tpo.deportes.entity.Partido;
+import com.uade.tpo.deportes.entity.Ubicacion;
+import com.uade.tpo.deportes.entity.Usuario;
+import com.uade.tpo.deportes.enums.NivelJuego;
+import com.uade.tpo.deportes.repository.PartidoRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Collectors;
+
+/**
+ * 🗂️ ÍNDICE EN MEMORIA DE PARTIDOS ABIERTOS
+ *
+ * Mantiene una foto liviana de cada partido futuro que todavía no empezó,
+ * indexada por deporte, zona y día (bucket de horario). Se carga al arrancar
+ * y se actualiza desde los mismos puntos que disparan EventoPartido, de modo
+ * que la búsqueda resuelve los candidatos sin consultar la base.
+ * Los partidos con coordenadas también se guardan en una GrillaGeografica
+ * para la búsqueda por radio.
+ *
+ * Cada entrada guarda además lo que leen las estrategias al puntuar
+ * (deporte, ubicación, niveles de organizador y participantes), así la
+ * búsqueda puntúa sobre instantáneas y solo hidrata desde la base la página.
+ */
+@Component
+public class IndicePartidosAbiertos {
+
+    private static final Set<String> ESTADOS_CERRADOS = Set.of("EN_JUEGO", "FINALIZADO", "CANCELADO");
+
+    @Autowired
+    private PartidoRepository partidoRepository;
+
+    @Value("${unomas.busqueda.indice-memoria.enabled:true}")
+    private boolean habilitado;
+
+    private final ConcurrentHashMap<Long, EntradaPartido> porId = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Set<Long>> porDeporte = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Set<Long>> porZona = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<LocalDate, Set<Long>> porDia = new ConcurrentSkipListMap<>();
+    private final GrillaGeografica grilla = new GrillaGeografica();
+
+    private volatile boolean cargado = false;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void cargarAlIniciar() {
+        if (!habilitado) {
+            System.out.println("🗂️ Índice de partidos abiertos deshabilitado en configuración");
+            return;
+        }
+        reconstruir();
+    }
+
+    /**
+     * Vuelve a cargar el índice completo desde la base
+     */
+    @Transactional(readOnly = true)
+    public synchronized int reconstruir() {
+        long inicio = System.currentTimeMillis();
+        cargado = false;
+        porId.clear();
+        porDeporte.clear();
+        porZona.clear();
+        porDia.clear();
+        grilla.limpiar();
+
+        List<Partido> abiertos = partidoRepository.findPartidosAbiertos(LocalDateTime.now());
+        abiertos.forEach(p -> indexar(EntradaPartido.de(p)));
+        cargado = true;
+
+        System.out.println("🗂️ Índice de partidos abiertos cargado: " + porId.size() + " partidos en " +
+                (System.currentTimeMillis() - inicio) + " ms");
+        return porId.size();
+    }
+
+    public boolean estaDisponible() {
+        return habilitado && cargado;
+    }
+
+    /**
+     * Registra o actualiza un partido. Si hay una transacción activa el cambio
+     * se aplica recién después del commit, para no indexar datos que se revierten.
+     */
+    public void actualizar(Partido partido) {
+        if (!habilitado || partido.getId() == null) {
+            return;
+        }
+        EntradaPartido entrada = EntradaPartido.de(partido);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    aplicar(entrada);
+                }
+            });
+        } else {
+            aplicar(entrada);
+        }
+    }
+
+    /**
+     * Saca partidos que se cerraron con un UPDATE masivo (sin entidad a mano).
+     * Igual que actualizar, con transacción activa se aplica después del commit.
+     */
+    public void quitar(Collection<Long> partidoIds) {
+        if (!habilitado || partidoIds.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(partidoIds);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    quitarAhora(ids);
+                }
+            });
+        } else {
+            quitarAhora(ids);
+        }
+    }
+
+    private synchronized void quitarAhora(List<Long> ids) {
+        ids.forEach(this::desindexar);
+    }
+
+    private synchronized void aplicar(EntradaPartido entrada) {
+        desindexar(entrada.id);
+        if (!ESTADOS_CERRADOS.contains(entrada.estado) && entrada.horario.isAfter(LocalDateTime.now())) {
+            indexar(entrada);
+        }
+    }
+
+    /**
+     * Ids de los partidos candidatos, ordenados por (horario, id)
+     *
+     * @param soloNecesitamosJugadores true para quedarse solo con partidos en NECESITAMOS_JUGADORES
+     * @param usuarioExcluido si no es null, descarta partidos donde ya participa
+     */
+    public List<Long> buscarCandidatos(Long deporteId, String zona, boolean soloNecesitamosJugadores,
+                                       Long usuarioExcluido, LocalDateTime ahora) {
+        purgarDiasPasados(ahora.toLocalDate());
+
+        Set<Long> base;
+        if (deporteId != null) {
+            base = porDeporte.getOrDefault(deporteId, Collections.emptySet());
+        } else if (zona != null) {
+            base = porZona.getOrDefault(normalizarZona(zona), Collections.emptySet());
+        } else {
+            base = porId.keySet();
+        }
+
+        List<EntradaPartido> candidatos = new ArrayList<>();
+        for (Long id : base) {
+            EntradaPartido e = porId.get(id);
+            if (e == null || !e.horario.isAfter(ahora) || !e.tieneCupo()) {
+                continue;
+            }
+            if (deporteId != null && !deporteId.equals(e.deporteId)) {
+                continue;
+            }
+            if (deporteId == null && zona != null && !normalizarZona(zona).equals(e.zona)) {
+                continue;
+            }
+            if (soloNecesitamosJugadores && !"NECESITAMOS_JUGADORES".equals(e.estado)) {
+                continue;
+            }
+            if (usuarioExcluido != null && e.participanteIds.contains(usuarioExcluido)) {
+                continue;
+            }
+            candidatos.add(e);
+        }
+
+        candidatos.sort(Comparator.comparing((EntradaPartido e) -> e.horario).thenComparing(e -> e.id));
+        return candidatos.stream().map(e -> e.id).collect(Collectors.toList());
+    }
+
+    /**
+     * Instantáneas de los partidos pedidos, como Partido transitorios (no gestionados
+     * por JPA) con lo necesario para filtrar y puntuar. Si el usuario participa de
+     * alguno, en la lista de participantes va su propia instancia, igual que al
+     * cargarlo de la base. Los ids que ya no están en el índice se omiten.
+     */
+    public List<Partido> instantaneas(List<Long> ids, Usuario usuario) {
+        List<Partido> partidos = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            EntradaPartido e = porId.get(id);
+            if (e != null) {
+                partidos.add(e.aPartido(usuario));
+            }
+        }
+        return partidos;
+    }
+
+    /**
+     * Ids de los partidos con coordenadas dentro del radio, ordenados por
+     * distancia real (Haversine) y luego por id. El valor es la distancia en km.
+     */
+    public LinkedHashMap<Long, Double> buscarCercanos(double latitud, double longitud, double radioKm,
+                                                      Long deporteId, boolean soloNecesitamosJugadores,
+                                                      Long usuarioExcluido, LocalDateTime ahora) {
+        purgarDiasPasados(ahora.toLocalDate());
+
+        List<Map.Entry<Long, Double>> dentroDelRadio = new ArrayList<>();
+        for (Long id : grilla.candidatosEnRadio(latitud, longitud, radioKm)) {
+            EntradaPartido e = porId.get(id);
+            if (e == null || e.latitud == null || !e.horario.isAfter(ahora) || !e.tieneCupo()) {
+                continue;
+            }
+            if (deporteId != null && !deporteId.equals(e.deporteId)) {
+                continue;
+            }
+            if (soloNecesitamosJugadores && !"NECESITAMOS_JUGADORES".equals(e.estado)) {
+                continue;
+            }
+            if (usuarioExcluido != null && e.participanteIds.contains(usuarioExcluido)) {
+                continue;
+            }
+            double distancia = Ubicacion.distanciaKm(latitud, longitud, e.latitud, e.longitud);
+            if (distancia <= radioKm) {
+                dentroDelRadio.add(Map.entry(e.id, distancia));
+            }
+        }
+
+        dentroDelRadio.sort(Map.Entry.<Long, Double>comparingByValue().thenComparing(Map.Entry.comparingByKey()));
+        LinkedHashMap<Long, Double> resultado = new LinkedHashMap<>();
+        dentroDelRadio.forEach(entry -> resultado.put(entry.getKey(), entry.getValue()));
+        return resultado;
+    }
+
+    /**
+     * Compara el índice con la base: partidos faltantes, sobrantes y desactualizados
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> verificarConsistencia() {
+        LocalDateTime ahora = LocalDateTime.now();
+        Map<Long, Object[]> enBase = new HashMap<>();
+        for (Object[] fila : partidoRepository.findResumenPartidosAbiertos(ahora)) {
+            enBase.put((Long) fila[0], fila);
+        }
+
+        Set<Long> enIndice = porId.values().stream()
+                .filter(e -> e.horario.isAfter(ahora))
+                .map(e -> e.id)
+                .collect(Collectors.toSet());
+
+        Set<Long> faltantes = new HashSet<>(enBase.keySet());
+        faltantes.removeAll(enIndice);
+        Set<Long> sobrantes = new HashSet<>(enIndice);
+        sobrantes.removeAll(enBase.keySet());
+
+        Set<Long> desactualizados = new HashSet<>();
+        enBase.forEach((id, fila) -> {
+            EntradaPartido e = porId.get(id);
+            if (e != null && (!e.estado.equals(fila[1]) ||
+                    e.participanteIds.size() != ((Number) fila[2]).intValue())) {
+                desactualizados.add(id);
+            }
+        });
+
+        Map<String, Object> resultado = new LinkedHashMap<>();
+        resultado.put("habilitado", habilitado);
+        resultado.put("cargado", cargado);
+        resultado.put("partidosEnBase", enBase.size());
+        resultado.put("partidosEnIndice", enIndice.size());
+        resultado.put("faltantes", faltantes);
+        resultado.put("sobrantes", sobrantes);
+        resultado.put("desactualizados", desactualizados);
+        resultado.put("consistente", faltantes.isEmpty() && sobrantes.isEmpty() && desactualizados.isEmpty());
+        resultado.put("timestamp", System.currentTimeMillis());
+        return resultado;
+    }
+
+    // ===== MÉTODOS AUXILIARES =====
+
+    private void indexar(EntradaPartido e) {
+        porId.put(e.id, e);
+        if (e.deporteId != null) {
+            porDeporte.computeIfAbsent(e.deporteId, k -> ConcurrentHashMap.newKeySet()).add(e.id);
+        }
+        if (e.zona != null) {
+            porZona.computeIfAbsent(e.zona, k -> ConcurrentHashMap.newKeySet()).add(e.id);
+        }
+        porDia.computeIfAbsent(e.horario.toLocalDate(), k -> ConcurrentHashMap.newKeySet()).add(e.id);
+        if (e.latitud != null) {
+            grilla.agregar(e.id, e.latitud, e.longitud);
+        }
+    }
+
+    private void desindexar(Long id) {
+        EntradaPartido anterior = porId.remove(id);
+        if (anterior == null) {
+            return;
+        }
+        if (anterior.deporteId != null) {
+            removerDeBucket(porDeporte, anterior.deporteId, id);
+        }
+        if (anterior.zona != null) {
+            removerDeBucket(porZona, anterior.zona, id);
+        }
+        removerDeBucket(porDia, anterior.horario.toLocalDate(), id);
+        if (anterior.latitud != null) {
+            grilla.quitar(id, anterior.latitud, anterior.longitud);
+        }
+    }
+
+    private <K> void removerDeBucket(Map<K, Set<Long>> mapa, K clave, Long id) {
+        Set<Long> bucket = mapa.get(clave);
+        if (bucket != null) {
+            bucket.remove(id);
+            if (bucket.isEmpty()) {
+                mapa.remove(clave, bucket);
+            }
+        }
+    }
+
+    private void purgarDiasPasados(LocalDate hoy) {
+        if (porDia.isEmpty() || !porDia.firstKey().isBefore(hoy)) {
+            return;
+        }
+        synchronized (this) {
+            List<Long> vencidos = new ArrayList<>();
+            porDia.headMap(hoy).values().forEach(vencidos::addAll);
+            vencidos.forEach(this::desindexar);
+        }
+    }
+
+    /**
+     * La misma normalización que guarda Ubicacion en zona_normalizada
+     */
+    public static String normalizarZona(String zona) {
+        return Ubicacion.normalizarZona(zona);
+    }
+
+    /**
+     * Foto inmutable de los datos del partido que necesita la búsqueda
+     */
+    private static final class EntradaPartido {
+        private final Long id;
+        private final Long deporteId;
+        private final String deporteNombre;
+        private final String zona;            // normalizada, para los buckets
+        private final String zonaOriginal;    // tal cual, para las estrategias
+        private final String direccion;
+        private final LocalDateTime horario;
+        private final Integer duracion;
+        private final int cantidadJugadoresRequeridos;
+        private final Set<Long> participanteIds;
+        private final long[] participantesOrden;      // ids en el orden de la lista
+        private final NivelJuego[] nivelesParticipantes;
+        private final Long organizadorId;
+        private final NivelJuego nivelOrganizador;
+        private final String estado;
+        private final String estrategia;
+        private final Double latitud;  // null si la ubicación no tiene coordenadas
+        private final Double longitud;
+
+        private EntradaPartido(Partido partido) {
+            List<Usuario> participantes = partido.getParticipantes() == null ? List.of() : partido.getParticipantes();
+            Ubicacion ubicacion = partido.getUbicacion();
+            boolean conCoordenadas = ubicacion != null && ubicacion.getLatitud() != null && ubicacion.getLongitud() != null;
+
+            this.id = partido.getId();
+            this.deporteId = partido.getDeporte() != null ? partido.getDeporte().getId() : null;
+            this.deporteNombre = partido.getDeporte() != null ? partido.getDeporte().getNombre() : null;
+            this.zonaOriginal = ubicacion != null ? ubicacion.getZona() : null;
+            this.zona = normalizarZona(zonaOriginal);
+            this.direccion = ubicacion != null ? ubicacion.getDireccion() : null;
+            this.horario = partido.getHorario();
+            this.duracion = partido.getDuracion();
+            this.cantidadJugadoresRequeridos = partido.getCantidadJugadoresRequeridos();
+            this.participanteIds = participantes.stream().map(Usuario::getId).collect(Collectors.toUnmodifiableSet());
+            this.participantesOrden = participantes.stream().mapToLong(Usuario::getId).toArray();
+            this.nivelesParticipantes = participantes.stream().map(Usuario::getNivelJuego).toArray(NivelJuego[]::new);
+            this.organizadorId = partido.getOrganizador() != null ? partido.getOrganizador().getId() : null;
+            this.nivelOrganizador = partido.getOrganizador() != null ? partido.getOrganizador().getNivelJuego() : null;
+            this.estado = partido.getEstadoActual();
+            this.estrategia = partido.getEstrategiaActual();
+            this.latitud = conCoordenadas ? ubicacion.getLatitud() : null;
+            this.longitud = conCoordenadas ? ubicacion.getLongitud() : null;
+        }
+
+        static EntradaPartido de(Partido partido) {
+            return new EntradaPartido(partido);
+        }
+
+        boolean tieneCupo() {
+            return participanteIds.size() < cantidadJugadoresRequeridos;
+        }
+
+        Partido aPartido(Usuario usuario) {
+            List<Usuario> participantes = new ArrayList<>(participantesOrden.length);
+            for (int i = 0; i < participantesOrden.length; i++) {
+                participantes.add(usuario != null && usuario.getId() != null && usuario.getId() == participantesOrden[i]
+                        ? usuario
+                        : Usuario.builder().id(participantesOrden[i]).nivelJuego(nivelesParticipantes[i]).build());
+            }
+            Usuario organizador = usuario != null && usuario.getId() != null && usuario.getId().equals(organizadorId)
+                    ? usuario
+                    : Usuario.builder().id(organizadorId).nivelJuego(nivelOrganizador).build();
+            return Partido.builder()
+                    .id(id)
+                    .deporte(Deporte.builder().id(deporteId).nombre(deporteNombre).build())
+                    .ubicacion(Ubicacion.builder().direccion(direccion).zona(zonaOriginal)
+                            .latitud(latitud).longitud(longitud).build())
+                    .horario(horario)
+                    .duracion(duracion)
+                    .cantidadJugadoresRequeridos(cantidadJugadoresRequeridos)
+                    .organizador(organizador)
+                    .participantes(participantes)
+                    .estadoActual(estado)
+                    .estrategiaActual(estrategia)
+                    .build();
+        }
+    }
+}
@@ -12,9 +12,14 @@ public interface PartidoService {
     PartidoResponse crearPartido(String emailOrganizador, CrearPartidoRequest request);
     PartidoResponse obtenerPartido(Long partidoId);
     List<PartidoResponse> obtenerPartidosDelUsuario(String email);
+    List<PartidoResumenResponse> obtenerResumenPartidosDelUsuario(String email);
+    PartidoCursorResponse obtenerPartidosDelUsuarioPorCursor(String email, String filtro, String cursor, int tamañoPagina);
     
     // Funcionalidad principal
     Page<PartidoResponse> buscarPartidos(String emailUsuario, CriteriosBusqueda criterios, Pageable pageable);
+    Page<PartidoResumenResponse> buscarPartidosResumen(String emailUsuario, CriteriosBusqueda criterios, Pageable pageable);
+    Page<PartidoResponse> buscarPartidosCercanos(String emailUsuario, CriteriosBusqueda criterios, Pageable pageable);
+    PartidoCursorResponse buscarPartidosPorCursor(String emailUsuario, CriteriosBusqueda criterios, int tamañoPagina);
     MessageResponse unirseAPartido(String emailUsuario, Long partidoId);
     MessageResponse cambiarEstadoPartido(String emailOrganizador, Long partidoId, CambiarEstadoPartidoRequest request);
     
@@ -26,4 +31,5 @@ public interface PartidoService {
     void procesarTransicionesAutomaticas();
 
     List<PartidoResponse> buscarTodosParaAdmin();
+    List<PartidoResumenResponse> buscarTodosResumenParaAdmin();
 }
\ No newline at end of file
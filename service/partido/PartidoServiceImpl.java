@@ -7,17 +7,22 @@ import com.uade.tpo.deportes.entity.Ubicacion;
 import com.uade.tpo.deportes.entity.Usuario;
 import com.uade.tpo.deportes.exceptions.PartidoNoEncontradoException;
 import com.uade.tpo.deportes.exceptions.UsuarioNoAutorizadoException;
-import com.uade.tpo.deportes.patterns.observer.NotificadorObserver;
+import com.uade.tpo.deportes.patterns.observer.OutboxObserver;
 import com.uade.tpo.deportes.patterns.state.*;
 import com.uade.tpo.deportes.patterns.strategy.*;
 import com.uade.tpo.deportes.repository.DeporteRepository;
 import com.uade.tpo.deportes.repository.PartidoRepository;
 import com.uade.tpo.deportes.repository.UbicacionRepository;
+import com.uade.tpo.deportes.service.historial.PerfilHistorialService;
+import com.uade.tpo.deportes.service.scheduler.PlanificadorTransiciones;
+import com.uade.tpo.deportes.service.scheduler.TransicionesMasivasService;
 import com.uade.tpo.deportes.service.usuario.UsuarioService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -26,12 +31,11 @@ import com.uade.tpo.deportes.service.comentarios.ComentarioService;
 import com.uade.tpo.deportes.service.confirmacion.ConfirmacionService;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
-import com.uade.tpo.deportes.service.partido.NotificacionAsyncService;
 import com.uade.tpo.deportes.enums.NivelJuego;
 import com.uade.tpo.deportes.enums.EventoPartido;
 
@@ -56,7 +60,7 @@ public class PartidoServiceImpl implements PartidoService {
     private UsuarioService usuarioService;
     
     @Autowired
-    private NotificadorObserver notificadorObserver;
+    private OutboxObserver outboxObserver;
     
     @Autowired
     private EmparejamientoPorNivelStrategy emparejamientoPorNivel;
@@ -66,8 +70,23 @@ public class PartidoServiceImpl implements PartidoService {
     
     @Autowired
     private EmparejamientoPorHistorialStrategy emparejamientoPorHistorial;
-     @Autowired
-    private NotificacionAsyncService notificacionAsyncService;
+    @Autowired
+    private PuntuadorCompatibilidad puntuadorCompatibilidad;
+
+    @Autowired
+    private IndicePartidosAbiertos indicePartidosAbiertos;
+
+    @Autowired
+    private PlanificadorTransiciones planificadorTransiciones;
+
+    @Autowired
+    private TransicionesMasivasService transicionesMasivas;
+
+    @Autowired
+    private PerfilHistorialService perfilHistorialService;
+
+    @Value("${unomas.busqueda.cercania.radio-maximo-km:50}")
+    private double radioMaximoKm;
     @Override
     @Transactional
     public PartidoResponse crearPartido(String emailOrganizador, CrearPartidoRequest request) {
@@ -126,6 +145,9 @@ public class PartidoServiceImpl implements PartidoService {
         
         // Guardar partido
         partidoRepository.save(partido);
+        indicePartidosAbiertos.actualizar(partido);
+        planificadorTransiciones.actualizar(partido);
+        perfilHistorialService.registrarCreacion(partido);
         
         System.out.println("💾 Partido guardado con ID: " + partido.getId());
         
@@ -133,10 +155,8 @@ public class PartidoServiceImpl implements PartidoService {
         System.out.println("🔌 Reconectando observers después de guardar...");
         reconectarObservers(partido);
         
-        // Dejar solo la notificación asíncrona
-        System.out.println("🔔 Llamando a notificacionAsyncService.notificarCreacionPartido()...");
-        notificacionAsyncService.notificarCreacionPartido(partido);
-        System.out.println("✅ notificacionAsyncService.notificarCreacionPartido() llamado");
+        // El evento queda en el outbox; se notifica recién después del commit
+        partido.notificarObservers(EventoPartido.PARTIDO_CREADO);
         
         // Responder al usuario inmediatamente
         return mapearAResponse(partido, organizador);
@@ -144,7 +164,8 @@ public class PartidoServiceImpl implements PartidoService {
 
     @Override
     public PartidoResponse obtenerPartido(Long partidoId) {
-        Partido partido = obtenerPartidoPorId(partidoId);
+        Partido partido = partidoRepository.findConDetalleById(partidoId)
+                .orElseThrow(() -> new PartidoNoEncontradoException("Partido no encontrado con ID: " + partidoId));
         return mapearAResponse(partido, null);
     }
 
@@ -152,61 +173,201 @@ public class PartidoServiceImpl implements PartidoService {
     public List<PartidoResponse> obtenerPartidosDelUsuario(String email) {
         Usuario usuario = usuarioService.obtenerUsuarioPorEmail(email);
         
-        List<Partido> partidosOrganizados = partidoRepository.findByOrganizador(usuario);
-        List<Partido> partidosJugados = partidoRepository.findPartidosConJugador(usuario);
-        
-        // Combinar y eliminar duplicados
-        List<Partido> todosLosPartidos = new ArrayList<>(partidosOrganizados);
-        partidosJugados.forEach(p -> {
-            if (!todosLosPartidos.contains(p)) {
-                todosLosPartidos.add(p);
-            }
-        });
+        // Organizados + jugados en una sola consulta, con el plan de carga de la lista
+        List<Partido> todosLosPartidos = partidoRepository.findListaDelUsuario(usuario);
         
         return todosLosPartidos.stream()
                 .map(p -> mapearAResponse(p, usuario))
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Mis partidos paginados por cursor (horario, id).
+     * PROXIMOS: desde ahora en orden ascendente. PASADOS: hasta ahora en orden
+     * descendente. TODOS: del más nuevo al más viejo.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public PartidoCursorResponse obtenerPartidosDelUsuarioPorCursor(String email, String filtro, String cursor, int tamañoPagina) {
+        Usuario usuario = usuarioService.obtenerUsuarioPorEmail(email);
+        int tamaño = Math.max(1, Math.min(tamañoPagina, TAMAÑO_MAXIMO_PAGINA_CURSOR));
+        String filtroNormalizado = filtro == null ? "TODOS" : filtro.trim().toUpperCase();
+        CursorPartido desde = CursorPartido.decodificar(cursor);
+        LocalDateTime ahora = LocalDateTime.now();
+        PageRequest limite = PageRequest.of(0, tamaño + 1);
+
+        List<Long> ids;
+        switch (filtroNormalizado) {
+            case "PROXIMOS":
+                ids = desde != null
+                        ? partidoRepository.findIdsDelUsuarioPosteriores(usuario, desde.getHorario(), desde.getId(), limite)
+                        : partidoRepository.findIdsDelUsuarioPosteriores(usuario, ahora, 0L, limite);
+                break;
+            case "PASADOS":
+                ids = desde != null
+                        ? partidoRepository.findIdsDelUsuarioAnteriores(usuario, desde.getHorario(), desde.getId(), limite)
+                        : partidoRepository.findIdsDelUsuarioAnteriores(usuario, ahora, 0L, limite);
+                break;
+            case "TODOS":
+                ids = desde != null
+                        ? partidoRepository.findIdsDelUsuarioAnteriores(usuario, desde.getHorario(), desde.getId(), limite)
+                        : partidoRepository.findIdsDelUsuarioAnteriores(usuario, HORARIO_MAXIMO_CURSOR, Long.MAX_VALUE, limite);
+                break;
+            default:
+                throw new IllegalArgumentException("Filtro inválido: " + filtro + " (PROXIMOS, PASADOS o TODOS)");
+        }
+
+        boolean hayMas = ids.size() > tamaño;
+        List<Long> idsPagina = hayMas ? ids.subList(0, tamaño) : ids;
+        List<Partido> pagina = ordenarPorIds(
+                idsPagina.isEmpty() ? new ArrayList<>() : partidoRepository.findListaByIdIn(idsPagina),
+                idsPagina);
+
+        List<PartidoResponse> responses = pagina.stream()
+                .map(p -> mapearAResponse(p, usuario))
+                .collect(Collectors.toList());
+
+        return PartidoCursorResponse.builder()
+                .partidos(responses)
+                .siguienteCursor(hayMas && !pagina.isEmpty() ? CursorPartido.de(pagina.get(pagina.size() - 1)).codificar() : null)
+                .hayMas(hayMas)
+                .tamañoPagina(tamaño)
+                .build();
+    }
+
+    @Override
+    public List<PartidoResumenResponse> obtenerResumenPartidosDelUsuario(String email) {
+        Usuario usuario = usuarioService.obtenerUsuarioPorEmail(email);
+        return partidoRepository.findResumenDelUsuario(usuario);
+    }
+
 @Override
 public Page<PartidoResponse> buscarPartidos(String emailUsuario, CriteriosBusqueda criterios, Pageable pageable) {
     Usuario usuario = usuarioService.obtenerUsuarioPorEmail(emailUsuario);
-    
+    return puntuarBusqueda(usuario, criterios, pageable)
+            .map(pp -> mapearAResponseConCompatibilidad(pp.getPartido(), usuario, pp.getCompatibilidad()));
+}
+
+@Override
+public Page<PartidoResumenResponse> buscarPartidosResumen(String emailUsuario, CriteriosBusqueda criterios, Pageable pageable) {
+    Usuario usuario = usuarioService.obtenerUsuarioPorEmail(emailUsuario);
+    return puntuarBusqueda(usuario, criterios, pageable)
+            .map(pp -> mapearAResumen(pp.getPartido(), pp.getCompatibilidad()));
+}
+
+private Page<PuntuadorCompatibilidad.PartidoPuntuado> puntuarBusqueda(Usuario usuario, CriteriosBusqueda criterios, Pageable pageable) {
     System.out.println("🔍 === BÚSQUEDA INTELIGENTE INICIADA ===");
     System.out.println("👤 Usuario: " + usuario.getNombreUsuario() + " (Nivel: " + usuario.getNivelJuego() + ")");
     
-    // ⚡ PASO 1: Obtener partidos candidatos
-    List<Partido> partidos = obtenerPartidosCandidatos(usuario, criterios);
+    // ⚡ PASO 1: Obtener partidos candidatos (instantáneas del índice en memoria si está cargado)
+    boolean desdeIndice = indicePartidosAbiertos.estaDisponible();
+    List<Partido> partidos = desdeIndice
+            ? obtenerCandidatosDesdeIndice(usuario, criterios)
+            : obtenerPartidosCandidatos(usuario, criterios);
     System.out.println("📊 Partidos candidatos encontrados: " + partidos.size());
     
     // ⚡ PASO 2: Aplicar filtros
     partidos = aplicarFiltrosInteligentes(partidos, criterios);
     System.out.println("🔧 Partidos después de filtros: " + partidos.size());
     
-    // ⚡ PASO 3: Configurar estrategias y calcular compatibilidad
+    // ⚡ PASO 3: Configurar estrategias
     partidos.forEach(p -> {
         configurarEstrategiaInterna(p, p.getEstrategiaActual());
     });
     
-    // ⚡ PASO 4: Ordenar por compatibilidad
-    partidos = ordenarPartidosPorCompatibilidad(partidos, criterios, usuario);
-    
-    // ⚡ PASO 5: Convertir a responses
-    List<PartidoResponse> responses = partidos.stream()
-            .map(p -> mapearAResponseConCompatibilidad(p, usuario))
-            .collect(Collectors.toList());
-    
-    // ⚡ PASO 6: Paginación
-    int start = (int) pageable.getOffset();
-    int end = Math.min((start + pageable.getPageSize()), responses.size());
-    List<PartidoResponse> pageContent = responses.subList(start, end);
+    // ⚡ PASO 4: Puntuar cada candidato una sola vez y quedarse con la página (top-K)
+    List<PuntuadorCompatibilidad.PartidoPuntuado> pagina = puntuadorCompatibilidad.seleccionarPagina(
+            usuario, partidos, (int) pageable.getOffset(), pageable.getPageSize());
+    if (desdeIndice) {
+        pagina = hidratarPagina(pagina);
+    }
     
-    System.out.println("📄 Página devuelta: " + pageContent.size() + " partidos");
+    System.out.println("📄 Página devuelta: " + pagina.size() + " partidos");
     System.out.println("🔍 === BÚSQUEDA COMPLETADA ===\n");
     
-    return new PageImpl<>(pageContent, pageable, responses.size());
+    // ⚡ PASO 5: El llamador convierte a response solo la página
+    return new PageImpl<>(pagina, pageable, partidos.size());
 }
 
+    @Override
+    public Page<PartidoResponse> buscarPartidosCercanos(String emailUsuario, CriteriosBusqueda criterios, Pageable pageable) {
+        if (criterios.getLatitud() == null || criterios.getLongitud() == null || criterios.getRadioKm() == null) {
+            throw new IllegalArgumentException("La búsqueda por cercanía requiere latitud, longitud y radioKm");
+        }
+        if (criterios.getRadioKm() <= 0 || criterios.getRadioKm() > radioMaximoKm) {
+            throw new IllegalArgumentException("El radio debe estar entre 0 y " + radioMaximoKm + " km");
+        }
+
+        Usuario usuario = usuarioService.obtenerUsuarioPorEmail(emailUsuario);
+        double latitud = criterios.getLatitud();
+        double longitud = criterios.getLongitud();
+        double radioKm = criterios.getRadioKm();
+        boolean incluirTodos = Boolean.TRUE.equals(criterios.getIncluirTodos());
+        LocalDateTime ahora = LocalDateTime.now();
+
+        System.out.println("📍 Búsqueda por cercanía: (" + latitud + ", " + longitud + ") radio " + radioKm + " km");
+
+        // ⚡ PASO 1: ids dentro del radio, ordenados por distancia real
+        LinkedHashMap<Long, Double> distancias;
+        if (indicePartidosAbiertos.estaDisponible()) {
+            distancias = indicePartidosAbiertos.buscarCercanos(latitud, longitud, radioKm,
+                    criterios.getDeporteId(), !incluirTodos, incluirTodos ? null : usuario.getId(), ahora);
+        } else {
+            distancias = buscarCercanosEnBase(usuario, criterios, incluirTodos, ahora);
+        }
+        System.out.println("📍 Partidos dentro del radio: " + distancias.size());
+
+        // ⚡ PASO 2: recortar la página antes de hidratar y puntuar
+        List<Long> ids = new ArrayList<>(distancias.keySet());
+        int desde = (int) Math.min(pageable.getOffset(), ids.size());
+        int hasta = Math.min(desde + pageable.getPageSize(), ids.size());
+        List<Long> idsPagina = ids.subList(desde, hasta);
+
+        List<Partido> pagina = ordenarPorIds(
+                idsPagina.isEmpty() ? new ArrayList<>() : partidoRepository.findParaBusquedaByIdIn(idsPagina),
+                idsPagina);
+
+        // ⚡ PASO 3: puntuar solo los partidos cercanos de la página
+        pagina.forEach(p -> configurarEstrategiaInterna(p, p.getEstrategiaActual()));
+        double[] compatibilidades = puntuadorCompatibilidad.puntuarTodos(usuario, pagina);
+
+        List<PartidoResponse> responses = new ArrayList<>(pagina.size());
+        for (int i = 0; i < pagina.size(); i++) {
+            PartidoResponse response = mapearAResponseConCompatibilidad(pagina.get(i), usuario, compatibilidades[i]);
+            response.setDistanciaKm(distancias.get(pagina.get(i).getId()));
+            responses.add(response);
+        }
+        return new PageImpl<>(responses, pageable, ids.size());
+    }
+
+    /**
+     * Fallback sin índice: la caja del radio se resuelve en la base y la distancia real en memoria
+     */
+    private LinkedHashMap<Long, Double> buscarCercanosEnBase(Usuario usuario, CriteriosBusqueda criterios,
+                                                             boolean incluirTodos, LocalDateTime ahora) {
+        double latitud = criterios.getLatitud();
+        double longitud = criterios.getLongitud();
+        double[] caja = GrillaGeografica.cajaDelRadio(latitud, longitud, criterios.getRadioKm());
+
+        List<Partido> enCaja = partidoRepository.findCandidatosEnCaja(usuario,
+                incluirTodos ? null : "NECESITAMOS_JUGADORES", criterios.getDeporteId(), incluirTodos, ahora,
+                caja[0], caja[1], caja[2], caja[3]);
+
+        List<Map.Entry<Long, Double>> dentroDelRadio = new ArrayList<>();
+        for (Partido p : enCaja) {
+            double distancia = Ubicacion.distanciaKm(latitud, longitud,
+                    p.getUbicacion().getLatitud(), p.getUbicacion().getLongitud());
+            if (distancia <= criterios.getRadioKm()) {
+                dentroDelRadio.add(Map.entry(p.getId(), distancia));
+            }
+        }
+        dentroDelRadio.sort(Map.Entry.<Long, Double>comparingByValue().thenComparing(Map.Entry.comparingByKey()));
+
+        LinkedHashMap<Long, Double> resultado = new LinkedHashMap<>();
+        dentroDelRadio.forEach(e -> resultado.put(e.getKey(), e.getValue()));
+        return resultado;
+    }
+
 // 🎯 MÉTODOS AUXILIARES SIMPLIFICADOS
 
 private List<Partido> obtenerPartidosCandidatos(Usuario usuario, CriteriosBusqueda criterios) {
@@ -220,19 +381,66 @@ private List<Partido> obtenerPartidosCandidatos(Usuario usuario, CriteriosBusque
         System.out.println("🗺️ Búsqueda por zona: " + criterios.getZona());
         if (criterios.getIncluirTodos() != null && criterios.getIncluirTodos()) {
             // Nuevo: traer todos los partidos de la zona, sin filtrar por participación
-            return partidoRepository.findTodosPorZona(criterios.getZona(), ahora);
+            return partidoRepository.findTodosPorZona(IndicePartidosAbiertos.normalizarZona(criterios.getZona()), ahora);
         } else {
-            return partidoRepository.findPartidosDisponiblesPorZona(usuario, criterios.getZona(), ahora);
+            return partidoRepository.findPartidosDisponiblesPorZona(usuario,
+                    IndicePartidosAbiertos.normalizarZona(criterios.getZona()), ahora);
         }
     } else if (criterios.getIncluirTodos() != null && criterios.getIncluirTodos()) {
-        // Nuevo: si incluirTodos es true y no hay zona ni deporte, traer todos los partidos futuros
-        return partidoRepository.findPartidosFuturos(ahora);
+        // Nuevo: si incluirTodos es true y no hay zona ni deporte, traer todos los partidos abiertos
+        return partidoRepository.findPartidosAbiertos(ahora);
     } else {
         System.out.println("🌟 Búsqueda general");
         return partidoRepository.findPartidosDisponiblesParaUsuario(usuario, ahora);
     }
 }
 
+/**
+ * Mismos criterios que obtenerPartidosCandidatos, pero resueltos contra el índice en memoria.
+ * Devuelve instantáneas: filtrar y puntuar no consulta la base; solo la página se hidrata.
+ */
+private List<Partido> obtenerCandidatosDesdeIndice(Usuario usuario, CriteriosBusqueda criterios) {
+    LocalDateTime ahora = LocalDateTime.now();
+    boolean incluirTodos = Boolean.TRUE.equals(criterios.getIncluirTodos());
+    List<Long> ids;
+    if (criterios.getDeporteId() != null) {
+        ids = indicePartidosAbiertos.buscarCandidatos(criterios.getDeporteId(), null, true, usuario.getId(), ahora);
+    } else if (criterios.getZona() != null) {
+        ids = incluirTodos
+                ? indicePartidosAbiertos.buscarCandidatos(null, criterios.getZona(), false, null, ahora)
+                : indicePartidosAbiertos.buscarCandidatos(null, criterios.getZona(), true, usuario.getId(), ahora);
+    } else if (incluirTodos) {
+        ids = indicePartidosAbiertos.buscarCandidatos(null, null, false, null, ahora);
+    } else {
+        ids = indicePartidosAbiertos.buscarCandidatos(null, null, true, usuario.getId(), ahora);
+    }
+    System.out.println("🗂️ Candidatos resueltos desde el índice en memoria: " + ids.size());
+    return indicePartidosAbiertos.instantaneas(ids, usuario);
+}
+
+/**
+ * Reemplaza las instantáneas de la página por los partidos de la base (una consulta),
+ * conservando el orden y la compatibilidad ya calculada
+ */
+private List<PuntuadorCompatibilidad.PartidoPuntuado> hidratarPagina(List<PuntuadorCompatibilidad.PartidoPuntuado> pagina) {
+    if (pagina.isEmpty()) {
+        return pagina;
+    }
+    List<Long> ids = pagina.stream().map(pp -> pp.getPartido().getId()).collect(Collectors.toList());
+    Map<Long, Partido> porId = new HashMap<>();
+    partidoRepository.findParaBusquedaByIdIn(ids).forEach(p -> porId.put(p.getId(), p));
+
+    List<PuntuadorCompatibilidad.PartidoPuntuado> hidratada = new ArrayList<>(pagina.size());
+    for (PuntuadorCompatibilidad.PartidoPuntuado pp : pagina) {
+        Partido partido = porId.get(pp.getPartido().getId());
+        if (partido != null) {
+            configurarEstrategiaInterna(partido, partido.getEstrategiaActual());
+            hidratada.add(new PuntuadorCompatibilidad.PartidoPuntuado(partido, pp.getCompatibilidad()));
+        }
+    }
+    return hidratada;
+}
+
 private List<Partido> aplicarFiltrosInteligentes(List<Partido> partidos, CriteriosBusqueda criterios) {
     return partidos.stream()
         // Solo partidos disponibles
@@ -240,61 +448,9 @@ private List<Partido> aplicarFiltrosInteligentes(List<Partido> partidos, Criteri
         .collect(Collectors.toList());
 }
 
-private List<Partido> ordenarPartidosPorCompatibilidad(List<Partido> partidos, CriteriosBusqueda criterios, Usuario usuario) {
-    return partidos.stream()
-            .sorted((p1, p2) -> {
-                double compat1 = p1.getEstrategiaEmparejamiento() != null ? 
-                    p1.getEstrategiaEmparejamiento().calcularCompatibilidad(usuario, p1) : 0.0;
-                double compat2 = p2.getEstrategiaEmparejamiento() != null ? 
-                    p2.getEstrategiaEmparejamiento().calcularCompatibilidad(usuario, p2) : 0.0;
-                
-                // 🎯 BONUS POR DEPORTE FAVORITO
-                if (usuario.getDeporteFavorito() != null && 
-                    usuario.getDeporteFavorito().equals(p1.getDeporte().getNombre())) {
-                    compat1 += 0.1;
-                }
-                if (usuario.getDeporteFavorito() != null && 
-                    usuario.getDeporteFavorito().equals(p2.getDeporte().getNombre())) {
-                    compat2 += 0.1;
-                }
-                
-                return Double.compare(compat2, compat1); // Mayor compatibilidad primero
-            })
-            .collect(Collectors.toList());
-}
-
-private boolean esHorarioConveniente(LocalDateTime horario) {
-    int hora = horario.getHour();
-    int diaSemana = horario.getDayOfWeek().getValue();
-    
-    if (diaSemana <= 5) { // Lunes a Viernes
-        return hora >= 17 && hora <= 21;
-    } else { // Fin de semana
-        return hora >= 10 && hora <= 22;
-    }
-}
-
-private PartidoResponse mapearAResponseConCompatibilidad(Partido partido, Usuario usuario) {
+private PartidoResponse mapearAResponseConCompatibilidad(Partido partido, Usuario usuario, double compatibilidad) {
     boolean puedeUnirse = partido.puedeUnirse(usuario);
     
-    // Calcular compatibilidad final
-    double compatibilidad = 0.0;
-    if (partido.getEstrategiaEmparejamiento() != null) {
-        compatibilidad = partido.getEstrategiaEmparejamiento().calcularCompatibilidad(usuario, partido);
-    }
-    
-    // Aplicar mismos bonus que en ordenamiento
-    if (usuario.getDeporteFavorito() != null && 
-        usuario.getDeporteFavorito().equals(partido.getDeporte().getNombre())) {
-        compatibilidad += 0.1;
-    }
-    
-    if (esHorarioConveniente(partido.getHorario())) {
-        compatibilidad += 0.05;
-    }
-    
-    compatibilidad = Math.max(0.0, Math.min(1.0, compatibilidad));
-    
     return PartidoResponse.builder()
             .id(partido.getId())
             .deporte(mapearDeporteAResponse(partido.getDeporte()))
@@ -315,6 +471,76 @@ private PartidoResponse mapearAResponseConCompatibilidad(Partido partido, Usuari
             .build();
 }
 
+    private static final int TAMAÑO_MAXIMO_PAGINA_CURSOR = 50;
+    // LocalDateTime.MAX no entra en una columna TIMESTAMP: tope seguro para el primer cursor descendente
+    private static final LocalDateTime HORARIO_MAXIMO_CURSOR = LocalDateTime.of(9999, 12, 31, 23, 59);
+
+    private List<Partido> ordenarPorIds(List<Partido> partidos, List<Long> ids) {
+        Map<Long, Partido> porId = new HashMap<>();
+        partidos.forEach(p -> porId.put(p.getId(), p));
+        List<Partido> ordenados = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Partido partido = porId.get(id);
+            if (partido != null) {
+                ordenados.add(partido);
+            }
+        }
+        return ordenados;
+    }
+
+    /**
+     * Búsqueda paginada por cursor: filtros, cupo y orden (horario, id) se resuelven
+     * en la consulta, así que el costo depende del tamaño de página y no de la
+     * cantidad de partidos abiertos. La compatibilidad se calcula solo para la página.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public PartidoCursorResponse buscarPartidosPorCursor(String emailUsuario, CriteriosBusqueda criterios, int tamañoPagina) {
+        Usuario usuario = usuarioService.obtenerUsuarioPorEmail(emailUsuario);
+        int tamaño = Math.max(1, Math.min(tamañoPagina, TAMAÑO_MAXIMO_PAGINA_CURSOR));
+
+        CursorPartido cursor = CursorPartido.decodificar(criterios.getCursor());
+        LocalDateTime ahora = LocalDateTime.now();
+        boolean incluirTodos = Boolean.TRUE.equals(criterios.getIncluirTodos());
+        String estado = criterios.getEstado() != null ? criterios.getEstado()
+                : (incluirTodos ? null : "NECESITAMOS_JUGADORES");
+
+        // Primera página: (ahora, MAX) equivale a "horario > ahora"
+        LocalDateTime cursorHorario = cursor != null ? cursor.getHorario() : ahora;
+        Long cursorId = cursor != null ? cursor.getId() : Long.MAX_VALUE;
+
+        // Pedimos un elemento extra para saber si hay otra página
+        List<Long> ids = partidoRepository.buscarDisponiblesPorCursor(
+                usuario, estado, criterios.getDeporteId(),
+                criterios.getZona() != null ? IndicePartidosAbiertos.normalizarZona(criterios.getZona()) : null, incluirTodos,
+                ahora, cursorHorario, cursorId, PageRequest.of(0, tamaño + 1));
+
+        boolean hayMas = ids.size() > tamaño;
+        List<Long> idsPagina = hayMas ? ids.subList(0, tamaño) : ids;
+
+        // Hidratar la página con el plan de búsqueda, respetando el orden del keyset
+        List<Partido> pagina = ordenarPorIds(
+                idsPagina.isEmpty() ? new ArrayList<>() : partidoRepository.findParaBusquedaByIdIn(idsPagina),
+                idsPagina);
+
+        pagina.forEach(p -> configurarEstrategiaInterna(p, p.getEstrategiaActual()));
+        double[] compatibilidades = puntuadorCompatibilidad.puntuarTodos(usuario, pagina);
+
+        List<PartidoResponse> responses = new ArrayList<>(pagina.size());
+        for (int i = 0; i < pagina.size(); i++) {
+            responses.add(mapearAResponseConCompatibilidad(pagina.get(i), usuario, compatibilidades[i]));
+        }
+
+        System.out.println("📄 Búsqueda por cursor: " + responses.size() + " partidos (hay más: " + hayMas + ")");
+
+        return PartidoCursorResponse.builder()
+                .partidos(responses)
+                .siguienteCursor(hayMas && !pagina.isEmpty() ? CursorPartido.de(pagina.get(pagina.size() - 1)).codificar() : null)
+                .hayMas(hayMas)
+                .tamañoPagina(tamaño)
+                .build();
+    }
+
     @Override
 @Transactional
 public MessageResponse unirseAPartido(String emailUsuario, Long partidoId) {
@@ -347,6 +573,9 @@ public MessageResponse unirseAPartido(String emailUsuario, Long partidoId) {
         
         // Guardar cambios
         partidoRepository.save(partido);
+        indicePartidosAbiertos.actualizar(partido);
+        planificadorTransiciones.actualizar(partido);
+        perfilHistorialService.registrarUnion(usuario, partido);
         
         // ✅ NOTIFICAR que un jugador se unió
         partido.notificarObservers(EventoPartido.JUGADOR_UNIDO);
@@ -377,11 +606,11 @@ public MessageResponse unirseAPartido(String emailUsuario, Long partidoId) {
         // Cambiar estado
         partido.cambiarEstado(request.getNuevoEstado());
         partidoRepository.save(partido);
+        indicePartidosAbiertos.actualizar(partido);
+        planificadorTransiciones.actualizar(partido);
         
-        // ✅ NOTIFICAR CAMBIO DE ESTADO SOLO UNA VEZ
-        System.out.println("🔔 Estado cambió de " + estadoAnterior + " → " + request.getNuevoEstado() + 
-                          " - Disparando notificaciones");
-        notificacionAsyncService.notificarCreacionPartido(partido);
+        // cambiarEstado ya dejó el evento en el outbox
+        System.out.println("🔔 Estado cambió de " + estadoAnterior + " → " + request.getNuevoEstado());
     
         // Acciones adicionales por estado
         if ("PARTIDO_ARMADO".equals(request.getNuevoEstado())) {
@@ -389,6 +618,7 @@ public MessageResponse unirseAPartido(String emailUsuario, Long partidoId) {
         }
         if ("FINALIZADO".equals(request.getNuevoEstado())) {
             comentarioService.generarEstadisticasAlFinalizar(partido);
+            perfilHistorialService.registrarFinalizacion(partido);
         }
         
         return MessageResponse.success("Estado del partido actualizado a: " + request.getNuevoEstado());
@@ -412,8 +642,8 @@ private void reconectarObservers(Partido partido) {
         }
         
         // Reagregar todos los observers necesarios
-        System.out.println("   ➕ Agregando NotificadorObserver...");
-        partido.agregarObserver(notificadorObserver);
+        System.out.println("   ➕ Agregando OutboxObserver...");
+        partido.agregarObserver(outboxObserver);
         
         System.out.println("   ✅ Observers reconectados para partido " + partido.getId());
         System.out.println("   Total observers: " + partido.getObservers().size());
@@ -457,24 +687,13 @@ private void reconectarObservers(Partido partido) {
     @Transactional
     public void procesarTransicionesAutomaticas() {
         LocalDateTime ahora = LocalDateTime.now();
-        
-        // Partidos para iniciar
-        List<Partido> partidosParaIniciar = partidoRepository.findPartidosParaIniciar(
-            ahora, ahora.minusMinutes(5));
-        
-        partidosParaIniciar.forEach(p -> {
-            p.cambiarEstado("EN_JUEGO");
-            partidoRepository.save(p);
-        });
-        
-        // Partidos para finalizar
-        List<Partido> partidosParaFinalizar = partidoRepository.findPartidosParaFinalizar(
-            ahora.minusMinutes(90)); // Asumiendo duración promedio
-        
-        partidosParaFinalizar.forEach(p -> {
-            p.cambiarEstado("FINALIZADO");
-            partidoRepository.save(p);
-        });
+
+        // Un UPDATE condicional por transición; los ids afectados guían eventos y reprogramación
+        List<Long> iniciados = transicionesMasivas.iniciarConfirmados(ahora);
+        List<Long> finalizados = transicionesMasivas.finalizarEnJuego(ahora);
+
+        planificadorTransiciones.reprogramarDesdeBase(iniciados);
+        planificadorTransiciones.reprogramarDesdeBase(finalizados);
     }
 
     // Métodos auxiliares privados
@@ -537,16 +756,8 @@ private void reconectarObservers(Partido partido) {
         NivelJuego nivelMaximo = null;
         if ("POR_NIVEL".equals(partido.getEstrategiaActual()) && partido.getEstrategiaEmparejamiento() instanceof com.uade.tpo.deportes.patterns.strategy.EmparejamientoPorNivelStrategy) {
             com.uade.tpo.deportes.patterns.strategy.EmparejamientoPorNivelStrategy estrategia = (com.uade.tpo.deportes.patterns.strategy.EmparejamientoPorNivelStrategy) partido.getEstrategiaEmparejamiento();
-            try {
-                java.lang.reflect.Field fMin = estrategia.getClass().getDeclaredField("nivelMinimo");
-                java.lang.reflect.Field fMax = estrategia.getClass().getDeclaredField("nivelMaximo");
-                fMin.setAccessible(true);
-                fMax.setAccessible(true);
-                nivelMinimo = (NivelJuego) fMin.get(estrategia);
-                nivelMaximo = (NivelJuego) fMax.get(estrategia);
-            } catch (Exception e) {
-                // Ignorar si falla
-            }
+            nivelMinimo = estrategia.getNivelMinimo();
+            nivelMaximo = estrategia.getNivelMaximo();
         }
         return PartidoResponse.builder()
                 .id(partido.getId())
@@ -570,6 +781,21 @@ private void reconectarObservers(Partido partido) {
                 .build();
     }
 
+    private PartidoResumenResponse mapearAResumen(Partido partido, double compatibilidad) {
+        return PartidoResumenResponse.builder()
+                .id(partido.getId())
+                .deporteId(partido.getDeporte().getId())
+                .deporte(partido.getDeporte().getNombre())
+                .zona(partido.getUbicacion().getZona())
+                .horario(partido.getHorario())
+                .cantidadJugadoresActual(partido.getParticipantes().size())
+                .cantidadJugadoresRequeridos(partido.getCantidadJugadoresRequeridos())
+                .estado(partido.getEstadoActual())
+                .organizadorId(partido.getOrganizador().getId())
+                .compatibilidad(compatibilidad)
+                .build();
+    }
+
     private DeporteResponse mapearDeporteAResponse(Deporte deporte) {
         return DeporteResponse.builder()
                 .id(deporte.getId())
@@ -603,9 +829,13 @@ private void reconectarObservers(Partido partido) {
     }
 
     public List<PartidoResponse> buscarTodosParaAdmin() {
-        List<Partido> partidos = partidoRepository.findAll();
+        List<Partido> partidos = partidoRepository.findAllConDetalle();
         return partidos.stream()
                 .map(p -> mapearAResponse(p, null))
                 .collect(Collectors.toList());
     }
+
+    public List<PartidoResumenResponse> buscarTodosResumenParaAdmin() {
+        return partidoRepository.findResumenTodos();
+    }
 }
\ No newline at end of file
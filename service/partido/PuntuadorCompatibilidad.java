@@ -0,0 +1,233 @@
+package com.uade.tpo.deportes.service.partido;
+
+import com.uade.tpo.deportes.entity.Partido;
+import com.uade.tpo.deportes.entity.Usuario;
+import com.uade.tpo.deportes.patterns.strategy.EstrategiaEmparejamiento;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * 🎯 ETAPA DE PUNTUACIÓN DE LA BÚSQUEDA
+ *
+ * Calcula la compatibilidad final de cada candidato UNA sola vez
+ * (estrategia + bonus por deporte favorito + bonus por horario conveniente)
+ * y se queda solo con la página pedida usando un heap acotado (top-K).
+ *
+ * Los grupos grandes de candidatos se reparten en bloques sobre un
+ * ForkJoinPool propio y acotado; por debajo del umbral se puntúa en el
+ * mismo hilo del request.
+ */
+@Component
+public class PuntuadorCompatibilidad {
+
+    private static final double BONUS_DEPORTE_FAVORITO = 0.1;
+    private static final double BONUS_HORARIO_CONVENIENTE = 0.05;
+
+    @Value("${unomas.busqueda.puntuacion.paralelismo:0}")
+    private int paralelismoConfigurado;
+
+    @Value("${unomas.busqueda.puntuacion.umbral-paralelo:200}")
+    private int umbralParalelo;
+
+    private ForkJoinPool poolPuntuacion;
+    private int paralelismo;
+
+    @PostConstruct
+    public void iniciarPool() {
+        paralelismo = paralelismoConfigurado > 0
+                ? paralelismoConfigurado
+                : Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        poolPuntuacion = new ForkJoinPool(paralelismo);
+        System.out.println("🧵 Pool de puntuación iniciado - Paralelismo: " + paralelismo +
+                " - Umbral: " + umbralParalelo + " candidatos");
+    }
+
+    @PreDestroy
+    public void cerrarPool() {
+        poolPuntuacion.shutdown();
+    }
+
+    // Peor primero: menor compatibilidad, y a igual puntaje el partido más lejano en el tiempo
+    private static final Comparator<PartidoPuntuado> PEOR_PRIMERO =
+            Comparator.comparingDouble(PartidoPuntuado::getCompatibilidad)
+                    .thenComparing((PartidoPuntuado pp) -> pp.getPartido().getHorario(), Comparator.reverseOrder())
+                    .thenComparing((PartidoPuntuado pp) -> pp.getPartido().getId(), Comparator.reverseOrder());
+
+    /**
+     * Devuelve los partidos de la página [offset, offset + tamaño) ordenados por
+     * compatibilidad descendente. Memoria O(offset + tamaño), tiempo O(n log k).
+     */
+    public List<PartidoPuntuado> seleccionarPagina(Usuario usuario, List<Partido> candidatos, int offset, int tamaño) {
+        int k = offset + tamaño;
+        if (k <= 0 || candidatos.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        double[] puntajes = puntuarTodos(usuario, candidatos);
+
+        PriorityQueue<PartidoPuntuado> heap = new PriorityQueue<>(Math.min(k, candidatos.size()) + 1, PEOR_PRIMERO);
+        for (int i = 0; i < puntajes.length; i++) {
+            PartidoPuntuado puntuado = new PartidoPuntuado(candidatos.get(i), puntajes[i]);
+            if (heap.size() < k) {
+                heap.add(puntuado);
+            } else if (PEOR_PRIMERO.compare(puntuado, heap.peek()) > 0) {
+                heap.poll();
+                heap.add(puntuado);
+            }
+        }
+
+        List<PartidoPuntuado> mejores = new ArrayList<>(heap);
+        mejores.sort(PEOR_PRIMERO.reversed());
+        if (offset >= mejores.size()) {
+            return Collections.emptyList();
+        }
+        return mejores.subList(offset, mejores.size());
+    }
+
+    /**
+     * Compatibilidad final de todos los candidatos, en el orden de la lista.
+     * Los partidos se agrupan por estrategia para que cada una prepare los
+     * datos del usuario una sola vez (calcularCompatibilidades).
+     */
+    public double[] puntuarTodos(Usuario usuario, List<Partido> candidatos) {
+        double[] puntajes = new double[candidatos.size()];
+
+        Map<EstrategiaEmparejamiento, List<Integer>> porEstrategia = new IdentityHashMap<>();
+        for (int i = 0; i < candidatos.size(); i++) {
+            EstrategiaEmparejamiento estrategia = candidatos.get(i).getEstrategiaEmparejamiento();
+            if (estrategia != null) {
+                porEstrategia.computeIfAbsent(estrategia, e -> new ArrayList<>()).add(i);
+            }
+        }
+
+        for (Map.Entry<EstrategiaEmparejamiento, List<Integer>> grupo : porEstrategia.entrySet()) {
+            List<Integer> indices = grupo.getValue();
+            List<Partido> partidos = new ArrayList<>(indices.size());
+            for (int indice : indices) {
+                partidos.add(candidatos.get(indice));
+            }
+            double[] compatibilidades = debeParalelizar(partidos.size())
+                    ? calcularEnParalelo(grupo.getKey(), usuario, partidos)
+                    : grupo.getKey().calcularCompatibilidades(usuario, partidos);
+            for (int j = 0; j < indices.size(); j++) {
+                puntajes[indices.get(j)] = compatibilidades[j];
+            }
+        }
+
+        for (int i = 0; i < puntajes.length; i++) {
+            puntajes[i] = aplicarBonus(usuario, candidatos.get(i), puntajes[i]);
+        }
+        return puntajes;
+    }
+
+    private boolean debeParalelizar(int cantidad) {
+        return paralelismo > 1 && cantidad >= umbralParalelo;
+    }
+
+    /**
+     * Divide el grupo en bloques contiguos y los puntúa en el pool.
+     * Las asociaciones LAZY y los datos del usuario que usa la estrategia (p. ej.
+     * el perfil de historial) se cargan antes en el hilo del request: la sesión
+     * de Hibernate y su transacción no se pueden usar desde otros hilos.
+     */
+    private double[] calcularEnParalelo(EstrategiaEmparejamiento estrategiaCompartida, Usuario usuario, List<Partido> partidos) {
+        inicializarAsociaciones(usuario, partidos);
+        EstrategiaEmparejamiento estrategia = estrategiaCompartida.prepararPara(usuario);
+
+        int cantidad = partidos.size();
+        int tamañoBloque = (cantidad + paralelismo - 1) / paralelismo;
+        double[] resultado = new double[cantidad];
+
+        List<ForkJoinTask<?>> tareas = new ArrayList<>();
+        for (int desde = 0; desde < cantidad; desde += tamañoBloque) {
+            int inicio = desde;
+            int fin = Math.min(cantidad, desde + tamañoBloque);
+            tareas.add(poolPuntuacion.submit(() -> {
+                double[] bloque = estrategia.calcularCompatibilidades(usuario, partidos.subList(inicio, fin));
+                System.arraycopy(bloque, 0, resultado, inicio, bloque.length);
+            }));
+        }
+        tareas.forEach(ForkJoinTask::join);
+        return resultado;
+    }
+
+    private void inicializarAsociaciones(Usuario usuario, List<Partido> partidos) {
+        Hibernate.initialize(usuario.getUbicacion());
+        Hibernate.initialize(usuario.getDeporteFavorito());
+        for (Partido partido : partidos) {
+            Hibernate.initialize(partido.getDeporte());
+            Hibernate.initialize(partido.getOrganizador());
+            Hibernate.initialize(partido.getParticipantes());
+        }
+    }
+
+    /**
+     * Compatibilidad final de un partido para el usuario, acotada a [0, 1]
+     */
+    public double puntuar(Usuario usuario, Partido partido) {
+        double compatibilidad = partido.getEstrategiaEmparejamiento() != null ?
+                partido.getEstrategiaEmparejamiento().calcularCompatibilidad(usuario, partido) : 0.0;
+        return aplicarBonus(usuario, partido, compatibilidad);
+    }
+
+    double aplicarBonus(Usuario usuario, Partido partido, double compatibilidad) {
+        // 🎯 BONUS POR DEPORTE FAVORITO
+        if (usuario.getDeporteFavorito() != null && partido.getDeporte() != null &&
+            usuario.getDeporteFavorito().getId().equals(partido.getDeporte().getId())) {
+            compatibilidad += BONUS_DEPORTE_FAVORITO;
+        }
+
+        // 🕐 BONUS POR HORARIO CONVENIENTE
+        if (esHorarioConveniente(partido.getHorario())) {
+            compatibilidad += BONUS_HORARIO_CONVENIENTE;
+        }
+
+        return Math.max(0.0, Math.min(1.0, compatibilidad));
+    }
+
+    private boolean esHorarioConveniente(LocalDateTime horario) {
+        int hora = horario.getHour();
+        int diaSemana = horario.getDayOfWeek().getValue();
+
+        if (diaSemana <= 5) { // Lunes a Viernes
+            return hora >= 17 && hora <= 21;
+        } else { // Fin de semana
+            return hora >= 10 && hora <= 22;
+        }
+    }
+
+    /**
+     * Partido con su compatibilidad ya calculada
+     */
+    public static class PartidoPuntuado {
+        private final Partido partido;
+        private final double compatibilidad;
+
+        public PartidoPuntuado(Partido partido, double compatibilidad) {
+            this.partido = partido;
+            this.compatibilidad = compatibilidad;
+        }
+
+        public Partido getPartido() {
+            return partido;
+        }
+
+        public double getCompatibilidad() {
+            return compatibilidad;
+        }
+    }
+}
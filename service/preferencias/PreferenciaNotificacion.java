@@ -0,0 +1,62 @@
+package com.uade.tpo.deportes.service.preferencias;
+
+import com.uade.tpo.deportes.entity.Ubicacion;
+
+/**
+ * Foto inmutable de lo que un usuario aceptó recibir: canales habilitados,
+ * radio de búsqueda y su ubicación. Es lo que el pipeline de notificaciones
+ * consulta antes de encolar un envío.
+ */
+public final class PreferenciaNotificacion {
+
+    // Sin fila de Preferencias se usan los mismos valores que devuelve obtenerPreferencias
+    public static final PreferenciaNotificacion POR_DEFECTO =
+            new PreferenciaNotificacion(true, true, null, null, null, null, null);
+
+    private final boolean email;
+    private final boolean push;
+    private final Integer radioKm;
+    private final String zonaPreferida;
+    private final Double latitud;
+    private final Double longitud;
+    private final String zonaUsuario;
+
+    public PreferenciaNotificacion(boolean email, boolean push, Integer radioKm, String zonaPreferida,
+                                   Double latitud, Double longitud, String zonaUsuario) {
+        this.email = email;
+        this.push = push;
+        this.radioKm = radioKm;
+        this.zonaPreferida = zonaPreferida;
+        this.latitud = latitud;
+        this.longitud = longitud;
+        this.zonaUsuario = zonaUsuario;
+    }
+
+    public boolean aceptaEmail() {
+        return email;
+    }
+
+    public boolean aceptaPush() {
+        return push;
+    }
+
+    /**
+     * ¿El partido queda dentro del radio de búsqueda del usuario?
+     * Con coordenadas se usa la distancia; sin ellas, la zona preferida.
+     * Si no hay datos para decidir, no se descarta al usuario.
+     */
+    public boolean estaEnRadio(Ubicacion ubicacionPartido) {
+        if (radioKm == null || radioKm <= 0 || ubicacionPartido == null) {
+            return true;
+        }
+        if (latitud != null && longitud != null && ubicacionPartido.tieneCoordenadasCompletas()) {
+            Ubicacion propia = Ubicacion.builder().latitud(latitud).longitud(longitud).build();
+            return propia.calcularDistancia(ubicacionPartido) <= radioKm;
+        }
+        String zona = zonaPreferida != null && !zonaPreferida.isBlank() ? zonaPreferida : zonaUsuario;
+        if (zona != null && !zona.isBlank() && ubicacionPartido.getZona() != null && !ubicacionPartido.getZona().isBlank()) {
+            return zona.trim().equalsIgnoreCase(ubicacionPartido.getZona().trim());
+        }
+        return true;
+    }
+}
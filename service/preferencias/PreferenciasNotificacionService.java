@@ -0,0 +1,163 @@
+package com.uade.tpo.deportes.service.preferencias;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 🎛️ PREFERENCIAS DE NOTIFICACIÓN EN BLOQUE
+ *
+ * Resuelve las preferencias de todos los destinatarios de un evento con una
+ * consulta por bloque de 500 usuarios (Usuario + Preferencias + Ubicacion)
+ * y las guarda en un cache acotado con vencimiento. PreferenciasService y
+ * UsuarioServiceImpl lo invalidan cuando cambian los datos.
+ *
+ * Cada invalidación incrementa la versión del usuario (por franjas): lo
+ * leído mientras llegaba una invalidación se devuelve pero no se guarda.
+ */
+@Service
+public class PreferenciasNotificacionService {
+
+    private static final int TAMANO_LOTE_CONSULTA = 500;
+    private static final int FRANJAS_VERSION = 1024;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${unomas.notificaciones.preferencias.cache.max-usuarios:10000}")
+    private int maxUsuariosEnCache;
+
+    @Value("${unomas.notificaciones.preferencias.cache.ttl-segundos:300}")
+    private long ttlSegundos;
+
+    // LRU por orden de acceso; incluye usuarios sin fila de Preferencias
+    private final Map<Long, PreferenciaEnCache> cache = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, PreferenciaEnCache> eldest) {
+            return size() > maxUsuariosEnCache;
+        }
+    };
+
+    // Versión por franja de usuarioId: cambia con cada invalidación
+    private final AtomicLongArray versiones = new AtomicLongArray(FRANJAS_VERSION);
+
+    /**
+     * Preferencias de varios usuarios: usuarioId → snapshot.
+     * Todo id pedido tiene entrada (POR_DEFECTO si no existe el usuario o no configuró nada).
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, PreferenciaNotificacion> obtenerPreferencias(Collection<Long> usuarioIds) {
+        Map<Long, PreferenciaNotificacion> resultado = new HashMap<>();
+        if (usuarioIds == null || usuarioIds.isEmpty()) {
+            return resultado;
+        }
+
+        // ⚡ PASO 1: Lo que ya está en cache y no venció
+        long ahora = System.currentTimeMillis();
+        List<Long> faltantes = new ArrayList<>();
+        Map<Long, Long> versionAlLeer = new HashMap<>();
+        synchronized (cache) {
+            for (Long usuarioId : new HashSet<>(usuarioIds)) {
+                PreferenciaEnCache enCache = cache.get(usuarioId);
+                if (enCache != null && enCache.venceEn > ahora) {
+                    resultado.put(usuarioId, enCache.preferencia);
+                } else {
+                    faltantes.add(usuarioId);
+                    versionAlLeer.put(usuarioId, versiones.get(franja(usuarioId)));
+                }
+            }
+        }
+        if (faltantes.isEmpty()) {
+            return resultado;
+        }
+
+        // ⚡ PASO 2: Una consulta por bloque para todos los faltantes
+        Map<Long, PreferenciaNotificacion> consultadas = new HashMap<>();
+        for (int i = 0; i < faltantes.size(); i += TAMANO_LOTE_CONSULTA) {
+            List<Long> lote = faltantes.subList(i, Math.min(i + TAMANO_LOTE_CONSULTA, faltantes.size()));
+            List<Object[]> filas = entityManager.createQuery(
+                    "SELECT u.id, p.notificacionesEmail, p.notificacionesPush, p.radioBusqueda, p.zonaPreferida, " +
+                    "ub.latitud, ub.longitud, ub.zona FROM Usuario u " +
+                    "LEFT JOIN Preferencias p ON p.usuario = u LEFT JOIN u.ubicacion ub " +
+                    "WHERE u.id IN :ids", Object[].class)
+                    .setParameter("ids", lote)
+                    .getResultList();
+            for (Object[] fila : filas) {
+                consultadas.put((Long) fila[0], new PreferenciaNotificacion(
+                        !Boolean.FALSE.equals(fila[1]),
+                        !Boolean.FALSE.equals(fila[2]),
+                        (Integer) fila[3],
+                        (String) fila[4],
+                        (Double) fila[5],
+                        (Double) fila[6],
+                        (String) fila[7]));
+            }
+        }
+
+        // ⚡ PASO 3: Guardar en cache (salvo que mientras se leía llegara una invalidación)
+        long venceEn = System.currentTimeMillis() + ttlSegundos * 1000;
+        synchronized (cache) {
+            for (Long usuarioId : faltantes) {
+                PreferenciaNotificacion preferencia =
+                        consultadas.getOrDefault(usuarioId, PreferenciaNotificacion.POR_DEFECTO);
+                if (versiones.get(franja(usuarioId)) == versionAlLeer.get(usuarioId)) {
+                    cache.put(usuarioId, new PreferenciaEnCache(preferencia, venceEn));
+                }
+                resultado.put(usuarioId, preferencia);
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Quitar un usuario del cache ahora y otra vez después del commit,
+     * para que otro hilo no vuelva a cachear los datos viejos mientras tanto
+     */
+    public void invalidarDespuesDelCommit(Long usuarioId) {
+        invalidar(usuarioId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidar(usuarioId);
+                }
+            });
+        }
+    }
+
+    public void invalidar(Long usuarioId) {
+        synchronized (cache) {
+            versiones.incrementAndGet(franja(usuarioId));
+            cache.remove(usuarioId);
+        }
+    }
+
+    // ===== MÉTODOS AUXILIARES =====
+
+    private static int franja(Long usuarioId) {
+        return (int) Math.floorMod(usuarioId, (long) FRANJAS_VERSION);
+    }
+
+    private static final class PreferenciaEnCache {
+        private final PreferenciaNotificacion preferencia;
+        private final long venceEn;
+
+        private PreferenciaEnCache(PreferenciaNotificacion preferencia, long venceEn) {
+            this.preferencia = preferencia;
+            this.venceEn = venceEn;
+        }
+    }
+}
@@ -6,12 +6,14 @@ import com.uade.tpo.deportes.entity.Preferencias;
 import com.uade.tpo.deportes.entity.Usuario;
 import com.uade.tpo.deportes.repository.DeporteRepository;
 import com.uade.tpo.deportes.repository.PreferenciasRepository;
+import com.uade.tpo.deportes.service.notificacion.SuscripcionTopicosService;
 import com.uade.tpo.deportes.service.usuario.UsuarioService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -21,10 +23,14 @@ public class PreferenciasService {
     private final PreferenciasRepository preferenciasRepository;
     private final DeporteRepository deporteRepository;
     private final UsuarioService usuarioService;
+    private final PreferenciasNotificacionService preferenciasNotificacionService;
+    private final SuscripcionTopicosService suscripcionTopicosService;
 
     @Transactional
     public PreferenciasResponse guardarPreferencias(String emailUsuario, PreferenciasRequest request) {
         Usuario usuario = usuarioService.obtenerUsuarioPorEmail(emailUsuario);
+        // Con push deshabilitado el usuario no queda en ningún tópico: se guardan los de antes del cambio
+        Set<String> topicosAnteriores = suscripcionTopicosService.topicosActuales(usuario.getId());
         
         // Obtener deportes favoritos
         List<Deporte> deportesFavoritos = request.getDeportesFavoritosIds().stream()
@@ -43,6 +49,8 @@ public class PreferenciasService {
         preferencias.setZonaPreferida(request.getZonaPreferida());
 
         preferencias = preferenciasRepository.save(preferencias);
+        preferenciasNotificacionService.invalidarDespuesDelCommit(usuario.getId());
+        suscripcionTopicosService.sincronizarUsuario(usuario.getId(), topicosAnteriores);
         return mapearAResponse(preferencias);
     }
 
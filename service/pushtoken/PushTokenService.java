@@ -2,17 +2,37 @@ package com.uade.tpo.deportes.service.pushtoken;
 
 import org.springframework.stereotype.Service;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import com.uade.tpo.deportes.entity.PushToken;
 import com.uade.tpo.deportes.entity.Usuario;
 import com.uade.tpo.deportes.repository.PushTokenRepository;
 import com.uade.tpo.deportes.repository.UsuarioRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import java.util.Collection;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
- * Servicio TEMPORAL para tokens push - Implementación en memoria
- * TODO: Migrar a base de datos cuando esté listo
+ * Servicio de tokens push.
+ * Los tokens activos por usuario se consultan en bloque (una consulta para
+ * N usuarios) y se guardan en un cache acotado con vencimiento, que se
+ * invalida al registrar o desactivar tokens.
+ *
+ * Cada invalidación incrementa la versión del usuario (por franjas). Tokens
+ * leídos mientras llegaba una invalidación no se guardan: se usan esa vez y
+ * la próxima lectura los vuelve a consultar, así el cache no queda viejo.
  */
 @Service
 public class PushTokenService {
@@ -21,10 +41,34 @@ public class PushTokenService {
     private PushTokenRepository pushTokenRepository;
     @Autowired
     private UsuarioRepository usuarioRepository;
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${unomas.push.tokens.cache.max-usuarios:10000}")
+    private int maxUsuariosEnCache;
+    @Value("${unomas.push.tokens.cache.ttl-segundos:300}")
+    private long ttlSegundos;
+
+    // Tokens/usuarios por sentencia ... IN (...)
+    private static final int TAMANO_LOTE_DESACTIVACION = 500;
+    private static final int TAMANO_LOTE_CONSULTA = 500;
+    private static final int FRANJAS_VERSION = 1024;
+
+    // LRU por orden de acceso; incluye usuarios sin tokens para no reconsultarlos
+    private final Map<Long, TokensEnCache> cacheTokens = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, TokensEnCache> eldest) {
+            return size() > maxUsuariosEnCache;
+        }
+    };
+
+    // Versión por franja de usuarioId: cambia con cada invalidación
+    private final AtomicLongArray versiones = new AtomicLongArray(FRANJAS_VERSION);
 
     /**
      * Registrar un nuevo token push para un usuario
      */
+    @Transactional
     public void registrarToken(Long usuarioId, String token, String deviceType) {
         Usuario usuario = usuarioRepository.findById(usuarioId).orElse(null);
         if (usuario == null) {
@@ -35,10 +79,13 @@ public class PushTokenService {
         Optional<PushToken> existente = pushTokenRepository.findByToken(token);
         if (existente.isPresent()) {
             PushToken t = existente.get();
+            Long usuarioAnteriorId = t.getUsuario() != null ? t.getUsuario().getId() : null;
             t.setActivo(true);
             t.setUsuario(usuario); // Opcional: reasignar usuario si cambió
             t.setDeviceType(deviceType);
             pushTokenRepository.save(t);
+            invalidarDespuesDelCommit(usuarioAnteriorId != null && !usuarioAnteriorId.equals(usuarioId)
+                    ? List.of(usuarioId, usuarioAnteriorId) : List.of(usuarioId));
             System.out.println("✅ Token push reactivado para usuario " + usuarioId + ": " + deviceType);
             return;
         }
@@ -50,6 +97,7 @@ public class PushTokenService {
                 .activo(true)
                 .build();
         pushTokenRepository.save(pushToken);
+        invalidarDespuesDelCommit(List.of(usuarioId));
         System.out.println("✅ Token push registrado (en base de datos) para usuario " + usuarioId + ": " + deviceType);
     }
 
@@ -57,14 +105,68 @@ public class PushTokenService {
      * Obtener todos los tokens activos de un usuario
      */
     public List<String> obtenerTokensUsuario(Long usuarioId) {
-        Usuario usuario = usuarioRepository.findById(usuarioId).orElse(null);
-        if (usuario == null) return new ArrayList<>();
-        List<PushToken> tokens = pushTokenRepository.findByUsuarioAndActivoTrue(usuario);
-        List<String> result = new ArrayList<>();
-        for (PushToken t : tokens) {
-            result.add(t.getToken());
+        return obtenerTokensUsuarios(List.of(usuarioId)).getOrDefault(usuarioId, List.of());
+    }
+
+    /**
+     * Tokens activos de varios usuarios: usuarioId → tokens.
+     * Los que no están en cache se resuelven con una sola consulta por bloque de 500 ids.
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, List<String>> obtenerTokensUsuarios(Collection<Long> usuarioIds) {
+        Map<Long, List<String>> resultado = new HashMap<>();
+        if (usuarioIds == null || usuarioIds.isEmpty()) {
+            return resultado;
         }
-        return result;
+
+        // ⚡ PASO 1: Lo que ya está en cache y no venció
+        long ahora = System.currentTimeMillis();
+        List<Long> faltantes = new ArrayList<>();
+        Map<Long, Long> versionAlLeer = new HashMap<>();
+        synchronized (cacheTokens) {
+            for (Long usuarioId : new HashSet<>(usuarioIds)) {
+                TokensEnCache enCache = cacheTokens.get(usuarioId);
+                if (enCache != null && enCache.venceEn > ahora) {
+                    resultado.put(usuarioId, enCache.tokens);
+                } else {
+                    faltantes.add(usuarioId);
+                    versionAlLeer.put(usuarioId, versiones.get(franja(usuarioId)));
+                }
+            }
+        }
+        if (faltantes.isEmpty()) {
+            return resultado;
+        }
+
+        // ⚡ PASO 2: Una consulta para todos los faltantes
+        Map<Long, List<String>> consultados = new HashMap<>();
+        for (Long usuarioId : faltantes) {
+            consultados.put(usuarioId, new ArrayList<>());
+        }
+        for (int i = 0; i < faltantes.size(); i += TAMANO_LOTE_CONSULTA) {
+            List<Long> lote = faltantes.subList(i, Math.min(i + TAMANO_LOTE_CONSULTA, faltantes.size()));
+            List<Object[]> filas = entityManager.createQuery(
+                    "SELECT t.usuario.id, t.token FROM PushToken t WHERE t.usuario.id IN :ids AND t.activo = true",
+                    Object[].class)
+                    .setParameter("ids", lote)
+                    .getResultList();
+            for (Object[] fila : filas) {
+                consultados.get((Long) fila[0]).add((String) fila[1]);
+            }
+        }
+
+        // ⚡ PASO 3: Guardar en cache (salvo que mientras se leía llegara una invalidación)
+        long venceEn = System.currentTimeMillis() + ttlSegundos * 1000;
+        synchronized (cacheTokens) {
+            consultados.forEach((usuarioId, tokens) -> {
+                List<String> inmutables = Collections.unmodifiableList(tokens);
+                if (versiones.get(franja(usuarioId)) == versionAlLeer.get(usuarioId)) {
+                    cacheTokens.put(usuarioId, new TokensEnCache(inmutables, venceEn));
+                }
+                resultado.put(usuarioId, inmutables);
+            });
+        }
+        return resultado;
     }
 
     /**
@@ -77,14 +179,52 @@ public class PushTokenService {
     }
 
     /**
-     * Desactivar un token (cuando falla el envío o el usuario se desconecta)
+     * Desactivar un token (cuando falla el envío o el usuario se desconecta).
+     * Transaccional acá también: la llamada interna no pasa por el proxy
      */
+    @Transactional
     public void desactivarToken(String token) {
-        pushTokenRepository.findByToken(token).ifPresent(t -> {
-            t.setActivo(false);
-            pushTokenRepository.save(t);
-        });
-        System.out.println("⚠️ Token desactivado (en base de datos): " + token);
+        desactivarTokens(List.of(token));
+    }
+
+    /**
+     * Desactivar varios tokens con un UPDATE masivo (tokens que FCM informó como no registrados)
+     */
+    @Transactional
+    public int desactivarTokens(Collection<String> tokens) {
+        if (tokens == null || tokens.isEmpty()) {
+            return 0;
+        }
+        List<String> lista = new ArrayList<>(tokens);
+        int desactivados = 0;
+        Set<Long> usuariosAfectados = new HashSet<>();
+        for (int i = 0; i < lista.size(); i += TAMANO_LOTE_DESACTIVACION) {
+            List<String> lote = lista.subList(i, Math.min(i + TAMANO_LOTE_DESACTIVACION, lista.size()));
+            usuariosAfectados.addAll(entityManager.createQuery(
+                    "SELECT DISTINCT t.usuario.id FROM PushToken t WHERE t.token IN :tokens", Long.class)
+                    .setParameter("tokens", lote)
+                    .getResultList());
+            desactivados += entityManager.createQuery(
+                    "UPDATE PushToken t SET t.activo = false WHERE t.token IN :tokens AND t.activo = true")
+                    .setParameter("tokens", lote)
+                    .executeUpdate();
+        }
+        invalidarDespuesDelCommit(usuariosAfectados);
+        System.out.println("⚠️ " + desactivados + " tokens desactivados (en base de datos)");
+        return desactivados;
+    }
+
+    /**
+     * Quitar usuarios del cache de tokens y marcar su versión, bajo el mismo
+     * lock que el guardado de obtenerTokensUsuarios
+     */
+    public void invalidar(Collection<Long> usuarioIds) {
+        synchronized (cacheTokens) {
+            for (Long usuarioId : usuarioIds) {
+                versiones.incrementAndGet(franja(usuarioId));
+                cacheTokens.remove(usuarioId);
+            }
+        }
     }
 
     /**
@@ -174,4 +314,36 @@ public class PushTokenService {
             }
         }
     }
+
+    // ===== MÉTODOS AUXILIARES =====
+
+    // Si se invalida antes del commit, otro hilo podría volver a cachear los tokens viejos
+    private void invalidarDespuesDelCommit(Collection<Long> usuarioIds) {
+        if (usuarioIds.isEmpty()) {
+            return;
+        }
+        invalidar(usuarioIds);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidar(usuarioIds);
+                }
+            });
+        }
+    }
+
+    private static int franja(Long usuarioId) {
+        return (int) Math.floorMod(usuarioId, (long) FRANJAS_VERSION);
+    }
+
+    private static final class TokensEnCache {
+        private final List<String> tokens;
+        private final long venceEn;
+
+        private TokensEnCache(List<String> tokens, long venceEn) {
+            this.tokens = tokens;
+            this.venceEn = venceEn;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,192 @@
+package com.uade.tpo.deportes.service.scheduler;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 🧵 EJECUTOR DE TAREAS PROGRAMADAS
+ *
+ * Cada tarea corre en su propio hilo ("tarea-<nombre>"): el que la dispara
+ * (scheduler o planificador) solo la encola y sigue. Si la tarea ya está
+ * corriendo, según la política se omite (la próxima pasada la cubre) o se
+ * encadena una sola repetición para cuando termine.
+ *
+ * Por tarea se publican en Micrometer la duración, el retraso entre el
+ * disparo y el inicio, las ejecuciones solapadas y si está corriendo.
+ *
+ * Las tareas que no deben correr en paralelo en varias instancias se
+ * disparan con ejecutarEnUnSoloNodo: solo corren en el dueño del lease.
+ */
+@Service
+public class EjecutorTareasProgramadas {
+
+    public enum PoliticaSolapamiento { OMITIR, ENCADENAR }
+
+    private static final int LIBRE = 0;
+    private static final int CORRIENDO = 1;
+    private static final int CORRIENDO_CON_PENDIENTE = 2;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private LeasesTareasService leasesTareasService;
+
+    private final ConcurrentHashMap<String, Tarea> tareas = new ConcurrentHashMap<>();
+
+    /**
+     * Dispara la tarea en su hilo. Devuelve false si se omitió por estar corriendo.
+     */
+    public boolean ejecutar(String nombre, PoliticaSolapamiento politica, Runnable accion) {
+        Tarea tarea = tareas.computeIfAbsent(nombre, this::crearTarea);
+        long disparo = System.nanoTime();
+        while (true) {
+            if (tarea.estado.compareAndSet(LIBRE, CORRIENDO)) {
+                tarea.hilo.execute(() -> correr(tarea, accion, disparo));
+                return true;
+            }
+            if (politica == PoliticaSolapamiento.OMITIR) {
+                tarea.solapadas.increment();
+                System.out.println("⏭️ Tarea " + nombre + " omitida: la ejecución anterior sigue corriendo");
+                return false;
+            }
+            // ENCADENAR: a lo sumo una repetición pendiente, la corre el mismo hilo al terminar
+            if (tarea.estado.compareAndSet(CORRIENDO, CORRIENDO_CON_PENDIENTE) ||
+                tarea.estado.get() == CORRIENDO_CON_PENDIENTE) {
+                tarea.solapadas.increment();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Igual que ejecutar, pero la acción solo corre si este nodo tiene el lease
+     * de la tarea. El lease se consulta en el hilo de la tarea, no en el del scheduler.
+     */
+    public boolean ejecutarEnUnSoloNodo(String nombre, PoliticaSolapamiento politica, Runnable accion) {
+        return ejecutar(nombre, politica, () -> {
+            if (leasesTareasService.esDueño(nombre)) {
+                accion.run();
+            }
+        });
+    }
+
+    /**
+     * Resumen por tarea para logs y endpoints de estado
+     */
+    public Map<String, Object> obtenerEstadisticas() {
+        Map<String, Object> estadisticas = new TreeMap<>();
+        tareas.forEach((nombre, tarea) -> {
+            Map<String, Object> datos = new LinkedHashMap<>();
+            datos.put("corriendo", tarea.estado.get() != LIBRE);
+            datos.put("ejecuciones", tarea.duracionOk.count() + tarea.duracionError.count());
+            datos.put("errores", tarea.duracionError.count());
+            datos.put("solapadas", (long) tarea.solapadas.count());
+            datos.put("duracionMaximaMs", (long) tarea.duracionOk.max(TimeUnit.MILLISECONDS));
+            datos.put("ultimaDuracionMs", tarea.ultimaDuracionMs.get());
+            datos.put("ultimoRetrasoMs", tarea.ultimoRetrasoMs.get());
+            estadisticas.put(nombre, datos);
+        });
+        return estadisticas;
+    }
+
+    @PreDestroy
+    public void detener() {
+        tareas.values().forEach(tarea -> tarea.hilo.shutdownNow());
+    }
+
+    // ===== MÉTODOS AUXILIARES =====
+
+    private void correr(Tarea tarea, Runnable accion, long disparo) {
+        long retrasoNanos = System.nanoTime() - disparo;
+        tarea.retraso.record(retrasoNanos, TimeUnit.NANOSECONDS);
+        tarea.ultimoRetrasoMs.set(TimeUnit.NANOSECONDS.toMillis(retrasoNanos));
+
+        do {
+            long inicio = System.nanoTime();
+            boolean ok = true;
+            try {
+                accion.run();
+            } catch (Exception e) {
+                ok = false;
+                System.err.println("❌ Error en tarea " + tarea.nombre + ": " + e.getMessage());
+            }
+            long duracionNanos = System.nanoTime() - inicio;
+            (ok ? tarea.duracionOk : tarea.duracionError).record(duracionNanos, TimeUnit.NANOSECONDS);
+            tarea.ultimaDuracionMs.set(TimeUnit.NANOSECONDS.toMillis(duracionNanos));
+        } while (quedaPendiente(tarea));
+    }
+
+    // Si llegó un disparo mientras corría se repite una vez; si no, queda libre
+    private boolean quedaPendiente(Tarea tarea) {
+        while (true) {
+            if (tarea.estado.compareAndSet(CORRIENDO_CON_PENDIENTE, CORRIENDO)) {
+                return true;
+            }
+            if (tarea.estado.compareAndSet(CORRIENDO, LIBRE)) {
+                return false;
+            }
+        }
+    }
+
+    private Tarea crearTarea(String nombre) {
+        Tarea tarea = new Tarea(nombre, Executors.newSingleThreadExecutor(r -> {
+            Thread hilo = new Thread(r, "tarea-" + nombre);
+            hilo.setDaemon(true);
+            return hilo;
+        }));
+        tarea.duracionOk = Timer.builder("unomas.tareas.duracion")
+                .description("Duración de cada ejecución de la tarea programada")
+                .tag("tarea", nombre).tag("resultado", "ok")
+                .register(meterRegistry);
+        tarea.duracionError = Timer.builder("unomas.tareas.duracion")
+                .description("Duración de cada ejecución de la tarea programada")
+                .tag("tarea", nombre).tag("resultado", "error")
+                .register(meterRegistry);
+        tarea.retraso = Timer.builder("unomas.tareas.retraso")
+                .description("Tiempo entre el disparo y el inicio real de la tarea")
+                .tag("tarea", nombre)
+                .register(meterRegistry);
+        tarea.solapadas = Counter.builder("unomas.tareas.solapadas")
+                .description("Disparos que llegaron con la tarea todavía corriendo")
+                .tag("tarea", nombre)
+                .register(meterRegistry);
+        Gauge.builder("unomas.tareas.en_ejecucion", tarea.estado, estado -> estado.get() == LIBRE ? 0 : 1)
+                .description("1 si la tarea está corriendo")
+                .tag("tarea", nombre)
+                .register(meterRegistry);
+        return tarea;
+    }
+
+    private static final class Tarea {
+        private final String nombre;
+        private final ExecutorService hilo;
+        private final AtomicInteger estado = new AtomicInteger(LIBRE);
+        private final AtomicLong ultimaDuracionMs = new AtomicLong();
+        private final AtomicLong ultimoRetrasoMs = new AtomicLong();
+        private Timer duracionOk;
+        private Timer duracionError;
+        private Timer retraso;
+        private Counter solapadas;
+
+        private Tarea(String nombre, ExecutorService hilo) {
+            this.nombre = nombre;
+            this.hilo = hilo;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.uade.tpo.deportes.service.scheduler;
+
+import com.uade.tpo.deportes.entity.LeaseTarea;
+import com.uade.tpo.deportes.repository.LeaseTareaRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.InetAddress;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 🔐 LEASES DE TAREAS PROGRAMADAS
+ *
+ * Con varias instancias contra la misma base, cada tarea marcada como de
+ * un solo nodo la corre solo el dueño de su lease (tabla leases_tareas).
+ * El lease se toma y se renueva con un UPDATE condicional. Un hilo propio
+ * lo renueva cada tercio de su duración, así una tarea larga no lo pierde
+ * a mitad de camino. Si el nodo muere, el lease vence y lo toma el primer
+ * nodo que dispare la tarea (failover). Al apagar se liberan.
+ *
+ * Los vencimientos usan el reloj de cada nodo: se asume que están
+ * sincronizados (NTP) con un desvío muy por debajo de la duración del lease.
+ */
+@Service
+public class LeasesTareasService {
+
+    @Autowired
+    private LeaseTareaRepository leaseTareaRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Vacío: hostname + sufijo aleatorio. Fijarlo permite levantar dos contextos en el mismo host
+    @Value("${unomas.cluster.nodo-id:}")
+    private String nodoIdConfigurado;
+
+    @Value("${unomas.cluster.lease-segundos:30}")
+    private long leaseSegundos;
+
+    private String nodoId;
+    private TransactionTemplate transaccion;
+
+    // Leases que este nodo cree tener: tarea → vencimiento
+    private final ConcurrentHashMap<String, LocalDateTime> propios = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService renovador = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread hilo = new Thread(r, "renovacion-leases");
+        hilo.setDaemon(true);
+        return hilo;
+    });
+
+    @PostConstruct
+    public void iniciar() {
+        nodoId = nodoIdConfigurado != null && !nodoIdConfigurado.isBlank()
+                ? nodoIdConfigurado
+                : nombreHost() + "-" + UUID.randomUUID().toString().substring(0, 8);
+        transaccion = new TransactionTemplate(transactionManager);
+        transaccion.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        long periodoMs = Math.max(1000, leaseSegundos * 1000 / 3);
+        renovador.scheduleWithFixedDelay(this::renovarPropios, periodoMs, periodoMs, TimeUnit.MILLISECONDS);
+        System.out.println("🔐 Nodo " + nodoId + " - leases de " + leaseSegundos + " s");
+    }
+
+    @PreDestroy
+    public void detener() {
+        renovador.shutdownNow();
+        if (propios.isEmpty()) {
+            return;
+        }
+        try {
+            Integer liberados = transaccion.execute(status ->
+                    leaseTareaRepository.liberarTodos(nodoId, LocalDateTime.now()));
+            System.out.println("🔓 " + liberados + " leases liberados por el nodo " + nodoId);
+        } catch (Exception e) {
+            System.err.println("❌ Error liberando leases: " + e.getMessage());
+        }
+        propios.clear();
+    }
+
+    /**
+     * ¿Este nodo es el dueño de la tarea? Si el lease está libre o vencido lo toma.
+     * Mientras quede más de un tercio del lease por delante no consulta la base.
+     */
+    public boolean esDueño(String tarea) {
+        LocalDateTime ahora = LocalDateTime.now();
+        LocalDateTime vence = propios.get(tarea);
+        if (vence != null && ahora.isBefore(vence.minusSeconds(leaseSegundos / 3))) {
+            return true;
+        }
+        return adquirir(tarea, ahora);
+    }
+
+    public String getNodoId() {
+        return nodoId;
+    }
+
+    /**
+     * Estado de todos los leases (para el reporte y endpoints de estado)
+     */
+    public Map<String, Object> obtenerEstado() {
+        Map<String, Object> estado = new LinkedHashMap<>();
+        estado.put("nodo", nodoId);
+        estado.put("propios", new ArrayList<>(propios.keySet()));
+        List<Map<String, Object>> leases = new ArrayList<>();
+        for (LeaseTarea lease : leaseTareaRepository.findAllByOrderByNombreAsc()) {
+            Map<String, Object> datos = new LinkedHashMap<>();
+            datos.put("tarea", lease.getNombre());
+            datos.put("propietario", lease.getPropietario());
+            datos.put("venceEn", lease.getVenceEn());
+            leases.add(datos);
+        }
+        estado.put("leases", leases);
+        return estado;
+    }
+
+    // ===== MÉTODOS AUXILIARES =====
+
+    private boolean adquirir(String tarea, LocalDateTime ahora) {
+        LocalDateTime vence = ahora.plusSeconds(leaseSegundos);
+        try {
+            // ⚡ PASO 1: UPDATE condicional (renovación o failover)
+            Integer filas = transaccion.execute(status -> leaseTareaRepository.adquirir(tarea, nodoId, ahora, vence));
+            if (filas != null && filas > 0) {
+                if (propios.put(tarea, vence) == null) {
+                    System.out.println("🔐 Nodo " + nodoId + " tomó el lease de " + tarea);
+                }
+                return true;
+            }
+
+            // ⚡ PASO 2: Primera vez que se usa la tarea: crear la fila. Es un INSERT (LeaseTarea siempre es nueva):
+            // si otro nodo la creó entre la consulta y acá, choca con la clave primaria y gana él
+            if (!Boolean.TRUE.equals(transaccion.execute(status -> leaseTareaRepository.existsById(tarea)))) {
+                transaccion.executeWithoutResult(status -> leaseTareaRepository.saveAndFlush(LeaseTarea.builder()
+                        .nombre(tarea)
+                        .propietario(nodoId)
+                        .venceEn(vence)
+                        .renovadoEn(ahora)
+                        .build()));
+                propios.put(tarea, vence);
+                System.out.println("🔐 Nodo " + nodoId + " creó el lease de " + tarea);
+                return true;
+            }
+        } catch (DataIntegrityViolationException e) {
+            // Otro nodo insertó la misma tarea al mismo tiempo
+        } catch (Exception e) {
+            System.err.println("❌ Error tomando el lease de " + tarea + ": " + e.getMessage());
+        }
+
+        if (propios.remove(tarea) != null) {
+            System.out.println("⚠️ Nodo " + nodoId + " perdió el lease de " + tarea);
+        }
+        return false;
+    }
+
+    private void renovarPropios() {
+        LocalDateTime ahora = LocalDateTime.now();
+        for (String tarea : new ArrayList<>(propios.keySet())) {
+            adquirir(tarea, ahora);
+        }
+    }
+
+    private static String nombreHost() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            return "nodo";
+        }
+    }
+}
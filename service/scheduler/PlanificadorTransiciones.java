@@ -0,0 +1,402 @@
+package com.uade.tpo.deportes.service.scheduler;
+
+import com.uade.tpo.deportes.entity.Partido;
+import com.uade.tpo.deportes.repository.PartidoRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ⏰ PLANIFICADOR DEL CICLO DE VIDA DE LOS PARTIDOS
+ *
+ * Cada partido tiene en una RuedaTemporizadora sus próximas transiciones:
+ * recordatorio, inicio, fin y corte por abandono. En cada tick solo se
+ * cargan y procesan los partidos que vencieron, sin consultas por rango
+ * sobre toda la tabla.
+ *
+ * La rueda se arma desde la base al arrancar (y se vuelve a armar cada
+ * tanto como red de seguridad). Después se mantiene al día desde los mismos
+ * puntos que actualizan el IndicePartidosAbiertos. La rueda decide cuándo
+ * correr cada transición; cuáles partidos cambian lo decide el UPDATE
+ * condicional de TransicionesMasivasService, que también toma los que se
+ * le hayan escapado a la rueda.
+ *
+ * Con varias instancias cada nodo mantiene su rueda, pero las transiciones
+ * vencidas solo las ejecuta el dueño del lease de su tipo. Como cada nodo
+ * solo ve al instante los cambios que pasan por él, el dueño de
+ * "barrido-transiciones" corre además las tres transiciones masivas cada
+ * minuto y cubre los partidos que solo estaban en la rueda de otro nodo.
+ *
+ * Los recordatorios se agendan uno por offset de RecordatoriosService; al
+ * vencer se corre su pasada por la base, que es la que decide qué partidos
+ * reciben cada recordatorio (una sola vez).
+ */
+@Service
+public class PlanificadorTransiciones {
+
+    private static final int DURACION_POR_DEFECTO = 90;
+
+    @Autowired
+    private PartidoRepository partidoRepository;
+
+    @Autowired
+    private RecordatoriosService recordatoriosService;
+
+    @Autowired
+    private TransicionesMasivasService transicionesMasivas;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EjecutorTareasProgramadas ejecutorTareas;
+
+    @Autowired
+    private LeasesTareasService leasesTareasService;
+
+    @Value("${unomas.planificador.tick-ms:1000}")
+    private long tickMs;
+
+    private final ScheduledExecutorService reloj = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread hilo = new Thread(r, "planificador-transiciones");
+        hilo.setDaemon(true);
+        return hilo;
+    });
+
+    // Rueda y handles por partido; ambos se tocan solo con el lock de la rueda
+    private RuedaTemporizadora<Transicion> rueda;
+    private final Map<Long, List<RuedaTemporizadora.Entrada<Transicion>>> programadas = new HashMap<>();
+
+    // Mientras se reconstruye: partidos reprogramados después de empezar la lectura (también con el lock)
+    private Set<Long> reprogramadosDuranteLectura;
+
+    // Partidos vencidos que esperan a la tarea de su tipo (cada tipo corre en su propio hilo)
+    private final Map<TipoTransicion, Set<Long>> pendientes = new EnumMap<>(TipoTransicion.class);
+
+    public enum TipoTransicion { RECORDATORIO, INICIO, FIN, ABANDONO }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void iniciar() {
+        for (TipoTransicion tipo : TipoTransicion.values()) {
+            pendientes.put(tipo, ConcurrentHashMap.newKeySet());
+        }
+        rueda = new RuedaTemporizadora<>(tickMs, System.currentTimeMillis());
+        reconstruirRueda();
+        reloj.scheduleWithFixedDelay(this::tick, tickMs, tickMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void detener() {
+        reloj.shutdownNow();
+    }
+
+    /**
+     * Red de seguridad: vuelve a armar la rueda desde la base por si se perdió algún cambio
+     */
+    @Scheduled(fixedDelayString = "${unomas.planificador.resincronizar-ms:1800000}",
+               initialDelayString = "${unomas.planificador.resincronizar-ms:1800000}")
+    public void reconstruir() {
+        ejecutorTareas.ejecutar("reconstruir-rueda", EjecutorTareasProgramadas.PoliticaSolapamiento.OMITIR,
+                this::reconstruirRueda);
+    }
+
+    /**
+     * Barrido del dueño del lease: aplica las transiciones vencidas aunque no estén en su rueda
+     */
+    @Scheduled(fixedDelayString = "${unomas.cluster.barrido-ms:60000}",
+               initialDelayString = "${unomas.cluster.barrido-ms:60000}")
+    public void barrer() {
+        ejecutorTareas.ejecutarEnUnSoloNodo("barrido-transiciones", EjecutorTareasProgramadas.PoliticaSolapamiento.OMITIR,
+                this::barrerTransiciones);
+    }
+
+    private void reconstruirRueda() {
+        if (rueda == null) {
+            return;
+        }
+        long inicio = System.currentTimeMillis();
+        // ⚡ PASO 1: La lectura va sin el lock (no frena ticks ni actualizaciones), pero desde
+        // acá se anotan los partidos que se reprograman mientras tanto
+        synchronized (rueda) {
+            reprogramadosDuranteLectura = new HashSet<>();
+        }
+        try {
+            TransactionTemplate lectura = new TransactionTemplate(transactionManager);
+            lectura.setReadOnly(true);
+            List<Object[]> filas = lectura.execute(status -> partidoRepository.findPlanTransiciones());
+
+            // ⚡ PASO 2: Reemplazar lo programado por la foto, salvo los partidos que cambiaron
+            // después de leerla: sus entradas actuales son más nuevas que la fila
+            LocalDateTime ahora = LocalDateTime.now();
+            synchronized (rueda) {
+                Set<Long> masNuevos = reprogramadosDuranteLectura;
+                for (Long partidoId : new ArrayList<>(programadas.keySet())) {
+                    if (!masNuevos.contains(partidoId)) {
+                        cancelarProgramadas(partidoId);
+                    }
+                }
+                for (Object[] fila : filas) {
+                    Plan plan = new Plan((Long) fila[0], (String) fila[1], (LocalDateTime) fila[2], (Integer) fila[3]);
+                    if (!masNuevos.contains(plan.partidoId)) {
+                        programar(plan, ahora);
+                    }
+                }
+                System.out.println("⏰ Rueda de transiciones armada: " + rueda.tamaño() + " transiciones de " +
+                        programadas.size() + " partidos en " + (System.currentTimeMillis() - inicio) + " ms" +
+                        (masNuevos.isEmpty() ? "" : " (" + masNuevos.size() + " reprogramados durante la lectura)"));
+            }
+        } finally {
+            synchronized (rueda) {
+                reprogramadosDuranteLectura = null;
+            }
+        }
+    }
+
+    /**
+     * Reprograma las transiciones de un partido (creado, reprogramado o que cambió de estado).
+     * Con una transacción activa se aplica recién después del commit.
+     */
+    public void actualizar(Partido partido) {
+        if (partido.getId() == null) {
+            return;
+        }
+        Plan plan = new Plan(partido.getId(), partido.getEstadoActual(), partido.getHorario(), partido.getDuracion());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    reprogramar(plan);
+                }
+            });
+        } else {
+            reprogramar(plan);
+        }
+    }
+
+    /**
+     * Reprograma partidos que cambiaron con un UPDATE masivo, leyendo su estado de la base
+     */
+    public void reprogramarDesdeBase(Collection<Long> partidoIds) {
+        if (partidoIds.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(partidoIds);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    leerYReprogramar(ids);
+                }
+            });
+        } else {
+            leerYReprogramar(ids);
+        }
+    }
+
+    public int getTransicionesProgramadas() {
+        if (rueda == null) {
+            return 0;
+        }
+        synchronized (rueda) {
+            return rueda.tamaño();
+        }
+    }
+
+    // ===== MÉTODOS AUXILIARES =====
+
+    private void reprogramar(Plan plan) {
+        if (rueda == null) {
+            return;
+        }
+        synchronized (rueda) {
+            if (reprogramadosDuranteLectura != null) {
+                reprogramadosDuranteLectura.add(plan.partidoId);
+            }
+            cancelarProgramadas(plan.partidoId);
+            programar(plan, LocalDateTime.now());
+        }
+    }
+
+    private void leerYReprogramar(List<Long> ids) {
+        TransactionTemplate lectura = new TransactionTemplate(transactionManager);
+        lectura.setReadOnly(true);
+        List<Object[]> filas = lectura.execute(status -> partidoRepository.findPlanTransicionesByIdIn(ids));
+        for (Object[] fila : filas) {
+            reprogramar(new Plan((Long) fila[0], (String) fila[1], (LocalDateTime) fila[2], (Integer) fila[3]));
+        }
+    }
+
+    private void cancelarProgramadas(Long partidoId) {
+        List<RuedaTemporizadora.Entrada<Transicion>> entradas = programadas.remove(partidoId);
+        if (entradas != null) {
+            entradas.forEach(rueda::cancelar);
+        }
+    }
+
+    private void programar(Plan plan, LocalDateTime ahora) {
+        if (plan.horario == null || plan.estado == null) {
+            return;
+        }
+        switch (plan.estado) {
+            case "NECESITAMOS_JUGADORES":
+                // Los que quedaron abandonados hace más de 2 horas no se tocan (igual que antes)
+                if (ahora.isBefore(plan.horario.plusHours(TransicionesMasivasService.HORAS_LIMITE_ABANDONO))) {
+                    agregar(plan.partidoId, TipoTransicion.ABANDONO,
+                            plan.horario.plusMinutes(transicionesMasivas.getMinutosAbandono()));
+                }
+                break;
+            case "CONFIRMADO":
+                // Un tick por recordatorio futuro; los ya enviados los filtra la marca en la base
+                for (int minutosAntes : recordatoriosService.getMinutosAntes()) {
+                    LocalDateTime recordatorio = plan.horario.minusMinutes(minutosAntes);
+                    if (ahora.isBefore(recordatorio)) {
+                        agregar(plan.partidoId, TipoTransicion.RECORDATORIO, recordatorio);
+                    }
+                }
+                if (ahora.isBefore(plan.horario.plusMinutes(TransicionesMasivasService.MINUTOS_TOLERANCIA_INICIO))) {
+                    agregar(plan.partidoId, TipoTransicion.INICIO, plan.horario);
+                }
+                break;
+            case "EN_JUEGO":
+                agregar(plan.partidoId, TipoTransicion.FIN, plan.horario.plusMinutes(plan.duracion));
+                break;
+            default:
+                // PARTIDO_ARMADO espera la confirmación del organizador; los cerrados no tienen transiciones
+                break;
+        }
+    }
+
+    private void agregar(Long partidoId, TipoTransicion tipo, LocalDateTime momento) {
+        long instanteMs = momento.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        programadas.computeIfAbsent(partidoId, id -> new ArrayList<>(4))
+                .add(rueda.programar(instanteMs, new Transicion(partidoId, tipo)));
+    }
+
+    private void tick() {
+        try {
+            Map<TipoTransicion, Set<Long>> vencidas = new EnumMap<>(TipoTransicion.class);
+            synchronized (rueda) {
+                for (Transicion transicion : rueda.avanzar(System.currentTimeMillis())) {
+                    vencidas.computeIfAbsent(transicion.tipo, t -> new LinkedHashSet<>()).add(transicion.partidoId);
+                    List<RuedaTemporizadora.Entrada<Transicion>> entradas = programadas.get(transicion.partidoId);
+                    if (entradas != null) {
+                        entradas.removeIf(e -> e.getValor() == transicion);
+                        if (entradas.isEmpty()) {
+                            programadas.remove(transicion.partidoId);
+                        }
+                    }
+                }
+            }
+            // Cada tipo en su propia tarea: un recordatorio lento no atrasa inicios ni finales.
+            // Si la tarea del tipo ya está corriendo se encadena una pasada más con los nuevos pendientes.
+            vencidas.forEach((tipo, ids) -> {
+                pendientes.get(tipo).addAll(ids);
+                ejecutorTareas.ejecutar("transicion-" + tipo.name().toLowerCase(),
+                        EjecutorTareasProgramadas.PoliticaSolapamiento.ENCADENAR, () -> ejecutarPendientes(tipo));
+            });
+        } catch (Exception e) {
+            System.err.println("❌ Error en el tick del planificador de transiciones: " + e.getMessage());
+        }
+    }
+
+    private void ejecutarPendientes(TipoTransicion tipo) {
+        Set<Long> cola = pendientes.get(tipo);
+        Set<Long> partidoIds = new LinkedHashSet<>(cola);
+        cola.removeAll(partidoIds);
+        // Si el lease del tipo lo tiene otro nodo, los vencidos los procesa él (o su barrido)
+        if (!partidoIds.isEmpty() && leasesTareasService.esDueño("transicion-" + tipo.name().toLowerCase())) {
+            ejecutar(tipo, partidoIds);
+        }
+    }
+
+    private void barrerTransiciones() {
+        LocalDateTime ahora = LocalDateTime.now();
+        Set<Long> cambiados = new LinkedHashSet<>();
+        cambiados.addAll(transicionesMasivas.iniciarConfirmados(ahora));
+        cambiados.addAll(transicionesMasivas.finalizarEnJuego(ahora));
+        cambiados.addAll(transicionesMasivas.cancelarAbandonados(ahora));
+        recordatoriosService.registrarVencidos(ahora);
+        if (!cambiados.isEmpty()) {
+            System.out.println("🧹 Barrido de transiciones: " + cambiados.size() + " partidos cambiaron de estado");
+            reprogramarDesdeBase(cambiados);
+        }
+    }
+
+    private void ejecutar(TipoTransicion tipo, Set<Long> partidoIds) {
+        System.out.println("⏰ " + tipo + " vencido para " + partidoIds.size() + " partidos");
+        LocalDateTime ahora = LocalDateTime.now();
+        // Los cambios de estado son un UPDATE masivo por tipo; los ids afectados se reprograman
+        switch (tipo) {
+            case INICIO:
+                reprogramarDesdeBase(transicionesMasivas.iniciarConfirmados(ahora));
+                break;
+            case FIN:
+                reprogramarDesdeBase(transicionesMasivas.finalizarEnJuego(ahora));
+                break;
+            case ABANDONO:
+                reprogramarDesdeBase(transicionesMasivas.cancelarAbandonados(ahora));
+                break;
+            case RECORDATORIO:
+                // No cambia el estado: el resto de sus transiciones sigue en la rueda
+                recordatoriosService.registrarVencidos(ahora);
+                return;
+        }
+        // Los que vencieron pero no cambiaron (p. ej. reprogramados) vuelven a la rueda con su estado actual
+        reprogramarDesdeBase(partidoIds);
+    }
+
+    private static int duracionDe(Integer duracion) {
+        return duracion != null ? duracion : DURACION_POR_DEFECTO;
+    }
+
+    /**
+     * Lo mínimo del partido para calcular sus transiciones (se usa fuera de la transacción)
+     */
+    private static final class Plan {
+        private final Long partidoId;
+        private final String estado;
+        private final LocalDateTime horario;
+        private final int duracion;
+
+        private Plan(Long partidoId, String estado, LocalDateTime horario, Integer duracion) {
+            this.partidoId = partidoId;
+            this.estado = estado;
+            this.horario = horario;
+            this.duracion = duracionDe(duracion);
+        }
+    }
+
+    private static final class Transicion {
+        private final Long partidoId;
+        private final TipoTransicion tipo;
+
+        private Transicion(Long partidoId, TipoTransicion tipo) {
+            this.partidoId = partidoId;
+            this.tipo = tipo;
+        }
+    }
+}
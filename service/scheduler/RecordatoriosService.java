@@ -0,0 +1,145 @@
+package com.uade.tpo.deportes.service.scheduler;
+
+import com.uade.tpo.deportes.entity.RecordatorioEnviado;
+import com.uade.tpo.deportes.patterns.observer.OutboxObserver;
+import com.uade.tpo.deportes.repository.PartidoRepository;
+import com.uade.tpo.deportes.repository.RecordatorioEnviadoRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * ⏰ RECORDATORIOS DE PARTIDOS
+ *
+ * Cada partido confirmado recibe un recordatorio por offset configurado
+ * (por defecto 24 h, 1 h y 15 min antes). Por offset se buscan en lotes
+ * los partidos que entraron en su ventana y no tienen la marca en
+ * recordatorios_enviados; en la misma transacción se guardan las marcas y
+ * los eventos RECORDATORIO_PARTIDO en la outbox, que el relay despacha
+ * como cualquier otro evento.
+ *
+ * La clave única (partido, offset) garantiza un solo recordatorio aunque
+ * la pasada se repita o corra en dos nodos: el lote que choca hace
+ * rollback entero y la próxima pasada toma lo que falte.
+ */
+@Service
+public class RecordatoriosService {
+
+    private static final int TAMANO_LOTE = 500;
+
+    @Autowired
+    private PartidoRepository partidoRepository;
+
+    @Autowired
+    private RecordatorioEnviadoRepository recordatorioEnviadoRepository;
+
+    @Autowired
+    private OutboxObserver outboxObserver;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EjecutorTareasProgramadas ejecutorTareas;
+
+    @Value("${unomas.recordatorios.minutos-antes:1440,60,15}")
+    private int[] minutosAntesConfigurados;
+
+    @Value("${unomas.recordatorios.retencion-dias:7}")
+    private long retencionDias;
+
+    // Offsets de mayor a menor
+    private int[] minutosAntes;
+
+    @PostConstruct
+    public void iniciar() {
+        minutosAntes = Arrays.stream(minutosAntesConfigurados)
+                .filter(minutos -> minutos > 0)
+                .distinct()
+                .boxed()
+                .sorted((a, b) -> b - a)
+                .mapToInt(Integer::intValue)
+                .toArray();
+        System.out.println("⏰ Recordatorios configurados (minutos antes): " + Arrays.toString(minutosAntes));
+    }
+
+    /**
+     * Registra todos los recordatorios que vencieron hasta ahora. Devuelve cuántos se registraron.
+     */
+    public int registrarVencidos(LocalDateTime ahora) {
+        TransactionTemplate transaccion = new TransactionTemplate(transactionManager);
+        int registrados = 0;
+        for (int i = 0; i < minutosAntes.length; i++) {
+            int offset = minutosAntes[i];
+            // La ventana de un offset termina donde empieza la del siguiente: un partido
+            // confirmado a 30 minutos de empezar recibe solo el de 15, no el de 24 h ni el de 1 h
+            LocalDateTime desde = i + 1 < minutosAntes.length ? ahora.plusMinutes(minutosAntes[i + 1]) : ahora;
+            LocalDateTime hasta = ahora.plusMinutes(offset);
+            registrados += registrarOffset(transaccion, offset, desde, hasta);
+        }
+        if (registrados > 0) {
+            System.out.println("⏰ " + registrados + " recordatorios registrados en outbox");
+        }
+        return registrados;
+    }
+
+    /**
+     * Offsets configurados, de mayor a menor (el planificador agenda uno por cada uno)
+     */
+    public int[] getMinutosAntes() {
+        return minutosAntes.clone();
+    }
+
+    // Limpieza diaria de marcas de partidos que ya pasaron (un solo nodo del cluster)
+    @Scheduled(cron = "${unomas.recordatorios.limpieza-cron:0 45 4 * * *}")
+    public void limpiarMarcas() {
+        ejecutorTareas.ejecutarEnUnSoloNodo("limpieza-recordatorios", EjecutorTareasProgramadas.PoliticaSolapamiento.OMITIR, () -> {
+            Integer eliminadas = new TransactionTemplate(transactionManager).execute(status ->
+                    recordatorioEnviadoRepository.eliminarAnterioresA(LocalDateTime.now().minusDays(retencionDias)));
+            System.out.println("🧹 Recordatorios: " + eliminadas + " marcas eliminadas");
+        });
+    }
+
+    // ===== MÉTODOS AUXILIARES =====
+
+    private int registrarOffset(TransactionTemplate transaccion, int offset, LocalDateTime desde, LocalDateTime hasta) {
+        int registrados = 0;
+        while (true) {
+            Integer lote;
+            try {
+                // ⚡ PASO 1: Marcas y eventos del lote en una sola transacción
+                lote = transaccion.execute(status -> {
+                    List<Long> ids = partidoRepository.findSinRecordatorio(desde, hasta, offset,
+                            PageRequest.of(0, TAMANO_LOTE));
+                    if (ids.isEmpty()) {
+                        return 0;
+                    }
+                    recordatorioEnviadoRepository.saveAllAndFlush(ids.stream()
+                            .map(id -> RecordatorioEnviado.builder().partidoId(id).minutosAntes(offset).build())
+                            .collect(Collectors.toList()));
+                    outboxObserver.registrarRecordatorios(ids, offset);
+                    return ids.size();
+                });
+            } catch (DataIntegrityViolationException e) {
+                // ⚡ PASO 2: Otro nodo registró parte del lote al mismo tiempo; la próxima pasada sigue
+                System.out.println("⚠️ Lote de recordatorios de " + offset + " min ya registrado por otro nodo");
+                return registrados;
+            }
+            registrados += lote;
+            if (lote < TAMANO_LOTE) {
+                return registrados;
+            }
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.uade.tpo.deportes.service.scheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ⏱️ RUEDA TEMPORIZADORA JERÁRQUICA
+ *
+ * 4 niveles de 64 ranuras. Con un tick de 1 s el nivel 0 cubre 64 s,
+ * el 1 ~68 min, el 2 ~73 h y el 3 ~194 días. Programar y cancelar son
+ * O(1). En cada tick se vacía una sola ranura del nivel 0, y cada 64 ticks
+ * la ranura que toca del nivel siguiente se redistribuye hacia abajo
+ * (cascada). Las entradas más lejanas que el último nivel quedan en su
+ * última ranura y se reubican en cada cascada hasta que les toca.
+ *
+ * No es thread-safe: la sincroniza quien la usa (PlanificadorTransiciones).
+ */
+public final class RuedaTemporizadora<T> {
+
+    private static final int BITS = 6;
+    private static final int RANURAS = 1 << BITS;
+    private static final int MASCARA = RANURAS - 1;
+    private static final int NIVELES = 4;
+    private static final long MAX_DELTA = (1L << (BITS * NIVELES)) - 1;
+
+    private final long tickMs;
+    private final Entrada<T>[][] ranuras;
+    private long tickActual;
+    private int tamaño;
+
+    @SuppressWarnings("unchecked")
+    public RuedaTemporizadora(long tickMs, long ahoraMs) {
+        this.tickMs = tickMs;
+        this.ranuras = new Entrada[NIVELES][RANURAS];
+        for (int nivel = 0; nivel < NIVELES; nivel++) {
+            for (int i = 0; i < RANURAS; i++) {
+                ranuras[nivel][i] = Entrada.centinela();
+            }
+        }
+        this.tickActual = ahoraMs / tickMs;
+    }
+
+    /**
+     * Programa un valor para el instante dado (epoch ms). Si ya pasó, vence en el próximo avance.
+     */
+    public Entrada<T> programar(long instanteMs, T valor) {
+        // Redondeo hacia arriba: una entrada nunca vence antes de su instante
+        long vence = (instanteMs + tickMs - 1) / tickMs;
+        Entrada<T> entrada = new Entrada<>(valor, Math.max(vence, tickActual));
+        insertar(entrada);
+        tamaño++;
+        return entrada;
+    }
+
+    /**
+     * Saca una entrada que todavía no venció. Devuelve false si ya había vencido o se había cancelado.
+     */
+    public boolean cancelar(Entrada<T> entrada) {
+        if (entrada == null || entrada.anterior == null) {
+            return false;
+        }
+        desenlazar(entrada);
+        tamaño--;
+        return true;
+    }
+
+    /**
+     * Avanza hasta el instante dado y devuelve los valores vencidos, en orden de vencimiento
+     */
+    public List<T> avanzar(long ahoraMs) {
+        List<T> vencidos = new ArrayList<>();
+        long objetivo = ahoraMs / tickMs;
+        while (tickActual <= objetivo) {
+            if (tamaño == 0) {
+                // Nada programado: no hace falta recorrer ranuras vacías
+                tickActual = objetivo + 1;
+                break;
+            }
+            procesarTick(vencidos);
+        }
+        return vencidos;
+    }
+
+    /**
+     * Vacía la rueda y la reinicia en el instante dado
+     */
+    public void limpiar(long ahoraMs) {
+        for (Entrada<T>[] nivel : ranuras) {
+            for (Entrada<T> centinela : nivel) {
+                Entrada<T> actual = centinela.siguiente;
+                while (actual != centinela) {
+                    Entrada<T> siguiente = actual.siguiente;
+                    actual.anterior = null;
+                    actual.siguiente = null;
+                    actual = siguiente;
+                }
+                centinela.anterior = centinela;
+                centinela.siguiente = centinela;
+            }
+        }
+        tamaño = 0;
+        tickActual = ahoraMs / tickMs;
+    }
+
+    public int tamaño() {
+        return tamaño;
+    }
+
+    // ===== MÉTODOS AUXILIARES =====
+
+    private void procesarTick(List<T> vencidos) {
+        int indice = (int) (tickActual & MASCARA);
+        if (indice == 0) {
+            // Cascada: el nivel 1 baja al 0; si también dio la vuelta, el 2 baja al 1, etc.
+            for (int nivel = 1; nivel < NIVELES; nivel++) {
+                int i = (int) ((tickActual >> (BITS * nivel)) & MASCARA);
+                redistribuir(ranuras[nivel][i]);
+                if (i != 0) {
+                    break;
+                }
+            }
+        }
+
+        Entrada<T> centinela = ranuras[0][indice];
+        Entrada<T> actual = centinela.siguiente;
+        while (actual != centinela) {
+            Entrada<T> siguiente = actual.siguiente;
+            desenlazar(actual);
+            tamaño--;
+            vencidos.add(actual.valor);
+            actual = siguiente;
+        }
+        tickActual++;
+    }
+
+    private void redistribuir(Entrada<T> centinela) {
+        Entrada<T> actual = centinela.siguiente;
+        centinela.anterior = centinela;
+        centinela.siguiente = centinela;
+        while (actual != centinela) {
+            Entrada<T> siguiente = actual.siguiente;
+            insertar(actual);
+            actual = siguiente;
+        }
+    }
+
+    private void insertar(Entrada<T> entrada) {
+        long delta = entrada.vence - tickActual;
+        Entrada<T> centinela;
+        if (delta < 0) {
+            centinela = ranuras[0][(int) (tickActual & MASCARA)];
+        } else if (delta < RANURAS) {
+            centinela = ranuras[0][(int) (entrada.vence & MASCARA)];
+        } else {
+            long destino = delta > MAX_DELTA ? tickActual + MAX_DELTA : entrada.vence;
+            int nivel = 1;
+            while (nivel < NIVELES - 1 && delta >= 1L << (BITS * (nivel + 1))) {
+                nivel++;
+            }
+            centinela = ranuras[nivel][(int) ((destino >> (BITS * nivel)) & MASCARA)];
+        }
+        entrada.anterior = centinela.anterior;
+        entrada.siguiente = centinela;
+        centinela.anterior.siguiente = entrada;
+        centinela.anterior = entrada;
+    }
+
+    private void desenlazar(Entrada<T> entrada) {
+        entrada.anterior.siguiente = entrada.siguiente;
+        entrada.siguiente.anterior = entrada.anterior;
+        entrada.anterior = null;
+        entrada.siguiente = null;
+    }
+
+    /**
+     * Nodo de la lista doblemente enlazada de cada ranura; sirve de handle para cancelar
+     */
+    public static final class Entrada<T> {
+        private final T valor;
+        private final long vence;
+        private Entrada<T> anterior;
+        private Entrada<T> siguiente;
+
+        private Entrada(T valor, long vence) {
+            this.valor = valor;
+            this.vence = vence;
+        }
+
+        private static <T> Entrada<T> centinela() {
+            Entrada<T> centinela = new Entrada<>(null, 0);
+            centinela.anterior = centinela;
+            centinela.siguiente = centinela;
+            return centinela;
+        }
+
+        public T getValor() {
+            return valor;
+        }
+    }
+}
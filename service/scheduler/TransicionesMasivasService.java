@@ -0,0 +1,131 @@
+package com.uade.tpo.deportes.service.scheduler;
+
+import com.uade.tpo.deportes.entity.Partido;
+import com.uade.tpo.deportes.enums.EventoPartido;
+import com.uade.tpo.deportes.patterns.observer.OutboxObserver;
+import com.uade.tpo.deportes.repository.PartidoRepository;
+import com.uade.tpo.deportes.service.historial.PerfilHistorialService;
+import com.uade.tpo.deportes.service.partido.IndicePartidosAbiertos;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 🔁 TRANSICIONES DE ESTADO MASIVAS
+ *
+ * Cada transición automática es un SELECT ... FOR UPDATE de los ids que
+ * cumplen la condición más un único UPDATE condicional. Los ids bloqueados
+ * son los afectados, y con ellos se escriben los eventos en la outbox en
+ * bloque. Ninguna entidad se carga ni se guarda de a una.
+ */
+@Service
+public class TransicionesMasivasService {
+
+    static final int MINUTOS_TOLERANCIA_INICIO = 5;
+    static final int HORAS_LIMITE_ABANDONO = 2;
+    private static final int TAMANO_LOTE_HORARIO_FIN = 500;
+
+    @Autowired
+    private PartidoRepository partidoRepository;
+
+    @Autowired
+    private OutboxObserver outboxObserver;
+
+    @Autowired
+    private IndicePartidosAbiertos indicePartidosAbiertos;
+
+    @Autowired
+    private PerfilHistorialService perfilHistorialService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${unomas.planificador.abandono-minutos:30}")
+    private int minutosAbandono;
+
+    /**
+     * CONFIRMADO → EN_JUEGO para los que empezaron hace menos de 5 minutos
+     */
+    @Transactional
+    public List<Long> iniciarConfirmados(LocalDateTime ahora) {
+        List<Long> ids = partidoRepository.bloquearParaIniciar(ahora, ahora.minusMinutes(MINUTOS_TOLERANCIA_INICIO));
+        if (ids.isEmpty()) {
+            return ids;
+        }
+        partidoRepository.cambiarEstadoMasivo(ids, "CONFIRMADO", "EN_JUEGO");
+        indicePartidosAbiertos.quitar(ids);
+        outboxObserver.registrarEnBloque(ids, EventoPartido.PARTIDO_INICIADO);
+        System.out.println("🏃‍♂️ " + ids.size() + " partidos iniciados: " + ids);
+        return ids;
+    }
+
+    /**
+     * EN_JUEGO → FINALIZADO para los que ya pasaron horario + duracion
+     */
+    @Transactional
+    public List<Long> finalizarEnJuego(LocalDateTime ahora) {
+        List<Long> ids = partidoRepository.bloquearParaFinalizar(ahora);
+        if (ids.isEmpty()) {
+            return ids;
+        }
+        partidoRepository.cambiarEstadoMasivo(ids, "EN_JUEGO", "FINALIZADO");
+        perfilHistorialService.registrarFinalizaciones(ids);
+        outboxObserver.registrarEnBloque(ids, EventoPartido.PARTIDO_FINALIZADO);
+        System.out.println("🏆 " + ids.size() + " partidos finalizados: " + ids);
+        return ids;
+    }
+
+    /**
+     * NECESITAMOS_JUGADORES → CANCELADO para los que empezaron hace entre 30 minutos y 2 horas
+     */
+    @Transactional
+    public List<Long> cancelarAbandonados(LocalDateTime ahora) {
+        List<Long> ids = partidoRepository.bloquearAbandonados(
+                ahora.minusMinutes(minutosAbandono), ahora.minusHours(HORAS_LIMITE_ABANDONO));
+        if (ids.isEmpty()) {
+            return ids;
+        }
+        partidoRepository.cambiarEstadoMasivo(ids, "NECESITAMOS_JUGADORES", "CANCELADO");
+        indicePartidosAbiertos.quitar(ids);
+        outboxObserver.registrarEnBloque(ids, EventoPartido.PARTIDO_CANCELADO);
+        System.out.println("🗑️ " + ids.size() + " partidos abandonados cancelados: " + ids);
+        return ids;
+    }
+
+    public int getMinutosAbandono() {
+        return minutosAbandono;
+    }
+
+    /**
+     * Completa horario_fin en los partidos creados antes de que existiera la columna.
+     * Sin esto, finalizarEnJuego no los vería nunca.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void completarHorarioFin() {
+        TransactionTemplate transaccion = new TransactionTemplate(transactionManager);
+        int completados = 0;
+        while (true) {
+            Integer lote = transaccion.execute(status -> {
+                List<Partido> partidos = partidoRepository.findSinHorarioFin(PageRequest.of(0, TAMANO_LOTE_HORARIO_FIN));
+                partidos.forEach(Partido::calcularHorarioFin);
+                return partidos.size();
+            });
+            completados += lote;
+            if (lote < TAMANO_LOTE_HORARIO_FIN) {
+                break;
+            }
+        }
+        if (completados > 0) {
+            System.out.println("🕐 horario_fin completado en " + completados + " partidos");
+        }
+    }
+}
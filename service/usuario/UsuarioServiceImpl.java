@@ -15,6 +15,8 @@ import com.uade.tpo.deportes.repository.UsuarioRepository;
 import com.uade.tpo.deportes.repository.UbicacionRepository;
 import com.uade.tpo.deportes.repository.DeporteRepository;
 import com.uade.tpo.deportes.service.auth.EmailValidator;
+import com.uade.tpo.deportes.service.notificacion.SuscripcionTopicosService;
+import com.uade.tpo.deportes.service.preferencias.PreferenciasNotificacionService;
 import com.uade.tpo.deportes.service.pushtoken.PushTokenService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -25,6 +27,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -55,6 +58,12 @@ public class UsuarioServiceImpl implements UsuarioService {
     @Autowired
     private PushTokenService pushTokenService;
 
+    @Autowired
+    private SuscripcionTopicosService suscripcionTopicosService;
+
+    @Autowired
+    private PreferenciasNotificacionService preferenciasNotificacionService;
+
     @Override
     @Transactional
     public RegisterResponse registrarUsuario(RegisterRequest request) {
@@ -117,6 +126,7 @@ public class UsuarioServiceImpl implements UsuarioService {
                 .ubicacion(ubicacion)
                 .build();
         usuarioRepository.save(usuario);
+        suscripcionTopicosService.sincronizarUsuario(usuario.getId(), Set.of());
 
         // 7. Generar token JWT
         String token = jwtService.generateToken(usuario);
@@ -180,6 +190,9 @@ public class UsuarioServiceImpl implements UsuarioService {
     @Transactional
     public UsuarioResponse actualizarPerfil(String email, ActualizarPerfilRequest request) {
         Usuario usuario = obtenerUsuarioPorEmail(email);
+        Set<String> topicosAnteriores = SuscripcionTopicosService.topicosDe(
+            usuario.getDeporteFavorito() != null ? usuario.getDeporteFavorito().getId() : null,
+            usuario.getUbicacion() != null ? usuario.getUbicacion().getZona() : null);
         
         // Actualizar campos opcionales
         if (request.getDeporteFavoritoId() != null) {
@@ -204,6 +217,9 @@ public class UsuarioServiceImpl implements UsuarioService {
         }
         
         usuarioRepository.save(usuario);
+        // La ubicación forma parte del snapshot que usa el filtro por radio
+        preferenciasNotificacionService.invalidarDespuesDelCommit(usuario.getId());
+        suscripcionTopicosService.sincronizarUsuario(usuario.getId(), topicosAnteriores);
         return mapearAResponse(usuario);
     }
 
@@ -260,14 +276,19 @@ public class UsuarioServiceImpl implements UsuarioService {
         Usuario usuario = obtenerUsuarioPorId(id);
         usuario.setActivo(true);
         usuarioRepository.save(usuario);
+        // Vuelve a los tópicos de su perfil
+        suscripcionTopicosService.sincronizarUsuario(usuario.getId(), Set.of());
         return mapearAResponse(usuario);
     }
 
     @Override
     public UsuarioResponse desactivarUsuario(Long id) {
         Usuario usuario = obtenerUsuarioPorId(id);
+        Set<String> topicosAnteriores = suscripcionTopicosService.topicosActuales(usuario.getId());
         usuario.setActivo(false);
         usuarioRepository.save(usuario);
+        // Un usuario desactivado no recibe más pushes de creación: sale de todos sus tópicos
+        suscripcionTopicosService.sincronizarUsuario(usuario.getId(), topicosAnteriores);
         return mapearAResponse(usuario);
     }
 
@@ -287,6 +308,7 @@ public class UsuarioServiceImpl implements UsuarioService {
         
         // ✅ NUEVO: También registrar en el PushTokenService (usado por notificaciones)
         pushTokenService.registrarToken(usuario.getId(), token, "web");
+        suscripcionTopicosService.suscribirToken(usuario.getId(), token);
         
         System.out.println("✅ Token push registrado para usuario " + usuario.getEmail() + " (ID: " + usuario.getId() + ")");
     }
@@ -0,0 +1,156 @@
+package com.uade.tpo.deportes.patterns.adapter;
+
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import com.uade.tpo.deportes.patterns.decorator.NotificadorEmailResiliente;
+import com.uade.tpo.deportes.service.notificacion.ColaReintentosNotificaciones;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * 📧 Envío por lote contra un SMTP real en memoria (GreenMail): todo el lote
+ * llega por una conexión, y si el servidor rechaza algunos emails solo esos
+ * vuelven a la cola de reintentos, de a uno.
+ */
+class AdapterJavaMailEmailGreenMailTest {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    private static final String REBOTA = "rebota@unomas.test";
+
+    private AdapterJavaMailEmail adapter;
+    private NotificadorEmailResiliente resiliente;
+    private ColaReintentosNotificaciones colaReintentos;
+
+    @BeforeEach
+    void preparar() {
+        JavaMailSenderImpl mailSender = new RechazaUnDestinatario();
+        mailSender.setHost(ServerSetupTest.SMTP.getBindAddress());
+        mailSender.setPort(ServerSetupTest.SMTP.getPort());
+
+        adapter = new AdapterJavaMailEmail();
+        ReflectionTestUtils.setField(adapter, "mailSender", mailSender);
+        ReflectionTestUtils.setField(adapter, "fromEmail", "UnoMas <noreply@unomas.test>");
+        ReflectionTestUtils.setField(adapter, "emailEnabled", true);
+
+        colaReintentos = mock(ColaReintentosNotificaciones.class);
+        resiliente = new NotificadorEmailResiliente();
+        ReflectionTestUtils.setField(resiliente, "adapterJavaMailEmail", adapter);
+        ReflectionTestUtils.setField(resiliente, "colaReintentos", colaReintentos);
+        ReflectionTestUtils.setField(resiliente, "umbralFallos", 5);
+        ReflectionTestUtils.setField(resiliente, "abiertoSegundos", 60L);
+        ReflectionTestUtils.setField(resiliente, "timeoutMs", 10000L);
+        ReflectionTestUtils.setField(resiliente, "hilos", 1);
+        resiliente.iniciar();
+    }
+
+    @AfterEach
+    void detener() {
+        resiliente.detener();
+    }
+
+    @Test
+    void elLoteLlegaCompletoConElMensajeDeCadaUno() throws Exception {
+        List<EmailSaliente> lote = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            lote.add(new EmailSaliente("jugador" + i + "@unomas.test", i % 2 == 0 ? "Partido armado" : "Partido confirmado"));
+        }
+
+        int enviados = resiliente.enviarNotificacionLote(lote);
+
+        assertEquals(5, enviados);
+        assertTrue(greenMail.waitForIncomingEmail(5000, 5));
+        MimeMessage[] recibidos = greenMail.getReceivedMessages();
+        assertEquals(5, recibidos.length);
+        for (MimeMessage recibido : recibidos) {
+            String para = recibido.getRecipients(Message.RecipientType.TO)[0].toString();
+            int indice = Integer.parseInt(para.substring("jugador".length(), para.indexOf('@')));
+            assertTrue(((String) recibido.getContent()).contains(lote.get(indice).getMensaje()));
+        }
+        verify(colaReintentos, never()).programar(any(), any(), any(), any());
+    }
+
+    @Test
+    void soloLosRechazadosVuelvenALaColaDeAUno() throws MessagingException {
+        List<EmailSaliente> lote = List.of(
+                new EmailSaliente("uno@unomas.test", "Partido armado"),
+                new EmailSaliente(REBOTA, "Partido armado"),
+                new EmailSaliente("dos@unomas.test", "Partido armado"));
+
+        int enviados = resiliente.enviarNotificacionLote(lote);
+
+        assertEquals(2, enviados);
+        assertTrue(greenMail.waitForIncomingEmail(5000, 2));
+        Set<String> recibidos = new HashSet<>();
+        for (MimeMessage recibido : greenMail.getReceivedMessages()) {
+            recibidos.add(recibido.getRecipients(Message.RecipientType.TO)[0].toString());
+        }
+        assertEquals(Set.of("uno@unomas.test", "dos@unomas.test"), recibidos);
+        // Un reintento individual para el rechazado, ninguno para el lote
+        verify(colaReintentos, times(1)).programar(eq("email"), contains(REBOTA), any(), any());
+        verify(colaReintentos, times(1)).programar(any(), any(), any(), any());
+    }
+
+    /**
+     * Simula un servidor que rechaza un destinatario puntual: entrega el resto
+     * del lote y reporta el rechazado como lo hace JavaMailSenderImpl.
+     */
+    private static final class RechazaUnDestinatario extends JavaMailSenderImpl {
+        @Override
+        public void send(MimeMessage... mensajes) {
+            List<MimeMessage> aceptados = new ArrayList<>();
+            Map<Object, Exception> rechazados = new LinkedHashMap<>();
+            for (MimeMessage mensaje : mensajes) {
+                if (destinatarios(mensaje).contains(REBOTA)) {
+                    rechazados.put(mensaje, new MessagingException("550 Mailbox unavailable"));
+                } else {
+                    aceptados.add(mensaje);
+                }
+            }
+            if (!aceptados.isEmpty()) {
+                super.send(aceptados.toArray(new MimeMessage[0]));
+            }
+            if (!rechazados.isEmpty()) {
+                throw new MailSendException(rechazados);
+            }
+        }
+
+        private static Set<String> destinatarios(MimeMessage mensaje) {
+            try {
+                return Arrays.stream(mensaje.getAllRecipients())
+                        .map(Object::toString)
+                        .collect(Collectors.toSet());
+            } catch (MessagingException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
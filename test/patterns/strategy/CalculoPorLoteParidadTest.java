@@ -0,0 +1,139 @@
+package com.uade.tpo.deportes.patterns.strategy;
+
+import com.uade.tpo.deportes.entity.Deporte;
+import com.uade.tpo.deportes.entity.Partido;
+import com.uade.tpo.deportes.entity.Ubicacion;
+import com.uade.tpo.deportes.entity.Usuario;
+import com.uade.tpo.deportes.enums.NivelJuego;
+import com.uade.tpo.deportes.service.historial.PerfilHistorial;
+import com.uade.tpo.deportes.service.historial.PerfilHistorialService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * calcularCompatibilidades (por lote) tiene que dar exactamente lo mismo que
+ * calcularCompatibilidad partido por partido, para las tres estrategias.
+ */
+class CalculoPorLoteParidadTest {
+
+    private static final String[] ZONAS = {"palermo", "belgrano", "centro", "recoleta", "zona desconocida", null};
+    private static final String[] DEPORTES = {"FUTBOL", "BASQUET", "TENIS", "VOLEY"};
+
+    private final List<Usuario> jugadores = new ArrayList<>();
+    private final List<Partido> partidos = new ArrayList<>();
+
+    private EmparejamientoPorNivelStrategy porNivel;
+    private EmparejamientoPorCercaniaStrategy porCercania;
+    private EmparejamientoPorHistorialStrategy porHistorial;
+
+    @BeforeEach
+    void preparar() {
+        long id = 1;
+        for (NivelJuego nivel : NivelJuego.values()) {
+            for (String zona : ZONAS) {
+                jugadores.add(usuario(id++, nivel, zona, zona != null ? -34.6 + id * 0.01 : null));
+            }
+        }
+
+        LocalDateTime base = LocalDateTime.of(2030, 3, 4, 18, 0);
+        for (int i = 0; i < 60; i++) {
+            List<Usuario> participantes = new ArrayList<>();
+            for (int j = 0; j < i % 5; j++) {
+                participantes.add(jugadores.get((i * 3 + j) % jugadores.size()));
+            }
+            partidos.add(Partido.builder()
+                    .id(1000L + i)
+                    .deporte(Deporte.builder().id((long) (i % DEPORTES.length)).nombre(DEPORTES[i % DEPORTES.length]).build())
+                    .ubicacion(Ubicacion.builder()
+                            .direccion("Calle " + i)
+                            .zona(ZONAS[i % (ZONAS.length - 1)]) // los partidos siempre tienen zona
+                            .latitud(i % 3 == 0 ? null : -34.6 + i * 0.005)
+                            .longitud(i % 3 == 0 ? null : -58.4 - i * 0.005)
+                            .build())
+                    .horario(base.plusHours(i * 7))
+                    .duracion(90)
+                    .cantidadJugadoresRequeridos(2 + i % 6)
+                    .organizador(jugadores.get((i * 7) % jugadores.size()))
+                    .participantes(participantes)
+                    .estadoActual("NECESITAMOS_JUGADORES")
+                    .estrategiaActual("POR_NIVEL")
+                    .build());
+        }
+
+        porNivel = new EmparejamientoPorNivelStrategy();
+        porNivel.setNivelMinimo(NivelJuego.PRINCIPIANTE);
+        porNivel.setNivelMaximo(NivelJuego.INTERMEDIO);
+
+        porCercania = new EmparejamientoPorCercaniaStrategy();
+
+        PerfilHistorial perfil = new PerfilHistorial(jugadores.get(0).getId());
+        perfil.agregarPartidoJugado(1L, "TENIS", base.minusDays(10), List.of(2L, 3L));
+        perfil.agregarPartidoJugado(2L, "TENIS", base.minusDays(5), List.of(4L));
+        perfil.agregarPartidoJugado(3L, "VOLEY", base.minusDays(2), List.of(5L, 6L));
+        PerfilHistorialService perfiles = mock(PerfilHistorialService.class);
+        when(perfiles.obtenerPerfil(any())).thenReturn(perfil);
+        porHistorial = new EmparejamientoPorHistorialStrategy();
+        ReflectionTestUtils.setField(porHistorial, "perfilHistorialService", perfiles);
+    }
+
+    @Test
+    void porNivelDaLoMismoPorLoteQueDeAUno() {
+        verificarParidad(porNivel);
+    }
+
+    @Test
+    void porCercaniaDaLoMismoPorLoteQueDeAUno() {
+        verificarParidad(porCercania);
+    }
+
+    @Test
+    void porHistorialDaLoMismoPorLoteQueDeAUno() {
+        verificarParidad(porHistorial);
+    }
+
+    @Test
+    void loteVacioDevuelveArregloVacio() {
+        assertEquals(0, porNivel.calcularCompatibilidades(jugadores.get(0), List.of()).length);
+        assertEquals(0, porCercania.calcularCompatibilidades(jugadores.get(0), List.of()).length);
+        assertEquals(0, porHistorial.calcularCompatibilidades(jugadores.get(0), List.of()).length);
+    }
+
+    // ===== MÉTODOS AUXILIARES =====
+
+    private void verificarParidad(EstrategiaEmparejamiento estrategia) {
+        for (Usuario usuario : jugadores) {
+            double[] porLote = estrategia.calcularCompatibilidades(usuario, partidos);
+            assertEquals(partidos.size(), porLote.length);
+            for (int i = 0; i < partidos.size(); i++) {
+                Double deAUno = estrategia.calcularCompatibilidad(usuario, partidos.get(i));
+                assertEquals(deAUno != null ? deAUno : 0.0, porLote[i], 1e-12,
+                        estrategia.getNombre() + ": usuario " + usuario.getId() + ", partido " + partidos.get(i).getId());
+            }
+        }
+    }
+
+    private static Usuario usuario(long id, NivelJuego nivel, String zona, Double latitud) {
+        return Usuario.builder()
+                .id(id)
+                .nombreUsuario("jugador" + id)
+                .email("jugador" + id + "@test.com")
+                .nivelJuego(nivel)
+                .ubicacion(zona == null ? null : Ubicacion.builder()
+                        .direccion("Casa " + id)
+                        .zona(zona)
+                        .latitud(latitud)
+                        .longitud(latitud != null ? -58.4 : null)
+                        .build())
+                .build();
+    }
+}
@@ -0,0 +1,239 @@
+package com.uade.tpo.deportes.service.partido;
+
+import com.uade.tpo.deportes.dto.CriteriosBusqueda;
+import com.uade.tpo.deportes.dto.PartidoResponse;
+import com.uade.tpo.deportes.entity.Deporte;
+import com.uade.tpo.deportes.entity.Partido;
+import com.uade.tpo.deportes.entity.Ubicacion;
+import com.uade.tpo.deportes.entity.Usuario;
+import com.uade.tpo.deportes.enums.NivelJuego;
+import com.uade.tpo.deportes.enums.Role;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * 🗂️ La búsqueda tiene que devolver lo mismo con el índice en memoria
+ * (IndicePartidosAbiertos) que resolviéndola en la base: mismos partidos
+ * para cada combinación de criterios, y en cercanía el mismo orden y
+ * las mismas distancias.
+ *
+ * Los partidos se crean directo con el EntityManager, así que el índice
+ * se reconstruye antes de cada búsqueda por el camino del índice.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:paridad-indice;DB_CLOSE_DELAY=-1",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "unomas.busqueda.indice-memoria.enabled=true",
+        "unomas.notifications.push.enabled=false",
+        "unomas.notifications.push.firebase.service-account-path=",
+        "unomas.notifications.push.firebase.project-id=test",
+        "unomas.notifications.email.enabled=false"
+})
+@DirtiesContext
+class BusquedaIndiceParidadTest {
+
+    private static final double LATITUD = -34.5880;
+    private static final double LONGITUD = -58.4300;
+
+    @Autowired
+    private PartidoService partidoService;
+
+    @Autowired
+    private IndicePartidosAbiertos indicePartidosAbiertos;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transaccion;
+    private Deporte deporte;
+    private Usuario buscador;
+    private Usuario organizador;
+    private String zona;
+
+    @BeforeEach
+    void preparar() {
+        transaccion = new TransactionTemplate(transactionManager);
+        zona = "zona-" + UUID.randomUUID().toString().substring(0, 8);
+        transaccion.executeWithoutResult(status -> {
+            deporte = Deporte.builder()
+                    .nombre("PADEL-" + UUID.randomUUID())
+                    .jugadoresPorEquipo(2)
+                    .activo(true)
+                    .build();
+            entityManager.persist(deporte);
+            organizador = usuario();
+            buscador = usuario();
+
+            // Abiertos, en cada estado que la búsqueda puede mostrar
+            partido("NECESITAMOS_JUGADORES", zona, 2, false, 1, 0.001);
+            partido("NECESITAMOS_JUGADORES", "  " + zona.toUpperCase() + " ", 3, false, 2, 0.010);
+            partido("PARTIDO_ARMADO", zona, 4, false, 3, 0.020);
+            partido("CONFIRMADO", zona, 5, false, 4, 0.030);
+            // Uno donde ya participa el buscador y uno sin cupo
+            partido("NECESITAMOS_JUGADORES", zona, 6, true, 1, 0.040);
+            partido("NECESITAMOS_JUGADORES", zona, 7, false, 6, 0.050);
+            // Cerrados: no tienen que aparecer por ningún camino
+            partido("CANCELADO", zona, 8, false, 1, 0.005);
+            partido("EN_JUEGO", zona, 9, false, 1, 0.006);
+            partido("FINALIZADO", zona, 10, false, 1, 0.007);
+        });
+    }
+
+    @Test
+    void porDeporteDevuelveLoMismo() {
+        compararBusqueda(CriteriosBusqueda.builder().deporteId(deporte.getId()).build());
+    }
+
+    @Test
+    void porZonaDevuelveLoMismo() {
+        compararBusqueda(CriteriosBusqueda.builder().zona(zona).build());
+        compararBusqueda(CriteriosBusqueda.builder().zona(" " + zona.toUpperCase()).build());
+    }
+
+    @Test
+    void porZonaConIncluirTodosDevuelveLoMismo() {
+        compararBusqueda(CriteriosBusqueda.builder().zona(zona).incluirTodos(true).build());
+    }
+
+    @Test
+    void generalDevuelveLoMismo() {
+        compararBusqueda(CriteriosBusqueda.builder().build());
+        compararBusqueda(CriteriosBusqueda.builder().incluirTodos(true).build());
+    }
+
+    @Test
+    void porCercaniaDevuelveLoMismoEnElMismoOrden() {
+        for (boolean incluirTodos : new boolean[] {false, true}) {
+            CriteriosBusqueda criterios = CriteriosBusqueda.builder()
+                    .latitud(LATITUD)
+                    .longitud(LONGITUD)
+                    .radioKm(10.0)
+                    .deporteId(deporte.getId())
+                    .incluirTodos(incluirTodos)
+                    .build();
+            String email = buscador.getEmail();
+            List<String> conIndice = cercanos(desdeIndice(() ->
+                    partidoService.buscarPartidosCercanos(email, criterios, PageRequest.of(0, 50))));
+            List<String> enBase = cercanos(desdeBase(() ->
+                    partidoService.buscarPartidosCercanos(email, criterios, PageRequest.of(0, 50))));
+
+            assertFalse(enBase.isEmpty(), "la búsqueda por cercanía tiene que encontrar partidos");
+            assertEquals(enBase, conIndice, "cercanía con incluirTodos=" + incluirTodos);
+        }
+    }
+
+    // ===== MÉTODOS AUXILIARES =====
+
+    private void compararBusqueda(CriteriosBusqueda criterios) {
+        String email = buscador.getEmail();
+        Page<PartidoResponse> conIndice = desdeIndice(() ->
+                partidoService.buscarPartidos(email, criterios, PageRequest.of(0, 100)));
+        Page<PartidoResponse> enBase = desdeBase(() ->
+                partidoService.buscarPartidos(email, criterios, PageRequest.of(0, 100)));
+
+        // El orden depende de la compatibilidad: se comparan los partidos y el total
+        assertFalse(enBase.isEmpty(), "la búsqueda tiene que encontrar partidos: " + criterios);
+        assertEquals(ids(enBase), ids(conIndice), "mismos partidos para " + criterios);
+        assertEquals(enBase.getTotalElements(), conIndice.getTotalElements(), "mismo total para " + criterios);
+    }
+
+    private <T> T desdeIndice(Supplier<T> busqueda) {
+        indicePartidosAbiertos.reconstruir();
+        return busqueda.get();
+    }
+
+    private <T> T desdeBase(Supplier<T> busqueda) {
+        // Índice descargado: la búsqueda cae al camino de la base (el campo está en el bean, no en el proxy)
+        ReflectionTestUtils.setField(AopTestUtils.getTargetObject(indicePartidosAbiertos), "cargado", false);
+        try {
+            return busqueda.get();
+        } finally {
+            indicePartidosAbiertos.reconstruir();
+        }
+    }
+
+    private static Set<Long> ids(Page<PartidoResponse> pagina) {
+        return pagina.getContent().stream().map(PartidoResponse::getId).collect(Collectors.toCollection(TreeSet::new));
+    }
+
+    private static List<String> cercanos(Page<PartidoResponse> pagina) {
+        return pagina.getContent().stream()
+                .map(r -> r.getId() + "@" + String.format("%.6f", r.getDistanciaKm()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Partido del organizador a diasAdelante días, con inscriptos sobre un cupo
+     * de 6, ubicado desplazamiento grados al norte del punto de búsqueda
+     */
+    private void partido(String estado, String zonaPartido, int diasAdelante, boolean conBuscador,
+                         int inscriptos, double desplazamiento) {
+        List<Usuario> participantes = new ArrayList<>();
+        if (conBuscador) {
+            participantes.add(buscador);
+        }
+        while (participantes.size() < inscriptos) {
+            participantes.add(usuario());
+        }
+        Partido partido = Partido.builder()
+                .deporte(deporte)
+                .cantidadJugadoresRequeridos(6)
+                .duracion(90)
+                .ubicacion(Ubicacion.builder()
+                        .direccion("Cancha " + diasAdelante)
+                        .zona(zonaPartido)
+                        .latitud(LATITUD + desplazamiento)
+                        .longitud(LONGITUD)
+                        .build())
+                .horario(LocalDateTime.now().plusDays(diasAdelante))
+                .organizador(organizador)
+                .participantes(participantes)
+                .estadoActual(estado)
+                .estrategiaActual("POR_NIVEL")
+                .build();
+        entityManager.persist(partido);
+    }
+
+    private Usuario usuario() {
+        String sufijo = UUID.randomUUID().toString().substring(0, 12);
+        Ubicacion ubicacion = Ubicacion.builder().direccion("Casa " + sufijo).zona(zona).build();
+        entityManager.persist(ubicacion);
+        Usuario usuario = Usuario.builder()
+                .nombreUsuario("jugador-" + sufijo)
+                .email("jugador-" + sufijo + "@test.com")
+                .contrasena("x")
+                .deporteFavorito(deporte)
+                .nivelJuego(NivelJuego.INTERMEDIO)
+                .ubicacion(ubicacion)
+                .role(Role.JUGADOR)
+                .activo(true)
+                .build();
+        entityManager.persist(usuario);
+        return usuario;
+    }
+}
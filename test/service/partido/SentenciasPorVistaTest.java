@@ -0,0 +1,232 @@
+package com.uade.tpo.deportes.service.partido;
+
+import com.uade.tpo.deportes.dto.CriteriosBusqueda;
+import com.uade.tpo.deportes.dto.PartidoResponse;
+import com.uade.tpo.deportes.entity.Deporte;
+import com.uade.tpo.deportes.entity.Partido;
+import com.uade.tpo.deportes.entity.Ubicacion;
+import com.uade.tpo.deportes.entity.Usuario;
+import com.uade.tpo.deportes.enums.NivelJuego;
+import com.uade.tpo.deportes.enums.Role;
+import jakarta.persistence.EntityManager;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 🧮 Cantidad de sentencias SQL por vista de partidos (detalle, mis partidos,
+ * listado admin, búsqueda). Cada vista carga con su plan (@NamedEntityGraph):
+ * la cantidad tiene que ser constante, sin importar cuántos partidos ni
+ * cuántos participantes haya.
+ *
+ * Se cuentan solo las sentencias del hilo del test: las tareas programadas
+ * (relay, leases, planificador) usan la misma base en otros hilos.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:sentencias;DB_CLOSE_DELAY=-1",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.uade.tpo.deportes.service.partido.SentenciasPorVistaTest$ContadorSentencias",
+        // La búsqueda va por la base; la paridad con el índice en memoria está en BusquedaIndiceParidadTest
+        "unomas.busqueda.indice-memoria.enabled=false",
+        "unomas.notifications.push.enabled=false",
+        "unomas.notifications.push.firebase.service-account-path=",
+        "unomas.notifications.push.firebase.project-id=test",
+        "unomas.notifications.email.enabled=false"
+})
+@DirtiesContext
+class SentenciasPorVistaTest {
+
+    // Detalle: el partido con su plan
+    private static final int MAXIMO_DETALLE = 1;
+    // Mis partidos: usuario + partidos con su plan
+    private static final int MAXIMO_LISTA = 3;
+    // Admin: partidos con su plan
+    private static final int MAXIMO_ADMIN = 1;
+    // Búsqueda: usuario + preferencias del usuario + candidatos con su plan
+    private static final int MAXIMO_BUSQUEDA = 5;
+
+    @Autowired
+    private PartidoService partidoService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transaccion;
+    private Deporte deporte;
+    private Usuario buscador;
+    private Usuario organizador;
+    private Long primerPartidoId;
+
+    @BeforeEach
+    void preparar() {
+        transaccion = new TransactionTemplate(transactionManager);
+        transaccion.executeWithoutResult(status -> {
+            deporte = Deporte.builder()
+                    .nombre("FUTBOL-" + UUID.randomUUID())
+                    .jugadoresPorEquipo(5)
+                    .activo(true)
+                    .build();
+            entityManager.persist(deporte);
+            organizador = usuario(NivelJuego.INTERMEDIO);
+            buscador = usuario(NivelJuego.INTERMEDIO);
+        });
+        primerPartidoId = crearPartidos(3, 2);
+    }
+
+    @Test
+    void detalleUsaUnaCantidadFijaDeSentencias() {
+        int conPocos = contar(() -> partidoService.obtenerPartido(primerPartidoId));
+        Long conMuchosId = crearPartidos(1, 8);
+        int conMuchos = contar(() -> partidoService.obtenerPartido(conMuchosId));
+
+        assertTrue(conPocos <= MAXIMO_DETALLE, "detalle: " + conPocos + " sentencias");
+        assertEquals(conPocos, conMuchos, "el detalle no puede crecer con los participantes");
+    }
+
+    @Test
+    void misPartidosUsaUnaCantidadFijaDeSentencias() {
+        String email = organizador.getEmail();
+        int conPocos = contar(() -> partidoService.obtenerPartidosDelUsuario(email));
+        crearPartidos(6, 6);
+        int conMuchos = contar(() -> partidoService.obtenerPartidosDelUsuario(email));
+
+        assertTrue(conPocos <= MAXIMO_LISTA, "mis partidos: " + conPocos + " sentencias");
+        assertEquals(conPocos, conMuchos, "mis partidos no puede crecer con los partidos");
+    }
+
+    @Test
+    void listadoAdminUsaUnaCantidadFijaDeSentencias() {
+        int conPocos = contar(() -> partidoService.buscarTodosParaAdmin());
+        crearPartidos(6, 6);
+        int conMuchos = contar(() -> partidoService.buscarTodosParaAdmin());
+
+        assertTrue(conPocos <= MAXIMO_ADMIN, "admin: " + conPocos + " sentencias");
+        assertEquals(conPocos, conMuchos, "el listado admin no puede crecer con los partidos");
+    }
+
+    @Test
+    void busquedaUsaUnaCantidadFijaDeSentencias() {
+        String email = buscador.getEmail();
+        CriteriosBusqueda criterios = CriteriosBusqueda.builder().deporteId(deporte.getId()).build();
+        List<PartidoResponse> primera = new ArrayList<>();
+        int conPocos = contar(() -> primera.addAll(
+                partidoService.buscarPartidos(email, criterios, PageRequest.of(0, 10)).getContent()));
+        crearPartidos(12, 4);
+        int conMuchos = contar(() -> partidoService.buscarPartidos(email, criterios, PageRequest.of(0, 10)));
+
+        assertFalse(primera.isEmpty(), "la búsqueda tiene que encontrar los partidos abiertos");
+        assertTrue(conPocos <= MAXIMO_BUSQUEDA, "búsqueda: " + conPocos + " sentencias");
+        assertEquals(conPocos, conMuchos, "la búsqueda no puede crecer con los candidatos");
+    }
+
+    // ===== MÉTODOS AUXILIARES =====
+
+    private int contar(Supplier<?> vista) {
+        ContadorSentencias.iniciar();
+        try {
+            vista.get();
+            return ContadorSentencias.cantidad();
+        } finally {
+            ContadorSentencias.detener();
+        }
+    }
+
+    /**
+     * Crea partidos abiertos del organizador, cada uno con sus participantes
+     * (con deporte favorito y ubicación, para que el mapeo los toque).
+     * Devuelve el id del primero.
+     */
+    private Long crearPartidos(int cantidad, int participantesPorPartido) {
+        return transaccion.execute(status -> {
+            Long primero = null;
+            Usuario organizadorAdjunto = entityManager.merge(organizador);
+            for (int i = 0; i < cantidad; i++) {
+                List<Usuario> participantes = new ArrayList<>();
+                for (int j = 0; j < participantesPorPartido; j++) {
+                    participantes.add(usuario(NivelJuego.values()[j % NivelJuego.values().length]));
+                }
+                Partido partido = Partido.builder()
+                        .deporte(entityManager.merge(deporte))
+                        .cantidadJugadoresRequeridos(participantesPorPartido + 4)
+                        .duracion(90)
+                        .ubicacion(Ubicacion.builder().direccion("Calle " + i).zona("palermo").build())
+                        .horario(LocalDateTime.now().plusDays(2).plusHours(i))
+                        .organizador(organizadorAdjunto)
+                        .participantes(participantes)
+                        .estadoActual("NECESITAMOS_JUGADORES")
+                        .estrategiaActual("POR_NIVEL")
+                        .build();
+                entityManager.persist(partido);
+                if (primero == null) {
+                    primero = partido.getId();
+                }
+            }
+            return primero;
+        });
+    }
+
+    private Usuario usuario(NivelJuego nivel) {
+        String sufijo = UUID.randomUUID().toString().substring(0, 12);
+        Ubicacion ubicacion = Ubicacion.builder().direccion("Casa " + sufijo).zona("palermo").build();
+        entityManager.persist(ubicacion);
+        Usuario usuario = Usuario.builder()
+                .nombreUsuario("jugador-" + sufijo)
+                .email("jugador-" + sufijo + "@test.com")
+                .contrasena("x")
+                .deporteFavorito(entityManager.merge(deporte))
+                .nivelJuego(nivel)
+                .ubicacion(ubicacion)
+                .role(Role.JUGADOR)
+                .activo(true)
+                .build();
+        entityManager.persist(usuario);
+        return usuario;
+    }
+
+    /**
+     * Cuenta las sentencias que prepara Hibernate en el hilo que lo pidió
+     */
+    public static class ContadorSentencias implements StatementInspector {
+        private static final ThreadLocal<int[]> CONTADOR = new ThreadLocal<>();
+
+        static void iniciar() {
+            CONTADOR.set(new int[1]);
+        }
+
+        static int cantidad() {
+            return CONTADOR.get()[0];
+        }
+
+        static void detener() {
+            CONTADOR.remove();
+        }
+
+        @Override
+        public String inspect(String sql) {
+            int[] contador = CONTADOR.get();
+            if (contador != null) {
+                contador[0]++;
+            }
+            return sql;
+        }
+    }
+}
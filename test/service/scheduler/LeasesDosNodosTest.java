@@ -0,0 +1,161 @@
+package com.uade.tpo.deportes.service.scheduler;
+
+import com.uade.tpo.deportes.UnoMasDeportesApplication;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 🔐 Dos nodos (dos contextos de la aplicación) contra la misma base H2
+ * embebida: cada tarea tiene un solo dueño, y cuando el dueño se apaga o
+ * deja de renovar, el otro nodo toma el lease.
+ */
+class LeasesDosNodosTest {
+
+    private static final long LEASE_SEGUNDOS = 3;
+    private static final String TAREA = "tarea-de-prueba";
+
+    private ConfigurableApplicationContext nodoA;
+    private ConfigurableApplicationContext nodoB;
+    private LeasesTareasService leasesA;
+    private LeasesTareasService leasesB;
+
+    @BeforeEach
+    void levantarNodos() {
+        String base = "jdbc:h2:mem:leases-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+        // El primero crea el esquema; el segundo usa el que ya está
+        nodoA = levantar("nodo-a", base, "create");
+        nodoB = levantar("nodo-b", base, "none");
+        leasesA = nodoA.getBean(LeasesTareasService.class);
+        leasesB = nodoB.getBean(LeasesTareasService.class);
+    }
+
+    @AfterEach
+    void apagarNodos() {
+        if (nodoB != null) {
+            nodoB.close();
+        }
+        if (nodoA != null && nodoA.isActive()) {
+            nodoA.close();
+        }
+    }
+
+    @Test
+    void laTareaTieneUnSoloDueño() {
+        assertTrue(leasesA.esDueño(TAREA));
+        assertFalse(leasesB.esDueño(TAREA));
+        // El dueño lo sigue siendo mientras renueva, y el otro sigue afuera
+        assertTrue(leasesA.esDueño(TAREA));
+        assertFalse(leasesB.esDueño(TAREA));
+    }
+
+    @Test
+    void aLaPrimeraVezCompitenYGanaUnoSolo() throws Exception {
+        CountDownLatch largada = new CountDownLatch(1);
+        ExecutorService hilos = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<Boolean>> resultados = new ArrayList<>();
+            for (LeasesTareasService leases : List.of(leasesA, leasesB)) {
+                Callable<Boolean> intento = () -> {
+                    largada.await();
+                    return leases.esDueño(TAREA);
+                };
+                resultados.add(hilos.submit(intento));
+            }
+            largada.countDown();
+            boolean ganoA = resultados.get(0).get();
+            boolean ganoB = resultados.get(1).get();
+            assertNotEquals(ganoA, ganoB, "exactamente un nodo tiene que quedarse con la tarea");
+        } finally {
+            hilos.shutdownNow();
+        }
+    }
+
+    @Test
+    void alApagarseElDueñoElOtroNodoTomaLaTarea() {
+        assertTrue(leasesA.esDueño(TAREA));
+
+        // Al cerrar el contexto el lease se libera: no hace falta esperar el vencimiento
+        nodoA.close();
+
+        assertTrue(leasesB.esDueño(TAREA));
+    }
+
+    @Test
+    void siElDueñoDejaDeRenovarElLeaseVenceYHayFailover() throws Exception {
+        assertTrue(leasesA.esDueño(TAREA));
+        assertFalse(leasesB.esDueño(TAREA));
+
+        // Nodo colgado: deja de renovar pero no libera nada
+        ((ScheduledExecutorService) ReflectionTestUtils.getField(leasesA, "renovador")).shutdownNow();
+
+        esperar(() -> leasesB.esDueño(TAREA), LEASE_SEGUNDOS * 3000);
+        assertTrue(leasesB.esDueño(TAREA));
+    }
+
+    @Test
+    void laTareaDeUnSoloNodoCorreEnUnSoloNodo() throws Exception {
+        EjecutorTareasProgramadas ejecutorA = nodoA.getBean(EjecutorTareasProgramadas.class);
+        EjecutorTareasProgramadas ejecutorB = nodoB.getBean(EjecutorTareasProgramadas.class);
+        AtomicInteger corridasA = new AtomicInteger();
+        AtomicInteger corridasB = new AtomicInteger();
+
+        // Los dos nodos disparan la misma tarea, como haría @Scheduled en cada uno
+        for (int i = 0; i < 5; i++) {
+            ejecutorA.ejecutarEnUnSoloNodo(TAREA, EjecutorTareasProgramadas.PoliticaSolapamiento.ENCADENAR,
+                    corridasA::incrementAndGet);
+            ejecutorB.ejecutarEnUnSoloNodo(TAREA, EjecutorTareasProgramadas.PoliticaSolapamiento.ENCADENAR,
+                    corridasB::incrementAndGet);
+        }
+
+        esperar(() -> corridasA.get() + corridasB.get() > 0, 5000);
+        Thread.sleep(500);
+        assertTrue(corridasA.get() == 0 || corridasB.get() == 0,
+                "corrió en los dos nodos: A=" + corridasA.get() + ", B=" + corridasB.get());
+    }
+
+    // ===== MÉTODOS AUXILIARES =====
+
+    private static ConfigurableApplicationContext levantar(String nodoId, String base, String ddl) {
+        return new SpringApplicationBuilder(UnoMasDeportesApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=" + base,
+                        "spring.jpa.hibernate.ddl-auto=" + ddl,
+                        "unomas.cluster.nodo-id=" + nodoId,
+                        "unomas.cluster.lease-segundos=" + LEASE_SEGUNDOS,
+                        "unomas.notifications.push.enabled=false",
+                        "unomas.notifications.push.firebase.service-account-path=",
+                        "unomas.notifications.push.firebase.project-id=test",
+                        "unomas.notifications.email.enabled=false")
+                .run();
+    }
+
+    private static void esperar(BooleanSupplier condicion, long maximoMs) throws InterruptedException {
+        long limite = System.currentTimeMillis() + maximoMs;
+        while (!condicion.getAsBoolean() && System.currentTimeMillis() < limite) {
+            Thread.sleep(200);
+        }
+    }
+}